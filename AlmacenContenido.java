@@ -0,0 +1,636 @@
+/**
+ * Almacén direccionado por contenido para los archivos de los libros digitales.
+ *
+ * Los archivos se cortan en trozos de tamaño variable con un hash rodante tipo
+ * "gear" (fragmentación definida por el contenido), de modo que dos ediciones casi
+ * iguales comparten la mayor parte de sus trozos aunque se inserten o borren bytes.
+ * Cada trozo se guarda una sola vez, con su SHA-256 como nombre, y lleva un
+ * contador de referencias. Un archivo es la lista de sus trozos y se identifica
+ * por el SHA-256 de los resúmenes de esos trozos.
+ *
+ * Cada LibroDigital que usa un archivo cuenta como una referencia: guardar() y
+ * vincular() la suman y liberar() la resta. Cuando un archivo se queda sin
+ * referencias se borra, y con él los trozos que ya no usa ningún otro archivo.
+ *
+ * Los archivos de entrada se leen proyectados en memoria (FileChannel.map), por
+ * ventanas, sin copiarlos al heap. Sólo se escriben los trozos que no existían.
+ * Trozos y manifiestos se escriben en un temporal que luego se renombra, de
+ * modo que una escritura interrumpida nunca deja un archivo a medias.
+ *
+ * transferir() no retiene el cerrojo del almacén mientras envía, pero fija el
+ * archivo con un contador de lectores: si se borra durante la transferencia,
+ * sus trozos se borran cuando termina el último lector.
+ *
+ * Estructura en disco:
+ * - trozos/{2 primeros hex}/{sha256}   Contenido de cada trozo
+ * - archivos/{hash}                    Manifiesto: tamaño y lista de trozos
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.LongConsumer;
+
+public class AlmacenContenido {
+    /** Tamaño mínimo de un trozo */
+    public static final int TROZO_MINIMO = 2 * 1024;
+    /** Tamaño máximo de un trozo */
+    public static final int TROZO_MAXIMO = 64 * 1024;
+    /** Máscara del hash rodante: un corte cada 8 KB en promedio */
+    private static final long MASCARA = (1L << 13) - 1;
+    /** Tamaño de cada ventana proyectada en memoria */
+    private static final long VENTANA = 64L * 1024 * 1024;
+    /** Tabla del hash "gear": un valor pseudoaleatorio fijo por cada byte */
+    private static final long[] ENGRANAJE = new long[256];
+
+    static {
+        SplittableRandom aleatorio = new SplittableRandom(0x5EEDL);
+        for (int i = 0; i < ENGRANAJE.length; i++) {
+            ENGRANAJE[i] = aleatorio.nextLong();
+        }
+    }
+
+    /** Directorio de los trozos */
+    private final Path dirTrozos;
+    /** Directorio de los manifiestos */
+    private final Path dirArchivos;
+    /** Archivos almacenados por hash */
+    private final Map<String, Archivo> archivos;
+    /** Trozos almacenados por SHA-256 */
+    private final Map<String, Trozo> trozos;
+    /** Bytes únicos almacenados en trozos */
+    private long bytesAlmacenados;
+    /** Bytes recibidos por guardar() */
+    private long bytesIngresados;
+    /** Bytes escritos en disco por guardar(), incluidos los manifiestos */
+    private long bytesEscritos;
+
+    /**
+     * Abre un almacén en un directorio, creándolo si no existe.
+     * Los archivos que ya estaban almacenados se cargan sin referencias hasta
+     * que un libro los vincule.
+     *
+     * @param directorio Directorio del almacén
+     * @throws IOException si no se puede crear o leer el directorio
+     */
+    public AlmacenContenido(Path directorio) throws IOException {
+        this.dirTrozos = Files.createDirectories(directorio.resolve("trozos"));
+        this.dirArchivos = Files.createDirectories(directorio.resolve("archivos"));
+        this.archivos = new HashMap<>();
+        this.trozos = new HashMap<>();
+        cargar();
+    }
+
+    /**
+     * Guarda el archivo de un libro digital y lo asocia con el libro.
+     * Si el libro ya tenía contenido, se libera la referencia anterior.
+     *
+     * @param libro El libro digital
+     * @param origen Archivo a guardar
+     * @return Hash del contenido
+     * @throws IOException si no se puede leer el origen o escribir en el almacén
+     */
+    public synchronized String guardar(LibroDigital libro, Path origen) throws IOException {
+        Archivo archivo = almacenar(origen);
+        archivo.referencias++;
+        liberar(libro);
+        libro.setHashContenido(archivo.hash);
+        return archivo.hash;
+    }
+
+    /**
+     * Asocia un libro digital con un contenido ya almacenado, por ejemplo el de
+     * otra edición del mismo libro, sin volver a leer ningún archivo.
+     *
+     * @param libro El libro digital
+     * @param hash Hash del contenido
+     * @return true si el contenido existe en el almacén
+     */
+    public synchronized boolean vincular(LibroDigital libro, String hash) {
+        Archivo archivo = hash == null ? null : archivos.get(hash);
+        if (archivo == null) {
+            return false;
+        }
+        archivo.referencias++;
+        liberar(libro);
+        libro.setHashContenido(hash);
+        return true;
+    }
+
+    /**
+     * Quita la referencia de un libro digital a su contenido. Si el contenido
+     * se queda sin referencias se borra del almacén.
+     *
+     * @param libro El libro digital
+     * @return true si el libro tenía contenido en el almacén
+     */
+    public synchronized boolean liberar(LibroDigital libro) {
+        String hash = libro.getHashContenido();
+        Archivo archivo = hash == null ? null : archivos.get(hash);
+        libro.setHashContenido(null);
+        if (archivo == null) {
+            return false;
+        }
+        if (--archivo.referencias <= 0) {
+            borrar(archivo);
+        }
+        return true;
+    }
+
+    /**
+     * Borra los archivos que no tienen ninguna referencia, por ejemplo los
+     * cargados al abrir el almacén que ningún libro ha vinculado.
+     *
+     * @return Número de archivos borrados
+     */
+    public synchronized int recolectar() {
+        List<Archivo> sinReferencias = new ArrayList<>();
+        for (Archivo archivo : archivos.values()) {
+            if (archivo.referencias <= 0) {
+                sinReferencias.add(archivo);
+            }
+        }
+        for (Archivo archivo : sinReferencias) {
+            borrar(archivo);
+        }
+        return sinReferencias.size();
+    }
+
+    /**
+     * Indica si un contenido está en el almacén.
+     * @param hash Hash del contenido
+     * @return true si existe
+     */
+    public synchronized boolean contiene(String hash) {
+        return archivos.containsKey(hash);
+    }
+
+    /**
+     * Obtiene el tamaño de un contenido.
+     *
+     * @param hash Hash del contenido
+     * @return Tamaño en bytes
+     * @throws NoSuchFileException si el contenido no está en el almacén
+     */
+    public long tamano(String hash) throws NoSuchFileException {
+        return buscar(hash).tamano;
+    }
+
+    /**
+     * Envía un intervalo de un contenido a un canal de destino, trozo por trozo
+     * con FileChannel.transferTo.
+     *
+     * @param hash Hash del contenido
+     * @param inicio Primer byte a enviar
+     * @param longitud Número de bytes a enviar
+     * @param destino Canal de destino
+     * @return Número de bytes enviados
+     * @throws IOException si el contenido no existe o falla la transferencia
+     */
+    public long transferir(String hash, long inicio, long longitud, WritableByteChannel destino) throws IOException {
+        return transferir(hash, inicio, longitud, destino, n -> { });
+    }
+
+    /**
+     * Envía un intervalo de un contenido a un canal de destino e informa de
+     * cada avance, de modo que el llamador sepa cuántos bytes salieron aunque
+     * la transferencia falle a medias.
+     *
+     * @param hash Hash del contenido
+     * @param inicio Primer byte a enviar
+     * @param longitud Número de bytes a enviar
+     * @param destino Canal de destino
+     * @param avance Recibe el número de bytes de cada escritura en el destino
+     * @return Número de bytes enviados
+     * @throws IOException si el contenido no existe o falla la transferencia
+     */
+    public long transferir(String hash, long inicio, long longitud, WritableByteChannel destino,
+                           LongConsumer avance) throws IOException {
+        Archivo archivo = fijar(hash);
+        try {
+            return transferir(archivo, inicio, longitud, destino, avance);
+        } finally {
+            soltar(archivo);
+        }
+    }
+
+    /**
+     * Envía un intervalo de un archivo ya fijado.
+     */
+    private long transferir(Archivo archivo, long inicio, long longitud, WritableByteChannel destino,
+                            LongConsumer avance) throws IOException {
+        long fin = Math.min(inicio + longitud, archivo.tamano);
+        long enviados = 0;
+        int i = archivo.trozoEn(inicio);
+        for (long posicion = inicio; posicion < fin; i++) {
+            long desplazamiento = posicion - archivo.inicios[i];
+            long cuantos = Math.min(archivo.inicios[i + 1], fin) - posicion;
+            try (FileChannel trozo = FileChannel.open(rutaTrozo(archivo.trozos[i]), StandardOpenOption.READ)) {
+                while (cuantos > 0) {
+                    long n = trozo.transferTo(desplazamiento, cuantos, destino);
+                    if (n <= 0 && desplazamiento >= trozo.size()) {
+                        throw new EOFException("Trozo incompleto: " + archivo.trozos[i]);
+                    }
+                    desplazamiento += n;
+                    cuantos -= n;
+                    posicion += n;
+                    enviados += n;
+                    avance.accept(n);
+                }
+            }
+        }
+        return enviados;
+    }
+
+    /**
+     * Obtiene el número de archivos distintos almacenados.
+     * @return Número de archivos
+     */
+    public synchronized int getTotalArchivos() {
+        return archivos.size();
+    }
+
+    /**
+     * Obtiene el número de trozos distintos almacenados.
+     * @return Número de trozos
+     */
+    public synchronized int getTotalTrozos() {
+        return trozos.size();
+    }
+
+    /**
+     * Obtiene los bytes que ocuparían los archivos sin deduplicar: cada archivo
+     * cuenta una vez por cada libro que lo usa, y al menos una vez.
+     *
+     * @return Bytes lógicos
+     */
+    public synchronized long getBytesLogicos() {
+        long total = 0;
+        for (Archivo archivo : archivos.values()) {
+            total += archivo.tamano * Math.max(1, archivo.referencias);
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene los bytes que ocupan realmente los trozos en disco.
+     * @return Bytes físicos
+     */
+    public synchronized long getBytesAlmacenados() {
+        return bytesAlmacenados;
+    }
+
+    /**
+     * Obtiene el espacio ahorrado por la deduplicación.
+     * @return Bytes lógicos menos bytes físicos
+     */
+    public synchronized long getBytesAhorrados() {
+        return getBytesLogicos() - bytesAlmacenados;
+    }
+
+    /**
+     * Obtiene los bytes recibidos para guardar, cuenten o no como escrituras.
+     * @return Bytes ingresados
+     */
+    public synchronized long getBytesIngresados() {
+        return bytesIngresados;
+    }
+
+    /**
+     * Obtiene los bytes escritos en disco, incluidos los manifiestos.
+     * @return Bytes escritos
+     */
+    public synchronized long getBytesEscritos() {
+        return bytesEscritos;
+    }
+
+    /**
+     * Obtiene la amplificación de escritura: bytes escritos en disco por cada
+     * byte recibido. Es menor que 1 cuando la deduplicación evita escrituras y
+     * mayor que 1 cuando pesan más los manifiestos.
+     *
+     * @return Cociente entre bytes escritos e ingresados, o 0 si no se ha guardado nada
+     */
+    public synchronized double getAmplificacionEscritura() {
+        return bytesIngresados == 0 ? 0 : (double) bytesEscritos / bytesIngresados;
+    }
+
+    /**
+     * Calcula los tamaños de los trozos en que se cortaría un contenido.
+     * Sirve para comprobar que los cortes dependen del contenido y no de la
+     * posición.
+     *
+     * @param datos Contenido a cortar
+     * @return Tamaño de cada trozo, en orden
+     */
+    public static List<Integer> cortar(byte[] datos) {
+        List<Integer> tamanos = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(datos);
+        int inicio = 0;
+        while (inicio < datos.length) {
+            int fin = siguienteCorte(buffer, inicio, datos.length);
+            tamanos.add(fin - inicio);
+            inicio = fin;
+        }
+        return tamanos;
+    }
+
+    /**
+     * Busca el final del trozo que empieza en inicio. Los primeros TROZO_MINIMO
+     * bytes no se examinan, y el trozo se corta a la fuerza en TROZO_MAXIMO.
+     */
+    private static int siguienteCorte(ByteBuffer datos, int inicio, int limite) {
+        int maximo = (int) Math.min((long) inicio + TROZO_MAXIMO, limite);
+        long hash = 0;
+        for (int i = inicio + Math.min(TROZO_MINIMO, maximo - inicio); i < maximo; i++) {
+            hash = (hash << 1) + ENGRANAJE[datos.get(i) & 0xff];
+            if ((hash & MASCARA) == 0) {
+                return i + 1;
+            }
+        }
+        return maximo;
+    }
+
+    /**
+     * Corta un archivo en trozos, escribe los que faltan y registra su manifiesto.
+     */
+    private Archivo almacenar(Path origen) throws IOException {
+        MessageDigest resumenTrozo = sha256();
+        MessageDigest resumenArchivo = sha256();
+        List<String> hashes = new ArrayList<>();
+        List<Long> inicios = new ArrayList<>();
+        Set<String> escritos = new HashSet<>();
+        long tamano;
+        long nuevosBytes = 0;
+        try (FileChannel entrada = FileChannel.open(origen, StandardOpenOption.READ)) {
+            tamano = entrada.size();
+            long base = 0;
+            while (base < tamano) {
+                long longitudVentana = Math.min(VENTANA, tamano - base);
+                MappedByteBuffer ventana = entrada.map(FileChannel.MapMode.READ_ONLY, base, longitudVentana);
+                boolean ultima = base + longitudVentana == tamano;
+                int limite = (int) longitudVentana;
+                int inicio = 0;
+                // Un trozo sólo se corta si cabe entero en la ventana; si no, la
+                // siguiente ventana empieza en él
+                while (inicio < limite && (ultima || limite - inicio >= TROZO_MAXIMO)) {
+                    int fin = siguienteCorte(ventana, inicio, limite);
+                    ByteBuffer trozo = ventana.duplicate();
+                    trozo.limit(fin).position(inicio);
+                    resumenTrozo.update(trozo.duplicate());
+                    byte[] digest = resumenTrozo.digest();
+                    String hash = hex(digest);
+                    resumenArchivo.update(digest);
+                    hashes.add(hash);
+                    inicios.add(base + inicio);
+                    if (!trozos.containsKey(hash) && !escritos.contains(hash) && !Files.exists(rutaTrozo(hash))) {
+                        escribirTrozo(hash, trozo);
+                        escritos.add(hash);
+                        nuevosBytes += fin - inicio;
+                    }
+                    inicio = fin;
+                }
+                base += inicio;
+            }
+            String hash = hex(resumenArchivo.digest());
+            bytesIngresados += tamano;
+            Archivo archivo = archivos.get(hash);
+            if (archivo != null) {
+                return archivo;
+            }
+            archivo = new Archivo(hash, tamano, hashes, inicios);
+            bytesEscritos += nuevosBytes + escribirManifiesto(archivo);
+            registrar(archivo);
+            return archivo;
+        } catch (IOException | RuntimeException e) {
+            for (String hash : escritos) {
+                if (!trozos.containsKey(hash)) {
+                    Files.deleteIfExists(rutaTrozo(hash));
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Suma las referencias de los trozos de un archivo nuevo.
+     */
+    private void registrar(Archivo archivo) throws IOException {
+        archivos.put(archivo.hash, archivo);
+        for (int i = 0; i < archivo.trozos.length; i++) {
+            Trozo trozo = trozos.get(archivo.trozos[i]);
+            if (trozo == null) {
+                trozo = new Trozo(archivo.inicios[i + 1] - archivo.inicios[i]);
+                trozos.put(archivo.trozos[i], trozo);
+                bytesAlmacenados += trozo.longitud;
+            }
+            trozo.referencias++;
+        }
+    }
+
+    /**
+     * Borra un archivo y los trozos que se quedan sin referencias. Si hay
+     * transferencias en curso, los trozos se borran al terminar la última.
+     */
+    private void borrar(Archivo archivo) {
+        archivos.remove(archivo.hash);
+        try {
+            Files.deleteIfExists(dirArchivos.resolve(archivo.hash));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (archivo.lectores > 0) {
+            archivo.borrado = true;
+        } else {
+            soltarTrozos(archivo);
+        }
+    }
+
+    /**
+     * Resta las referencias de los trozos de un archivo borrado y borra los que
+     * se quedan sin ninguna.
+     */
+    private void soltarTrozos(Archivo archivo) {
+        try {
+            for (String hash : archivo.trozos) {
+                Trozo trozo = trozos.get(hash);
+                if (trozo != null && --trozo.referencias <= 0) {
+                    trozos.remove(hash);
+                    bytesAlmacenados -= trozo.longitud;
+                    Files.deleteIfExists(rutaTrozo(hash));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Carga los manifiestos existentes y reconstruye las referencias de los trozos.
+     */
+    private void cargar() throws IOException {
+        try (DirectoryStream<Path> manifiestos = Files.newDirectoryStream(dirArchivos)) {
+            for (Path manifiesto : manifiestos) {
+                if (manifiesto.getFileName().toString().endsWith(".tmp")) {
+                    Files.delete(manifiesto);
+                    continue;
+                }
+                List<String> lineas = Files.readAllLines(manifiesto, StandardCharsets.US_ASCII);
+                if (lineas.isEmpty()) {
+                    continue;
+                }
+                List<String> hashes = new ArrayList<>();
+                List<Long> inicios = new ArrayList<>();
+                long posicion = 0;
+                for (String linea : lineas.subList(1, lineas.size())) {
+                    int espacio = linea.indexOf(' ');
+                    hashes.add(linea.substring(0, espacio));
+                    inicios.add(posicion);
+                    posicion += Long.parseLong(linea.substring(espacio + 1));
+                }
+                registrar(new Archivo(manifiesto.getFileName().toString(),
+                                      Long.parseLong(lineas.get(0)), hashes, inicios));
+            }
+        }
+    }
+
+    /**
+     * Escribe un trozo en un archivo temporal y lo mueve a su nombre definitivo.
+     */
+    private void escribirTrozo(String hash, ByteBuffer contenido) throws IOException {
+        Path destino = rutaTrozo(hash);
+        Files.createDirectories(destino.getParent());
+        Path temporal = destino.resolveSibling(hash + ".tmp");
+        try (FileChannel salida = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (contenido.hasRemaining()) {
+                salida.write(contenido);
+            }
+        }
+        Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Escribe el manifiesto de un archivo en un temporal y lo mueve a su
+     * nombre definitivo, igual que los trozos.
+     * @return Bytes escritos
+     */
+    private long escribirManifiesto(Archivo archivo) throws IOException {
+        StringBuilder texto = new StringBuilder().append(archivo.tamano).append('\n');
+        for (int i = 0; i < archivo.trozos.length; i++) {
+            texto.append(archivo.trozos[i]).append(' ')
+                 .append(archivo.inicios[i + 1] - archivo.inicios[i]).append('\n');
+        }
+        byte[] bytes = texto.toString().getBytes(StandardCharsets.US_ASCII);
+        Path temporal = dirArchivos.resolve(archivo.hash + ".tmp");
+        Files.write(temporal, bytes);
+        Files.move(temporal, dirArchivos.resolve(archivo.hash), StandardCopyOption.ATOMIC_MOVE);
+        return bytes.length;
+    }
+
+    /**
+     * Busca un archivo y suma un lector, para que sus trozos no se borren
+     * mientras se transfiere.
+     */
+    private synchronized Archivo fijar(String hash) throws NoSuchFileException {
+        Archivo archivo = buscar(hash);
+        archivo.lectores++;
+        return archivo;
+    }
+
+    /**
+     * Resta un lector y, si el archivo se borró mientras tanto y era el último,
+     * borra sus trozos.
+     */
+    private synchronized void soltar(Archivo archivo) {
+        if (--archivo.lectores == 0 && archivo.borrado) {
+            archivo.borrado = false;
+            soltarTrozos(archivo);
+        }
+    }
+
+    private synchronized Archivo buscar(String hash) throws NoSuchFileException {
+        Archivo archivo = hash == null ? null : archivos.get(hash);
+        if (archivo == null) {
+            throw new NoSuchFileException("Contenido no almacenado: " + hash);
+        }
+        return archivo;
+    }
+
+    private Path rutaTrozo(String hash) {
+        return dirTrozos.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder texto = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            texto.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Archivo almacenado: su lista de trozos es inmutable.
+     */
+    private static class Archivo {
+        final String hash;
+        final long tamano;
+        final String[] trozos;
+        /** Posición inicial de cada trozo, más el tamaño total al final */
+        final long[] inicios;
+        /** Libros que usan el archivo; protegido por el cerrojo del almacén */
+        int referencias;
+        /** Transferencias en curso; protegido por el cerrojo del almacén */
+        int lectores;
+        /** Indica que se borró con lectores y sus trozos esperan al último */
+        boolean borrado;
+
+        Archivo(String hash, long tamano, List<String> trozos, List<Long> inicios) {
+            this.hash = hash;
+            this.tamano = tamano;
+            this.trozos = trozos.toArray(new String[0]);
+            this.inicios = new long[inicios.size() + 1];
+            for (int i = 0; i < inicios.size(); i++) {
+                this.inicios[i] = inicios.get(i);
+            }
+            this.inicios[inicios.size()] = tamano;
+        }
+
+        /**
+         * Busca el trozo que contiene una posición.
+         */
+        int trozoEn(long posicion) {
+            int i = Arrays.binarySearch(inicios, 0, trozos.length, posicion);
+            return i >= 0 ? i : -i - 2;
+        }
+    }
+
+    /**
+     * Trozo almacenado.
+     */
+    private static class Trozo {
+        final long longitud;
+        int referencias;
+
+        Trozo(long longitud) {
+            this.longitud = longitud;
+        }
+    }
+}
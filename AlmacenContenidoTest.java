@@ -0,0 +1,192 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Clase de pruebas unitarias para la clase AlmacenContenido.
+ * Verifica la deduplicación por trozos, las referencias y la lectura del contenido.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class AlmacenContenidoTest
+{
+    /** Directorio temporal de las pruebas */
+    private Path directorio;
+    /** Almacén de prueba */
+    private AlmacenContenido almacen;
+    /** Contenido de la primera edición */
+    private byte[] edicion1;
+    /** Contenido de la segunda edición: la primera con 100 bytes insertados */
+    private byte[] edicion2;
+    /** Libros digitales de prueba */
+    private LibroDigital libro1, libro2, copia;
+
+    /**
+     * Crea un almacén vacío y dos ediciones casi iguales de un archivo.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        directorio = Files.createTempDirectory("contenido");
+        almacen = new AlmacenContenido(directorio.resolve("almacen"));
+        edicion1 = new byte[300_000];
+        new Random(11).nextBytes(edicion1);
+        edicion2 = new byte[edicion1.length + 100];
+        System.arraycopy(edicion1, 0, edicion2, 0, 150_000);
+        System.arraycopy(edicion1, 150_000, edicion2, 150_100, 150_000);
+        Files.write(directorio.resolve("edicion1.pdf"), edicion1);
+        Files.write(directorio.resolve("edicion2.pdf"), edicion2);
+        libro1 = new LibroDigital("Java Programming", "John Doe", "9780000000001", 425, "PDF", 0.3, "");
+        libro2 = new LibroDigital("Java Programming 2a ed.", "John Doe", "9780000000002", 430, "PDF", 0.3, "");
+        copia = new LibroDigital(libro1, "PDF", 0.3, "");
+    }
+
+    /**
+     * Prueba que los cortes dependan del contenido: tras una inserción, los
+     * trozos posteriores se recuperan iguales.
+     */
+    @Test
+    public void testCortesPorContenido() {
+        List<Integer> cortes1 = AlmacenContenido.cortar(edicion1);
+        List<Integer> cortes2 = AlmacenContenido.cortar(edicion2);
+        assertEquals(edicion1.length, cortes1.stream().mapToInt(Integer::intValue).sum());
+        for (int tamano : cortes1) {
+            assertTrue(tamano <= AlmacenContenido.TROZO_MAXIMO);
+        }
+        assertEquals(cortes1.get(cortes1.size() - 1), cortes2.get(cortes2.size() - 1));
+        assertTrue(cortes1.size() > 10);
+    }
+
+    /**
+     * Prueba que dos ediciones casi iguales y una copia compartan sus trozos.
+     */
+    @Test
+    public void testDeduplicacion() throws IOException {
+        String hash1 = almacen.guardar(libro1, directorio.resolve("edicion1.pdf"));
+        String hash2 = almacen.guardar(libro2, directorio.resolve("edicion2.pdf"));
+        assertNotEquals(hash1, hash2);
+        assertEquals(hash1, libro1.getHashContenido());
+        assertTrue(almacen.vincular(copia, hash1));
+        assertEquals(hash1, almacen.guardar(new LibroDigital(libro1, "PDF", 0.3, ""),
+                                            directorio.resolve("edicion1.pdf")));
+
+        assertEquals(2, almacen.getTotalArchivos());
+        assertTrue(almacen.getBytesAlmacenados() < edicion1.length + 40_000);
+        assertEquals(3L * edicion1.length + edicion2.length, almacen.getBytesLogicos());
+        assertTrue(almacen.getBytesAhorrados() > 2L * edicion1.length);
+        assertTrue(almacen.getAmplificacionEscritura() < 0.5);
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        almacen.transferir(hash2, 0, edicion2.length, Channels.newChannel(salida));
+        assertArrayEquals(edicion2, salida.toByteArray());
+        salida.reset();
+        almacen.transferir(hash2, 149_990, 20_000, Channels.newChannel(salida));
+        assertArrayEquals(Arrays.copyOfRange(edicion2, 149_990, 169_990), salida.toByteArray());
+    }
+
+    /**
+     * Prueba que al liberar la última referencia se borren el archivo y sus trozos.
+     */
+    @Test
+    public void testLiberar() throws IOException {
+        String hash1 = almacen.guardar(libro1, directorio.resolve("edicion1.pdf"));
+        almacen.vincular(copia, hash1);
+        almacen.guardar(libro2, directorio.resolve("edicion2.pdf"));
+
+        assertTrue(almacen.liberar(libro1));
+        assertNull(libro1.getHashContenido());
+        assertFalse(almacen.liberar(libro1));
+        assertTrue(almacen.contiene(hash1));
+        almacen.liberar(copia);
+        assertFalse(almacen.contiene(hash1));
+        assertEquals(edicion2.length, almacen.getBytesAlmacenados());
+        almacen.liberar(libro2);
+        assertEquals(0, almacen.getTotalTrozos());
+        try (Stream<Path> archivos = Files.walk(directorio.resolve("almacen"))) {
+            assertEquals(0, archivos.filter(Files::isRegularFile).count());
+        }
+    }
+
+    /**
+     * Prueba que al reabrir el almacén se carguen los archivos existentes.
+     */
+    @Test
+    public void testReabrir() throws IOException {
+        String hash = almacen.guardar(libro1, directorio.resolve("edicion1.pdf"));
+        long almacenados = almacen.getBytesAlmacenados();
+        almacen = new AlmacenContenido(directorio.resolve("almacen"));
+        assertEquals(almacenados, almacen.getBytesAlmacenados());
+        assertEquals(edicion1.length, almacen.tamano(hash));
+
+        EntregaContenido entrega = new EntregaContenido(directorio, almacen);
+        assertTrue(almacen.vincular(copia, hash));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        entrega.transferir(copia, EntregaContenido.interpretarRango(null, edicion1.length), Channels.newChannel(salida));
+        assertArrayEquals(edicion1, salida.toByteArray());
+        assertEquals(1, copia.getDescargasActuales());
+        assertEquals("\"" + hash + "\"", entrega.etiqueta(copia));
+
+        almacen.liberar(copia);
+        assertEquals(0, almacen.recolectar());
+    }
+
+    /**
+     * Prueba que un contenido liberado durante una transferencia se envíe
+     * completo y que sus trozos se borren al terminar, y que no se carguen
+     * manifiestos temporales de una escritura interrumpida.
+     */
+    @Test
+    public void testLiberarDuranteLaTransferencia() throws IOException {
+        String hash = almacen.guardar(libro1, directorio.resolve("edicion1.pdf"));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        WritableByteChannel destino = Channels.newChannel(salida);
+        WritableByteChannel liberaAlEmpezar = new WritableByteChannel() {
+            public int write(ByteBuffer datos) throws IOException {
+                if (almacen.contiene(hash)) {
+                    assertTrue(almacen.liberar(libro1));
+                }
+                return destino.write(datos);
+            }
+            public boolean isOpen() {
+                return true;
+            }
+            public void close() {
+            }
+        };
+        assertEquals(edicion1.length, almacen.transferir(hash, 0, edicion1.length, liberaAlEmpezar));
+        assertArrayEquals(edicion1, salida.toByteArray());
+        assertFalse(almacen.contiene(hash));
+        assertEquals(0, almacen.getTotalTrozos());
+        assertEquals(0, almacen.getBytesAlmacenados());
+        try (Stream<Path> trozos = Files.walk(directorio.resolve("almacen").resolve("trozos"))) {
+            assertEquals(0, trozos.filter(Files::isRegularFile).count());
+        }
+        assertThrows(NoSuchFileException.class, () -> almacen.transferir(hash, 0, 1, destino));
+
+        Files.write(directorio.resolve("almacen").resolve("archivos").resolve(hash + ".tmp"), new byte[] {'1'});
+        almacen = new AlmacenContenido(directorio.resolve("almacen"));
+        assertEquals(0, almacen.getTotalArchivos());
+    }
+
+    /**
+     * Elimina el directorio temporal después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            archivos.sorted(Comparator.reverseOrder()).forEach(ruta -> ruta.toFile().delete());
+        }
+        almacen = null;
+        libro1 = libro2 = copia = null;
+    }
+}
@@ -0,0 +1,450 @@
+/**
+ * Motor de analítica sobre el historial de préstamos.
+ *
+ * Cada préstamo se guarda como una fila de enteros en bloques columnares de
+ * 65536 filas: día del préstamo, día de vencimiento y día de devolución (en días
+ * desde la época), más el autor y el empleado codificados como índices de un
+ * diccionario. Una fila ocupa 20 bytes, frente a varios cientos de un Prestamo
+ * con sus copias de Usuario y Libro.
+ *
+ * Las consultas agrupadas recorren los bloques en paralelo (streams paralelos
+ * sobre el ForkJoinPool común), cada tarea con acumuladores primitivos propios
+ * (long[]) que al final se suman; no se crea ningún objeto por fila.
+ *
+ * Además se mantienen agregados diarios de forma incremental al registrar y
+ * cerrar préstamos, de modo que el resumen de un día se obtiene en O(1) sin
+ * recorrer el historial.
+ *
+ * Las filas sólo se agregan al final. Cada consulta toma en una sola sección
+ * sincronizada el número de filas, los bloques y el diccionario que usa (ver
+ * Vista) y después recorre ese prefijo sin bloquear los registros, de modo que
+ * toda fila recorrida tiene su autor y su empleado en el diccionario. Un
+ * cierre concurrente con una consulta puede contarse o no en ella.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+public class AnaliticaPrestamos {
+    /** Bits del número de fila dentro de un bloque */
+    private static final int BITS_BLOQUE = 16;
+    /** Filas por bloque */
+    private static final int FILAS_BLOQUE = 1 << BITS_BLOQUE;
+    /** Día de devolución de un préstamo abierto */
+    public static final int ABIERTO = Integer.MIN_VALUE;
+
+    /** Bloques de filas; sólo crece */
+    private volatile Bloque[] bloques;
+    /** Número de filas publicadas */
+    private volatile long filas;
+    /** Índice de cada autor en el diccionario */
+    private final Map<String, Integer> idsAutor;
+    /** Autores por índice */
+    private final List<String> autores;
+    /** Índice de cada empleado en el diccionario */
+    private final Map<String, Integer> idsEmpleado;
+    /** Empleados por índice */
+    private final List<String> empleados;
+    /** Agregados incrementales por día */
+    private final Map<Integer, long[]> resumenPorDia;
+
+    /** Posición en resumenPorDia de los préstamos iniciados en el día */
+    private static final int INICIADOS = 0;
+    /** Posición de los préstamos cerrados en el día */
+    private static final int CERRADOS = 1;
+    /** Posición de los préstamos cerrados en el día después de su vencimiento */
+    private static final int CERRADOS_TARDE = 2;
+    /** Posición de la suma de duraciones, en días, de los préstamos cerrados en el día */
+    private static final int DIAS_PRESTADOS = 3;
+
+    /**
+     * Crea un motor de analítica vacío.
+     */
+    public AnaliticaPrestamos() {
+        this.bloques = new Bloque[0];
+        this.idsAutor = new HashMap<>();
+        this.autores = new ArrayList<>();
+        this.idsEmpleado = new HashMap<>();
+        this.empleados = new ArrayList<>();
+        this.resumenPorDia = new HashMap<>();
+    }
+
+    /**
+     * Registra un préstamo en su estado actual.
+     *
+     * @param prestamo El préstamo
+     * @param idEmpleado ID del empleado que lo procesó
+     * @return Número de fila del préstamo, para cerrarlo después
+     */
+    public long registrar(Prestamo prestamo, String idEmpleado) {
+        LocalDate devolucion = prestamo.getFechaDevolucionReal();
+        return registrar(prestamo.getFechaPrestamo(), prestamo.getFechaDevolucionEsperada(), devolucion,
+                         prestamo.getLibro().getAutor(), idEmpleado);
+    }
+
+    /**
+     * Registra todos los préstamos del historial en memoria de un empleado.
+     *
+     * @param empleado El empleado
+     * @return Número de préstamos registrados
+     */
+    public int registrarHistorial(Empleado empleado) {
+        List<Prestamo> historial = empleado.getHistorialPrestamos();
+        for (Prestamo prestamo : historial) {
+            registrar(prestamo, empleado.getId());
+        }
+        return historial.size();
+    }
+
+    /**
+     * Registra un préstamo.
+     *
+     * @param fechaPrestamo Fecha del préstamo
+     * @param fechaVencimiento Fecha esperada de devolución
+     * @param fechaDevolucion Fecha real de devolución, o null si sigue abierto
+     * @param autor Autor del libro
+     * @param idEmpleado ID del empleado que lo procesó
+     * @return Número de fila del préstamo, para cerrarlo después
+     */
+    public synchronized long registrar(LocalDate fechaPrestamo, LocalDate fechaVencimiento,
+                                       LocalDate fechaDevolucion, String autor, String idEmpleado) {
+        long fila = filas;
+        int b = (int) (fila >>> BITS_BLOQUE);
+        if (b == bloques.length) {
+            Bloque[] nuevos = Arrays.copyOf(bloques, b + 1);
+            nuevos[b] = new Bloque();
+            bloques = nuevos;
+        }
+        Bloque bloque = bloques[b];
+        int i = (int) (fila & (FILAS_BLOQUE - 1));
+        bloque.dia[i] = (int) fechaPrestamo.toEpochDay();
+        bloque.vence[i] = (int) fechaVencimiento.toEpochDay();
+        bloque.devolucion[i] = ABIERTO;
+        bloque.autor[i] = indice(autor, idsAutor, autores);
+        bloque.empleado[i] = indice(idEmpleado, idsEmpleado, empleados);
+        resumen(bloque.dia[i])[INICIADOS]++;
+        if (fechaDevolucion != null) {
+            cerrar(bloque, i, fechaDevolucion);
+        }
+        filas = fila + 1;
+        return fila;
+    }
+
+    /**
+     * Cierra un préstamo registrado y actualiza los agregados del día.
+     *
+     * @param fila Número de fila devuelto por registrar
+     * @param fechaDevolucion Fecha real de devolución
+     * @return true si el préstamo estaba abierto
+     * @throws IndexOutOfBoundsException si la fila no existe
+     */
+    public synchronized boolean cerrar(long fila, LocalDate fechaDevolucion) {
+        if (fila < 0 || fila >= filas) {
+            throw new IndexOutOfBoundsException("Fila inexistente: " + fila);
+        }
+        Bloque bloque = bloques[(int) (fila >>> BITS_BLOQUE)];
+        int i = (int) (fila & (FILAS_BLOQUE - 1));
+        if (bloque.devolucion[i] != ABIERTO) {
+            return false;
+        }
+        cerrar(bloque, i, fechaDevolucion);
+        return true;
+    }
+
+    /**
+     * Cambia el vencimiento de un préstamo abierto, por ejemplo al extenderlo.
+     * Los préstamos cerrados ya se sumaron a los agregados y no se modifican.
+     *
+     * @param fila Número de fila devuelto por registrar
+     * @param fechaVencimiento Nueva fecha esperada de devolución
+     * @return true si el préstamo estaba abierto
+     * @throws IndexOutOfBoundsException si la fila no existe
+     */
+    public synchronized boolean extender(long fila, LocalDate fechaVencimiento) {
+        if (fila < 0 || fila >= filas) {
+            throw new IndexOutOfBoundsException("Fila inexistente: " + fila);
+        }
+        Bloque bloque = bloques[(int) (fila >>> BITS_BLOQUE)];
+        int i = (int) (fila & (FILAS_BLOQUE - 1));
+        if (bloque.devolucion[i] != ABIERTO) {
+            return false;
+        }
+        bloque.vence[i] = (int) fechaVencimiento.toEpochDay();
+        return true;
+    }
+
+    /**
+     * Obtiene el número de préstamos registrados.
+     * @return Número de filas
+     */
+    public long getTotalPrestamos() {
+        return filas;
+    }
+
+    /**
+     * Cuenta los préstamos iniciados en cada día de un intervalo.
+     *
+     * @param desde Primer día, inclusive
+     * @param hasta Último día, inclusive
+     * @return Préstamos por día, en orden de fecha, incluidos los días sin préstamos
+     */
+    public SortedMap<LocalDate, Long> prestamosPorDia(LocalDate desde, LocalDate hasta) {
+        int inicio = (int) desde.toEpochDay();
+        int dias = (int) (hasta.toEpochDay() - inicio + 1);
+        long[] cuentas = recorrer(vista(null), () -> new long[dias], (acumulado, bloque, n) -> {
+            int[] dia = bloque.dia;
+            for (int i = 0; i < n; i++) {
+                int d = dia[i] - inicio;
+                if (d >= 0 && d < dias) {
+                    acumulado[d]++;
+                }
+            }
+        });
+        SortedMap<LocalDate, Long> resultado = new TreeMap<>();
+        for (int d = 0; d < dias; d++) {
+            resultado.put(LocalDate.ofEpochDay(inicio + d), cuentas[d]);
+        }
+        return resultado;
+    }
+
+    /**
+     * Cuenta los préstamos de cada autor.
+     * @return Préstamos por autor
+     */
+    public Map<String, Long> prestamosPorAutor() {
+        Vista vista = vista(autores);
+        List<String> nombres = vista.nombres;
+        long[] cuentas = recorrer(vista, () -> new long[nombres.size()], (acumulado, bloque, n) -> {
+            int[] autor = bloque.autor;
+            for (int i = 0; i < n; i++) {
+                acumulado[autor[i]]++;
+            }
+        });
+        Map<String, Long> resultado = new HashMap<>();
+        for (int a = 0; a < cuentas.length; a++) {
+            resultado.put(nombres.get(a), cuentas[a]);
+        }
+        return resultado;
+    }
+
+    /**
+     * Calcula la duración promedio de los préstamos cerrados.
+     * @return Días promedio entre préstamo y devolución, o 0 si no hay cerrados
+     */
+    public double duracionPromedio() {
+        long[] suma = recorrer(vista(null), () -> new long[2], (acumulado, bloque, n) -> {
+            int[] dia = bloque.dia;
+            int[] devolucion = bloque.devolucion;
+            for (int i = 0; i < n; i++) {
+                if (devolucion[i] != ABIERTO) {
+                    acumulado[0] += devolucion[i] - dia[i];
+                    acumulado[1]++;
+                }
+            }
+        });
+        return suma[1] == 0 ? 0 : (double) suma[0] / suma[1];
+    }
+
+    /**
+     * Calcula la proporción de préstamos vencidos de cada empleado: los
+     * devueltos después de su vencimiento y los abiertos ya vencidos a la fecha.
+     *
+     * @param hoy Fecha de referencia para los préstamos abiertos
+     * @return Tasa de vencidos entre 0 y 1 por ID de empleado
+     */
+    public Map<String, Double> tasaVencidosPorEmpleado(LocalDate hoy) {
+        int diaHoy = (int) hoy.toEpochDay();
+        Vista vista = vista(empleados);
+        List<String> ids = vista.nombres;
+        int numEmpleados = ids.size();
+        long[] cuentas = recorrer(vista, () -> new long[2 * numEmpleados], (acumulado, bloque, n) -> {
+            int[] vence = bloque.vence;
+            int[] devolucion = bloque.devolucion;
+            int[] empleado = bloque.empleado;
+            for (int i = 0; i < n; i++) {
+                int e = 2 * empleado[i];
+                acumulado[e]++;
+                int fin = devolucion[i] == ABIERTO ? diaHoy : devolucion[i];
+                if (fin > vence[i]) {
+                    acumulado[e + 1]++;
+                }
+            }
+        });
+        Map<String, Double> resultado = new HashMap<>();
+        for (int e = 0; e < numEmpleados; e++) {
+            if (cuentas[2 * e] > 0) {
+                resultado.put(ids.get(e), (double) cuentas[2 * e + 1] / cuentas[2 * e]);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene el resumen incremental de un día, sin recorrer el historial.
+     *
+     * @param dia El día
+     * @return Resumen con los préstamos iniciados y cerrados ese día
+     */
+    public synchronized ResumenDiario getResumenDiario(LocalDate dia) {
+        long[] valores = resumenPorDia.get((int) dia.toEpochDay());
+        return new ResumenDiario(dia, valores == null ? new long[4] : valores.clone());
+    }
+
+    /**
+     * Marca una fila como cerrada y la suma a los agregados del día de devolución.
+     */
+    private void cerrar(Bloque bloque, int i, LocalDate fechaDevolucion) {
+        int dia = (int) fechaDevolucion.toEpochDay();
+        bloque.devolucion[i] = dia;
+        long[] resumen = resumen(dia);
+        resumen[CERRADOS]++;
+        resumen[DIAS_PRESTADOS] += dia - bloque.dia[i];
+        if (dia > bloque.vence[i]) {
+            resumen[CERRADOS_TARDE]++;
+        }
+    }
+
+    private long[] resumen(int dia) {
+        return resumenPorDia.computeIfAbsent(dia, d -> new long[4]);
+    }
+
+    private static int indice(String valor, Map<String, Integer> ids, List<String> valores) {
+        Integer indice = ids.get(valor);
+        if (indice == null) {
+            indice = valores.size();
+            ids.put(valor, indice);
+            valores.add(valor);
+        }
+        return indice;
+    }
+
+    /**
+     * Toma el prefijo publicado y, si se indica, una copia de un diccionario,
+     * con una sola adquisición del cerrojo.
+     *
+     * @param diccionario Autores o empleados por índice, o null
+     */
+    private synchronized Vista vista(List<String> diccionario) {
+        return new Vista(filas, bloques, diccionario == null ? null : new ArrayList<>(diccionario));
+    }
+
+    /**
+     * Recorre en paralelo las filas de una vista, un bloque por tarea, con un
+     * acumulador por tarea que después se suma elemento a elemento.
+     */
+    private long[] recorrer(Vista vista, Supplier<long[]> nuevo, Acumulador acumular) {
+        long total = vista.filas;
+        int numBloques = (int) ((total + FILAS_BLOQUE - 1) >>> BITS_BLOQUE);
+        BiConsumer<long[], long[]> sumar = (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i] += b[i];
+            }
+        };
+        return IntStream.range(0, numBloques).parallel().collect(nuevo, (acumulado, b) -> {
+            int n = (int) Math.min(FILAS_BLOQUE, total - ((long) b << BITS_BLOQUE));
+            acumular.acumular(acumulado, vista.bloques[b], n);
+        }, sumar);
+    }
+
+    /**
+     * Prefijo del historial que recorre una consulta, con el diccionario
+     * copiado en el mismo instante.
+     */
+    private static final class Vista {
+        final long filas;
+        final Bloque[] bloques;
+        final List<String> nombres;
+
+        Vista(long filas, Bloque[] bloques, List<String> nombres) {
+            this.filas = filas;
+            this.bloques = bloques;
+            this.nombres = nombres;
+        }
+    }
+
+    /**
+     * Suma las primeras n filas de un bloque a un acumulador.
+     */
+    private interface Acumulador {
+        void acumular(long[] acumulado, Bloque bloque, int n);
+    }
+
+    /**
+     * Bloque de filas en columnas.
+     */
+    private static final class Bloque {
+        final int[] dia = new int[FILAS_BLOQUE];
+        final int[] vence = new int[FILAS_BLOQUE];
+        final int[] devolucion = new int[FILAS_BLOQUE];
+        final int[] autor = new int[FILAS_BLOQUE];
+        final int[] empleado = new int[FILAS_BLOQUE];
+    }
+
+    /**
+     * Agregados de un día: préstamos iniciados, y préstamos cerrados con su
+     * duración y cuántos se devolvieron tarde.
+     */
+    public static final class ResumenDiario {
+        private final LocalDate dia;
+        private final long[] valores;
+
+        ResumenDiario(LocalDate dia, long[] valores) {
+            this.dia = dia;
+            this.valores = valores;
+        }
+
+        /**
+         * Obtiene el día del resumen.
+         * @return El día
+         */
+        public LocalDate getDia() {
+            return dia;
+        }
+
+        /**
+         * Obtiene los préstamos iniciados en el día.
+         * @return Préstamos iniciados
+         */
+        public long getIniciados() {
+            return valores[INICIADOS];
+        }
+
+        /**
+         * Obtiene los préstamos cerrados en el día.
+         * @return Préstamos cerrados
+         */
+        public long getCerrados() {
+            return valores[CERRADOS];
+        }
+
+        /**
+         * Obtiene los préstamos cerrados en el día después de su vencimiento.
+         * @return Préstamos devueltos tarde
+         */
+        public long getCerradosTarde() {
+            return valores[CERRADOS_TARDE];
+        }
+
+        /**
+         * Obtiene la duración promedio de los préstamos cerrados en el día.
+         * @return Días promedio, o 0 si no se cerró ninguno
+         */
+        public double getDuracionPromedio() {
+            return valores[CERRADOS] == 0 ? 0 : (double) valores[DIAS_PRESTADOS] / valores[CERRADOS];
+        }
+
+        /**
+         * Retorna una representación en cadena del resumen.
+         * @return String con los agregados del día
+         */
+        public String toString() {
+            return "ResumenDiario [dia=" + dia + ", iniciados=" + getIniciados() + ", cerrados=" + getCerrados() +
+                   ", tarde=" + getCerradosTarde() + ", duracion=" + getDuracionPromedio() + "]";
+        }
+    }
+}
@@ -0,0 +1,189 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la clase AnaliticaPrestamos.
+ * Verifica los agregados en paralelo contra un cálculo directo, los
+ * agregados diarios incrementales y las consultas durante los registros.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class AnaliticaPrestamosTest
+{
+    /** Motor de analítica para las pruebas */
+    private AnaliticaPrestamos analitica;
+    /** Primer día de los préstamos de prueba */
+    private LocalDate inicio;
+
+    /**
+     * Crea un motor vacío.
+     */
+    @BeforeEach
+    public void setUp() {
+        analitica = new AnaliticaPrestamos();
+        inicio = LocalDate.of(2024, 1, 1);
+    }
+
+    /**
+     * Prueba los agregados sobre varios bloques contra un cálculo directo.
+     */
+    @Test
+    public void testAgregadosContraCalculoDirecto() {
+        Random aleatorio = new Random(5);
+        LocalDate hoy = inicio.plusDays(60);
+        int n = 200000;
+        long[] porDia = new long[30];
+        Map<String, Long> porAutor = new HashMap<>();
+        Map<String, long[]> vencidos = new HashMap<>();
+        long sumaDuracion = 0, cerrados = 0;
+        for (int i = 0; i < n; i++) {
+            int dia = aleatorio.nextInt(30);
+            LocalDate prestamo = inicio.plusDays(dia);
+            LocalDate vence = prestamo.plusDays(14);
+            String autor = "Autor " + aleatorio.nextInt(50);
+            String empleado = "E00" + aleatorio.nextInt(4);
+            LocalDate devolucion = aleatorio.nextInt(4) == 0 ? null : prestamo.plusDays(aleatorio.nextInt(25));
+            analitica.registrar(prestamo, vence, devolucion, autor, empleado);
+
+            porDia[dia]++;
+            porAutor.merge(autor, 1L, Long::sum);
+            long[] cuenta = vencidos.computeIfAbsent(empleado, e -> new long[2]);
+            cuenta[0]++;
+            if ((devolucion == null ? hoy : devolucion).isAfter(vence)) {
+                cuenta[1]++;
+            }
+            if (devolucion != null) {
+                sumaDuracion += devolucion.toEpochDay() - prestamo.toEpochDay();
+                cerrados++;
+            }
+        }
+
+        assertEquals(n, analitica.getTotalPrestamos());
+        SortedMap<LocalDate, Long> dias = analitica.prestamosPorDia(inicio.minusDays(1), inicio.plusDays(30));
+        assertEquals(32, dias.size());
+        assertEquals(Long.valueOf(0), dias.get(inicio.minusDays(1)));
+        for (int d = 0; d < 30; d++) {
+            assertEquals(Long.valueOf(porDia[d]), dias.get(inicio.plusDays(d)));
+        }
+        assertEquals(porAutor, analitica.prestamosPorAutor());
+        assertEquals((double) sumaDuracion / cerrados, analitica.duracionPromedio(), 1e-9);
+        Map<String, Double> tasas = analitica.tasaVencidosPorEmpleado(hoy);
+        assertEquals(vencidos.size(), tasas.size());
+        for (Map.Entry<String, long[]> entrada : vencidos.entrySet()) {
+            long[] cuenta = entrada.getValue();
+            assertEquals((double) cuenta[1] / cuenta[0], tasas.get(entrada.getKey()), 1e-12);
+        }
+    }
+
+    /**
+     * Prueba que los agregados diarios se actualicen al cerrar préstamos.
+     */
+    @Test
+    public void testResumenDiario() {
+        long fila1 = analitica.registrar(inicio, inicio.plusDays(14), null, "Cervantes", "E001");
+        long fila2 = analitica.registrar(inicio, inicio.plusDays(14), null, "Cervantes", "E001");
+        analitica.registrar(inicio.minusDays(20), inicio.minusDays(6), null, "Borges", "E002");
+
+        AnaliticaPrestamos.ResumenDiario resumen = analitica.getResumenDiario(inicio);
+        assertEquals(2, resumen.getIniciados());
+        assertEquals(0, resumen.getCerrados());
+
+        LocalDate devolucion = inicio.plusDays(16);
+        assertTrue(analitica.cerrar(fila1, devolucion));
+        assertTrue(analitica.cerrar(fila2, inicio.plusDays(16)));
+        assertFalse(analitica.cerrar(fila2, inicio.plusDays(17)));
+        assertThrows(IndexOutOfBoundsException.class, () -> analitica.cerrar(3, devolucion));
+
+        resumen = analitica.getResumenDiario(devolucion);
+        assertEquals(0, resumen.getIniciados());
+        assertEquals(2, resumen.getCerrados());
+        assertEquals(2, resumen.getCerradosTarde());
+        assertEquals(16.0, resumen.getDuracionPromedio(), 1e-9);
+        assertEquals(16.0, analitica.duracionPromedio(), 1e-9);
+        assertEquals(0, analitica.getResumenDiario(inicio.plusDays(100)).getCerrados());
+    }
+
+    /**
+     * Prueba que las consultas agrupadas vean filas y diccionarios coherentes
+     * mientras otro hilo registra préstamos con autores y empleados nuevos.
+     */
+    @Test
+    public void testConsultasDuranteLosRegistros() throws Exception {
+        int n = 20000;
+        Thread registros = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                analitica.registrar(inicio, inicio.plusDays(14), null, "Autor " + i, "E" + i);
+            }
+        });
+        registros.start();
+        try {
+            while (registros.isAlive()) {
+                Map<String, Long> porAutor = analitica.prestamosPorAutor();
+                for (long cuenta : porAutor.values()) {
+                    assertEquals(1, cuenta);
+                }
+                Map<String, Double> tasas = analitica.tasaVencidosPorEmpleado(inicio);
+                for (double tasa : tasas.values()) {
+                    assertEquals(0.0, tasa);
+                }
+            }
+        } finally {
+            registros.join();
+        }
+        assertEquals(n, analitica.prestamosPorAutor().size());
+        assertEquals(n, analitica.tasaVencidosPorEmpleado(inicio).size());
+    }
+
+    /**
+     * Prueba el registro de los préstamos de una biblioteca al devolverse los libros.
+     */
+    @Test
+    public void testBiblioteca() {
+        Biblioteca biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        biblioteca.agregarEmpleado(new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario"));
+        biblioteca.agregarUsuario(new Usuario("Ana López", "U001"));
+        biblioteca.agregarLibro(new Libro("Ficciones", "Jorge Luis Borges", "9788499089515", 224));
+        biblioteca.configurarAnalitica(analitica);
+
+        assertTrue(biblioteca.prestarLibro("9788499089515", "U001", "E001"));
+        assertTrue(biblioteca.devolverLibro("9788499089515", "E001"));
+        assertTrue(biblioteca.prestarLibro("9788499089515", "U001", "E001"));
+
+        LocalDate hoy = LocalDate.now();
+        assertEquals(2, analitica.getTotalPrestamos());
+        assertEquals(Long.valueOf(2), analitica.prestamosPorAutor().get("Jorge Luis Borges"));
+        assertEquals(2, analitica.getResumenDiario(hoy).getIniciados());
+        assertEquals(1, analitica.getResumenDiario(hoy).getCerrados());
+        assertEquals(0.0, analitica.tasaVencidosPorEmpleado(hoy).get("E001"), 1e-12);
+
+        // El vencimiento de la fila es el del préstamo creado
+        Prestamo prestamo = biblioteca.obtenerEmpleado("E001").getUltimoPrestamo();
+        LocalDate vence = prestamo.getFechaDevolucionEsperada();
+        assertEquals(0.0, analitica.tasaVencidosPorEmpleado(vence).get("E001"), 1e-12);
+        assertEquals(0.5, analitica.tasaVencidosPorEmpleado(vence.plusDays(1)).get("E001"), 1e-12);
+
+        // Al extender el préstamo también se mueve su vencimiento en la analítica
+        assertTrue(biblioteca.extenderPrestamo("9788499089515", "E001", 7));
+        assertEquals(0.0, analitica.tasaVencidosPorEmpleado(vence.plusDays(7)).get("E001"), 1e-12);
+        assertEquals(0.5, analitica.tasaVencidosPorEmpleado(vence.plusDays(8)).get("E001"), 1e-12);
+        assertTrue(biblioteca.devolverLibro("9788499089515", "E001"));
+        assertEquals(0, analitica.getResumenDiario(hoy).getCerradosTarde());
+        assertEquals(0.0, analitica.tasaVencidosPorEmpleado(vence.plusDays(30)).get("E001"), 1e-12);
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        analitica = null;
+        inicio = null;
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * Asignación automática de préstamos al empleado menos ocupado del turno.
+ *
+ * La carga de un empleado es su número de préstamos en proceso. Los empleados
+ * de cada turno se guardan en un ConcurrentSkipListSet ordenado por carga y
+ * después por ID, de modo que el menos ocupado es el primero del conjunto y se
+ * obtiene en O(log n) sin cerrojo global. Cambiar la carga de un empleado
+ * reemplaza su entrada en el conjunto bajo el monitor de ese empleado; dos
+ * hilos sólo compiten si eligen al mismo empleado, y el perdedor vuelve a
+ * leer el primero del conjunto.
+ *
+ * Los empleados de turno MIXTO pueden atender tanto en el turno matutino como
+ * en el vespertino.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+public class AsignadorEmpleados {
+    /** Hora en que termina el turno matutino y empieza el vespertino */
+    public static final LocalTime INICIO_VESPERTINO = LocalTime.of(14, 0);
+
+    /** Empleados de cada turno ordenados por carga, indexados por turno */
+    private final List<ConcurrentSkipListSet<Entrada>> porTurno;
+    /** Registro de cada empleado por ID */
+    private final Map<String, Registro> registros;
+
+    /**
+     * Crea un asignador sin empleados.
+     */
+    public AsignadorEmpleados() {
+        this.porTurno = new ArrayList<>();
+        for (int turno = Empleado.MATUTINO; turno <= Empleado.MIXTO; turno++) {
+            porTurno.add(new ConcurrentSkipListSet<>());
+        }
+        this.registros = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Obtiene el turno en curso a una hora dada.
+     *
+     * @param hora Hora del día
+     * @return MATUTINO antes de INICIO_VESPERTINO y VESPERTINO después
+     */
+    public static int turnoEn(LocalTime hora) {
+        return hora.isBefore(INICIO_VESPERTINO) ? Empleado.MATUTINO : Empleado.VESPERTINO;
+    }
+
+    /**
+     * Agrega un empleado con su turno actual y sus préstamos en proceso como
+     * carga inicial. Si ya estaba, se reemplaza; así se aplica un cambio de turno.
+     *
+     * @param empleado El empleado a agregar
+     */
+    public void agregar(Empleado empleado) {
+        Registro registro = new Registro(empleado, empleado.getPrestamosEnProceso().size());
+        Registro anterior = registros.put(empleado.getId(), registro);
+        if (anterior != null) {
+            retirar(anterior);
+        }
+        synchronized (registro) {
+            registro.entrada = new Entrada(registro.carga, registro);
+            conjunto(registro).add(registro.entrada);
+        }
+    }
+
+    /**
+     * Elimina un empleado del asignador.
+     *
+     * @param id ID del empleado
+     * @return true si el empleado estaba registrado
+     */
+    public boolean eliminar(String id) {
+        Registro registro = registros.remove(id);
+        if (registro == null) {
+            return false;
+        }
+        retirar(registro);
+        return true;
+    }
+
+    /**
+     * Elige al empleado con menos préstamos en proceso entre los del turno
+     * indicado y los de turno MIXTO, y le suma un préstamo.
+     * Si el préstamo no llega a hacerse, debe llamarse a liberar().
+     *
+     * @param turno Turno en curso (MATUTINO o VESPERTINO)
+     * @return El empleado elegido, o null si no hay ninguno en el turno
+     */
+    public Empleado asignar(int turno) {
+        ConcurrentSkipListSet<Entrada> delTurno = porTurno.get(turno);
+        ConcurrentSkipListSet<Entrada> mixtos = porTurno.get(Empleado.MIXTO);
+        while (true) {
+            Entrada elegida = menor(primera(delTurno), turno == Empleado.MIXTO ? null : primera(mixtos));
+            if (elegida == null) {
+                return null;
+            }
+            Registro registro = elegida.registro;
+            synchronized (registro) {
+                if (registro.entrada == elegida && cambiarCarga(registro, 1)) {
+                    return registro.empleado;
+                }
+            }
+        }
+    }
+
+    /**
+     * Suma un préstamo a la carga de un empleado elegido por otros medios.
+     * @param empleado El empleado
+     */
+    public void ocupar(Empleado empleado) {
+        ajustar(empleado, 1);
+    }
+
+    /**
+     * Resta un préstamo a la carga de un empleado.
+     * @param empleado El empleado
+     */
+    public void liberar(Empleado empleado) {
+        ajustar(empleado, -1);
+    }
+
+    /**
+     * Obtiene la carga registrada de un empleado.
+     *
+     * @param id ID del empleado
+     * @return Préstamos en proceso, o -1 si el empleado no está registrado
+     */
+    public int getCarga(String id) {
+        Registro registro = registros.get(id);
+        if (registro == null) {
+            return -1;
+        }
+        synchronized (registro) {
+            return registro.carga;
+        }
+    }
+
+    private void ajustar(Empleado empleado, int delta) {
+        Registro registro = registros.get(empleado.getId());
+        if (registro != null && registro.empleado == empleado) {
+            synchronized (registro) {
+                cambiarCarga(registro, delta);
+            }
+        }
+    }
+
+    /**
+     * Reemplaza la entrada de un empleado por otra con la carga nueva.
+     * Debe llamarse con el monitor del registro.
+     *
+     * @return false si el registro ya fue retirado
+     */
+    private boolean cambiarCarga(Registro registro, int delta) {
+        if (registro.entrada == null) {
+            return false;
+        }
+        // La entrada nueva se inserta antes de quitar la anterior para que el
+        // empleado nunca desaparezca del conjunto a ojos de asignar()
+        ConcurrentSkipListSet<Entrada> conjunto = conjunto(registro);
+        Entrada anterior = registro.entrada;
+        registro.carga = Math.max(0, registro.carga + delta);
+        registro.entrada = new Entrada(registro.carga, registro);
+        conjunto.add(registro.entrada);
+        conjunto.remove(anterior);
+        return true;
+    }
+
+    private void retirar(Registro registro) {
+        synchronized (registro) {
+            if (registro.entrada != null) {
+                conjunto(registro).remove(registro.entrada);
+                registro.entrada = null;
+            }
+        }
+    }
+
+    private ConcurrentSkipListSet<Entrada> conjunto(Registro registro) {
+        return porTurno.get(registro.turno);
+    }
+
+    private static Entrada primera(ConcurrentSkipListSet<Entrada> conjunto) {
+        try {
+            return conjunto.first();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    private static Entrada menor(Entrada a, Entrada b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * Estado de un empleado en el asignador; se modifica bajo su monitor.
+     */
+    private static class Registro {
+        final Empleado empleado;
+        final String id;
+        final int turno;
+        int carga;
+        /** Entrada vigente en el conjunto de su turno, o null si fue retirado */
+        Entrada entrada;
+
+        Registro(Empleado empleado, int carga) {
+            this.empleado = empleado;
+            this.id = empleado.getId();
+            this.turno = empleado.getTurno();
+            this.carga = carga;
+        }
+    }
+
+    /**
+     * Entrada inmutable de un conjunto: la carga con la que se insertó.
+     */
+    private static class Entrada implements Comparable<Entrada> {
+        final int carga;
+        final Registro registro;
+
+        Entrada(int carga, Registro registro) {
+            this.carga = carga;
+            this.registro = registro;
+        }
+
+        public int compareTo(Entrada otra) {
+            int comparacion = Integer.compare(carga, otra.carga);
+            if (comparacion == 0) {
+                comparacion = registro.id.compareTo(otra.registro.id);
+            }
+            if (comparacion == 0 && registro != otra.registro) {
+                comparacion = Integer.compare(System.identityHashCode(registro),
+                                              System.identityHashCode(otra.registro));
+            }
+            return comparacion;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Clase de pruebas unitarias para la clase AsignadorEmpleados.
+ * Verifica que se elija al empleado menos ocupado del turno.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class AsignadorEmpleadosTest
+{
+    /** Asignador de prueba */
+    private AsignadorEmpleados asignador;
+    /** Empleados de turno matutino, vespertino y mixto */
+    private Empleado matutino, vespertino, mixto;
+
+    /**
+     * Configura un asignador con un empleado de cada turno.
+     */
+    @BeforeEach
+    public void setUp() {
+        asignador = new AsignadorEmpleados();
+        matutino = new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario");
+        vespertino = new Empleado("María Gómez", "E002", 16000.00, "Bibliotecaria");
+        vespertino.setTurno(Empleado.VESPERTINO);
+        mixto = new Empleado("Luis Díaz", "E003", 16000.00, "Auxiliar");
+        mixto.setTurno(Empleado.MIXTO);
+        asignador.agregar(matutino);
+        asignador.agregar(vespertino);
+        asignador.agregar(mixto);
+    }
+
+    /**
+     * Prueba el reparto entre los empleados del turno y los de turno mixto.
+     */
+    @Test
+    public void testAsignarMenosOcupado() {
+        assertSame(matutino, asignador.asignar(Empleado.MATUTINO));
+        assertSame(mixto, asignador.asignar(Empleado.MATUTINO));
+        assertSame(matutino, asignador.asignar(Empleado.MATUTINO));
+        assertEquals(2, asignador.getCarga("E001"));
+        assertEquals(0, asignador.getCarga("E002"));
+
+        assertSame(vespertino, asignador.asignar(Empleado.VESPERTINO));
+        asignador.liberar(matutino);
+        asignador.liberar(matutino);
+        assertSame(matutino, asignador.asignar(Empleado.MATUTINO));
+
+        assertTrue(asignador.eliminar("E001"));
+        assertEquals(-1, asignador.getCarga("E001"));
+        assertSame(mixto, asignador.asignar(Empleado.MATUTINO));
+        assertEquals(Empleado.MATUTINO, AsignadorEmpleados.turnoEn(LocalTime.of(9, 30)));
+        assertEquals(Empleado.VESPERTINO, AsignadorEmpleados.turnoEn(LocalTime.of(18, 0)));
+    }
+
+    /**
+     * Prueba que las cargas queden consistentes con asignaciones y
+     * liberaciones concurrentes.
+     */
+    @Test
+    public void testAsignacionConcurrente() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < 4; h++) {
+            tareas.add(hilos.submit(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    Empleado empleado = asignador.asignar(Empleado.MATUTINO);
+                    if (i % 2 == 0) {
+                        asignador.liberar(empleado);
+                    }
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        hilos.shutdown();
+        int total = asignador.getCarga("E001") + asignador.getCarga("E003");
+        assertEquals(10000, total);
+        assertTrue(Math.abs(asignador.getCarga("E001") - asignador.getCarga("E003")) <= 4);
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        asignador = null;
+        matutino = vespertino = mixto = null;
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ * Índice de autocompletado por prefijo sobre títulos y autores de libros.
+ *
+ * Los títulos y autores se pliegan (minúsculas y sin acentos) y se guardan en un
+ * trie radix compacto, donde cada arista lleva una secuencia de caracteres. Cada
+ * término conoce su popularidad (número de préstamos de los libros con ese título
+ * o autor) y cada nodo guarda la popularidad máxima de su subárbol. Con ello las
+ * N mejores sugerencias para un prefijo se obtienen con una búsqueda "primero el
+ * mejor" que sólo visita las ramas capaces de entrar en el resultado, sin recorrer
+ * todos los términos que comparten el prefijo.
+ *
+ * El índice se actualiza de forma incremental al agregar, eliminar, renombrar o
+ * prestar libros. No es seguro para hilos: la Biblioteca lo usa bajo su cerrojo.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.*;
+
+public class Autocompletado {
+    /** Raíz del trie; su etiqueta siempre es vacía */
+    private final Nodo raiz;
+    /** Número de préstamos registrados por libro */
+    private final Map<Libro, Long> prestamosPorLibro;
+    /** Número de términos distintos en el índice */
+    private int totalTerminos;
+
+    /**
+     * Crea un índice de autocompletado vacío.
+     */
+    public Autocompletado() {
+        this.raiz = new Nodo("");
+        this.prestamosPorLibro = new IdentityHashMap<>();
+    }
+
+    /**
+     * Agrega el título y el autor de un libro al índice.
+     * Un libro que ya estaba indexado se ignora.
+     * @param libro El libro a indexar
+     */
+    public void agregarLibro(Libro libro) {
+        if (prestamosPorLibro.putIfAbsent(libro, 0L) == null) {
+            insertar(libro.getTitulo(), 1, 0);
+            insertar(libro.getAutor(), 1, 0);
+        }
+    }
+
+    /**
+     * Elimina el título y el autor de un libro del índice.
+     * @param libro El libro a eliminar
+     */
+    public void eliminarLibro(Libro libro) {
+        Long prestamos = prestamosPorLibro.remove(libro);
+        if (prestamos != null) {
+            insertar(libro.getTitulo(), -1, -prestamos);
+            insertar(libro.getAutor(), -1, -prestamos);
+        }
+    }
+
+    /**
+     * Actualiza el índice cuando cambia el título o el autor de un libro.
+     *
+     * @param libro El libro modificado
+     * @param anterior El título o autor anterior
+     * @param actual El título o autor nuevo
+     */
+    public void reemplazarTermino(Libro libro, String anterior, String actual) {
+        Long prestamos = prestamosPorLibro.get(libro);
+        if (prestamos != null) {
+            insertar(anterior, -1, -prestamos);
+            insertar(actual, 1, prestamos);
+        }
+    }
+
+    /**
+     * Registra un préstamo de un libro, aumentando la popularidad de su título y autor.
+     * @param libro El libro prestado
+     */
+    public void registrarPrestamo(Libro libro) {
+        Long prestamos = prestamosPorLibro.get(libro);
+        if (prestamos != null) {
+            prestamosPorLibro.put(libro, prestamos + 1);
+            insertar(libro.getTitulo(), 0, 1);
+            insertar(libro.getAutor(), 0, 1);
+        }
+    }
+
+    /**
+     * Obtiene las sugerencias más populares que comienzan con el prefijo dado.
+     * La comparación ignora mayúsculas y acentos; entre sugerencias con la
+     * misma popularidad el orden no está definido.
+     *
+     * @param prefijo Texto escrito por el usuario
+     * @param maximo Número máximo de sugerencias
+     * @return Lista de títulos y autores sugeridos, del más al menos popular
+     */
+    public List<String> sugerir(String prefijo, int maximo) {
+        List<String> sugerencias = new ArrayList<>();
+        String clave = Tokenizador.plegar(prefijo);
+        Nodo nodo = raiz;
+        int posicion = 0;
+        while (posicion < clave.length()) {
+            Nodo hijo = nodo.hijo(clave.charAt(posicion));
+            if (hijo == null) {
+                return sugerencias;
+            }
+            int comun = prefijoComun(hijo.etiqueta, clave, posicion);
+            if (posicion + comun < clave.length() && comun < hijo.etiqueta.length()) {
+                return sugerencias;
+            }
+            posicion += comun;
+            nodo = hijo;
+        }
+        PriorityQueue<Object[]> frontera = new PriorityQueue<>(Autocompletado::compararCandidatos);
+        frontera.add(new Object[] {nodo.maximoSubarbol, nodo});
+        while (!frontera.isEmpty() && sugerencias.size() < maximo) {
+            Object elemento = frontera.poll()[1];
+            if (elemento instanceof Termino) {
+                sugerencias.add(((Termino) elemento).texto);
+                continue;
+            }
+            Nodo actual = (Nodo) elemento;
+            if (actual.termino != null) {
+                frontera.add(new Object[] {actual.termino.popularidad, actual.termino});
+            }
+            for (Nodo hijo : actual.hijos) {
+                frontera.add(new Object[] {hijo.maximoSubarbol, hijo});
+            }
+        }
+        return sugerencias;
+    }
+
+    /**
+     * Obtiene el número de términos distintos indexados.
+     * @return Número de títulos y autores distintos
+     */
+    public int getTotalTerminos() {
+        return totalTerminos;
+    }
+
+    /**
+     * Ordena candidatos por popularidad descendente; a igual popularidad, los
+     * términos van antes que los nodos para emitirlos cuanto antes.
+     */
+    private static int compararCandidatos(Object[] a, Object[] b) {
+        int comparacion = Long.compare((Long) b[0], (Long) a[0]);
+        if (comparacion != 0) {
+            return comparacion;
+        }
+        boolean terminoA = a[1] instanceof Termino;
+        boolean terminoB = b[1] instanceof Termino;
+        return terminoA == terminoB ? 0 : (terminoA ? -1 : 1);
+    }
+
+    /**
+     * Inserta o actualiza un término, ajustando su número de referencias y su popularidad.
+     * Si el término queda sin referencias se elimina y el trie se compacta.
+     *
+     * @param texto Título o autor original
+     * @param referencias Cambio en el número de libros que usan el término
+     * @param popularidad Cambio en la popularidad del término
+     */
+    private void insertar(String texto, int referencias, long popularidad) {
+        if (texto == null || texto.isEmpty()) {
+            return;
+        }
+        String clave = Tokenizador.plegar(texto);
+        Deque<Nodo> camino = new ArrayDeque<>();
+        Nodo nodo = raiz;
+        int posicion = 0;
+        camino.push(nodo);
+        while (posicion < clave.length()) {
+            Nodo hijo = nodo.hijo(clave.charAt(posicion));
+            if (hijo == null) {
+                if (referencias <= 0) {
+                    return;
+                }
+                hijo = new Nodo(clave.substring(posicion));
+                nodo.agregarHijo(hijo);
+            } else {
+                int comun = prefijoComun(hijo.etiqueta, clave, posicion);
+                if (comun < hijo.etiqueta.length()) {
+                    if (referencias <= 0) {
+                        return;
+                    }
+                    hijo = nodo.dividir(hijo, comun);
+                }
+            }
+            posicion += hijo.etiqueta.length();
+            nodo = hijo;
+            camino.push(nodo);
+        }
+        if (nodo.termino == null) {
+            if (referencias <= 0) {
+                return;
+            }
+            nodo.termino = new Termino(texto);
+            totalTerminos++;
+        }
+        nodo.termino.referencias += referencias;
+        nodo.termino.popularidad += popularidad;
+        if (nodo.termino.referencias <= 0) {
+            nodo.termino = null;
+            totalTerminos--;
+        }
+        Nodo hijo = null;
+        while (!camino.isEmpty()) {
+            Nodo actual = camino.pop();
+            if (hijo != null && hijo.termino == null) {
+                if (hijo.hijos.isEmpty()) {
+                    actual.eliminarHijo(hijo);
+                } else if (hijo.hijos.size() == 1) {
+                    actual.fusionar(hijo);
+                }
+            }
+            actual.recalcularMaximo();
+            hijo = actual;
+        }
+    }
+
+    /**
+     * Calcula la longitud del prefijo común entre una etiqueta y la clave a partir de una posición.
+     */
+    private static int prefijoComun(String etiqueta, String clave, int desde) {
+        int limite = Math.min(etiqueta.length(), clave.length() - desde);
+        int i = 0;
+        while (i < limite && etiqueta.charAt(i) == clave.charAt(desde + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Término indexado: texto original a mostrar, libros que lo usan y popularidad.
+     */
+    private static class Termino {
+        final String texto;
+        int referencias;
+        long popularidad;
+
+        Termino(String texto) {
+            this.texto = texto;
+        }
+    }
+
+    /**
+     * Nodo del trie radix. Los hijos se mantienen ordenados por su primer carácter.
+     */
+    private static class Nodo {
+        String etiqueta;
+        Termino termino;
+        long maximoSubarbol;
+        final List<Nodo> hijos = new ArrayList<>(2);
+
+        Nodo(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+
+        Nodo hijo(char c) {
+            int indice = buscar(c);
+            return indice >= 0 ? hijos.get(indice) : null;
+        }
+
+        void agregarHijo(Nodo hijo) {
+            hijos.add(-buscar(hijo.etiqueta.charAt(0)) - 1, hijo);
+        }
+
+        void eliminarHijo(Nodo hijo) {
+            hijos.remove(buscar(hijo.etiqueta.charAt(0)));
+        }
+
+        /**
+         * Divide la arista hacia un hijo tras los primeros caracteres indicados.
+         * @return El nuevo nodo intermedio
+         */
+        Nodo dividir(Nodo hijo, int longitud) {
+            Nodo intermedio = new Nodo(hijo.etiqueta.substring(0, longitud));
+            hijos.set(buscar(hijo.etiqueta.charAt(0)), intermedio);
+            hijo.etiqueta = hijo.etiqueta.substring(longitud);
+            intermedio.hijos.add(hijo);
+            intermedio.maximoSubarbol = hijo.maximoSubarbol;
+            return intermedio;
+        }
+
+        /**
+         * Sustituye un hijo sin término y con un solo nieto por ese nieto.
+         */
+        void fusionar(Nodo hijo) {
+            Nodo nieto = hijo.hijos.get(0);
+            nieto.etiqueta = hijo.etiqueta + nieto.etiqueta;
+            hijos.set(buscar(hijo.etiqueta.charAt(0)), nieto);
+        }
+
+        void recalcularMaximo() {
+            long maximo = termino != null ? termino.popularidad : 0;
+            for (Nodo hijo : hijos) {
+                maximo = Math.max(maximo, hijo.maximoSubarbol);
+            }
+            maximoSubarbol = maximo;
+        }
+
+        private int buscar(char c) {
+            int bajo = 0;
+            int alto = hijos.size() - 1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                char actual = hijos.get(medio).etiqueta.charAt(0);
+                if (actual < c) {
+                    bajo = medio + 1;
+                } else if (actual > c) {
+                    alto = medio - 1;
+                } else {
+                    return medio;
+                }
+            }
+            return -(bajo + 1);
+        }
+    }
+}
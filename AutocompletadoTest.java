@@ -0,0 +1,103 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la clase Autocompletado.
+ * Verifica las sugerencias por prefijo, su orden por popularidad y la
+ * actualización incremental del índice.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class AutocompletadoTest
+{
+    /** Índice de prueba */
+    private Autocompletado indice;
+    /** Libros de prueba */
+    private Libro libro1, libro2, libro3;
+
+    /**
+     * Configura un índice con tres libros.
+     */
+    @BeforeEach
+    public void setUp() {
+        indice = new Autocompletado();
+        libro1 = new Libro("El Principito", "Antoine de Saint-Exupéry", "9788498381498", 96);
+        libro2 = new Libro("El Perfume", "Patrick Süskind", "9788432217753", 256);
+        libro3 = new Libro("El principe", "Nicolás Maquiavelo", "9788467037128", 160);
+        indice.agregarLibro(libro1);
+        indice.agregarLibro(libro2);
+        indice.agregarLibro(libro3);
+    }
+
+    /**
+     * Prueba las sugerencias por prefijo, ignorando mayúsculas y acentos.
+     */
+    @Test
+    public void testSugerirPorPrefijo() {
+        assertEquals(new HashSet<>(Arrays.asList("El Perfume", "El principe", "El Principito")),
+                     new HashSet<>(indice.sugerir("el p", 10)));
+        assertEquals(new HashSet<>(Arrays.asList("El principe", "El Principito")),
+                     new HashSet<>(indice.sugerir("EL PRÍNC", 10)));
+        assertEquals(Arrays.asList("Nicolás Maquiavelo"), indice.sugerir("nicolas", 10));
+        assertTrue(indice.sugerir("xyz", 10).isEmpty());
+        assertEquals(6, indice.getTotalTerminos());
+    }
+
+    /**
+     * Prueba que las sugerencias se ordenen por número de préstamos.
+     */
+    @Test
+    public void testOrdenPorPopularidad() {
+        indice.registrarPrestamo(libro1);
+        indice.registrarPrestamo(libro1);
+        indice.registrarPrestamo(libro3);
+        assertEquals(Arrays.asList("El Principito", "El principe"), indice.sugerir("el p", 2));
+    }
+
+    /**
+     * Prueba la actualización al renombrar y eliminar libros.
+     */
+    @Test
+    public void testActualizacionIncremental() {
+        indice.registrarPrestamo(libro2);
+        libro2.setTitulo("El Perfume: historia de un asesino");
+        indice.reemplazarTermino(libro2, "El Perfume", libro2.getTitulo());
+        assertEquals(Arrays.asList("El Perfume: historia de un asesino"), indice.sugerir("el pe", 10));
+
+        indice.eliminarLibro(libro1);
+        assertEquals(Arrays.asList("El principe"), indice.sugerir("el pri", 10));
+        assertTrue(indice.sugerir("antoine", 10).isEmpty());
+    }
+
+    /**
+     * Prueba el autocompletado integrado en la biblioteca.
+     */
+    @Test
+    public void testSugerirEnBiblioteca() {
+        Biblioteca biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        biblioteca.agregarEmpleado(new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario"));
+        biblioteca.agregarUsuario(new Usuario("Ana López", "U001"));
+        biblioteca.agregarLibro(libro1);
+        biblioteca.agregarLibro(libro3);
+        biblioteca.prestarLibro("9788467037128", "U001", "E001");
+        assertEquals(Arrays.asList("El principe"), biblioteca.sugerir("el", 1));
+
+        libro1.setAutor("A. de Saint-Exupéry");
+        assertEquals(Arrays.asList("A. de Saint-Exupéry"), biblioteca.sugerir("a.", 5));
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        indice = null;
+        libro1 = libro2 = libro3 = null;
+    }
+}
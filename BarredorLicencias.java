@@ -0,0 +1,122 @@
+/**
+ * Barredor en segundo plano que recupera las licencias digitales vencidas.
+ *
+ * Recorre periódicamente los pools registrados y llama a recuperarVencidas()
+ * en cada uno, de modo que adquirir y devolver licencias nunca tienen que
+ * revisar vencimientos. Los pools se guardan con referencias débiles: un
+ * LibroDigital que ya no se usa no queda retenido por el barredor.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.Duration;
+import java.util.*;
+
+public class BarredorLicencias {
+    /** Periodo del barredor compartido */
+    public static final Duration PERIODO_POR_DEFECTO = Duration.ofSeconds(1);
+
+    /** Barredor compartido por todos los libros digitales; se crea al primer uso */
+    private static BarredorLicencias compartido;
+
+    /** Tiempo entre barridos */
+    private final long periodoMs;
+    /** Pools registrados */
+    private final Set<PoolLicencias> pools;
+    /** Hilo del barredor, o null si está detenido */
+    private Thread hilo;
+
+    /**
+     * Crea un barredor detenido.
+     * @param periodo Tiempo entre barridos
+     */
+    public BarredorLicencias(Duration periodo) {
+        this.periodoMs = Math.max(1, periodo.toMillis());
+        this.pools = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    }
+
+    /**
+     * Obtiene el barredor compartido, iniciándolo si es necesario.
+     * @return Barredor con periodo PERIODO_POR_DEFECTO
+     */
+    public static synchronized BarredorLicencias compartido() {
+        if (compartido == null) {
+            compartido = new BarredorLicencias(PERIODO_POR_DEFECTO);
+            compartido.iniciar();
+        }
+        return compartido;
+    }
+
+    /**
+     * Registra un pool para que sus licencias vencidas se recuperen.
+     * @param pool El pool a vigilar
+     */
+    public void registrar(PoolLicencias pool) {
+        pools.add(pool);
+    }
+
+    /**
+     * Deja de vigilar un pool.
+     * @param pool El pool a eliminar
+     */
+    public void eliminar(PoolLicencias pool) {
+        pools.remove(pool);
+    }
+
+    /**
+     * Obtiene el número de pools vigilados.
+     * @return Pools registrados
+     */
+    public int getTotalPools() {
+        return pools.size();
+    }
+
+    /**
+     * Recorre una vez todos los pools registrados.
+     * @return Número de licencias recuperadas
+     */
+    public int barrer() {
+        List<PoolLicencias> copia;
+        synchronized (pools) {
+            copia = new ArrayList<>(pools);
+        }
+        int recuperadas = 0;
+        for (PoolLicencias pool : copia) {
+            recuperadas += pool.recuperarVencidas();
+        }
+        return recuperadas;
+    }
+
+    /**
+     * Inicia el hilo del barredor. No hace nada si ya estaba iniciado.
+     */
+    public synchronized void iniciar() {
+        if (hilo == null) {
+            hilo = Hilos.iniciar("barredor-licencias", this::ejecutar);
+        }
+    }
+
+    /**
+     * Detiene el hilo del barredor.
+     */
+    public synchronized void detener() {
+        if (hilo != null) {
+            hilo.interrupt();
+            hilo = null;
+        }
+    }
+
+    /**
+     * Bucle del hilo: espera un periodo y barre, hasta que se interrumpe.
+     */
+    private void ejecutar() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(periodoMs);
+                barrer();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
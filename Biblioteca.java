@@ -8,10 +8,46 @@
  * - Usuarios (Set<Usuario>)
  * - Empleados (Map<String, Empleado>)
  * 
+ * Las operaciones se sincronizan sobre la propia instancia, por lo que una
+ * biblioteca puede compartirse entre hilos. Las variantes por lotes
+ * (prestarLibros y devolverLibros) adquieren el cerrojo una sola vez.
+ * Los ejemplares de cada ISBN se agrupan en una entrada con contadores
+ * atómicos y una cola no bloqueante de copias libres (ver Ejemplares): un
+ * préstamo reclama su copia antes de adquirir el cerrojo, así que consultar la
+ * disponibilidad y rechazar un préstamo sin ejemplares libres no requieren el
+ * cerrojo, y los préstamos de un título muy solicitado que no obtienen copia
+ * no esperan por él. Cuando no hay ejemplares,
+ * el usuario puede reservar el ISBN; al devolverse o agregarse un ejemplar se
+ * presta automáticamente a la primera reserva vigente.
+ * Un préstamo también puede asignarse automáticamente al empleado del turno
+ * con menos préstamos en proceso (ver AsignadorEmpleados), o enviarse al
+ * buzón del trabajador de un empleado, que lo procesa en lotes en su propio
+ * hilo (ver TrabajadorEmpleado).
+ * 
+ * Cada modificación publica además una instantánea inmutable del estado
+ * (ver InstantaneaBiblioteca) que los informes leen sin adquirir el cerrojo.
+ * Si se configura un motor de analítica (ver AnaliticaPrestamos), cada
+ * préstamo se registra en él y sus agregados diarios se actualizan al
+ * devolverse el libro.
+ * 
+ * La hora se toma de un reloj configurable (configurarReloj), para poder
+ * simular días completos sin esperar. Los empleados reciben el mismo reloj,
+ * de modo que las fechas de sus préstamos lo siguen.
+ * 
  * @author Roberto Salazar Marquez
  * @version 1.1
  */
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Biblioteca {
     /** Almacena la denominación oficial de la institución. */
@@ -22,8 +58,51 @@ public class Biblioteca {
     private List<Libro> libros;
     /** Conjunto de usuarios registrados en la biblioteca.*/
     private Set<Usuario> usuarios;
+    /** Instancia registrada de cada usuario, por ID. */
+    private final MapaIdentidad<String, Usuario> usuariosPorId;
     /** Mapa de empleados de la biblioteca.*/
     private Map<String, Empleado> empleados;
+    /** Ejemplares de cada ISBN; se consulta sin cerrojo para los contadores. */
+    private final Map<String, Ejemplares> ejemplaresPorIsbn;
+    /** Listas de espera de cada ISBN reservado. */
+    private final Map<String, ColaReservas> reservasPorIsbn;
+    /** Caché de resultados de búsqueda por título, o null si está deshabilitada. */
+    private CacheBusquedas cacheBusquedas;
+    /** Índice de autocompletado sobre títulos y autores. */
+    private final Autocompletado autocompletado;
+    /** Motor de búsqueda por relevancia sobre títulos y autores. */
+    private final MotorBusqueda motorBusqueda;
+    /** Índice difuso por título, tolerante a errores de escritura. */
+    private final BusquedaDifusa busquedaDifusa;
+    /** Número de secuencia asignado a cada libro al agregarlo; fija el orden de las páginas. */
+    private final Map<Libro, Long> secuenciaPorLibro;
+    /** Último número de secuencia asignado. */
+    private long ultimaSecuencia;
+    /** Libros disponibles ordenados por secuencia, para recorridos sin cerrojo. */
+    private final ConcurrentSkipListMap<Long, Libro> disponibles;
+    /** Libros prestados ordenados por secuencia, para recorridos sin cerrojo. */
+    private final ConcurrentSkipListMap<Long, Libro> prestados;
+    /** Observador registrado en cada libro de la colección. */
+    private final ObservadorLibro observadorCatalogo;
+    /** Carga de préstamos de cada empleado, para la asignación automática. */
+    private final AsignadorEmpleados asignador;
+    /** Trabajadores iniciados por ID de empleado. */
+    private final Map<String, TrabajadorEmpleado> trabajadores;
+    /** Última instantánea publicada; sólo se reemplaza con el cerrojo adquirido. */
+    private volatile InstantaneaBiblioteca instantanea;
+    /** Motor de analítica que recibe los préstamos, o null si no se configuró. */
+    private AnaliticaPrestamos analitica;
+    /** Fila en la analítica del préstamo en curso de cada libro. */
+    private final Map<Libro, Long> filaPorLibro;
+    /** Reloj de las reservas, los turnos y la analítica. */
+    private volatile Clock reloj;
+    /** Observadores de los cambios publicados. */
+    private final List<ObservadorBiblioteca> observadores;
+    
+    /** Peso máximo por defecto de la caché de búsquedas. */
+    public static final long PESO_CACHE_BUSQUEDAS = 10000;
+    /** Días que una reserva espera un ejemplar antes de vencer. */
+    public static final int DIAS_RESERVA = 7;
 
     /**
      * Constructor de la biblioteca.
@@ -38,15 +117,37 @@ public class Biblioteca {
         this.empleados = new HashMap<>();
         this.libros = new ArrayList<>();
         this.usuarios = new HashSet<>();
+        this.usuariosPorId = new MapaIdentidad<>();
+        this.ejemplaresPorIsbn = new ConcurrentHashMap<>();
+        this.reservasPorIsbn = new ConcurrentHashMap<>();
+        this.cacheBusquedas = new CacheBusquedas(PESO_CACHE_BUSQUEDAS);
+        this.autocompletado = new Autocompletado();
+        this.motorBusqueda = new MotorBusqueda();
+        this.busquedaDifusa = new BusquedaDifusa();
+        this.secuenciaPorLibro = new IdentityHashMap<>();
+        this.disponibles = new ConcurrentSkipListMap<>();
+        this.prestados = new ConcurrentSkipListMap<>();
+        this.observadorCatalogo = new ObservadorCatalogo();
+        this.asignador = new AsignadorEmpleados();
+        this.trabajadores = new ConcurrentHashMap<>();
+        this.instantanea = InstantaneaBiblioteca.VACIA;
+        this.filaPorLibro = new IdentityHashMap<>();
+        this.reloj = Clock.systemDefaultZone();
+        this.observadores = new CopyOnWriteArrayList<>();
     }
 
     /**
      * Agrega un nuevo empleado al sistema.
+     * Para aplicar un cambio de turno en la asignación automática basta con
+     * volver a agregar al empleado.
      * 
      * @param empleado El empleado a agregar
      */
-    public void agregarEmpleado(Empleado empleado) {
+    public synchronized void agregarEmpleado(Empleado empleado) {
+        empleado.configurarReloj(reloj);
         empleados.put(empleado.getId(), empleado);
+        asignador.agregar(empleado);
+        publicar(instantanea.conEmpleado(empleado));
     }
 
     /**
@@ -54,8 +155,15 @@ public class Biblioteca {
      * 
      * @param id El ID del empleado a eliminar
      */
-    public void eliminarEmpleado(String id) {
-        empleados.remove(id);
+    public synchronized void eliminarEmpleado(String id) {
+        if (empleados.remove(id) != null) {
+            publicar(instantanea.sinEmpleado(id));
+        }
+        asignador.eliminar(id);
+        TrabajadorEmpleado trabajador = trabajadores.remove(id);
+        if (trabajador != null) {
+            trabajador.detener();
+        }
     }
 
     /**
@@ -64,18 +172,50 @@ public class Biblioteca {
      * @param id El ID del empleado a buscar
      * @return El empleado encontrado o null si no existe
      */
-    public Empleado obtenerEmpleado(String id) {
+    public synchronized Empleado obtenerEmpleado(String id) {
         return empleados.get(id);
     }
+
+    /**
+     * Obtiene el trabajador de un empleado, creándolo e iniciándolo la primera
+     * vez con un buzón de TrabajadorEmpleado.CAPACIDAD_POR_DEFECTO peticiones.
+     * 
+     * @param id El ID del empleado
+     * @return El trabajador del empleado, o null si el empleado no existe
+     */
+    public synchronized TrabajadorEmpleado getTrabajador(String id) {
+        TrabajadorEmpleado trabajador = trabajadores.get(id);
+        Empleado empleado = empleados.get(id);
+        if (trabajador == null && empleado != null) {
+            trabajador = new TrabajadorEmpleado(this, empleado, TrabajadorEmpleado.CAPACIDAD_POR_DEFECTO);
+            trabajador.iniciar();
+            trabajadores.put(id, trabajador);
+        }
+        return trabajador;
+    }
     
     
     /**
-     * Agrega un nuevo libro a la colección de la biblioteca.
+     * Agrega un nuevo libro a la colección de la biblioteca. Si su ISBN tiene
+     * reservas pendientes, la copia se presta a la primera vigente.
      * 
      * @param libro El libro a agregar
      */
-    public void agregarLibro(Libro libro) {
+    public synchronized void agregarLibro(Libro libro) {
         libros.add(libro);
+        ejemplaresPorIsbn.computeIfAbsent(libro.getIsbn(), Ejemplares::new).agregarCopia(libro);
+        autocompletado.agregarLibro(libro);
+        motorBusqueda.agregarLibro(libro);
+        busquedaDifusa.agregarLibro(libro);
+        if (!secuenciaPorLibro.containsKey(libro)) {
+            libro.agregarObservador(observadorCatalogo);
+            long secuencia = ++ultimaSecuencia;
+            secuenciaPorLibro.put(libro, secuencia);
+            (libro.isPrestado() ? prestados : disponibles).put(secuencia, libro);
+            publicar(instantanea.conLibro(secuencia, libro));
+        }
+        invalidarBusquedas(libro.getTitulo());
+        ofrecerAReservas(libro);
     }
 
     /**
@@ -83,26 +223,219 @@ public class Biblioteca {
      * 
      * @param libro El libro a eliminar
      */
-    public void eliminarLibro(Libro libro) {
-        libros.remove(libro);
+    public synchronized void eliminarLibro(Libro libro) {
+        if (libros.remove(libro)) {
+            if (!libros.contains(libro)) {
+                libro.eliminarObservador(observadorCatalogo);
+                eliminarEjemplar(libro, libro.getIsbn());
+                autocompletado.eliminarLibro(libro);
+                motorBusqueda.eliminarLibro(libro);
+                busquedaDifusa.eliminarLibro(libro);
+                Long secuencia = secuenciaPorLibro.remove(libro);
+                disponibles.remove(secuencia);
+                prestados.remove(secuencia);
+                filaPorLibro.remove(libro);
+                publicar(instantanea.sinLibro(secuencia));
+            }
+            invalidarBusquedas(libro.getTitulo());
+        }
     }
 
     /**
      * Busca libros por título, ignorando mayúsculas y minúsculas.
+     * Los resultados se sirven desde la caché de búsquedas cuando es posible.
      * 
      * @param titulo El título o parte del título a buscar
      * @return Lista de libros que coinciden con el criterio de búsqueda
      */
-    public List<Libro> buscarLibrosPorTitulo(String titulo) {
+    public synchronized List<Libro> buscarLibrosPorTitulo(String titulo) {
+        String consulta = titulo.toLowerCase();
+        if (cacheBusquedas != null) {
+            List<Libro> enCache = cacheBusquedas.obtener(consulta);
+            if (enCache != null) {
+                return new ArrayList<>(enCache);
+            }
+        }
         List<Libro> resultados = new ArrayList<>();
         for (Libro libro : libros) {
-            if (libro.getTitulo().toLowerCase().contains(titulo.toLowerCase())) {
+            if (libro.getTitulo().toLowerCase().contains(consulta)) {
                 resultados.add(libro);
             }
         }
+        if (cacheBusquedas != null) {
+            cacheBusquedas.poner(consulta, resultados);
+        }
         return resultados;
     }
     
+    /**
+     * Busca libros por título y autor, ordenados por relevancia (BM25).
+     * La consulta admite palabras (combinadas con AND), alternativas con OR y
+     * frases exactas entre comillas; ignora mayúsculas y acentos.
+     * 
+     * @param consulta La consulta, por ejemplo: "cien anos" OR quijote
+     * @param maximo Número máximo de resultados
+     * @return Lista de libros, del más al menos relevante
+     */
+    public synchronized List<Libro> buscarLibros(String consulta, int maximo) {
+        return motorBusqueda.buscar(consulta, maximo);
+    }
+    
+    /**
+     * Busca libros por título tolerando errores de escritura, por ejemplo
+     * "Cien anos de soledat". Ignora mayúsculas, acentos y el orden de las palabras.
+     * 
+     * @param titulo El título aproximado a buscar
+     * @param distancia Número máximo de letras erróneas por palabra
+     * @return Lista de libros que coinciden, de la más a la menos parecida
+     */
+    public synchronized List<Libro> buscarLibrosDifuso(String titulo, int distancia) {
+        return busquedaDifusa.buscar(titulo, distancia);
+    }
+    
+    /**
+     * Sugiere títulos y autores que comienzan con el texto indicado, ordenados
+     * por el número de préstamos. Ignora mayúsculas y acentos.
+     * 
+     * @param prefijo Texto escrito por el usuario
+     * @param maximo Número máximo de sugerencias
+     * @return Lista de títulos y autores sugeridos
+     */
+    public synchronized List<String> sugerir(String prefijo, int maximo) {
+        return autocompletado.sugerir(prefijo, maximo);
+    }
+    
+    /**
+     * Configura la caché de búsquedas por título.
+     * 
+     * @param pesoMaximo Peso máximo de la nueva caché, o 0 para deshabilitarla
+     */
+    public synchronized void configurarCacheBusquedas(long pesoMaximo) {
+        cacheBusquedas = pesoMaximo > 0 ? new CacheBusquedas(pesoMaximo) : null;
+    }
+    
+    /**
+     * Obtiene la caché de búsquedas, para consultar sus estadísticas.
+     * 
+     * @return La caché de búsquedas o null si está deshabilitada
+     */
+    public synchronized CacheBusquedas getCacheBusquedas() {
+        return cacheBusquedas;
+    }
+
+    /**
+     * Configura el motor de analítica que recibe los préstamos nuevos.
+     * Los préstamos en curso registrados en un motor anterior ya no se cierran.
+     *
+     * @param analitica El motor de analítica, o null para dejar de registrar
+     */
+    public synchronized void configurarAnalitica(AnaliticaPrestamos analitica) {
+        this.analitica = analitica;
+        filaPorLibro.clear();
+    }
+
+    /**
+     * Obtiene el motor de analítica de préstamos.
+     *
+     * @return El motor de analítica o null si no se configuró
+     */
+    public synchronized AnaliticaPrestamos getAnalitica() {
+        return analitica;
+    }
+
+    /**
+     * Configura el reloj del que se toman la hora de las reservas, el turno en
+     * curso, las fechas de la analítica y las de los préstamos que procesen
+     * sus empleados.
+     *
+     * @param reloj El reloj; Clock.systemDefaultZone() por defecto
+     */
+    public synchronized void configurarReloj(Clock reloj) {
+        this.reloj = Objects.requireNonNull(reloj);
+        for (Empleado empleado : empleados.values()) {
+            empleado.configurarReloj(reloj);
+        }
+    }
+
+    /**
+     * Obtiene el reloj de la biblioteca.
+     *
+     * @return El reloj configurado
+     */
+    public Clock getReloj() {
+        return reloj;
+    }
+    
+    /**
+     * Invalida las búsquedas en caché cuyo resultado incluiría un libro con el título dado.
+     * 
+     * @param titulo Título del libro agregado, eliminado o modificado
+     */
+    private void invalidarBusquedas(String titulo) {
+        if (cacheBusquedas != null) {
+            String minusculas = titulo.toLowerCase();
+            cacheBusquedas.invalidar(minusculas::contains);
+        }
+    }
+    
+    /**
+     * Busca un libro por su ISBN.
+     * 
+     * @param isbn El ISBN del libro a buscar
+     * @return El primer libro con ese ISBN o null si no existe
+     */
+    public synchronized Libro buscarLibroPorIsbn(String isbn) {
+        Ejemplares ejemplares = ejemplaresPorIsbn.get(isbn);
+        return ejemplares != null ? ejemplares.primeraCopia() : null;
+    }
+    
+    /**
+     * Verifica si algún ejemplar del ISBN indicado puede prestarse en esta biblioteca.
+     * La consulta es O(1) y no adquiere el cerrojo.
+     * 
+     * @param isbn El ISBN del libro
+     * @return true si existe algún ejemplar disponible, false en caso contrario
+     */
+    public boolean hayEjemplarDisponible(String isbn) {
+        Ejemplares ejemplares = ejemplaresPorIsbn.get(isbn);
+        return ejemplares != null && ejemplares.hayDisponible();
+    }
+    
+    /**
+     * Obtiene el número de ejemplares registrados de un ISBN, sin adquirir el cerrojo.
+     * 
+     * @param isbn El ISBN del libro
+     * @return Número total de ejemplares
+     */
+    public int getTotalEjemplares(String isbn) {
+        Ejemplares ejemplares = ejemplaresPorIsbn.get(isbn);
+        return ejemplares != null ? ejemplares.getTotal() : 0;
+    }
+    
+    /**
+     * Obtiene el número de ejemplares disponibles de un ISBN, sin adquirir el cerrojo.
+     * 
+     * @param isbn El ISBN del libro
+     * @return Número de ejemplares no prestados
+     */
+    public int getEjemplaresDisponibles(String isbn) {
+        Ejemplares ejemplares = ejemplaresPorIsbn.get(isbn);
+        return ejemplares != null ? ejemplares.getDisponibles() : 0;
+    }
+    
+    /**
+     * Quita una copia de la entrada de su ISBN, eliminando la entrada si queda vacía.
+     * 
+     * @param libro La copia a quitar
+     * @param isbn El ISBN con el que estaba registrada
+     */
+    private void eliminarEjemplar(Libro libro, String isbn) {
+        Ejemplares ejemplares = ejemplaresPorIsbn.get(isbn);
+        if (ejemplares != null && ejemplares.eliminarCopia(libro) && ejemplares.getTotal() == 0) {
+            ejemplaresPorIsbn.remove(isbn);
+        }
+    }
+    
     /**
      * Obtiene el nombre de la biblioteca.
      * 
@@ -122,12 +455,15 @@ public class Biblioteca {
     }
 
     /**
-     * Agrega un nuevo usuario al sistema.
+     * Agrega un nuevo usuario al sistema. Si ya hay un usuario registrado con
+     * el mismo ID se conserva ese y se ignora el nuevo.
      * 
      * @param usuario El usuario a agregar
      */
-    public void agregarUsuario(Usuario usuario) {
-        usuarios.add(usuario);
+    public synchronized void agregarUsuario(Usuario usuario) {
+        if (usuariosPorId.canonico(usuario.getId(), usuario) == usuario && usuarios.add(usuario)) {
+            publicar(instantanea.conUsuario(usuario));
+        }
     }
 
     /**
@@ -135,27 +471,28 @@ public class Biblioteca {
      * 
      * @param usuario El usuario a eliminar
      */
-    public void eliminarUsuario(Usuario usuario) {
-        usuarios.remove(usuario);
+    public synchronized void eliminarUsuario(Usuario usuario) {
+        Usuario registrado = usuariosPorId.obtener(usuario.getId());
+        if (usuarios.remove(usuario)) {
+            usuariosPorId.eliminar(usuario.getId(), registrado);
+            publicar(instantanea.sinUsuario(usuario.getId()));
+        }
     }
     
     /**
-     * Busca un usuario por su ID.
+     * Busca un usuario por su ID, en tiempo constante y sin adquirir el cerrojo.
      * 
      * @param id El ID del usuario a buscar
      * @return El usuario encontrado o null si no existe
      */
     public Usuario buscarUsuarioPorId(String id) {
-        for (Usuario usuario : usuarios) {
-            if (usuario.getId().equals(id)) {
-                return usuario;
-            }
-        }
-        return null;
+        return id != null ? usuariosPorId.obtener(id) : null;
     }
 
     /**
-     * Procesa el préstamo de un libro a un usuario.
+     * Procesa el préstamo de un ejemplar disponible de un libro a un usuario.
+     * El ejemplar se reclama antes de adquirir el cerrojo; si no queda ninguno
+     * libre, el préstamo se rechaza sin adquirirlo.
      * 
      * @param isbn El ISBN del libro a prestar
      * @param idUsuario El ID del usuario que solicita el préstamo
@@ -163,21 +500,70 @@ public class Biblioteca {
      * @return true si el préstamo fue exitoso, false en caso contrario
      */
     public boolean prestarLibro(String isbn, String idUsuario, String idEmpleado) {
-        Libro libro = null;
-        for (Libro l : libros) {
-            if (l.getIsbn().equals(isbn)) {
-                libro = l;
-                break;
-            }
+        Libro libro = reclamarEjemplar(isbn);
+        if (libro == null) {
+            return false;
         }
+        synchronized (this) {
+            Usuario usuario = buscarUsuarioPorId(idUsuario);
+            Empleado empleado = empleados.get(idEmpleado);
         
-        Usuario usuario = buscarUsuarioPorId(idUsuario);
-        Empleado empleado = empleados.get(idEmpleado);
-    
-        if (libro != null && usuario != null && empleado != null && !libro.isPrestado()) {
-            return empleado.procesarPrestamo(libro, usuario);
+            if (usuario != null && empleado != null && ejemplarVigente(libro, isbn)
+                    && empleado.procesarPrestamo(libro, usuario)) {
+                registrarPrestamo(libro, empleado);
+                asignador.ocupar(empleado);
+                return true;
+            }
+            soltarEjemplar(libro);
+            return false;
         }
-        return false;
+    }
+
+    /**
+     * Procesa el préstamo de un ejemplar asignándolo al empleado del turno en
+     * curso con menos préstamos en proceso.
+     * 
+     * @param isbn El ISBN del libro a prestar
+     * @param idUsuario El ID del usuario que solicita el préstamo
+     * @return El empleado que procesó el préstamo, o null si no pudo hacerse
+     */
+    public Empleado prestarLibro(String isbn, String idUsuario) {
+        return prestarLibro(isbn, idUsuario, AsignadorEmpleados.turnoEn(LocalTime.now(reloj)));
+    }
+
+    /**
+     * Procesa el préstamo de un ejemplar asignándolo al empleado con menos
+     * préstamos en proceso entre los del turno indicado y los de turno MIXTO.
+     * La elección del empleado y del ejemplar no adquieren el cerrojo de la
+     * biblioteca.
+     * 
+     * @param isbn El ISBN del libro a prestar
+     * @param idUsuario El ID del usuario que solicita el préstamo
+     * @param turno Turno en curso (Empleado.MATUTINO o Empleado.VESPERTINO)
+     * @return El empleado que procesó el préstamo, o null si no pudo hacerse
+     */
+    public Empleado prestarLibro(String isbn, String idUsuario, int turno) {
+        if (!hayEjemplarDisponible(isbn)) {
+            return null;
+        }
+        Empleado empleado = asignador.asignar(turno);
+        if (empleado == null) {
+            return null;
+        }
+        Libro libro = reclamarEjemplar(isbn);
+        if (libro != null) {
+            synchronized (this) {
+                Usuario usuario = buscarUsuarioPorId(idUsuario);
+                if (usuario != null && empleados.get(empleado.getId()) == empleado
+                        && ejemplarVigente(libro, isbn) && empleado.procesarPrestamo(libro, usuario)) {
+                    registrarPrestamo(libro, empleado);
+                    return empleado;
+                }
+                soltarEjemplar(libro);
+            }
+        }
+        asignador.liberar(empleado);
+        return null;
     }
 
     
@@ -188,32 +574,368 @@ public class Biblioteca {
      * @param idEmpleado El ID del empleado que procesa la devolución
      * @return true si la devolución fue exitosa, false en caso contrario
      */
-    public boolean devolverLibro(String isbn, String idEmpleado) {
-        // Buscar el libro manualmente
-        Libro libro = null;
-        for (Libro l : libros) {
-            if (l.getIsbn().equals(isbn)) {
-                libro = l;
-                break;
-            }
-        }
-        
+    public synchronized boolean devolverLibro(String isbn, String idEmpleado) {
+        Libro libro = copiaPrestada(isbn);
         Empleado empleado = empleados.get(idEmpleado);
     
-        if (libro != null && empleado != null && libro.isPrestado()) {
+        if (libro != null && empleado != null) {
             libro.devolverLibro();
-            empleado.devolverPrestamo();
+            cerrarPrestamo(isbn, empleado);
+            registrarDevolucion(libro);
+            entregarReserva(libro, empleado);
             return true;
         }
         return false;
     }
+
+    /**
+     * Extiende el préstamo en curso de un ejemplar del ISBN gestionado por un
+     * empleado (ver Prestamo.extenderPrestamo) y mueve su vencimiento en la
+     * analítica.
+     * 
+     * @param isbn El ISBN del libro prestado
+     * @param idEmpleado El ID del empleado que gestiona el préstamo
+     * @param dias Días que se extiende el préstamo
+     * @return true si se extendió, false si no hay un préstamo activo y sin vencer
+     */
+    public synchronized boolean extenderPrestamo(String isbn, String idEmpleado, int dias) {
+        Empleado empleado = empleados.get(idEmpleado);
+        Prestamo prestamo = empleado != null ? empleado.buscarPrestamo(isbn) : null;
+        if (prestamo == null || !prestamo.extenderPrestamo(dias)) {
+            return false;
+        }
+        Long fila = filaPorLibro.get(prestamo.getEjemplar());
+        if (fila != null) {
+            analitica.extender(fila, prestamo.getFechaDevolucionEsperada());
+        }
+        return true;
+    }
+    
+    /**
+     * Reserva un ISBN con la vigencia por defecto de DIAS_RESERVA días.
+     * 
+     * @param isbn El ISBN a reservar
+     * @param idUsuario El ID del usuario que reserva
+     * @return La reserva, o null si el ISBN no existe, le quedan ejemplares
+     *         disponibles o el usuario ya lo tenía reservado
+     */
+    public Reserva reservarLibro(String isbn, String idUsuario) {
+        return reservarLibro(isbn, idUsuario, Duration.ofDays(DIAS_RESERVA));
+    }
+    
+    /**
+     * Agrega al usuario al final de la lista de espera de un ISBN. La operación
+     * es O(1) y no adquiere el cerrojo; el usuario se valida al asignarle un
+     * ejemplar.
+     * 
+     * Mientras quede algún ejemplar disponible la reserva se rechaza, porque el
+     * usuario puede pedir el préstamo directamente. Si un ejemplar queda libre
+     * justo después de agregar la reserva, se presta a la primera vigente para
+     * que ninguna espere con copias en el estante.
+     * 
+     * @param isbn El ISBN a reservar
+     * @param idUsuario El ID del usuario que reserva
+     * @param vigencia Tiempo máximo de espera antes de que la reserva venza
+     * @return La reserva, o null si el ISBN no existe, le quedan ejemplares
+     *         disponibles o el usuario ya lo tenía reservado
+     */
+    public Reserva reservarLibro(String isbn, String idUsuario, Duration vigencia) {
+        if (!ejemplaresPorIsbn.containsKey(isbn) || hayEjemplarDisponible(isbn)) {
+            return null;
+        }
+        Reserva reserva = reservasPorIsbn.computeIfAbsent(isbn, ColaReservas::new)
+            .agregar(idUsuario, reloj.instant(), vigencia);
+        if (reserva != null && hayEjemplarDisponible(isbn)) {
+            Libro libro = reclamarEjemplar(isbn);
+            if (libro != null) {
+                synchronized (this) {
+                    soltarEjemplar(libro);
+                }
+            }
+        }
+        return reserva;
+    }
+    
+    /**
+     * Cancela una reserva pendiente.
+     * 
+     * @param reserva La reserva a cancelar
+     * @return true si la reserva estaba pendiente
+     */
+    public boolean cancelarReserva(Reserva reserva) {
+        ColaReservas cola = reservasPorIsbn.get(reserva.getIsbn());
+        return cola != null && cola.cancelar(reserva);
+    }
+    
+    /**
+     * Obtiene la posición de una reserva en la lista de espera de su ISBN.
+     * 
+     * @param reserva La reserva consultada
+     * @return Posición desde 1, o -1 si la reserva ya no está pendiente
+     */
+    public int getPosicionReserva(Reserva reserva) {
+        ColaReservas cola = reservasPorIsbn.get(reserva.getIsbn());
+        return cola != null ? cola.posicion(reserva, reloj.instant()) : -1;
+    }
+    
+    /**
+     * Obtiene el número de reservas pendientes de un ISBN.
+     * 
+     * @param isbn El ISBN consultado
+     * @return Número de usuarios en espera
+     */
+    public int getReservasPendientes(String isbn) {
+        ColaReservas cola = reservasPorIsbn.get(isbn);
+        return cola != null ? cola.getPendientes() : 0;
+    }
+    
+    /**
+     * Marca como vencidas y descarta las reservas cuya fecha límite ya pasó.
+     * Las reservas vencidas también se descartan al llegar a la cabeza de su
+     * lista; este método libera antes la memoria que ocupan.
+     * 
+     * @return Número de reservas que vencieron
+     */
+    public int purgarReservasVencidas() {
+        Instant ahora = reloj.instant();
+        int vencidas = 0;
+        for (ColaReservas cola : reservasPorIsbn.values()) {
+            vencidas += cola.purgar(ahora);
+        }
+        return vencidas;
+    }
+    
+    /**
+     * Presta a la primera reserva vigente de su ISBN un ejemplar que quedó libre
+     * sin pasar por una devolución, con el empleado del turno en curso que
+     * tenga menos préstamos en proceso. Sin reservas pendientes, o sin
+     * empleados en el turno, el ejemplar queda en el estante.
+     * 
+     * @param libro El ejemplar libre
+     */
+    private void ofrecerAReservas(Libro libro) {
+        ColaReservas cola = reservasPorIsbn.get(libro.getIsbn());
+        if (cola == null || cola.getPendientes() == 0 || libro.isPrestado()) {
+            return;
+        }
+        Empleado empleado = asignador.asignar(AsignadorEmpleados.turnoEn(LocalTime.now(reloj)));
+        if (empleado != null) {
+            entregarReserva(libro, empleado);
+            asignador.liberar(empleado);
+        }
+    }
+    
+    /**
+     * Presta un ejemplar recién devuelto a la primera reserva vigente de su ISBN.
+     * Las reservas de usuarios inexistentes o que no pueden recibir el préstamo
+     * se cancelan y se intenta con la siguiente.
+     * 
+     * @param libro El ejemplar devuelto
+     * @param empleado El empleado que procesa la devolución y el nuevo préstamo
+     */
+    private void entregarReserva(Libro libro, Empleado empleado) {
+        ColaReservas cola = reservasPorIsbn.get(libro.getIsbn());
+        if (cola == null || cola.getPendientes() == 0) {
+            return;
+        }
+        Instant ahora = reloj.instant();
+        Reserva reserva;
+        while (!libro.isPrestado() && (reserva = cola.tomarSiguiente(ahora)) != null) {
+            Usuario usuario = buscarUsuarioPorId(reserva.getIdUsuario());
+            if (usuario != null && empleado.procesarPrestamo(libro, usuario)) {
+                registrarPrestamo(libro, empleado);
+                asignador.ocupar(empleado);
+                reserva.asignarLibro(libro);
+            } else {
+                reserva.anular();
+            }
+        }
+    }
+    
+    /**
+     * Procesa un lote de préstamos adquiriendo el cerrojo una sola vez.
+     * Los usuarios solicitados se resuelven en una sola pasada sobre la
+     * colección y después se aplican los préstamos en orden, con el mismo
+     * resultado que llamar a prestarLibro para cada solicitud.
+     * 
+     * @param solicitudes Solicitudes con ISBN, ID de usuario e ID de empleado
+     * @return Lista con el resultado de cada solicitud, en el mismo orden
+     */
+    public synchronized List<Boolean> prestarLibros(List<SolicitudPrestamo> solicitudes) {
+        Map<String, Usuario> usuariosPorId = resolverUsuarios(solicitudes);
+        List<Boolean> resultados = new ArrayList<>(solicitudes.size());
+        for (SolicitudPrestamo solicitud : solicitudes) {
+            Libro libro = reclamarEjemplar(solicitud.getIsbn());
+            Usuario usuario = usuariosPorId.get(solicitud.getIdUsuario());
+            Empleado empleado = empleados.get(solicitud.getIdEmpleado());
+            boolean exito = false;
+            if (libro != null && usuario != null && empleado != null
+                    && empleado.procesarPrestamo(libro, usuario)) {
+                registrarPrestamo(libro, empleado);
+                asignador.ocupar(empleado);
+                exito = true;
+            } else if (libro != null) {
+                soltarEjemplar(libro);
+            }
+            resultados.add(exito);
+        }
+        return resultados;
+    }
+    
+    /**
+     * Procesa un lote de devoluciones adquiriendo el cerrojo una sola vez.
+     * Sólo se consideran el ISBN y el ID de empleado de cada solicitud.
+     * 
+     * @param solicitudes Solicitudes con ISBN e ID de empleado
+     * @return Lista con el resultado de cada solicitud, en el mismo orden
+     */
+    public synchronized List<Boolean> devolverLibros(List<SolicitudPrestamo> solicitudes) {
+        List<Boolean> resultados = new ArrayList<>(solicitudes.size());
+        for (SolicitudPrestamo solicitud : solicitudes) {
+            Libro libro = copiaPrestada(solicitud.getIsbn());
+            Empleado empleado = empleados.get(solicitud.getIdEmpleado());
+            boolean exito = false;
+            if (libro != null && empleado != null) {
+                libro.devolverLibro();
+                cerrarPrestamo(solicitud.getIsbn(), empleado);
+                registrarDevolucion(libro);
+                entregarReserva(libro, empleado);
+                exito = true;
+            }
+            resultados.add(exito);
+        }
+        return resultados;
+    }
+    
+    /**
+     * Cierra el préstamo en proceso de un ISBN y descuenta la carga del
+     * empleado que lo gestionaba. Si el empleado que recibe la devolución no
+     * gestiona ningún préstamo de ese ISBN, se cierra el de otro empleado que
+     * sí lo gestione; la carga sólo se descuenta a quien cerró un préstamo.
+     * 
+     * @param isbn El ISBN del libro devuelto
+     * @param receptor El empleado que recibe la devolución
+     */
+    private void cerrarPrestamo(String isbn, Empleado receptor) {
+        if (receptor.devolverPrestamo(isbn)) {
+            asignador.liberar(receptor);
+            return;
+        }
+        for (Empleado empleado : empleados.values()) {
+            if (empleado != receptor && empleado.devolverPrestamo(isbn)) {
+                asignador.liberar(empleado);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Actualiza las estructuras auxiliares después de un préstamo exitoso.
+     * 
+     * @param libro El libro prestado
+     * @param empleado El empleado que procesó el préstamo; la analítica toma las
+     *                 fechas del préstamo que acaba de crear
+     */
+    private void registrarPrestamo(Libro libro, Empleado empleado) {
+        autocompletado.registrarPrestamo(libro);
+        if (analitica != null) {
+            Prestamo prestamo = empleado.getUltimoPrestamo();
+            filaPorLibro.put(libro, analitica.registrar(prestamo.getFechaPrestamo(),
+                                                         prestamo.getFechaDevolucionEsperada(), null,
+                                                         libro.getAutor(), empleado.getId()));
+        }
+    }
+
+    /**
+     * Cierra en la analítica el préstamo en curso de un libro devuelto.
+     *
+     * @param libro El libro devuelto
+     */
+    private void registrarDevolucion(Libro libro) {
+        Long fila = filaPorLibro.remove(libro);
+        if (fila != null) {
+            analitica.cerrar(fila, LocalDate.now(reloj));
+        }
+    }
+    
+    /**
+     * Reclama un ejemplar disponible de un ISBN sin adquirir el cerrojo
+     * (ver Ejemplares.reclamar). Si no llega a prestarse debe soltarse con
+     * soltarEjemplar.
+     * 
+     * @param isbn El ISBN del libro
+     * @return Un ejemplar no prestado y sin reclamar, o null si no hay ninguno
+     */
+    private Libro reclamarEjemplar(String isbn) {
+        Ejemplares ejemplares = ejemplaresPorIsbn.get(isbn);
+        return ejemplares != null ? ejemplares.reclamar() : null;
+    }
+    
+    /**
+     * Comprueba que un ejemplar reclamado antes de adquirir el cerrojo sigue
+     * registrado con el ISBN solicitado; entretanto pudo eliminarse o cambiar
+     * de ISBN.
+     * 
+     * @param libro El ejemplar reclamado
+     * @param isbn El ISBN solicitado
+     * @return true si el ejemplar puede prestarse con ese ISBN
+     */
+    private boolean ejemplarVigente(Libro libro, String isbn) {
+        Ejemplares ejemplares = ejemplaresPorIsbn.get(isbn);
+        return ejemplares != null && ejemplares.contiene(libro);
+    }
+    
+    /**
+     * Devuelve a su entrada un ejemplar reclamado que no llegó a prestarse, o
+     * lo presta a la primera reserva vigente si su ISBN tiene alguna.
+     * 
+     * @param libro El ejemplar reclamado
+     */
+    private void soltarEjemplar(Libro libro) {
+        Ejemplares ejemplares = ejemplaresPorIsbn.get(libro.getIsbn());
+        if (ejemplares != null && ejemplares.contiene(libro)) {
+            ejemplares.soltar(libro);
+            ofrecerAReservas(libro);
+        }
+    }
+    
+    /**
+     * Obtiene un ejemplar prestado de un ISBN.
+     * 
+     * @param isbn El ISBN del libro
+     * @return Un ejemplar prestado o null si no hay ninguno
+     */
+    private Libro copiaPrestada(String isbn) {
+        Ejemplares ejemplares = ejemplaresPorIsbn.get(isbn);
+        return ejemplares != null ? ejemplares.copiaPrestada() : null;
+    }
+    
+    /**
+     * Localiza los usuarios solicitados, una búsqueda por ID distinto.
+     * 
+     * @param solicitudes Solicitudes del lote
+     * @return Mapa de ID de usuario al usuario registrado
+     */
+    private Map<String, Usuario> resolverUsuarios(List<SolicitudPrestamo> solicitudes) {
+        Map<String, Usuario> resueltos = new HashMap<>();
+        for (SolicitudPrestamo solicitud : solicitudes) {
+            String id = solicitud.getIdUsuario();
+            if (id != null && !resueltos.containsKey(id)) {
+                Usuario usuario = usuariosPorId.obtener(id);
+                if (usuario != null) {
+                    resueltos.put(id, usuario);
+                }
+            }
+        }
+        return resueltos;
+    }
     
     /**
      * Obtiene una lista de todos los libros disponibles para préstamo.
      * 
      * @return Lista de libros no prestados
      */
-    public List<Libro> getLibrosDisponibles() {
+    public synchronized List<Libro> getLibrosDisponibles() {
         List<Libro> disponibles = new ArrayList<>();
         for (Libro libro : libros) {
             if (!libro.isPrestado()) {
@@ -228,7 +950,7 @@ public class Biblioteca {
      * 
      * @return Lista de libros prestados
      */
-    public List<Libro> getLibrosPrestados() {
+    public synchronized List<Libro> getLibrosPrestados() {
         List<Libro> prestados = new ArrayList<>();
         for (Libro libro : libros) {
             if (libro.isPrestado()) {
@@ -238,13 +960,200 @@ public class Biblioteca {
         return prestados;
     }
     
+    /**
+     * Obtiene el número total de libros de la colección.
+     * 
+     * @return Cantidad de libros registrados
+     */
+    public synchronized int getTotalLibros() {
+        return libros.size();
+    }
+    
+    /**
+     * Obtiene el número de usuarios registrados.
+     * 
+     * @return Cantidad de usuarios registrados
+     */
+    public synchronized int getTotalUsuarios() {
+        return usuarios.size();
+    }
+    
+    /**
+     * Obtiene el número de empleados registrados.
+     * 
+     * @return Cantidad de empleados registrados
+     */
+    public synchronized int getTotalEmpleados() {
+        return empleados.size();
+    }
+    
+    /**
+     * Obtiene una página de libros disponibles, en el orden en que se agregaron.
+     * Cada página cuesta O(log n + tamaño) y no adquiere el cerrojo de la
+     * biblioteca; las páginas siguientes continúan desde el cursor aunque el
+     * catálogo cambie entre llamadas.
+     * 
+     * @param cursor Cursor devuelto por la página anterior, o 0 para la primera
+     * @param tamano Número máximo de libros de la página
+     * @return Página con los libros y el cursor para continuar
+     */
+    public Pagina<Libro> getLibrosDisponibles(long cursor, int tamano) {
+        return paginar(disponibles, cursor, tamano);
+    }
+    
+    /**
+     * Obtiene una página de libros prestados, en el orden en que se agregaron.
+     * 
+     * @param cursor Cursor devuelto por la página anterior, o 0 para la primera
+     * @param tamano Número máximo de libros de la página
+     * @return Página con los libros y el cursor para continuar
+     */
+    public Pagina<Libro> getLibrosPrestados(long cursor, int tamano) {
+        return paginar(prestados, cursor, tamano);
+    }
+    
+    /**
+     * Obtiene un flujo perezoso de los libros disponibles, en el orden en que se agregaron.
+     * El recorrido no adquiere el cerrojo y refleja los cambios concurrentes de
+     * forma débilmente consistente, sin lanzar ConcurrentModificationException.
+     * 
+     * @return Stream de libros disponibles
+     */
+    public Stream<Libro> streamLibrosDisponibles() {
+        return disponibles.values().stream();
+    }
+    
+    /**
+     * Obtiene un flujo perezoso de los libros prestados, en el orden en que se agregaron.
+     * 
+     * @return Stream de libros prestados
+     */
+    public Stream<Libro> streamLibrosPrestados() {
+        return prestados.values().stream();
+    }
+    
+    /**
+     * Obtiene un iterador perezoso sobre los libros disponibles.
+     * 
+     * @return Iterator de sólo lectura de libros disponibles
+     */
+    public Iterator<Libro> iteradorLibrosDisponibles() {
+        return Collections.unmodifiableCollection(disponibles.values()).iterator();
+    }
+    
+    /**
+     * Obtiene un iterador perezoso sobre los libros prestados.
+     * 
+     * @return Iterator de sólo lectura de libros prestados
+     */
+    public Iterator<Libro> iteradorLibrosPrestados() {
+        return Collections.unmodifiableCollection(prestados.values()).iterator();
+    }
+
+    /**
+     * Publica los libros cuyo título contiene el texto indicado, ignorando
+     * mayúsculas y minúsculas, en el orden en que se agregaron y a medida que
+     * el suscriptor los pide. Cada lote se examina con el cerrojo adquirido,
+     * así que un libro presente durante todo el recorrido se entrega
+     * exactamente una vez aunque se preste o se devuelva entretanto. No usa la
+     * caché de búsquedas.
+     *
+     * @param titulo El título o parte del título a buscar
+     * @return Publicador de los libros que coinciden
+     */
+    public PublicadorLibros publicarLibrosPorTitulo(String titulo) {
+        String consulta = titulo.toLowerCase();
+        return new PublicadorLibros((cursor, maximo, destino) -> leerCatalogo(cursor, maximo, destino, consulta));
+    }
+
+    /**
+     * Publica los libros disponibles, en el orden en que se agregaron y a
+     * medida que el suscriptor los pide. No adquiere el cerrojo y, como
+     * streamLibrosDisponibles, es débilmente consistente.
+     *
+     * @return Publicador de los libros disponibles
+     */
+    public PublicadorLibros publicarLibrosDisponibles() {
+        return new PublicadorLibros((cursor, maximo, destino) -> leerIndice(disponibles, cursor, maximo, destino));
+    }
+
+    /**
+     * Publica los libros prestados, en el orden en que se agregaron y a
+     * medida que el suscriptor los pide. No adquiere el cerrojo.
+     *
+     * @return Publicador de los libros prestados
+     */
+    public PublicadorLibros publicarLibrosPrestados() {
+        return new PublicadorLibros((cursor, maximo, destino) -> leerIndice(prestados, cursor, maximo, destino));
+    }
+
+    /**
+     * Examina en orden de secuencia, mezclando los índices de disponibles y
+     * prestados, hasta maximo libros posteriores al cursor, y agrega a destino
+     * los que contienen la consulta en el título.
+     *
+     * @return Secuencia del último libro examinado, o PublicadorLibros.AGOTADO
+     */
+    private synchronized long leerCatalogo(long cursor, int maximo, List<Libro> destino, String consulta) {
+        Iterator<Map.Entry<Long, Libro>> libres = disponibles.tailMap(cursor, false).entrySet().iterator();
+        Iterator<Map.Entry<Long, Libro>> ocupados = prestados.tailMap(cursor, false).entrySet().iterator();
+        Map.Entry<Long, Libro> libre = libres.hasNext() ? libres.next() : null;
+        Map.Entry<Long, Libro> ocupado = ocupados.hasNext() ? ocupados.next() : null;
+        for (int examinados = 0; examinados < maximo && (libre != null || ocupado != null); examinados++) {
+            Map.Entry<Long, Libro> entrada;
+            if (ocupado == null || libre != null && libre.getKey() < ocupado.getKey()) {
+                entrada = libre;
+                libre = libres.hasNext() ? libres.next() : null;
+            } else {
+                entrada = ocupado;
+                ocupado = ocupados.hasNext() ? ocupados.next() : null;
+            }
+            cursor = entrada.getKey();
+            if (entrada.getValue().getTitulo().toLowerCase().contains(consulta)) {
+                destino.add(entrada.getValue());
+            }
+        }
+        return libre == null && ocupado == null ? PublicadorLibros.AGOTADO : cursor;
+    }
+
+    /**
+     * Lee de un índice ordenado por secuencia hasta maximo libros posteriores al cursor.
+     *
+     * @return Secuencia del último libro leído, o PublicadorLibros.AGOTADO
+     */
+    private static long leerIndice(ConcurrentSkipListMap<Long, Libro> indice, long cursor, int maximo,
+                                   List<Libro> destino) {
+        Iterator<Map.Entry<Long, Libro>> it = indice.tailMap(cursor, false).entrySet().iterator();
+        while (destino.size() < maximo && it.hasNext()) {
+            Map.Entry<Long, Libro> entrada = it.next();
+            destino.add(entrada.getValue());
+            cursor = entrada.getKey();
+        }
+        return it.hasNext() ? cursor : PublicadorLibros.AGOTADO;
+    }
+
+    /**
+     * Extrae una página de un índice ordenado por secuencia.
+     */
+    private static Pagina<Libro> paginar(ConcurrentSkipListMap<Long, Libro> indice, long cursor, int tamano) {
+        List<Libro> elementos = new ArrayList<>(Math.max(0, tamano));
+        long ultimo = cursor;
+        Iterator<Map.Entry<Long, Libro>> it = indice.tailMap(cursor, false).entrySet().iterator();
+        while (elementos.size() < tamano && it.hasNext()) {
+            Map.Entry<Long, Libro> entrada = it.next();
+            elementos.add(entrada.getValue());
+            ultimo = entrada.getKey();
+        }
+        return new Pagina<>(elementos, ultimo, it.hasNext());
+    }
+    
     /**
      * Genera una representación en texto del estado actual de la biblioteca.
      * Incluye información sobre libros, usuarios y empleados.
      * 
      * @return String con el estado detallado de la biblioteca
      */
-    public String toString() {
+    public synchronized String toString() {
         String estado = "";
         estado += "Biblioteca: " + nombre + "\n";
         estado += "Ubicación: " + ubicacion + "\n";
@@ -262,4 +1171,141 @@ public class Biblioteca {
         
         return estado;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Obtiene la instantánea más reciente del estado de la biblioteca.
+     * No adquiere el cerrojo: la instantánea es inmutable y puede recorrerse
+     * sin bloquear las operaciones de préstamo.
+     * 
+     * @return La instantánea actual
+     */
+    public InstantaneaBiblioteca getInstantanea() {
+        return instantanea;
+    }
+
+    /**
+     * Crea un diccionario compacto e inmutable con los títulos distintos de la
+     * instantánea actual, para consultas por título o por rango de títulos
+     * sin crear objetos String. No adquiere el cerrojo.
+     *
+     * @return Diccionario con los títulos de la biblioteca
+     */
+    public DiccionarioTitulos congelarTitulos() {
+        return new DiccionarioTitulos(instantanea.streamLibros()
+                                      .map(InstantaneaBiblioteca.FichaLibro::getTitulo)
+                                      .collect(Collectors.toList()));
+    }
+
+    /**
+     * Registra un observador que recibirá cada cambio posterior de la
+     * biblioteca. Se registra con el cerrojo adquirido, de modo que la
+     * instantánea devuelta y los cambios que recibirá el observador no se
+     * solapan ni dejan huecos.
+     * 
+     * @param observador El observador
+     * @return La instantánea vigente al registrarlo
+     */
+    public synchronized InstantaneaBiblioteca agregarObservador(ObservadorBiblioteca observador) {
+        observadores.add(observador);
+        return instantanea;
+    }
+
+    /**
+     * Elimina un observador registrado.
+     * 
+     * @param observador El observador
+     */
+    public void eliminarObservador(ObservadorBiblioteca observador) {
+        observadores.remove(observador);
+    }
+
+    /**
+     * Reemplaza la instantánea publicada y avisa del cambio a los observadores.
+     * Debe llamarse con el cerrojo adquirido.
+     * 
+     * @param nueva La nueva instantánea; si es la actual no se hace nada
+     */
+    private void publicar(InstantaneaBiblioteca nueva) {
+        if (nueva == instantanea) {
+            return;
+        }
+        instantanea = nueva;
+        if (!observadores.isEmpty()) {
+            CambioBiblioteca cambio = nueva.getCambio();
+            for (ObservadorBiblioteca observador : observadores) {
+                observador.cambioPublicado(cambio);
+            }
+        }
+    }
+
+    /**
+     * Publica una instantánea con los datos actuales de un libro de la colección.
+     * Debe llamarse con el cerrojo adquirido.
+     * 
+     * @param libro El libro modificado
+     */
+    private void publicarLibro(Libro libro) {
+        Long secuencia = secuenciaPorLibro.get(libro);
+        if (secuencia != null) {
+            publicar(instantanea.conLibro(secuencia, libro));
+        }
+    }
+    
+    /**
+     * Observador que mantiene al día las estructuras auxiliares de la biblioteca
+     * cuando se modifica alguno de sus libros.
+     */
+    private class ObservadorCatalogo implements ObservadorLibro {
+        @Override
+        public void tituloCambiado(Libro libro, String tituloAnterior) {
+            synchronized (Biblioteca.this) {
+                invalidarBusquedas(tituloAnterior);
+                invalidarBusquedas(libro.getTitulo());
+                autocompletado.reemplazarTermino(libro, tituloAnterior, libro.getTitulo());
+                motorBusqueda.actualizarLibro(libro);
+                busquedaDifusa.actualizarLibro(libro);
+                publicarLibro(libro);
+            }
+        }
+
+        @Override
+        public void estadoPrestamoCambiado(Libro libro) {
+            synchronized (Biblioteca.this) {
+                Ejemplares ejemplares = ejemplaresPorIsbn.get(libro.getIsbn());
+                if (ejemplares != null) {
+                    ejemplares.estadoCambiado(libro);
+                }
+                Long secuencia = secuenciaPorLibro.get(libro);
+                if (secuencia != null) {
+                    if (libro.isPrestado()) {
+                        prestados.put(secuencia, libro);
+                        disponibles.remove(secuencia);
+                    } else {
+                        disponibles.put(secuencia, libro);
+                        prestados.remove(secuencia);
+                    }
+                    publicar(instantanea.conLibro(secuencia, libro));
+                }
+            }
+        }
+
+        @Override
+        public void isbnCambiado(Libro libro, String isbnAnterior) {
+            synchronized (Biblioteca.this) {
+                eliminarEjemplar(libro, isbnAnterior);
+                ejemplaresPorIsbn.computeIfAbsent(libro.getIsbn(), Ejemplares::new).agregarCopia(libro);
+                publicarLibro(libro);
+                ofrecerAReservas(libro);
+            }
+        }
+
+        @Override
+        public void autorCambiado(Libro libro, String autorAnterior) {
+            synchronized (Biblioteca.this) {
+                autocompletado.reemplazarTermino(libro, autorAnterior, libro.getAutor());
+                motorBusqueda.actualizarLibro(libro);
+                publicarLibro(libro);
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/**
+ * Variantes asíncronas de las operaciones de una Biblioteca, para que la capa
+ * de servicio no dedique un hilo a cada petición en curso.
+ *
+ * Cada operación devuelve un CompletableFuture y se ejecuta en un
+ * ThreadPoolExecutor con cola acotada: el propio (Hilos.nuevoEjecutorAcotado)
+ * o uno configurado por quien llama. Cuando la cola está llena la operación no
+ * se encola: el futuro se completa de inmediato con RejectedExecutionException
+ * (contrapresión), de modo que los rechazos se componen como cualquier otro
+ * error. Las consultas que la biblioteca resuelve sin cerrojo
+ * (buscarUsuarioPorId, y un préstamo sin ejemplares disponibles) se completan
+ * en el hilo que llama, sin pasar por el ejecutor.
+ *
+ * Las variantes con tiempo límite completan el futuro con TimeoutException si
+ * la operación no empieza o, en las búsquedas, no termina a tiempo. Una
+ * operación que vence en la cola ya no se ejecuta. En préstamos y devoluciones
+ * el límite sólo cuenta hasta que la operación empieza: una vez en curso, el
+ * futuro espera su resultado real, de modo que un TimeoutException garantiza
+ * que la biblioteca no cambió y puede reintentarse sin duplicar el préstamo.
+ * Los plazos los vence un temporizador compartido, y el de una operación que
+ * termina antes se cancela.
+ *
+ * La saturación del ejecutor (operaciones en curso, en cola y fracción de la
+ * cola ocupada) y los contadores de completadas, rechazadas y vencidas pueden
+ * consultarse en cualquier momento.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public class BibliotecaAsincrona {
+    /** Capacidad por defecto de la cola del ejecutor */
+    public static final int CAPACIDAD_POR_DEFECTO = 1024;
+    /** Temporizador compartido de los tiempos límite */
+    private static final ScheduledExecutorService TEMPORIZADOR = Hilos.nuevoTemporizador("biblioteca-limites");
+
+    /** Biblioteca sobre la que se ejecutan las operaciones */
+    private final Biblioteca biblioteca;
+    /** Ejecutor de las operaciones */
+    private final ThreadPoolExecutor ejecutor;
+    /** Temporizador que vence las operaciones con tiempo límite */
+    private final ScheduledExecutorService temporizador;
+    /** Capacidad de la cola del ejecutor */
+    private final int capacidad;
+    /** Indica si el ejecutor se creó aquí y debe cerrarse al detener */
+    private final boolean ejecutorPropio;
+    /** Operaciones completadas con un resultado o un error de la biblioteca */
+    private final LongAdder completadas;
+    /** Operaciones rechazadas por tener la cola llena */
+    private final LongAdder rechazadas;
+    /** Operaciones cuyo tiempo límite venció */
+    private final LongAdder vencidas;
+
+    /**
+     * Crea las variantes asíncronas con un ejecutor propio.
+     *
+     * @param biblioteca Biblioteca sobre la que se ejecutan las operaciones
+     * @param hilos Número de hilos del ejecutor
+     * @param capacidad Número máximo de operaciones en cola
+     */
+    public BibliotecaAsincrona(Biblioteca biblioteca, int hilos, int capacidad) {
+        this(biblioteca, Hilos.nuevoEjecutorAcotado("biblioteca-asincrona", hilos, capacidad), TEMPORIZADOR, true);
+    }
+
+    /**
+     * Crea las variantes asíncronas sobre un ejecutor configurado por quien
+     * llama, que debe tener una cola acotada. No se cierra al detener.
+     *
+     * @param biblioteca Biblioteca sobre la que se ejecutan las operaciones
+     * @param ejecutor Ejecutor con cola acotada
+     * @throws IllegalArgumentException si la cola del ejecutor no está acotada
+     */
+    public BibliotecaAsincrona(Biblioteca biblioteca, ThreadPoolExecutor ejecutor) {
+        this(biblioteca, ejecutor, TEMPORIZADOR, false);
+    }
+
+    /**
+     * Crea las variantes asíncronas sobre un ejecutor y un temporizador
+     * configurados por quien llama, por ejemplo para controlar en las pruebas
+     * cuándo vence cada límite. Ninguno se cierra al detener.
+     *
+     * @param biblioteca Biblioteca sobre la que se ejecutan las operaciones
+     * @param ejecutor Ejecutor con cola acotada
+     * @param temporizador Temporizador de los tiempos límite
+     */
+    BibliotecaAsincrona(Biblioteca biblioteca, ThreadPoolExecutor ejecutor, ScheduledExecutorService temporizador) {
+        this(biblioteca, ejecutor, temporizador, false);
+    }
+
+    private BibliotecaAsincrona(Biblioteca biblioteca, ThreadPoolExecutor ejecutor,
+                                ScheduledExecutorService temporizador, boolean ejecutorPropio) {
+        int libre = ejecutor.getQueue().remainingCapacity();
+        if (libre == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("La cola del ejecutor debe estar acotada");
+        }
+        this.biblioteca = biblioteca;
+        this.ejecutor = ejecutor;
+        this.temporizador = temporizador;
+        this.capacidad = libre + ejecutor.getQueue().size();
+        this.ejecutorPropio = ejecutorPropio;
+        this.completadas = new LongAdder();
+        this.rechazadas = new LongAdder();
+        this.vencidas = new LongAdder();
+    }
+
+    /**
+     * Obtiene la biblioteca sobre la que se ejecutan las operaciones.
+     * @return La biblioteca
+     */
+    public Biblioteca getBiblioteca() {
+        return biblioteca;
+    }
+
+    /**
+     * Procesa un préstamo de forma asíncrona.
+     *
+     * @param isbn El ISBN del libro a prestar
+     * @param idUsuario El ID del usuario que solicita el préstamo
+     * @param idEmpleado El ID del empleado que procesa el préstamo
+     * @return Futuro con true si el préstamo fue exitoso
+     */
+    public CompletableFuture<Boolean> prestarLibro(String isbn, String idUsuario, String idEmpleado) {
+        return prestarLibro(isbn, idUsuario, idEmpleado, null);
+    }
+
+    /**
+     * Procesa un préstamo de forma asíncrona con tiempo límite.
+     *
+     * @param isbn El ISBN del libro a prestar
+     * @param idUsuario El ID del usuario que solicita el préstamo
+     * @param idEmpleado El ID del empleado que procesa el préstamo
+     * @param limite Tiempo límite para que el préstamo empiece, o null para
+     *               esperar sin límite
+     * @return Futuro con true si el préstamo fue exitoso
+     */
+    public CompletableFuture<Boolean> prestarLibro(String isbn, String idUsuario, String idEmpleado, Duration limite) {
+        if (!biblioteca.hayEjemplarDisponible(isbn)) {
+            completadas.increment();
+            return CompletableFuture.completedFuture(false);
+        }
+        return ejecutar(() -> biblioteca.prestarLibro(isbn, idUsuario, idEmpleado), limite, true);
+    }
+
+    /**
+     * Procesa una devolución de forma asíncrona.
+     *
+     * @param isbn El ISBN del libro a devolver
+     * @param idEmpleado El ID del empleado que procesa la devolución
+     * @return Futuro con true si la devolución fue exitosa
+     */
+    public CompletableFuture<Boolean> devolverLibro(String isbn, String idEmpleado) {
+        return devolverLibro(isbn, idEmpleado, null);
+    }
+
+    /**
+     * Procesa una devolución de forma asíncrona con tiempo límite.
+     *
+     * @param isbn El ISBN del libro a devolver
+     * @param idEmpleado El ID del empleado que procesa la devolución
+     * @param limite Tiempo límite para que la devolución empiece, o null para
+     *               esperar sin límite
+     * @return Futuro con true si la devolución fue exitosa
+     */
+    public CompletableFuture<Boolean> devolverLibro(String isbn, String idEmpleado, Duration limite) {
+        return ejecutar(() -> biblioteca.devolverLibro(isbn, idEmpleado), limite, true);
+    }
+
+    /**
+     * Busca libros por título de forma asíncrona.
+     *
+     * @param titulo El título o parte del título a buscar
+     * @return Futuro con los libros encontrados
+     */
+    public CompletableFuture<List<Libro>> buscarLibrosPorTitulo(String titulo) {
+        return buscarLibrosPorTitulo(titulo, null);
+    }
+
+    /**
+     * Busca libros por título de forma asíncrona con tiempo límite.
+     *
+     * @param titulo El título o parte del título a buscar
+     * @param limite Tiempo límite, o null para esperar sin límite
+     * @return Futuro con los libros encontrados
+     */
+    public CompletableFuture<List<Libro>> buscarLibrosPorTitulo(String titulo, Duration limite) {
+        return ejecutar(() -> biblioteca.buscarLibrosPorTitulo(titulo), limite, false);
+    }
+
+    /**
+     * Busca un usuario por su ID. La búsqueda no adquiere el cerrojo, así que
+     * el futuro se devuelve ya completado.
+     *
+     * @param id El ID del usuario
+     * @return Futuro con el usuario, o con null si no existe
+     */
+    public CompletableFuture<Usuario> buscarUsuarioPorId(String id) {
+        completadas.increment();
+        return CompletableFuture.completedFuture(biblioteca.buscarUsuarioPorId(id));
+    }
+
+    /**
+     * Presta el primer ejemplar disponible de un título, componiendo la
+     * búsqueda y el préstamo sin bloquear al que llama.
+     *
+     * @param titulo El título o parte del título
+     * @param idUsuario El ID del usuario que solicita el préstamo
+     * @param idEmpleado El ID del empleado que procesa el préstamo
+     * @param limite Tiempo límite de cada paso, o null para esperar sin límite
+     * @return Futuro con el libro prestado, o con null si no había ninguno disponible
+     */
+    public CompletableFuture<Libro> prestarPorTitulo(String titulo, String idUsuario, String idEmpleado,
+                                                     Duration limite) {
+        return buscarLibrosPorTitulo(titulo, limite).thenCompose(libros -> {
+            for (Libro libro : libros) {
+                if (!libro.isPrestado()) {
+                    return prestarLibro(libro.getIsbn(), idUsuario, idEmpleado, limite)
+                        .thenApply(prestado -> prestado ? libro : null);
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Obtiene el número de operaciones que se están ejecutando.
+     * @return Operaciones en curso
+     */
+    public int getEnCurso() {
+        return ejecutor.getActiveCount();
+    }
+
+    /**
+     * Obtiene el número de operaciones en la cola del ejecutor.
+     * @return Operaciones en cola
+     */
+    public int getEnCola() {
+        return ejecutor.getQueue().size();
+    }
+
+    /**
+     * Obtiene la fracción ocupada de la cola del ejecutor. Con 1.0 las
+     * operaciones nuevas se rechazan.
+     *
+     * @return Saturación entre 0.0 y 1.0
+     */
+    public double getSaturacion() {
+        return capacidad == 0 ? (getEnCurso() < ejecutor.getMaximumPoolSize() ? 0.0 : 1.0)
+                              : getEnCola() / (double) capacidad;
+    }
+
+    /**
+     * Obtiene el número de operaciones completadas.
+     * @return Operaciones completadas
+     */
+    public long getCompletadas() {
+        return completadas.sum();
+    }
+
+    /**
+     * Obtiene el número de operaciones rechazadas por tener la cola llena.
+     * @return Operaciones rechazadas
+     */
+    public long getRechazadas() {
+        return rechazadas.sum();
+    }
+
+    /**
+     * Obtiene el número de operaciones cuyo tiempo límite venció.
+     * @return Operaciones vencidas
+     */
+    public long getVencidas() {
+        return vencidas.sum();
+    }
+
+    /**
+     * Cierra el ejecutor propio; las operaciones en cola se ejecutan antes de
+     * que termine. Un ejecutor configurado por quien llama no se cierra.
+     */
+    public void detener() {
+        if (ejecutorPropio) {
+            ejecutor.shutdown();
+        }
+    }
+
+    /**
+     * Encola una operación en el ejecutor.
+     *
+     * @param operacion Operación sobre la biblioteca
+     * @param limite Tiempo límite, o null
+     * @param modifica true si la operación modifica la biblioteca; entonces el
+     *                 límite sólo cuenta hasta que empieza
+     * @return Futuro con el resultado
+     */
+    private <T> CompletableFuture<T> ejecutar(Supplier<T> operacion, Duration limite, boolean modifica) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        // La toma quien llega primero: el hilo que ejecuta o el tiempo límite
+        AtomicBoolean tomada = new AtomicBoolean();
+        if (limite != null) {
+            ScheduledFuture<?> plazo = temporizador.schedule(() -> {
+                if ((!modifica || tomada.compareAndSet(false, true)) && !resultado.isDone()) {
+                    // Se cuenta antes de completar para que quien despierte con el error ya la vea
+                    vencidas.increment();
+                    if (!resultado.completeExceptionally(new TimeoutException())) {
+                        vencidas.decrement();
+                    }
+                }
+            }, limite.toNanos(), TimeUnit.NANOSECONDS);
+            // Si la operación termina antes, el plazo no queda pendiente
+            resultado.whenComplete((valor, error) -> plazo.cancel(false));
+        }
+        try {
+            ejecutor.execute(() -> {
+                // Vencida o cancelada mientras esperaba en la cola
+                if (!tomada.compareAndSet(false, true) || resultado.isDone()) {
+                    return;
+                }
+                T valor;
+                try {
+                    valor = operacion.get();
+                } catch (RuntimeException e) {
+                    completadas.increment();
+                    resultado.completeExceptionally(e);
+                    return;
+                }
+                completadas.increment();
+                resultado.complete(valor);
+            });
+        } catch (RejectedExecutionException e) {
+            rechazadas.increment();
+            resultado.completeExceptionally(e);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,251 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Clase de pruebas unitarias para la clase BibliotecaAsincrona.
+ * Verifica las operaciones y su composición, el rechazo con la cola llena,
+ * los tiempos límite y las métricas de saturación.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class BibliotecaAsincronaTest
+{
+    /** Biblioteca de prueba */
+    private Biblioteca biblioteca;
+    /** Variantes asíncronas con un hilo y cola de dos operaciones */
+    private BibliotecaAsincrona asincrona;
+    /** Señal de que la operación retenida empezó */
+    private volatile CountDownLatch empezada;
+    /** Señal de que venció el plazo de la operación retenida */
+    private volatile CountDownLatch vencida;
+
+    /**
+     * Crea una biblioteca con un empleado, un usuario y tres libros.
+     */
+    @BeforeEach
+    public void setUp() {
+        biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        biblioteca.agregarEmpleado(new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario"));
+        biblioteca.agregarUsuario(new Usuario("Ana López", "U001"));
+        biblioteca.agregarLibro(new Libro("Cien años de soledad", "Gabriel García Márquez", "9780307474728", 417));
+        biblioteca.agregarLibro(new Libro("Ficciones", "Jorge Luis Borges", "9788499089515", 224));
+        biblioteca.agregarLibro(new Libro("Rayuela", "Julio Cortázar", "9788437604572", 736));
+        asincrona = new BibliotecaAsincrona(biblioteca, 1, 2);
+    }
+
+    /**
+     * Prueba las cuatro operaciones y su composición.
+     */
+    @Test
+    public void testOperacionesYComposicion() throws Exception {
+        assertTrue(asincrona.prestarLibro("9788499089515", "U001", "E001").get(5, TimeUnit.SECONDS));
+        // Sin ejemplares disponibles se responde sin pasar por el ejecutor
+        CompletableFuture<Boolean> agotado = asincrona.prestarLibro("9788499089515", "U001", "E001");
+        assertTrue(agotado.isDone());
+        assertFalse(agotado.get());
+        assertTrue(asincrona.devolverLibro("9788499089515", "E001").get(5, TimeUnit.SECONDS));
+        assertEquals(1, asincrona.buscarLibrosPorTitulo("rayuela").get(5, TimeUnit.SECONDS).size());
+
+        CompletableFuture<Usuario> usuario = asincrona.buscarUsuarioPorId("U001");
+        assertTrue(usuario.isDone());
+        assertEquals("Ana López", usuario.get().getNombre());
+        assertNull(asincrona.buscarUsuarioPorId("U999").get());
+
+        Libro prestado = asincrona.prestarPorTitulo("cien años", "U001", "E001", Duration.ofSeconds(5))
+            .get(5, TimeUnit.SECONDS);
+        assertEquals("9780307474728", prestado.getIsbn());
+        assertTrue(prestado.isPrestado());
+        assertNull(asincrona.prestarPorTitulo("cien años", "U001", "E001", null).get(5, TimeUnit.SECONDS));
+
+        // La búsqueda del usuario y el préstamo se encadenan
+        String resultado = asincrona.buscarUsuarioPorId("U001")
+            .thenCompose(u -> asincrona.prestarLibro("9788437604572", u.getId(), "E001"))
+            .thenApply(ok -> ok ? "prestado" : "rechazado")
+            .get(5, TimeUnit.SECONDS);
+        assertEquals("prestado", resultado);
+        assertEquals(0, asincrona.getRechazadas());
+        assertEquals(0, asincrona.getVencidas());
+        assertTrue(asincrona.getCompletadas() >= 9);
+    }
+
+    /**
+     * Prueba que con la cola llena las operaciones se rechacen sin encolarse
+     * y que la saturación se refleje en las métricas.
+     */
+    @Test
+    public void testSaturacionYRechazo() throws Exception {
+        CompletableFuture<Boolean> enCurso;
+        List<CompletableFuture<List<Libro>>> encoladas = new ArrayList<>();
+        CompletableFuture<List<Libro>> rechazada;
+        synchronized (biblioteca) {
+            enCurso = asincrona.prestarLibro("9788499089515", "U001", "E001");
+            esperar(() -> asincrona.getEnCurso() == 1);
+            encoladas.add(asincrona.buscarLibrosPorTitulo("ficciones"));
+            encoladas.add(asincrona.buscarLibrosPorTitulo("rayuela"));
+            assertEquals(2, asincrona.getEnCola());
+            assertEquals(1.0, asincrona.getSaturacion());
+
+            rechazada = asincrona.buscarLibrosPorTitulo("cien");
+            assertTrue(rechazada.isCompletedExceptionally());
+            assertEquals(1, asincrona.getRechazadas());
+            assertFalse(enCurso.isDone());
+        }
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rechazada.get());
+        assertTrue(error.getCause() instanceof RejectedExecutionException);
+        assertTrue(enCurso.get(5, TimeUnit.SECONDS));
+        for (CompletableFuture<List<Libro>> encolada : encoladas) {
+            assertEquals(1, encolada.get(5, TimeUnit.SECONDS).size());
+        }
+        esperar(() -> asincrona.getEnCola() == 0);
+        assertEquals(0.0, asincrona.getSaturacion());
+
+        ThreadPoolExecutor sinLimite = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        assertThrows(IllegalArgumentException.class, () -> new BibliotecaAsincrona(biblioteca, sinLimite));
+        sinLimite.shutdown();
+    }
+
+    /**
+     * Prueba que una operación que vence en la cola no llegue a ejecutarse.
+     */
+    @Test
+    public void testTiempoLimite() throws Exception {
+        CompletableFuture<Boolean> primero;
+        CompletableFuture<Boolean> vencido;
+        synchronized (biblioteca) {
+            primero = asincrona.prestarLibro("9788499089515", "U001", "E001");
+            esperar(() -> asincrona.getEnCurso() == 1);
+            vencido = asincrona.prestarLibro("9788437604572", "U001", "E001", Duration.ofMillis(50));
+            ExecutionException error = assertThrows(ExecutionException.class, () -> vencido.get(5, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof TimeoutException);
+        }
+        assertTrue(primero.get(5, TimeUnit.SECONDS));
+        esperar(() -> asincrona.getEnCola() == 0 && asincrona.getEnCurso() == 0);
+        assertEquals(1, asincrona.getVencidas());
+        assertEquals(1, biblioteca.getEjemplaresDisponibles("9788437604572"));
+
+        assertTrue(asincrona.prestarLibro("9788437604572", "U001", "E001", Duration.ofSeconds(5))
+                   .get(5, TimeUnit.SECONDS));
+        assertEquals(1, asincrona.getVencidas());
+    }
+
+    /**
+     * Prueba que un préstamo ya en curso cuando vence su tiempo límite informe
+     * su resultado real, mientras que una búsqueda en curso sí vence. Cada
+     * operación se retiene hasta que su plazo vence, y el plazo no vence hasta
+     * que la operación empieza.
+     */
+    @Test
+    public void testTiempoLimiteDuranteLaEjecucion() throws Exception {
+        Biblioteca retenida = new Biblioteca("Biblioteca Central", "Av. Universidad 3000") {
+            public boolean prestarLibro(String isbn, String idUsuario, String idEmpleado) {
+                empezada.countDown();
+                aguardar(vencida);
+                return super.prestarLibro(isbn, idUsuario, idEmpleado);
+            }
+            public List<Libro> buscarLibrosPorTitulo(String titulo) {
+                empezada.countDown();
+                aguardar(vencida);
+                return super.buscarLibrosPorTitulo(titulo);
+            }
+        };
+        retenida.agregarEmpleado(new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario"));
+        retenida.agregarUsuario(new Usuario("Ana López", "U001"));
+        retenida.agregarLibro(new Libro("Ficciones", "Jorge Luis Borges", "9788499089515", 224));
+        retenida.agregarLibro(new Libro("Rayuela", "Julio Cortázar", "9788437604572", 736));
+        ScheduledThreadPoolExecutor temporizador = new ScheduledThreadPoolExecutor(1) {
+            public ScheduledFuture<?> schedule(Runnable plazo, long retardo, TimeUnit unidad) {
+                CountDownLatch inicio = empezada;
+                CountDownLatch fin = vencida;
+                return super.schedule(() -> {
+                    aguardar(inicio);
+                    plazo.run();
+                    fin.countDown();
+                }, 0, unidad);
+            }
+        };
+        ThreadPoolExecutor ejecutor = Hilos.nuevoEjecutorAcotado("prueba", 1, 2);
+        BibliotecaAsincrona retenidas = new BibliotecaAsincrona(retenida, ejecutor, temporizador);
+        try {
+            empezada = new CountDownLatch(1);
+            vencida = new CountDownLatch(1);
+            CompletableFuture<Boolean> prestamo = retenidas.prestarLibro("9788437604572", "U001", "E001",
+                                                                         Duration.ofMillis(50));
+            assertTrue(prestamo.get(5, TimeUnit.SECONDS));
+            assertEquals(0, vencida.getCount());
+            assertEquals(0, retenida.getEjemplaresDisponibles("9788437604572"));
+            assertEquals(0, retenidas.getVencidas());
+
+            empezada = new CountDownLatch(1);
+            vencida = new CountDownLatch(1);
+            CompletableFuture<List<Libro>> busqueda = retenidas.buscarLibrosPorTitulo("ficciones", Duration.ofMillis(50));
+            ExecutionException error = assertThrows(ExecutionException.class, () -> busqueda.get(5, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof TimeoutException);
+            assertEquals(1, retenidas.getVencidas());
+        } finally {
+            ejecutor.shutdown();
+            temporizador.shutdown();
+        }
+    }
+
+    /**
+     * Prueba que el plazo de una operación que termina antes se cancele y no
+     * quede pendiente en el temporizador.
+     */
+    @Test
+    public void testPlazoCanceladoAlTerminar() throws Exception {
+        ScheduledThreadPoolExecutor temporizador = Hilos.nuevoTemporizador("prueba-limites");
+        ThreadPoolExecutor ejecutor = Hilos.nuevoEjecutorAcotado("prueba", 1, 2);
+        BibliotecaAsincrona conPlazos = new BibliotecaAsincrona(biblioteca, ejecutor, temporizador);
+        try {
+            assertEquals(1, conPlazos.buscarLibrosPorTitulo("rayuela", Duration.ofHours(1)).get(5, TimeUnit.SECONDS).size());
+            assertTrue(conPlazos.prestarLibro("9788437604572", "U001", "E001", Duration.ofHours(1))
+                       .get(5, TimeUnit.SECONDS));
+            esperar(() -> temporizador.getQueue().isEmpty());
+            assertEquals(0, conPlazos.getVencidas());
+        } finally {
+            ejecutor.shutdown();
+            temporizador.shutdown();
+        }
+    }
+
+    /**
+     * Espera a que se cuente una señal, como mucho cinco segundos.
+     */
+    private static void aguardar(CountDownLatch senal) {
+        try {
+            assertTrue(senal.await(5, TimeUnit.SECONDS), "la señal no llegó a tiempo");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Espera a que se cumpla una condición, como mucho cinco segundos.
+     */
+    private static void esperar(java.util.function.BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limite, "la condición no se cumplió a tiempo");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Cierra el ejecutor y limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        asincrona.detener();
+        asincrona = null;
+        biblioteca = null;
+    }
+}
@@ -0,0 +1,379 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase de pruebas unitarias para la clase Biblioteca.
+ * Verifica las operaciones de préstamo y devolución, individuales y por lotes.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class BibliotecaTest
+{
+    /** Biblioteca para las pruebas */
+    private Biblioteca biblioteca;
+    /** Libros de prueba */
+    private Libro libro1, libro2, libro3;
+
+    /**
+     * Configura una biblioteca con un empleado, dos usuarios y tres libros.
+     */
+    @BeforeEach
+    public void setUp() {
+        biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        biblioteca.agregarEmpleado(new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario"));
+        biblioteca.agregarUsuario(new Usuario("Ana López", "U001"));
+        biblioteca.agregarUsuario(new Usuario("Carlos Ruiz", "U002"));
+        libro1 = new Libro("Don Quijote de la Mancha", "Miguel de Cervantes", "9788424922498", 863);
+        libro2 = new Libro("Cien años de soledad", "Gabriel García Márquez", "9780307474728", 417);
+        libro3 = new Libro("El Principito", "Antoine de Saint-Exupéry", "9788498381498", 96);
+        biblioteca.agregarLibro(libro1);
+        biblioteca.agregarLibro(libro2);
+        biblioteca.agregarLibro(libro3);
+    }
+
+    /**
+     * Prueba la búsqueda de un libro por ISBN.
+     */
+    @Test
+    public void testBuscarLibroPorIsbn() {
+        assertEquals(libro2, biblioteca.buscarLibroPorIsbn("9780307474728"));
+        assertNull(biblioteca.buscarLibroPorIsbn("0000000000000"));
+    }
+
+    /**
+     * Prueba un lote de préstamos con solicitudes válidas e inválidas.
+     * Verifica que cada solicitud reciba su propio resultado.
+     */
+    @Test
+    public void testPrestarLibros() {
+        List<Boolean> resultados = biblioteca.prestarLibros(Arrays.asList(
+            new SolicitudPrestamo("9788424922498", "U001", "E001"),
+            new SolicitudPrestamo("9788424922498", "U002", "E001"),
+            new SolicitudPrestamo("9780307474728", "U999", "E001"),
+            new SolicitudPrestamo("9788498381498", "U002", "E001")));
+
+        assertEquals(Arrays.asList(true, false, false, true), resultados);
+        assertTrue(libro1.isPrestado());
+        assertFalse(libro2.isPrestado());
+        assertTrue(libro3.isPrestado());
+        assertEquals(2, biblioteca.getLibrosPrestados().size());
+    }
+
+    /**
+     * Prueba un lote de devoluciones.
+     */
+    @Test
+    public void testDevolverLibros() {
+        biblioteca.prestarLibro("9788424922498", "U001", "E001");
+        List<Boolean> resultados = biblioteca.devolverLibros(Arrays.asList(
+            new SolicitudPrestamo("9788424922498", "E001"),
+            new SolicitudPrestamo("9780307474728", "E001")));
+
+        assertEquals(Arrays.asList(true, false), resultados);
+        assertFalse(libro1.isPrestado());
+        assertEquals(3, biblioteca.getLibrosDisponibles().size());
+    }
+
+    /**
+     * Prueba el recorrido paginado de libros disponibles.
+     * Verifica que un préstamo entre páginas no repita ni salte libros restantes.
+     */
+    @Test
+    public void testPaginarLibrosDisponibles() {
+        Pagina<Libro> primera = biblioteca.getLibrosDisponibles(0, 2);
+        assertEquals(Arrays.asList(libro1, libro2), primera.getElementos());
+        assertTrue(primera.hayMas());
+
+        biblioteca.prestarLibro("9788424922498", "U001", "E001");
+        Pagina<Libro> segunda = biblioteca.getLibrosDisponibles(primera.getCursorSiguiente(), 2);
+        assertEquals(Arrays.asList(libro3), segunda.getElementos());
+        assertFalse(segunda.hayMas());
+
+        assertEquals(Arrays.asList(libro1), biblioteca.getLibrosPrestados(0, 10).getElementos());
+        assertEquals(Arrays.asList(libro2, libro3), biblioteca.getLibrosDisponibles(0, 10).getElementos());
+    }
+
+    /**
+     * Prueba los flujos e iteradores perezosos de libros disponibles y prestados.
+     */
+    @Test
+    public void testStreamLibros() {
+        biblioteca.prestarLibro("9780307474728", "U001", "E001");
+        Iterator<Libro> it = biblioteca.iteradorLibrosDisponibles();
+        biblioteca.eliminarLibro(libro3);
+        assertEquals(libro1, it.next());
+        assertFalse(it.hasNext());
+
+        assertEquals(1, biblioteca.streamLibrosDisponibles().count());
+        assertEquals("Cien años de soledad",
+            biblioteca.streamLibrosPrestados().map(Libro::getTitulo).findFirst().orElse(null));
+        biblioteca.devolverLibro("9780307474728", "E001");
+        assertEquals(0, biblioteca.streamLibrosPrestados().count());
+        assertEquals(Arrays.asList(libro1, libro2), biblioteca.getLibrosDisponibles(0, 10).getElementos());
+    }
+
+    /**
+     * Prueba la búsqueda difusa por título y su actualización al renombrar un libro.
+     */
+    @Test
+    public void testBuscarLibrosDifuso() {
+        assertTrue(biblioteca.buscarLibrosPorTitulo("Cien anos de soledat").isEmpty());
+        assertEquals(Arrays.asList(libro2), biblioteca.buscarLibrosDifuso("Cien anos de soledat", 1));
+
+        libro3.setTitulo("El Principito Ilustrado");
+        assertEquals(Arrays.asList(libro3), biblioteca.buscarLibrosDifuso("ilustado", 1));
+    }
+
+    /**
+     * Prueba el préstamo y la devolución de varios ejemplares de un mismo ISBN.
+     * Verifica los contadores de ejemplares totales y disponibles.
+     */
+    @Test
+    public void testVariosEjemplares() {
+        Libro copia = new Libro(libro1);
+        biblioteca.agregarLibro(copia);
+        biblioteca.agregarLibro(copia);
+        assertEquals(2, biblioteca.getTotalEjemplares("9788424922498"));
+        assertEquals(2, biblioteca.getEjemplaresDisponibles("9788424922498"));
+
+        assertTrue(biblioteca.prestarLibro("9788424922498", "U001", "E001"));
+        assertTrue(biblioteca.prestarLibro("9788424922498", "U002", "E001"));
+        assertTrue(libro1.isPrestado());
+        assertTrue(copia.isPrestado());
+        assertFalse(biblioteca.hayEjemplarDisponible("9788424922498"));
+        assertFalse(biblioteca.prestarLibro("9788424922498", "U001", "E001"));
+
+        assertTrue(biblioteca.devolverLibro("9788424922498", "E001"));
+        assertEquals(1, biblioteca.getEjemplaresDisponibles("9788424922498"));
+        copia.devolverLibro();
+        assertEquals(2, biblioteca.getEjemplaresDisponibles("9788424922498"));
+        assertFalse(biblioteca.devolverLibro("9788424922498", "E001"));
+    }
+
+    /**
+     * Prueba que los ejemplares sigan al libro cuando cambia su ISBN.
+     */
+    @Test
+    public void testCambioIsbn() {
+        libro3.setIsbn("9780000000001");
+        assertEquals(0, biblioteca.getTotalEjemplares("9788498381498"));
+        assertEquals(libro3, biblioteca.buscarLibroPorIsbn("9780000000001"));
+        assertTrue(biblioteca.prestarLibro("9780000000001", "U001", "E001"));
+        assertEquals(0, biblioteca.getEjemplaresDisponibles("9780000000001"));
+    }
+
+    /**
+     * Prueba que un préstamo fallido suelte el ejemplar que había reclamado.
+     */
+    @Test
+    public void testEjemplarSoltadoSiFallaElPrestamo() {
+        assertFalse(biblioteca.prestarLibro("9788424922498", "U999", "E001"));
+        assertFalse(biblioteca.prestarLibro("9788424922498", "U001", "E999"));
+        assertEquals(1, biblioteca.getEjemplaresDisponibles("9788424922498"));
+        assertTrue(biblioteca.prestarLibro("9788424922498", "U001", "E001"));
+        assertTrue(libro1.isPrestado());
+
+        libro1.devolverLibro();
+        assertTrue(biblioteca.prestarLibro("9788424922498", "U002", "E001"));
+    }
+
+    /**
+     * Prueba que muchos hilos compitiendo por pocos ejemplares presten cada
+     * copia una sola vez y rechacen el resto.
+     */
+    @Test
+    public void testPrestamosConcurrentesDeUnTitulo() throws InterruptedException {
+        int copias = 4;
+        int hilos = 32;
+        for (int i = 1; i < copias; i++) {
+            biblioteca.agregarLibro(new Libro(libro1));
+        }
+        for (int i = 0; i < hilos; i++) {
+            biblioteca.agregarUsuario(new Usuario("Lector " + i, "L" + i));
+        }
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger exitos = new AtomicInteger();
+        List<Thread> lectores = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            String usuario = "L" + i;
+            Thread lector = new Thread(() -> {
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (biblioteca.prestarLibro("9788424922498", usuario, "E001")) {
+                    exitos.incrementAndGet();
+                }
+            });
+            lector.start();
+            lectores.add(lector);
+        }
+        salida.countDown();
+        for (Thread lector : lectores) {
+            lector.join();
+        }
+
+        assertEquals(copias, exitos.get());
+        assertEquals(0, biblioteca.getEjemplaresDisponibles("9788424922498"));
+        assertFalse(biblioteca.prestarLibro("9788424922498", "U001", "E001"));
+        for (int i = 0; i < copias; i++) {
+            assertTrue(biblioteca.devolverLibro("9788424922498", "E001"));
+        }
+        assertFalse(biblioteca.devolverLibro("9788424922498", "E001"));
+        assertEquals(copias, biblioteca.getEjemplaresDisponibles("9788424922498"));
+    }
+
+    /**
+     * Prueba que al devolver un ejemplar se preste a la primera reserva vigente.
+     */
+    @Test
+    public void testEntregaDeReserva() {
+        assertNull(biblioteca.reservarLibro("0000000000000", "U002"));
+        assertTrue(biblioteca.prestarLibro("9788424922498", "U001", "E001"));
+        Reserva vencida = biblioteca.reservarLibro("9788424922498", "U999", Duration.ZERO);
+        Reserva reserva = biblioteca.reservarLibro("9788424922498", "U002");
+        assertNotNull(reserva);
+        assertEquals(1, biblioteca.getPosicionReserva(reserva));
+
+        assertTrue(biblioteca.devolverLibro("9788424922498", "E001"));
+        assertEquals(Reserva.VENCIDA, vencida.getEstado());
+        assertEquals(Reserva.ASIGNADA, reserva.getEstado());
+        assertSame(libro1, reserva.getLibroAsignado());
+        assertTrue(libro1.isPrestado());
+        assertEquals(0, biblioteca.getReservasPendientes("9788424922498"));
+    }
+
+    /**
+     * Prueba que no se admitan reservas con ejemplares en el estante y que un
+     * ejemplar agregado se preste a la primera reserva vigente.
+     */
+    @Test
+    public void testReservaAtendidaAlAgregarEjemplar() {
+        biblioteca.configurarReloj(Clock.fixed(Instant.parse("2024-03-04T10:00:00Z"), ZoneOffset.UTC));
+        assertNull(biblioteca.reservarLibro("9788424922498", "U002"));
+        assertTrue(biblioteca.prestarLibro("9788424922498", "U001", "E001"));
+        Reserva reserva = biblioteca.reservarLibro("9788424922498", "U002");
+        assertNotNull(reserva);
+
+        Libro copia = new Libro(libro1);
+        biblioteca.agregarLibro(copia);
+        assertEquals(Reserva.ASIGNADA, reserva.getEstado());
+        assertSame(copia, reserva.getLibroAsignado());
+        assertTrue(copia.isPrestado());
+        assertEquals(0, biblioteca.getReservasPendientes("9788424922498"));
+        assertEquals(2, biblioteca.obtenerEmpleado("E001").getPrestamosEnProceso().size());
+    }
+
+    /**
+     * Prueba la asignación automática del préstamo al empleado menos ocupado
+     * del turno y la liberación de su carga al devolver.
+     */
+    @Test
+    public void testPrestamoAutomatico() {
+        Empleado vespertino = new Empleado("María Gómez", "E002", 16000.00, "Bibliotecaria");
+        vespertino.setTurno(Empleado.VESPERTINO);
+        biblioteca.agregarEmpleado(vespertino);
+        assertTrue(biblioteca.prestarLibro("9788424922498", "U001", "E001"));
+
+        assertSame(vespertino, biblioteca.prestarLibro("9780307474728", "U001", Empleado.VESPERTINO));
+        assertEquals("E001", biblioteca.prestarLibro("9788498381498", "U002", Empleado.MATUTINO).getId());
+        assertNull(biblioteca.prestarLibro("9788498381498", "U002", Empleado.VESPERTINO));
+        assertTrue(biblioteca.devolverLibro("9780307474728", "E002"));
+        assertEquals(0, vespertino.getPrestamosEnProceso().size());
+    }
+
+    /**
+     * Prueba que al recibir un empleado la devolución de un libro que prestó
+     * otro se cierre el préstamo de quien lo prestó y no otro cualquiera.
+     */
+    @Test
+    public void testDevolucionRecibidaPorOtroEmpleado() {
+        Empleado otro = new Empleado("María Gómez", "E002", 16000.00, "Bibliotecaria");
+        biblioteca.agregarEmpleado(otro);
+        assertTrue(biblioteca.prestarLibro("9788424922498", "U001", "E001"));
+        assertTrue(biblioteca.prestarLibro("9780307474728", "U002", "E002"));
+
+        assertTrue(biblioteca.devolverLibro("9788424922498", "E002"));
+        Prestamo ajeno = otro.getHistorialPrestamos().get(0);
+        assertEquals(Prestamo.ACTIVO, ajeno.getEstado());
+        assertNull(ajeno.getFechaDevolucionReal());
+        assertEquals(1, otro.getPrestamosEnProceso().size());
+        Empleado prestador = biblioteca.obtenerEmpleado("E001");
+        assertEquals(Prestamo.DEVUELTO, prestador.getHistorialPrestamos().get(0).getEstado());
+        assertTrue(prestador.getPrestamosEnProceso().isEmpty());
+    }
+
+    /**
+     * Prueba que una instantánea no cambie con las modificaciones posteriores.
+     */
+    @Test
+    public void testInstantanea() {
+        InstantaneaBiblioteca antes = biblioteca.getInstantanea();
+        assertEquals(3, antes.getTotalLibros());
+        assertEquals(2, antes.getUsuarios().tamano());
+        assertEquals("Juan Pérez", antes.getEmpleados().get("E001").getNombre());
+
+        biblioteca.prestarLibro("9788424922498", "U001", "E001");
+        libro3.setTitulo("El Principito Ilustrado");
+        biblioteca.eliminarLibro(libro2);
+
+        InstantaneaBiblioteca despues = biblioteca.getInstantanea();
+        assertTrue(despues.getVersion() > antes.getVersion());
+        assertEquals(0, antes.getTotalPrestados());
+        assertEquals(1, despues.getTotalPrestados());
+        assertEquals(2, despues.getTotalLibros());
+        assertEquals("El Principito", antes.buscarPorIsbn("9788498381498").get(0).getTitulo());
+        assertEquals("El Principito Ilustrado", despues.buscarPorIsbn("9788498381498").get(0).getTitulo());
+        assertTrue(despues.buscarPorIsbn("9788424922498").get(0).isPrestado());
+    }
+
+    /**
+     * Prueba que un usuario con un ID ya registrado no reemplace al registrado.
+     */
+    @Test
+    public void testUsuarioDuplicado() {
+        Usuario registrado = biblioteca.buscarUsuarioPorId("U001");
+        biblioteca.agregarUsuario(new Usuario("Otra Ana", "U001"));
+        assertEquals(2, biblioteca.getTotalUsuarios());
+        assertSame(registrado, biblioteca.buscarUsuarioPorId("U001"));
+        assertNull(biblioteca.buscarUsuarioPorId(null));
+
+        biblioteca.eliminarUsuario(new Usuario("Ana López", "U001"));
+        assertEquals(1, biblioteca.getTotalUsuarios());
+        assertNull(biblioteca.buscarUsuarioPorId("U001"));
+    }
+
+    /**
+     * Prueba la extensión de un préstamo en curso.
+     */
+    @Test
+    public void testExtenderPrestamo() {
+        assertFalse(biblioteca.extenderPrestamo("9788424922498", "E001", 7));
+        assertTrue(biblioteca.prestarLibro("9788424922498", "U001", "E001"));
+        assertTrue(biblioteca.extenderPrestamo("9788424922498", "E001", 7));
+        assertFalse(biblioteca.extenderPrestamo("9788424922498", "E999", 7));
+        assertFalse(biblioteca.extenderPrestamo("9780307474728", "E001", 7));
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        biblioteca = null;
+        libro1 = libro2 = libro3 = null;
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ * Índice de búsqueda difusa por título, tolerante a errores de escritura.
+ *
+ * Las palabras de los títulos se pliegan (minúsculas y sin acentos) y se guardan
+ * una sola vez en un trie. La consulta recorre el trie calculando la matriz de
+ * Levenshtein fila a fila, lo que equivale a simular un autómata de Levenshtein:
+ * las palabras que comparten prefijo comparten trabajo y una rama se abandona en
+ * cuanto ninguna de sus palabras puede quedar a la distancia permitida. Así,
+ * "Cien anos de soledat" encuentra "Cien años de soledad" visitando una pequeña
+ * parte del diccionario de palabras, no cada libro.
+ *
+ * Un libro coincide si cada palabra de la consulta está a la distancia permitida
+ * de alguna palabra de su título. Para que las palabras cortas no coincidan con
+ * casi todo, la tolerancia efectiva es 0 hasta 2 letras y 1 hasta 5 letras.
+ *
+ * No es seguro para hilos: la Biblioteca lo usa bajo su cerrojo.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.*;
+
+public class BusquedaDifusa {
+    /** Raíz del trie de palabras; no corresponde a ninguna palabra */
+    private final Nodo raiz;
+    /** Libros cuyo título contiene cada palabra plegada */
+    private final Map<String, Set<Libro>> librosPorTermino;
+    /** Palabras distintas del título indexado de cada libro */
+    private final Map<Libro, List<String>> terminosPorLibro;
+
+    /**
+     * Crea un índice difuso vacío.
+     */
+    public BusquedaDifusa() {
+        this.raiz = new Nodo();
+        this.librosPorTermino = new HashMap<>();
+        this.terminosPorLibro = new IdentityHashMap<>();
+    }
+
+    /**
+     * Agrega el título de un libro al índice.
+     * Un libro que ya estaba indexado se ignora.
+     * @param libro El libro a indexar
+     */
+    public void agregarLibro(Libro libro) {
+        if (terminosPorLibro.containsKey(libro)) {
+            return;
+        }
+        List<String> terminos = new ArrayList<>(new LinkedHashSet<>(Tokenizador.tokenizar(libro.getTitulo())));
+        terminosPorLibro.put(libro, terminos);
+        for (String termino : terminos) {
+            Set<Libro> conTermino = librosPorTermino.get(termino);
+            if (conTermino == null) {
+                conTermino = Collections.newSetFromMap(new IdentityHashMap<>());
+                librosPorTermino.put(termino, conTermino);
+                insertarTermino(termino);
+            }
+            conTermino.add(libro);
+        }
+    }
+
+    /**
+     * Elimina el título de un libro del índice.
+     * @param libro El libro a eliminar
+     */
+    public void eliminarLibro(Libro libro) {
+        List<String> terminos = terminosPorLibro.remove(libro);
+        if (terminos == null) {
+            return;
+        }
+        for (String termino : terminos) {
+            Set<Libro> conTermino = librosPorTermino.get(termino);
+            conTermino.remove(libro);
+            if (conTermino.isEmpty()) {
+                librosPorTermino.remove(termino);
+                eliminarTermino(termino);
+            }
+        }
+    }
+
+    /**
+     * Vuelve a indexar un libro cuyo título cambió.
+     * @param libro El libro modificado
+     */
+    public void actualizarLibro(Libro libro) {
+        if (terminosPorLibro.containsKey(libro)) {
+            eliminarLibro(libro);
+            agregarLibro(libro);
+        }
+    }
+
+    /**
+     * Obtiene el número de palabras distintas indexadas.
+     * @return Tamaño del diccionario de palabras
+     */
+    public int getTotalTerminos() {
+        return librosPorTermino.size();
+    }
+
+    /**
+     * Busca libros cuyo título se parece a la consulta.
+     *
+     * @param consulta Título aproximado, con o sin errores de escritura
+     * @param distancia Número máximo de ediciones (inserción, borrado o sustitución) por palabra
+     * @return Libros que coinciden, de menor a mayor número total de ediciones
+     */
+    public List<Libro> buscar(String consulta, int distancia) {
+        if (distancia < 0) {
+            throw new IllegalArgumentException("La distancia no puede ser negativa");
+        }
+        List<Map<String, Integer>> coincidencias = new ArrayList<>();
+        for (String palabra : new LinkedHashSet<>(Tokenizador.tokenizar(consulta))) {
+            Map<String, Integer> cercanas = new HashMap<>();
+            buscarCercanas(palabra, Math.min(distancia, toleranciaMaxima(palabra)), cercanas);
+            if (cercanas.isEmpty()) {
+                return new ArrayList<>();
+            }
+            coincidencias.add(cercanas);
+        }
+        if (coincidencias.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Los candidatos salen de la palabra con menos libros; las demás sólo filtran.
+        Map<String, Integer> menor = null;
+        int librosMenor = Integer.MAX_VALUE;
+        for (Map<String, Integer> cercanas : coincidencias) {
+            int total = 0;
+            for (String termino : cercanas.keySet()) {
+                total += librosPorTermino.get(termino).size();
+            }
+            if (total < librosMenor) {
+                librosMenor = total;
+                menor = cercanas;
+            }
+        }
+        Set<Libro> candidatos = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String termino : menor.keySet()) {
+            candidatos.addAll(librosPorTermino.get(termino));
+        }
+
+        List<Libro> resultados = new ArrayList<>();
+        Map<Libro, Integer> ediciones = new IdentityHashMap<>();
+        for (Libro libro : candidatos) {
+            List<String> terminos = terminosPorLibro.get(libro);
+            int total = 0;
+            for (Map<String, Integer> cercanas : coincidencias) {
+                int mejor = Integer.MAX_VALUE;
+                for (String termino : terminos) {
+                    Integer d = cercanas.get(termino);
+                    if (d != null && d < mejor) {
+                        mejor = d;
+                    }
+                }
+                if (mejor == Integer.MAX_VALUE) {
+                    total = -1;
+                    break;
+                }
+                total += mejor;
+            }
+            if (total >= 0) {
+                resultados.add(libro);
+                ediciones.put(libro, total);
+            }
+        }
+        resultados.sort(Comparator.<Libro>comparingInt(ediciones::get).thenComparing(Libro::getTitulo));
+        return resultados;
+    }
+
+    /**
+     * Calcula la distancia de Levenshtein entre dos palabras.
+     *
+     * @param a Primera palabra
+     * @param b Segunda palabra
+     * @return Número mínimo de inserciones, borrados y sustituciones
+     */
+    public static int distancia(String a, String b) {
+        if (a.length() < b.length()) {
+            String t = a;
+            a = b;
+            b = t;
+        }
+        int[] anterior = new int[b.length() + 1];
+        int[] actual = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int sustitucion = anterior[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                actual[j] = Math.min(sustitucion, Math.min(anterior[j], actual[j - 1]) + 1);
+            }
+            int[] t = anterior;
+            anterior = actual;
+            actual = t;
+        }
+        return anterior[b.length()];
+    }
+
+    /**
+     * Tolerancia máxima según la longitud de la palabra consultada.
+     */
+    private static int toleranciaMaxima(String palabra) {
+        if (palabra.length() <= 2) {
+            return 0;
+        }
+        return palabra.length() <= 5 ? 1 : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Recorre el trie en profundidad reuniendo las palabras a la distancia indicada.
+     * Cada nivel calcula una fila de la matriz de Levenshtein a partir de la de su
+     * padre; una rama se abandona en cuanto el mínimo de su fila supera la tolerancia,
+     * porque ninguna palabra que la continúe puede quedar más cerca.
+     */
+    private void buscarCercanas(String palabra, int tolerancia, Map<String, Integer> cercanas) {
+        int[] fila = new int[palabra.length() + 1];
+        for (int j = 0; j < fila.length; j++) {
+            fila[j] = j;
+        }
+        for (int i = 0; i < raiz.numHijos; i++) {
+            buscarCercanas(raiz.hijos[i], raiz.letras[i], palabra, fila, tolerancia, cercanas);
+        }
+    }
+
+    private void buscarCercanas(Nodo nodo, char letra, String palabra, int[] anterior,
+                                int tolerancia, Map<String, Integer> cercanas) {
+        int[] fila = new int[anterior.length];
+        fila[0] = anterior[0] + 1;
+        int minimo = fila[0];
+        for (int j = 1; j < fila.length; j++) {
+            int sustitucion = anterior[j - 1] + (palabra.charAt(j - 1) == letra ? 0 : 1);
+            fila[j] = Math.min(sustitucion, Math.min(anterior[j], fila[j - 1]) + 1);
+            minimo = Math.min(minimo, fila[j]);
+        }
+        if (minimo > tolerancia) {
+            return;
+        }
+        if (nodo.termino != null && fila[fila.length - 1] <= tolerancia) {
+            cercanas.put(nodo.termino, fila[fila.length - 1]);
+        }
+        for (int i = 0; i < nodo.numHijos; i++) {
+            buscarCercanas(nodo.hijos[i], nodo.letras[i], palabra, fila, tolerancia, cercanas);
+        }
+    }
+
+    /**
+     * Inserta una palabra en el trie.
+     */
+    private void insertarTermino(String termino) {
+        Nodo nodo = raiz;
+        for (int i = 0; i < termino.length(); i++) {
+            nodo = nodo.hijoCreando(termino.charAt(i));
+        }
+        nodo.termino = termino;
+    }
+
+    /**
+     * Quita una palabra del trie y poda las ramas que quedan vacías.
+     */
+    private void eliminarTermino(String termino) {
+        Nodo[] camino = new Nodo[termino.length() + 1];
+        camino[0] = raiz;
+        for (int i = 0; i < termino.length(); i++) {
+            camino[i + 1] = camino[i].hijo(termino.charAt(i));
+        }
+        camino[termino.length()].termino = null;
+        for (int i = termino.length(); i > 0; i--) {
+            Nodo nodo = camino[i];
+            if (nodo.termino != null || nodo.numHijos > 0) {
+                break;
+            }
+            camino[i - 1].eliminarHijo(termino.charAt(i - 1));
+        }
+    }
+
+    /**
+     * Nodo del trie. Los hijos se mantienen ordenados por su letra.
+     */
+    private static class Nodo {
+        String termino;
+        char[] letras = new char[0];
+        Nodo[] hijos = new Nodo[0];
+        int numHijos;
+
+        Nodo hijo(char c) {
+            int indice = Arrays.binarySearch(letras, 0, numHijos, c);
+            return indice >= 0 ? hijos[indice] : null;
+        }
+
+        Nodo hijoCreando(char c) {
+            int indice = Arrays.binarySearch(letras, 0, numHijos, c);
+            if (indice >= 0) {
+                return hijos[indice];
+            }
+            indice = -indice - 1;
+            if (numHijos == letras.length) {
+                letras = Arrays.copyOf(letras, Math.max(2, numHijos * 2));
+                hijos = Arrays.copyOf(hijos, letras.length);
+            }
+            System.arraycopy(letras, indice, letras, indice + 1, numHijos - indice);
+            System.arraycopy(hijos, indice, hijos, indice + 1, numHijos - indice);
+            letras[indice] = c;
+            hijos[indice] = new Nodo();
+            numHijos++;
+            return hijos[indice];
+        }
+
+        void eliminarHijo(char c) {
+            int indice = Arrays.binarySearch(letras, 0, numHijos, c);
+            numHijos--;
+            System.arraycopy(letras, indice + 1, letras, indice, numHijos - indice);
+            System.arraycopy(hijos, indice + 1, hijos, indice, numHijos - indice);
+            hijos[numHijos] = null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la clase BusquedaDifusa.
+ * Verifica la distancia de Levenshtein, la tolerancia a errores de escritura
+ * y la actualización del índice.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class BusquedaDifusaTest
+{
+    /** Índice difuso de prueba */
+    private BusquedaDifusa indice;
+    /** Libros de prueba */
+    private Libro quijote, cien, amor, principito;
+
+    /**
+     * Configura un índice con cuatro libros.
+     */
+    @BeforeEach
+    public void setUp() {
+        indice = new BusquedaDifusa();
+        quijote = new Libro("Don Quijote de la Mancha", "Miguel de Cervantes", "9788424922498", 863);
+        cien = new Libro("Cien años de soledad", "Gabriel García Márquez", "9780307474728", 417);
+        amor = new Libro("El amor en los tiempos del cólera", "Gabriel García Márquez", "9780307387264", 464);
+        principito = new Libro("El Principito", "Antoine de Saint-Exupéry", "9788498381498", 96);
+        indice.agregarLibro(quijote);
+        indice.agregarLibro(cien);
+        indice.agregarLibro(amor);
+        indice.agregarLibro(principito);
+    }
+
+    /**
+     * Prueba el cálculo de la distancia de Levenshtein.
+     */
+    @Test
+    public void testDistancia() {
+        assertEquals(0, BusquedaDifusa.distancia("soledad", "soledad"));
+        assertEquals(1, BusquedaDifusa.distancia("soledat", "soledad"));
+        assertEquals(3, BusquedaDifusa.distancia("kitten", "sitting"));
+        assertEquals(4, BusquedaDifusa.distancia("", "cien"));
+    }
+
+    /**
+     * Prueba búsquedas con errores de escritura y acentos omitidos.
+     */
+    @Test
+    public void testBuscarConErrores() {
+        assertEquals(Arrays.asList(cien), indice.buscar("Cien anos de soledat", 1));
+        assertEquals(Arrays.asList(quijote), indice.buscar("quijote mancah", 2));
+        assertTrue(indice.buscar("quijote mancah", 1).isEmpty());
+        assertTrue(indice.buscar("soledat", 0).isEmpty());
+        assertEquals(Arrays.asList(principito), indice.buscar("el prinsipito", 1));
+    }
+
+    /**
+     * Prueba que las palabras cortas exijan coincidencia exacta y que el
+     * resultado se ordene por número de ediciones.
+     */
+    @Test
+    public void testPalabrasCortasYOrden() {
+        assertTrue(indice.buscar("ek", 2).isEmpty());
+        Libro pricipito = new Libro("El Pricipito", "Anónimo", "0000000000001", 10);
+        indice.agregarLibro(pricipito);
+        assertEquals(Arrays.asList(principito, pricipito), indice.buscar("principito", 2));
+    }
+
+    /**
+     * Prueba la actualización del índice al cambiar un título y al eliminar un libro.
+     */
+    @Test
+    public void testActualizacion() {
+        principito.setTitulo("El Principito Ilustrado");
+        indice.actualizarLibro(principito);
+        assertEquals(Arrays.asList(principito), indice.buscar("ilustado", 1));
+        indice.eliminarLibro(principito);
+        assertTrue(indice.buscar("principito", 2).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> indice.buscar("cien", -1));
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        indice = null;
+        quijote = cien = amor = principito = null;
+    }
+}
@@ -0,0 +1,362 @@
+/**
+ * Caché acotada de resultados de búsqueda por título con política W-TinyLFU.
+ *
+ * Las entradas nuevas entran a una ventana LRU pequeña (1% del peso total).
+ * Al salir de la ventana compiten por entrar a la región principal, dividida en
+ * un segmento de prueba y uno protegido (80% de la región principal): el candidato
+ * sólo desplaza a la víctima del segmento de prueba si su frecuencia estimada es
+ * mayor. Las frecuencias se estiman con un count-min sketch de contadores de 4 bits
+ * que se reducen a la mitad periódicamente para olvidar el historial antiguo.
+ *
+ * El peso de cada entrada es 1 más el número de libros del resultado, de modo que
+ * los resultados grandes ocupan proporcionalmente más capacidad.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.*;
+import java.util.function.Predicate;
+
+public class CacheBusquedas {
+    /** Peso total máximo de la caché */
+    private final long pesoMaximo;
+    /** Peso máximo de la ventana de admisión */
+    private final long pesoMaximoVentana;
+    /** Peso máximo del segmento protegido */
+    private final long pesoMaximoProtegido;
+    /** Ventana LRU de admisión; el primer elemento es el menos reciente */
+    private final LinkedHashMap<String, Entrada> ventana;
+    /** Segmento de prueba de la región principal */
+    private final LinkedHashMap<String, Entrada> prueba;
+    /** Segmento protegido de la región principal */
+    private final LinkedHashMap<String, Entrada> protegido;
+    /** Estimador de frecuencias de acceso */
+    private final SketchFrecuencias sketch;
+    private long pesoVentana;
+    private long pesoPrueba;
+    private long pesoProtegido;
+    private long aciertos;
+    private long fallos;
+    private long desalojos;
+    private long invalidaciones;
+
+    /**
+     * Crea una caché con el peso máximo indicado.
+     *
+     * @param pesoMaximo Peso total máximo (número de consultas más libros almacenados)
+     */
+    public CacheBusquedas(long pesoMaximo) {
+        this.pesoMaximo = Math.max(1, pesoMaximo);
+        this.pesoMaximoVentana = Math.max(1, this.pesoMaximo / 100);
+        this.pesoMaximoProtegido = (this.pesoMaximo - pesoMaximoVentana) * 8 / 10;
+        this.ventana = new LinkedHashMap<>();
+        this.prueba = new LinkedHashMap<>();
+        this.protegido = new LinkedHashMap<>();
+        this.sketch = new SketchFrecuencias(this.pesoMaximo);
+    }
+
+    /**
+     * Obtiene el resultado almacenado para una consulta.
+     *
+     * @param consulta Consulta normalizada
+     * @return Lista inmutable de libros o null si no está en caché
+     */
+    public synchronized List<Libro> obtener(String consulta) {
+        sketch.incrementar(consulta);
+        Entrada entrada = ventana.remove(consulta);
+        if (entrada != null) {
+            ventana.put(consulta, entrada);
+        } else if ((entrada = protegido.remove(consulta)) != null) {
+            protegido.put(consulta, entrada);
+        } else if ((entrada = prueba.remove(consulta)) != null) {
+            pesoPrueba -= entrada.peso;
+            promover(entrada);
+        }
+        if (entrada == null) {
+            fallos++;
+            return null;
+        }
+        aciertos++;
+        return entrada.libros;
+    }
+
+    /**
+     * Almacena el resultado de una consulta.
+     * Los resultados cuyo peso supera la capacidad total no se almacenan.
+     *
+     * @param consulta Consulta normalizada
+     * @param libros Resultado de la búsqueda
+     */
+    public synchronized void poner(String consulta, List<Libro> libros) {
+        Entrada entrada = new Entrada(consulta, Collections.unmodifiableList(new ArrayList<>(libros)));
+        if (entrada.peso > pesoMaximo) {
+            return;
+        }
+        quitar(consulta);
+        ventana.put(consulta, entrada);
+        pesoVentana += entrada.peso;
+        while (pesoVentana > pesoMaximoVentana) {
+            Entrada candidato = primero(ventana);
+            ventana.remove(candidato.consulta);
+            pesoVentana -= candidato.peso;
+            admitir(candidato);
+        }
+    }
+
+    /**
+     * Elimina las entradas cuyas consultas cumplan la condición.
+     *
+     * @param condicion Condición sobre la consulta normalizada
+     */
+    public synchronized void invalidar(Predicate<String> condicion) {
+        pesoVentana -= invalidar(ventana, condicion);
+        pesoPrueba -= invalidar(prueba, condicion);
+        pesoProtegido -= invalidar(protegido, condicion);
+    }
+
+    /**
+     * Elimina todas las entradas de la caché.
+     */
+    public synchronized void limpiar() {
+        invalidar(consulta -> true);
+    }
+
+    /**
+     * Obtiene el número de consultas respondidas desde la caché.
+     * @return Número de aciertos
+     */
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    /**
+     * Obtiene el número de consultas que no estaban en la caché.
+     * @return Número de fallos
+     */
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    /**
+     * Obtiene el número de entradas desalojadas por falta de capacidad.
+     * @return Número de desalojos
+     */
+    public synchronized long getDesalojos() {
+        return desalojos;
+    }
+
+    /**
+     * Obtiene el número de entradas eliminadas porque el catálogo cambió.
+     * @return Número de invalidaciones
+     */
+    public synchronized long getInvalidaciones() {
+        return invalidaciones;
+    }
+
+    /**
+     * Obtiene la proporción de aciertos sobre el total de consultas.
+     * @return Tasa de aciertos entre 0 y 1
+     */
+    public synchronized double getTasaAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0.0 : (double) aciertos / total;
+    }
+
+    /**
+     * Obtiene el número de consultas almacenadas.
+     * @return Número de entradas
+     */
+    public synchronized int getTamano() {
+        return ventana.size() + prueba.size() + protegido.size();
+    }
+
+    /**
+     * Obtiene el peso ocupado actualmente.
+     * @return Peso total de las entradas
+     */
+    public synchronized long getPeso() {
+        return pesoVentana + pesoPrueba + pesoProtegido;
+    }
+
+    /**
+     * Devuelve una representación en cadena de las estadísticas de la caché.
+     * @return String con aciertos, fallos, desalojos e invalidaciones
+     */
+    public synchronized String toString() {
+        return "CacheBusquedas [entradas=" + getTamano() +
+               ", peso=" + getPeso() + "/" + pesoMaximo +
+               ", aciertos=" + aciertos +
+               ", fallos=" + fallos +
+               ", desalojos=" + desalojos +
+               ", invalidaciones=" + invalidaciones + "]";
+    }
+
+    /**
+     * Pasa una entrada del segmento de prueba al protegido, degradando a prueba
+     * las entradas menos recientes del protegido si se excede su capacidad.
+     */
+    private void promover(Entrada entrada) {
+        protegido.put(entrada.consulta, entrada);
+        pesoProtegido += entrada.peso;
+        while (pesoProtegido > pesoMaximoProtegido && protegido.size() > 1) {
+            Entrada degradada = primero(protegido);
+            protegido.remove(degradada.consulta);
+            pesoProtegido -= degradada.peso;
+            prueba.put(degradada.consulta, degradada);
+            pesoPrueba += degradada.peso;
+        }
+    }
+
+    /**
+     * Decide si un candidato que sale de la ventana entra a la región principal.
+     * Mientras no haya espacio, el candidato compite contra la víctima LRU del
+     * segmento de prueba (o del protegido si aquél está vacío) y pierde quien
+     * tenga menor frecuencia estimada.
+     */
+    private void admitir(Entrada candidato) {
+        long capacidadPrincipal = pesoMaximo - pesoMaximoVentana;
+        int frecuenciaCandidato = sketch.frecuencia(candidato.consulta);
+        while (pesoPrueba + pesoProtegido + candidato.peso > capacidadPrincipal) {
+            LinkedHashMap<String, Entrada> segmento = prueba.isEmpty() ? protegido : prueba;
+            Entrada victima = primero(segmento);
+            if (victima == null || sketch.frecuencia(victima.consulta) >= frecuenciaCandidato) {
+                desalojos++;
+                return;
+            }
+            segmento.remove(victima.consulta);
+            if (segmento == prueba) {
+                pesoPrueba -= victima.peso;
+            } else {
+                pesoProtegido -= victima.peso;
+            }
+            desalojos++;
+        }
+        prueba.put(candidato.consulta, candidato);
+        pesoPrueba += candidato.peso;
+    }
+
+    /**
+     * Elimina una consulta de cualquier segmento, si existe.
+     */
+    private void quitar(String consulta) {
+        Entrada entrada;
+        if ((entrada = ventana.remove(consulta)) != null) {
+            pesoVentana -= entrada.peso;
+        } else if ((entrada = prueba.remove(consulta)) != null) {
+            pesoPrueba -= entrada.peso;
+        } else if ((entrada = protegido.remove(consulta)) != null) {
+            pesoProtegido -= entrada.peso;
+        }
+    }
+
+    /**
+     * Elimina de un segmento las entradas que cumplen la condición.
+     * @return Peso eliminado
+     */
+    private long invalidar(LinkedHashMap<String, Entrada> segmento, Predicate<String> condicion) {
+        long peso = 0;
+        Iterator<Entrada> it = segmento.values().iterator();
+        while (it.hasNext()) {
+            Entrada entrada = it.next();
+            if (condicion.test(entrada.consulta)) {
+                peso += entrada.peso;
+                invalidaciones++;
+                it.remove();
+            }
+        }
+        return peso;
+    }
+
+    /**
+     * Obtiene la entrada menos reciente de un segmento.
+     */
+    private static Entrada primero(LinkedHashMap<String, Entrada> segmento) {
+        Iterator<Entrada> it = segmento.values().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * Entrada de la caché: consulta, resultado y su peso.
+     */
+    private static class Entrada {
+        final String consulta;
+        final List<Libro> libros;
+        final int peso;
+
+        Entrada(String consulta, List<Libro> libros) {
+            this.consulta = consulta;
+            this.libros = libros;
+            this.peso = 1 + libros.size();
+        }
+    }
+
+    /**
+     * Count-min sketch con contadores de 4 bits empaquetados en long.
+     * Cada clave se cuenta en cuatro filas; su frecuencia estimada es el mínimo.
+     * Tras un número de incrementos proporcional al tamaño, todos los contadores
+     * se dividen entre dos (envejecimiento).
+     */
+    private static class SketchFrecuencias {
+        private static final long[] SEMILLAS = {
+            0x97cb3127L, 0xb492b66fL, 0x9ae16a3bL, 0x2f90404fL
+        };
+        private final long[] tabla;
+        private final int mascara;
+        private final int periodoReinicio;
+        private int incrementos;
+
+        SketchFrecuencias(long capacidad) {
+            int tamano = Integer.highestOneBit((int) Math.min(1 << 24, Math.max(16, capacidad)) - 1) << 1;
+            this.tabla = new long[tamano];
+            this.mascara = tamano - 1;
+            this.periodoReinicio = 10 * tamano;
+        }
+
+        int frecuencia(String clave) {
+            int hash = dispersar(clave.hashCode());
+            int minimo = 15;
+            for (int fila = 0; fila < 4; fila++) {
+                minimo = Math.min(minimo, contador(hash, fila));
+            }
+            return minimo;
+        }
+
+        void incrementar(String clave) {
+            int hash = dispersar(clave.hashCode());
+            boolean incrementado = false;
+            for (int fila = 0; fila < 4; fila++) {
+                int indice = indice(hash, fila);
+                int desplazamiento = desplazamiento(hash, fila);
+                if (((tabla[indice] >>> desplazamiento) & 0xfL) != 0xfL) {
+                    tabla[indice] += 1L << desplazamiento;
+                    incrementado = true;
+                }
+            }
+            if (incrementado && ++incrementos == periodoReinicio) {
+                for (int i = 0; i < tabla.length; i++) {
+                    tabla[i] = (tabla[i] >>> 1) & 0x7777777777777777L;
+                }
+                incrementos /= 2;
+            }
+        }
+
+        private int contador(int hash, int fila) {
+            return (int) ((tabla[indice(hash, fila)] >>> desplazamiento(hash, fila)) & 0xfL);
+        }
+
+        private int indice(int hash, int fila) {
+            long h = (hash + SEMILLAS[fila]) * SEMILLAS[fila];
+            return (int) ((h + (h >>> 32)) & mascara);
+        }
+
+        private int desplazamiento(int hash, int fila) {
+            return (((hash >>> (fila << 3)) & 3) << 2) + (fila << 4);
+        }
+
+        private static int dispersar(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
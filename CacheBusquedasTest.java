@@ -0,0 +1,111 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la clase CacheBusquedas.
+ * Verifica las estadísticas, el desalojo por capacidad y la invalidación
+ * precisa cuando cambia el catálogo de la biblioteca.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class CacheBusquedasTest
+{
+    /** Biblioteca de prueba con la caché habilitada */
+    private Biblioteca biblioteca;
+    /** Libro de prueba */
+    private Libro libro;
+
+    /**
+     * Configura una biblioteca con dos libros.
+     */
+    @BeforeEach
+    public void setUp() {
+        biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        libro = new Libro("El Principito", "Antoine de Saint-Exupéry", "9788498381498", 96);
+        biblioteca.agregarLibro(libro);
+        biblioteca.agregarLibro(new Libro("1984", "George Orwell", "9788499890944", 326));
+    }
+
+    /**
+     * Prueba que una búsqueda repetida se responda desde la caché.
+     */
+    @Test
+    public void testAciertosYFallos() {
+        CacheBusquedas cache = biblioteca.getCacheBusquedas();
+        assertEquals(1, biblioteca.buscarLibrosPorTitulo("principito").size());
+        assertEquals(1, biblioteca.buscarLibrosPorTitulo("PRINCIPITO").size());
+        assertEquals(1, cache.getFallos());
+        assertEquals(1, cache.getAciertos());
+        assertEquals(0.5, cache.getTasaAciertos(), 0.001);
+    }
+
+    /**
+     * Prueba que agregar o eliminar un libro sólo invalide las consultas afectadas.
+     */
+    @Test
+    public void testInvalidacionAlAgregarYEliminar() {
+        CacheBusquedas cache = biblioteca.getCacheBusquedas();
+        biblioteca.buscarLibrosPorTitulo("principito");
+        biblioteca.buscarLibrosPorTitulo("1984");
+
+        Libro otro = new Libro("El Principito ilustrado", "Antoine de Saint-Exupéry", "9788498381499", 120);
+        biblioteca.agregarLibro(otro);
+        assertEquals(1, cache.getInvalidaciones());
+        assertEquals(2, biblioteca.buscarLibrosPorTitulo("principito").size());
+
+        biblioteca.eliminarLibro(otro);
+        assertEquals(1, biblioteca.buscarLibrosPorTitulo("principito").size());
+        assertEquals(1, biblioteca.buscarLibrosPorTitulo("1984").size());
+        assertEquals(1, cache.getAciertos());
+    }
+
+    /**
+     * Prueba que cambiar el título de un libro invalide las consultas de ambos títulos.
+     */
+    @Test
+    public void testInvalidacionAlCambiarTitulo() {
+        biblioteca.buscarLibrosPorTitulo("principito");
+        assertTrue(biblioteca.buscarLibrosPorTitulo("zorro").isEmpty());
+
+        libro.setTitulo("El zorro y el Principito");
+        assertEquals(1, biblioteca.buscarLibrosPorTitulo("zorro").size());
+
+        libro.setTitulo("El aviador");
+        assertTrue(biblioteca.buscarLibrosPorTitulo("principito").isEmpty());
+        assertTrue(biblioteca.buscarLibrosPorTitulo("zorro").isEmpty());
+    }
+
+    /**
+     * Prueba que la caché respete su peso máximo y conserve las consultas frecuentes.
+     */
+    @Test
+    public void testDesalojoPorFrecuencia() {
+        CacheBusquedas cache = new CacheBusquedas(100);
+        List<Libro> resultado = Arrays.asList(libro);
+        cache.poner("frecuente", resultado);
+        for (int i = 0; i < 5; i++) {
+            cache.obtener("frecuente");
+        }
+        for (int i = 0; i < 500; i++) {
+            cache.poner("consulta " + i, resultado);
+        }
+        assertTrue(cache.getPeso() <= 100);
+        assertTrue(cache.getDesalojos() > 0);
+        assertNotNull(cache.obtener("frecuente"));
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        biblioteca = null;
+        libro = null;
+    }
+}
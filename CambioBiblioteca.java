@@ -0,0 +1,276 @@
+/**
+ * Modificación inmutable del estado de una biblioteca: un libro agregado o
+ * actualizado (incluidos préstamos y devoluciones), un libro eliminado, o un
+ * usuario o empleado agregado o eliminado.
+ *
+ * Cada cambio lleva la versión de la instantánea que produjo (ver
+ * InstantaneaBiblioteca) y el momento en que se publicó, de modo que aplicados
+ * en orden de versión reconstruyen el estado de la biblioteca. Se escriben y
+ * leen en un formato binario compacto para enviarlos entre procesos.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+
+public final class CambioBiblioteca {
+    /** Libro agregado o actualizado */
+    public static final int LIBRO = 0;
+    /** Libro eliminado */
+    public static final int SIN_LIBRO = 1;
+    /** Usuario agregado */
+    public static final int USUARIO = 2;
+    /** Usuario eliminado */
+    public static final int SIN_USUARIO = 3;
+    /** Empleado agregado o actualizado */
+    public static final int EMPLEADO = 4;
+    /** Empleado eliminado */
+    public static final int SIN_EMPLEADO = 5;
+
+    private final int tipo;
+    private final long version;
+    private final Instant momento;
+    /** Secuencia del libro, para LIBRO y SIN_LIBRO */
+    private final long secuencia;
+    /** ID de la persona, para los cambios de usuarios y empleados */
+    private final String id;
+    /** Ficha del libro, nombre del usuario o ficha del empleado; null en las eliminaciones */
+    private final Object datos;
+
+    private CambioBiblioteca(int tipo, long version, Instant momento, long secuencia, String id, Object datos) {
+        this.tipo = tipo;
+        this.version = version;
+        this.momento = momento;
+        this.secuencia = secuencia;
+        this.id = id;
+        this.datos = datos;
+    }
+
+    /**
+     * Crea el cambio de un libro agregado o actualizado.
+     * @param version Versión producida
+     * @param momento Momento de la modificación
+     * @param libro Datos del libro tras la modificación
+     * @return El cambio
+     */
+    public static CambioBiblioteca libro(long version, Instant momento, InstantaneaBiblioteca.FichaLibro libro) {
+        return new CambioBiblioteca(LIBRO, version, momento, libro.getSecuencia(), null, libro);
+    }
+
+    /**
+     * Crea el cambio de un libro eliminado.
+     * @param version Versión producida
+     * @param momento Momento de la modificación
+     * @param secuencia Secuencia del libro
+     * @return El cambio
+     */
+    public static CambioBiblioteca sinLibro(long version, Instant momento, long secuencia) {
+        return new CambioBiblioteca(SIN_LIBRO, version, momento, secuencia, null, null);
+    }
+
+    /**
+     * Crea el cambio de un usuario agregado.
+     * @param version Versión producida
+     * @param momento Momento de la modificación
+     * @param id ID del usuario
+     * @param nombre Nombre del usuario
+     * @return El cambio
+     */
+    public static CambioBiblioteca usuario(long version, Instant momento, String id, String nombre) {
+        return new CambioBiblioteca(USUARIO, version, momento, 0, id, nombre);
+    }
+
+    /**
+     * Crea el cambio de un usuario eliminado.
+     * @param version Versión producida
+     * @param momento Momento de la modificación
+     * @param id ID del usuario
+     * @return El cambio
+     */
+    public static CambioBiblioteca sinUsuario(long version, Instant momento, String id) {
+        return new CambioBiblioteca(SIN_USUARIO, version, momento, 0, id, null);
+    }
+
+    /**
+     * Crea el cambio de un empleado agregado o actualizado.
+     * @param version Versión producida
+     * @param momento Momento de la modificación
+     * @param empleado Datos del empleado
+     * @return El cambio
+     */
+    public static CambioBiblioteca empleado(long version, Instant momento, InstantaneaBiblioteca.FichaEmpleado empleado) {
+        return new CambioBiblioteca(EMPLEADO, version, momento, 0, empleado.getId(), empleado);
+    }
+
+    /**
+     * Crea el cambio de un empleado eliminado.
+     * @param version Versión producida
+     * @param momento Momento de la modificación
+     * @param id ID del empleado
+     * @return El cambio
+     */
+    public static CambioBiblioteca sinEmpleado(long version, Instant momento, String id) {
+        return new CambioBiblioteca(SIN_EMPLEADO, version, momento, 0, id, null);
+    }
+
+    /**
+     * Obtiene el tipo de cambio.
+     * @return LIBRO, SIN_LIBRO, USUARIO, SIN_USUARIO, EMPLEADO o SIN_EMPLEADO
+     */
+    public int getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtiene la versión que produjo el cambio.
+     * @return Versión de la instantánea
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Obtiene el momento en que se hizo el cambio.
+     * @return Momento de la modificación
+     */
+    public Instant getMomento() {
+        return momento;
+    }
+
+    /**
+     * Obtiene la secuencia del libro de un cambio LIBRO o SIN_LIBRO.
+     * @return Secuencia del libro
+     */
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    /**
+     * Obtiene el ID de la persona de un cambio de usuario o empleado.
+     * @return ID, o null en los cambios de libros
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Obtiene los datos del libro de un cambio LIBRO.
+     * @return Ficha del libro, o null en otro tipo de cambio
+     */
+    public InstantaneaBiblioteca.FichaLibro getLibro() {
+        return tipo == LIBRO ? (InstantaneaBiblioteca.FichaLibro) datos : null;
+    }
+
+    /**
+     * Obtiene el nombre del usuario de un cambio USUARIO.
+     * @return Nombre, o null en otro tipo de cambio
+     */
+    public String getNombreUsuario() {
+        return tipo == USUARIO ? (String) datos : null;
+    }
+
+    /**
+     * Obtiene los datos del empleado de un cambio EMPLEADO.
+     * @return Ficha del empleado, o null en otro tipo de cambio
+     */
+    public InstantaneaBiblioteca.FichaEmpleado getEmpleado() {
+        return tipo == EMPLEADO ? (InstantaneaBiblioteca.FichaEmpleado) datos : null;
+    }
+
+    /**
+     * Escribe el cambio en formato binario.
+     * @param salida Destino
+     * @throws IOException si falla la escritura
+     */
+    public void escribir(DataOutput salida) throws IOException {
+        salida.writeByte(tipo);
+        salida.writeLong(version);
+        salida.writeLong(momento.getEpochSecond());
+        salida.writeInt(momento.getNano());
+        switch (tipo) {
+            case LIBRO:
+                InstantaneaBiblioteca.FichaLibro libro = getLibro();
+                salida.writeLong(secuencia);
+                escribirTexto(salida, libro.getTitulo());
+                escribirTexto(salida, libro.getAutor());
+                escribirTexto(salida, libro.getIsbn());
+                salida.writeInt(libro.getNumPaginas());
+                salida.writeBoolean(libro.isPrestado());
+                break;
+            case SIN_LIBRO:
+                salida.writeLong(secuencia);
+                break;
+            case USUARIO:
+                escribirTexto(salida, id);
+                escribirTexto(salida, getNombreUsuario());
+                break;
+            case EMPLEADO:
+                InstantaneaBiblioteca.FichaEmpleado empleado = getEmpleado();
+                escribirTexto(salida, id);
+                escribirTexto(salida, empleado.getNombre());
+                escribirTexto(salida, empleado.getPuesto());
+                salida.writeInt(empleado.getTurno());
+                break;
+            default:
+                escribirTexto(salida, id);
+        }
+    }
+
+    /**
+     * Lee un cambio escrito con escribir, cuyo tipo ya se leyó.
+     * @param tipo Tipo del cambio, leído del primer byte
+     * @param entrada Origen
+     * @return El cambio
+     * @throws IOException si falla la lectura o el tipo no es válido
+     */
+    public static CambioBiblioteca leer(int tipo, DataInput entrada) throws IOException {
+        long version = entrada.readLong();
+        Instant momento = Instant.ofEpochSecond(entrada.readLong(), entrada.readInt());
+        switch (tipo) {
+            case LIBRO:
+                long secuencia = entrada.readLong();
+                return libro(version, momento, new InstantaneaBiblioteca.FichaLibro(secuencia, leerTexto(entrada),
+                             leerTexto(entrada), leerTexto(entrada), entrada.readInt(), entrada.readBoolean()));
+            case SIN_LIBRO:
+                return sinLibro(version, momento, entrada.readLong());
+            case USUARIO:
+                return usuario(version, momento, leerTexto(entrada), leerTexto(entrada));
+            case SIN_USUARIO:
+                return sinUsuario(version, momento, leerTexto(entrada));
+            case EMPLEADO:
+                return empleado(version, momento, new InstantaneaBiblioteca.FichaEmpleado(leerTexto(entrada),
+                                leerTexto(entrada), leerTexto(entrada), entrada.readInt()));
+            case SIN_EMPLEADO:
+                return sinEmpleado(version, momento, leerTexto(entrada));
+            default:
+                throw new IOException("Tipo de cambio desconocido: " + tipo);
+        }
+    }
+
+    /**
+     * Escribe un texto que puede ser null.
+     */
+    private static void escribirTexto(DataOutput salida, String texto) throws IOException {
+        salida.writeBoolean(texto != null);
+        if (texto != null) {
+            salida.writeUTF(texto);
+        }
+    }
+
+    private static String leerTexto(DataInput entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+
+    /**
+     * Retorna una representación en cadena del cambio.
+     * @return String con el tipo, la versión y la entrada modificada
+     */
+    public String toString() {
+        String[] nombres = {"LIBRO", "SIN_LIBRO", "USUARIO", "SIN_USUARIO", "EMPLEADO", "SIN_EMPLEADO"};
+        return "CambioBiblioteca [" + nombres[tipo] + ", version=" + version + ", "
+               + (tipo <= SIN_LIBRO ? "secuencia=" + secuencia : "id=" + id) + "]";
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Lista de espera FIFO de las reservas de un ISBN.
+ *
+ * Las reservas se encolan sin cerrojo en una ConcurrentLinkedQueue, en O(1). Las
+ * cancelaciones y los vencimientos sólo marcan la reserva; la reserva marcada se
+ * descarta cuando llega a la cabeza de la cola, de modo que cancelar tampoco
+ * recorre la lista. Al devolverse un ejemplar, la biblioteca toma la primera
+ * reserva vigente con tomarSiguiente().
+ *
+ * Cada usuario puede tener a lo sumo una reserva pendiente por ISBN.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ColaReservas {
+    /** ISBN de la lista de espera */
+    private final String isbn;
+    /** Reservas en orden de llegada, incluidas las marcadas que aún no se descartan */
+    private final Queue<Reserva> cola;
+    /** Usuarios con una reserva pendiente */
+    private final Set<String> usuariosEnEspera;
+    /** Siguiente número de turno */
+    private final AtomicLong siguienteTurno;
+    /** Número de reservas pendientes */
+    private final AtomicInteger pendientes;
+
+    /**
+     * Crea una lista de espera vacía.
+     * @param isbn ISBN de la lista de espera
+     */
+    public ColaReservas(String isbn) {
+        this.isbn = isbn;
+        this.cola = new ConcurrentLinkedQueue<>();
+        this.usuariosEnEspera = ConcurrentHashMap.newKeySet();
+        this.siguienteTurno = new AtomicLong();
+        this.pendientes = new AtomicInteger();
+    }
+
+    /**
+     * Obtiene el ISBN de la lista de espera.
+     * @return El ISBN
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * Obtiene el número de reservas pendientes.
+     * @return Reservas en espera, sin contar las canceladas
+     */
+    public int getPendientes() {
+        return pendientes.get();
+    }
+
+    /**
+     * Encola una reserva al final de la lista de espera.
+     *
+     * @param idUsuario ID del usuario que reserva
+     * @param ahora Momento de la reserva
+     * @param vigencia Tiempo máximo de espera antes de que la reserva venza
+     * @return La nueva reserva, o null si el usuario ya tenía una pendiente
+     */
+    public Reserva agregar(String idUsuario, Instant ahora, Duration vigencia) {
+        if (!usuariosEnEspera.add(idUsuario)) {
+            return null;
+        }
+        Reserva reserva = new Reserva(isbn, idUsuario, siguienteTurno.getAndIncrement(), ahora, ahora.plus(vigencia));
+        pendientes.incrementAndGet();
+        cola.offer(reserva);
+        return reserva;
+    }
+
+    /**
+     * Toma la primera reserva vigente y la marca como asignada.
+     * Las reservas vencidas que se encuentran en la cabeza se marcan como tales
+     * y se descartan.
+     *
+     * @param ahora Momento actual
+     * @return La reserva asignada, o null si no queda ninguna vigente
+     */
+    public Reserva tomarSiguiente(Instant ahora) {
+        Reserva reserva;
+        while ((reserva = cola.poll()) != null) {
+            if (reserva.haVencido(ahora)) {
+                cerrar(reserva, Reserva.VENCIDA);
+            } else if (cerrar(reserva, Reserva.ASIGNADA)) {
+                return reserva;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cancela una reserva pendiente.
+     * @param reserva La reserva a cancelar
+     * @return true si la reserva estaba pendiente
+     */
+    public boolean cancelar(Reserva reserva) {
+        return cerrar(reserva, Reserva.CANCELADA);
+    }
+
+    /**
+     * Calcula la posición de una reserva en la lista de espera. Recorre sólo las
+     * reservas que están delante de ella.
+     *
+     * @param reserva La reserva consultada
+     * @param ahora Momento actual, para no contar las reservas vencidas
+     * @return Posición desde 1, o -1 si la reserva ya no está pendiente
+     */
+    public int posicion(Reserva reserva, Instant ahora) {
+        if (!reserva.isPendiente() || reserva.haVencido(ahora)) {
+            return -1;
+        }
+        int posicion = 1;
+        for (Reserva otra : cola) {
+            if (otra == reserva) {
+                return posicion;
+            }
+            if (otra.isPendiente() && !otra.haVencido(ahora)) {
+                posicion++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marca como vencidas y descarta las reservas cuya fecha límite ya pasó,
+     * junto con las canceladas que aún ocupaban la cola.
+     *
+     * @param ahora Momento actual
+     * @return Número de reservas que vencieron
+     */
+    public int purgar(Instant ahora) {
+        int vencidas = 0;
+        Iterator<Reserva> it = cola.iterator();
+        while (it.hasNext()) {
+            Reserva reserva = it.next();
+            if (reserva.haVencido(ahora) && cerrar(reserva, Reserva.VENCIDA)) {
+                vencidas++;
+            }
+            if (!reserva.isPendiente()) {
+                it.remove();
+            }
+        }
+        return vencidas;
+    }
+
+    /**
+     * Cierra una reserva pendiente y actualiza los contadores.
+     */
+    private boolean cerrar(Reserva reserva, int estado) {
+        if (reserva.finalizar(estado)) {
+            pendientes.decrementAndGet();
+            usuariosEnEspera.remove(reserva.getIdUsuario());
+            return true;
+        }
+        return false;
+    }
+}
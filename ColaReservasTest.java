@@ -0,0 +1,95 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Clase de pruebas unitarias para la clase ColaReservas.
+ * Verifica el orden de llegada, las cancelaciones, el vencimiento y la
+ * posición de cada reserva en la lista de espera.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class ColaReservasTest
+{
+    /** Lista de espera de prueba */
+    private ColaReservas cola;
+    /** Momento de referencia para las reservas */
+    private Instant inicio;
+
+    /**
+     * Configura una lista de espera vacía.
+     */
+    @BeforeEach
+    public void setUp() {
+        cola = new ColaReservas("9788424922498");
+        inicio = Instant.parse("2024-03-01T10:00:00Z");
+    }
+
+    /**
+     * Prueba que las reservas se atiendan en orden de llegada y que un usuario
+     * no pueda reservar dos veces el mismo ISBN.
+     */
+    @Test
+    public void testOrdenDeLlegada() {
+        Reserva ana = cola.agregar("U001", inicio, Duration.ofDays(7));
+        Reserva carlos = cola.agregar("U002", inicio, Duration.ofDays(7));
+        assertNull(cola.agregar("U001", inicio, Duration.ofDays(7)));
+        assertEquals(2, cola.getPendientes());
+        assertEquals(1, cola.posicion(ana, inicio));
+        assertEquals(2, cola.posicion(carlos, inicio));
+
+        assertSame(ana, cola.tomarSiguiente(inicio));
+        assertEquals(Reserva.ASIGNADA, ana.getEstado());
+        assertEquals(-1, cola.posicion(ana, inicio));
+        assertEquals(1, cola.posicion(carlos, inicio));
+        assertNotNull(cola.agregar("U001", inicio, Duration.ofDays(7)));
+    }
+
+    /**
+     * Prueba que una reserva cancelada no se atienda ni ocupe posición.
+     */
+    @Test
+    public void testCancelar() {
+        Reserva ana = cola.agregar("U001", inicio, Duration.ofDays(7));
+        Reserva carlos = cola.agregar("U002", inicio, Duration.ofDays(7));
+        assertTrue(cola.cancelar(ana));
+        assertFalse(cola.cancelar(ana));
+        assertEquals(1, cola.posicion(carlos, inicio));
+        assertSame(carlos, cola.tomarSiguiente(inicio));
+        assertNull(cola.tomarSiguiente(inicio));
+        assertEquals(0, cola.getPendientes());
+    }
+
+    /**
+     * Prueba el vencimiento de las reservas al atender la cola y al purgarla.
+     */
+    @Test
+    public void testVencimiento() {
+        Reserva ana = cola.agregar("U001", inicio, Duration.ofDays(1));
+        Reserva carlos = cola.agregar("U002", inicio, Duration.ofDays(7));
+        Reserva luis = cola.agregar("U003", inicio, Duration.ofDays(1));
+        Instant despues = inicio.plus(Duration.ofDays(2));
+
+        assertEquals(1, cola.posicion(carlos, despues));
+        assertSame(carlos, cola.tomarSiguiente(despues));
+        assertEquals(Reserva.VENCIDA, ana.getEstado());
+        assertEquals(1, cola.purgar(despues));
+        assertEquals(Reserva.VENCIDA, luis.getEstado());
+        assertEquals(0, cola.getPendientes());
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        cola = null;
+        inicio = null;
+    }
+}
@@ -0,0 +1,481 @@
+/**
+ * Diccionario inmutable y compacto de títulos para catálogos muy grandes.
+ *
+ * Los títulos distintos se ordenan por sus bytes UTF-8 (sin signo) y se
+ * guardan en un único arreglo de bytes, en bloques de TAMANO_BLOQUE títulos
+ * con codificación por prefijo común (front coding): el primer título del
+ * bloque se guarda completo y cada uno de los siguientes como la longitud del
+ * prefijo que comparte con el anterior más el sufijo restante, con enteros de
+ * longitud variable (varint). El desplazamiento de cada bloque se guarda en
+ * una secuencia Elias-Fano, que ocupa unos 2 + log2(bytes / bloques) bits por
+ * bloque.
+ *
+ * Las búsquedas comparan bytes directamente sobre el arreglo: una búsqueda
+ * binaria sobre el primer título de cada bloque y un recorrido dentro del
+ * bloque. Los recorridos por rango entregan cada título en un búfer de bytes
+ * reutilizado, sin crear objetos String; getTitulo crea uno sólo cuando se
+ * pide. El rango de un título es su posición en el orden del diccionario.
+ *
+ * Es seguro para varios hilos sin cerrojo.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public final class DiccionarioTitulos {
+    /** Títulos por bloque de codificación por prefijo común */
+    public static final int TAMANO_BLOQUE = 16;
+
+    private final byte[] datos;
+    private final int numTitulos;
+    private final int longitudMaxima;
+    private final SecuenciaEliasFano bloques;
+
+    /**
+     * Visitante de los títulos de un recorrido.
+     */
+    public interface Visitante {
+        /**
+         * Recibe un título. El búfer se reutiliza en la siguiente llamada.
+         *
+         * @param rango Rango del título en el diccionario
+         * @param titulo Búfer con los bytes UTF-8 del título
+         * @param longitud Número de bytes válidos del búfer
+         * @return true para seguir recorriendo, false para detenerse
+         */
+        boolean visitar(int rango, byte[] titulo, int longitud);
+    }
+
+    /**
+     * Construye el diccionario con los títulos distintos de una colección.
+     * Se ignoran los títulos null.
+     *
+     * @param titulos Títulos a guardar, en cualquier orden y con repetidos
+     */
+    public DiccionarioTitulos(Collection<String> titulos) {
+        byte[][] ordenados = titulos.stream()
+            .filter(Objects::nonNull)
+            .map(titulo -> titulo.getBytes(StandardCharsets.UTF_8))
+            .sorted(Arrays::compareUnsigned)
+            .toArray(byte[][]::new);
+        int distintos = 0;
+        for (int i = 0; i < ordenados.length; i++) {
+            if (distintos == 0 || !Arrays.equals(ordenados[distintos - 1], ordenados[i])) {
+                ordenados[distintos++] = ordenados[i];
+            }
+        }
+        this.numTitulos = distintos;
+
+        long[] desplazamientos = new long[(distintos + TAMANO_BLOQUE - 1) / TAMANO_BLOQUE];
+        Escritor escritor = new Escritor();
+        int maxima = 0;
+        for (int i = 0; i < distintos; i++) {
+            byte[] titulo = ordenados[i];
+            maxima = Math.max(maxima, titulo.length);
+            if (i % TAMANO_BLOQUE == 0) {
+                desplazamientos[i / TAMANO_BLOQUE] = escritor.longitud;
+                escritor.varint(titulo.length);
+                escritor.bytes(titulo, 0, titulo.length);
+            } else {
+                byte[] anterior = ordenados[i - 1];
+                int comun = Arrays.mismatch(anterior, titulo);
+                escritor.varint(comun);
+                escritor.varint(titulo.length - comun);
+                escritor.bytes(titulo, comun, titulo.length - comun);
+            }
+        }
+        this.datos = Arrays.copyOf(escritor.datos, escritor.longitud);
+        this.longitudMaxima = maxima;
+        this.bloques = new SecuenciaEliasFano(desplazamientos, datos.length);
+    }
+
+    /**
+     * Obtiene el número de títulos distintos.
+     * @return Número de títulos
+     */
+    public int tamano() {
+        return numTitulos;
+    }
+
+    /**
+     * Busca un título exacto.
+     *
+     * @param titulo Título a buscar
+     * @return Su rango, o (-(rango de inserción) - 1) si no está, como Arrays.binarySearch
+     */
+    public int buscar(String titulo) {
+        return ubicar(titulo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Indica si el diccionario contiene un título.
+     * @param titulo Título a buscar
+     * @return true si está
+     */
+    public boolean contiene(String titulo) {
+        return buscar(titulo) >= 0;
+    }
+
+    /**
+     * Obtiene el título de un rango, creando el String.
+     *
+     * @param rango Rango del título
+     * @return El título
+     * @throws IndexOutOfBoundsException si el rango no existe
+     */
+    public String getTitulo(int rango) {
+        Objects.checkIndex(rango, numTitulos);
+        String[] titulo = new String[1];
+        recorrer(rango, rango + 1, (r, bytes, longitud) -> {
+            titulo[0] = new String(bytes, 0, longitud, StandardCharsets.UTF_8);
+            return false;
+        });
+        return titulo[0];
+    }
+
+    /**
+     * Recorre en orden los títulos de los rangos [desde, hasta).
+     *
+     * @param desde Primer rango, incluido
+     * @param hasta Último rango, excluido
+     * @param visitante Recibe cada título
+     * @return Número de títulos visitados
+     */
+    public int recorrer(int desde, int hasta, Visitante visitante) {
+        desde = Math.max(0, desde);
+        hasta = Math.min(hasta, numTitulos);
+        if (desde >= hasta) {
+            return 0;
+        }
+        byte[] titulo = new byte[longitudMaxima];
+        int bloque = desde / TAMANO_BLOQUE;
+        int[] lector = {(int) bloques.get(bloque)};
+        int longitud = 0;
+        int visitados = 0;
+        for (int rango = bloque * TAMANO_BLOQUE; rango < hasta; rango++) {
+            longitud = decodificar(rango, lector, titulo, longitud);
+            if (rango >= desde) {
+                visitados++;
+                if (!visitante.visitar(rango, titulo, longitud)) {
+                    break;
+                }
+            }
+        }
+        return visitados;
+    }
+
+    /**
+     * Recorre en orden los títulos que empiezan con un prefijo.
+     *
+     * @param prefijo Prefijo de los títulos, comparado byte a byte en UTF-8
+     * @param visitante Recibe cada título
+     * @return Número de títulos visitados
+     */
+    public int recorrerPrefijo(String prefijo, Visitante visitante) {
+        byte[] clave = prefijo.getBytes(StandardCharsets.UTF_8);
+        int[] visitados = {0};
+        recorrer(limiteInferior(clave), numTitulos, (rango, titulo, longitud) -> {
+            if (longitud < clave.length || !Arrays.equals(titulo, 0, clave.length, clave, 0, clave.length)) {
+                return false;
+            }
+            visitados[0]++;
+            return visitante.visitar(rango, titulo, longitud);
+        });
+        return visitados[0];
+    }
+
+    /**
+     * Recorre en orden los títulos t con desde <= t < hasta.
+     *
+     * @param desde Límite inferior, incluido
+     * @param hasta Límite superior, excluido
+     * @param visitante Recibe cada título
+     * @return Número de títulos visitados
+     */
+    public int recorrerRango(String desde, String hasta, Visitante visitante) {
+        return recorrer(rango(desde), rango(hasta), visitante);
+    }
+
+    /**
+     * Obtiene el rango del primer título mayor o igual que el dado.
+     *
+     * @param titulo Título de referencia
+     * @return Rango entre 0 y tamano()
+     */
+    public int rango(String titulo) {
+        return limiteInferior(titulo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Obtiene los bytes que ocupa el diccionario, incluidos los encabezados
+     * de sus arreglos.
+     *
+     * @return Bytes retenidos
+     */
+    public long getBytes() {
+        return 16 + alinear(16 + datos.length) + bloques.getBytes();
+    }
+
+    /**
+     * Obtiene el promedio de bytes por título del diccionario.
+     * @return Bytes por título
+     */
+    public double getBytesPorTitulo() {
+        return numTitulos == 0 ? 0 : getBytes() / (double) numTitulos;
+    }
+
+    /**
+     * Estima los bytes que ocupan los títulos distintos de una colección como
+     * objetos String (con cadenas compactas: un byte por carácter Latin-1,
+     * dos si hay otros caracteres), sin contar la colección que los guarda.
+     *
+     * @param titulos Títulos
+     * @return Bytes retenidos por los String distintos
+     */
+    public static long bytesComoString(Collection<String> titulos) {
+        long total = 0;
+        for (String titulo : new HashSet<>(titulos)) {
+            if (titulo == null) {
+                continue;
+            }
+            boolean latin1 = titulo.chars().allMatch(c -> c <= 0xFF);
+            total += 24 + alinear(16 + (long) titulo.length() * (latin1 ? 1 : 2));
+        }
+        return total;
+    }
+
+    /**
+     * Primer rango cuyo título es mayor o igual que la clave.
+     */
+    private int limiteInferior(byte[] clave) {
+        int resultado = ubicar(clave);
+        return resultado >= 0 ? resultado : -resultado - 1;
+    }
+
+    /**
+     * Busca una clave: una búsqueda binaria sobre el primer título de cada
+     * bloque y un recorrido del bloque elegido, comparando sobre el arreglo.
+     *
+     * @return Rango de la clave, o (-(rango de inserción) - 1) si no está
+     */
+    private int ubicar(byte[] clave) {
+        // Último bloque cuyo primer título es menor o igual que la clave
+        int bajo = 0;
+        int alto = bloques.tamano() - 1;
+        int bloque = -1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            int[] lector = {(int) bloques.get(medio)};
+            int longitud = leer(lector);
+            int comparacion = Arrays.compareUnsigned(datos, lector[0], lector[0] + longitud, clave, 0, clave.length);
+            if (comparacion == 0) {
+                return medio * TAMANO_BLOQUE;
+            } else if (comparacion < 0) {
+                bloque = medio;
+                bajo = medio + 1;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        if (bloque < 0) {
+            return -1;
+        }
+        // Dentro del bloque, el título anterior es menor que la clave; si
+        // comparte con ella menos bytes que con el actual, el actual es mayor
+        int[] lector = {(int) bloques.get(bloque)};
+        int anterior = leer(lector);
+        int comunClave = Arrays.mismatch(datos, lector[0], lector[0] + anterior, clave, 0, clave.length);
+        if (comunClave < 0) {
+            comunClave = anterior;
+        }
+        lector[0] += anterior;
+        int fin = Math.min(numTitulos, (bloque + 1) * TAMANO_BLOQUE);
+        for (int rango = bloque * TAMANO_BLOQUE + 1; rango < fin; rango++) {
+            int comun = leer(lector);
+            int sufijo = leer(lector);
+            int inicio = lector[0];
+            lector[0] += sufijo;
+            if (comun < comunClave) {
+                return -rango - 1;
+            }
+            if (comun > comunClave) {
+                continue;
+            }
+            // Comparte exactamente comunClave bytes con la clave hasta el sufijo
+            int diferencia = Arrays.mismatch(datos, inicio, inicio + sufijo, clave, comun, clave.length);
+            if (diferencia < 0) {
+                return rango;
+            }
+            // La clave es prefijo del título, o el título es mayor en el primer byte distinto
+            if (comun + diferencia == clave.length
+                    || diferencia < sufijo
+                    && Byte.toUnsignedInt(datos[inicio + diferencia]) > Byte.toUnsignedInt(clave[comun + diferencia])) {
+                return -rango - 1;
+            }
+            comunClave = comun + diferencia;
+        }
+        return -fin - 1;
+    }
+
+    /**
+     * Decodifica el título de un rango sobre el anterior del mismo bloque.
+     *
+     * @return Longitud del título decodificado
+     */
+    private int decodificar(int rango, int[] lector, byte[] titulo, int anterior) {
+        int comun = 0;
+        int sufijo;
+        if (rango % TAMANO_BLOQUE == 0) {
+            sufijo = leer(lector);
+        } else {
+            comun = leer(lector);
+            sufijo = leer(lector);
+        }
+        System.arraycopy(datos, lector[0], titulo, comun, sufijo);
+        lector[0] += sufijo;
+        return comun + sufijo;
+    }
+
+    private int leer(int[] lector) {
+        int valor = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            b = datos[lector[0]++];
+            valor |= (b & 0x7f) << desplazamiento;
+            desplazamiento += 7;
+        } while (b < 0);
+        return valor;
+    }
+
+    private static long alinear(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Arreglo de bytes que crece al escribir, para la construcción.
+     */
+    private static final class Escritor {
+        byte[] datos = new byte[1024];
+        int longitud;
+
+        void varint(int valor) {
+            asegurar(5);
+            while ((valor & ~0x7f) != 0) {
+                datos[longitud++] = (byte) ((valor & 0x7f) | 0x80);
+                valor >>>= 7;
+            }
+            datos[longitud++] = (byte) valor;
+        }
+
+        void bytes(byte[] origen, int desde, int cantidad) {
+            asegurar(cantidad);
+            System.arraycopy(origen, desde, datos, longitud, cantidad);
+            longitud += cantidad;
+        }
+
+        private void asegurar(int adicional) {
+            if (longitud + adicional > datos.length) {
+                datos = Arrays.copyOf(datos, Math.max(datos.length * 2, longitud + adicional));
+            }
+        }
+    }
+
+    /**
+     * Secuencia creciente de enteros no negativos con codificación
+     * Elias-Fano: los bits bajos de cada valor se empaquetan tal cual y los
+     * altos se guardan en unario en un arreglo de bits, con una muestra cada
+     * MUESTREO valores para localizarlos en tiempo constante.
+     */
+    static final class SecuenciaEliasFano {
+        private static final int MUESTREO = 256;
+
+        private final int tamano;
+        private final int bitsBajos;
+        private final long[] bajos;
+        private final long[] altos;
+        private final long[] muestras;
+
+        /**
+         * Codifica una secuencia creciente.
+         * @param valores Valores en orden creciente
+         * @param universo Cota superior (excluida) de los valores
+         */
+        SecuenciaEliasFano(long[] valores, long universo) {
+            this.tamano = valores.length;
+            this.bitsBajos = tamano == 0 ? 0
+                : Math.max(0, 63 - Long.numberOfLeadingZeros(Math.max(1, universo / tamano)));
+            this.bajos = new long[(int) ((tamano * (long) bitsBajos + 63) >>> 6)];
+            this.altos = new long[(int) ((tamano + (universo >>> bitsBajos) + 64) >>> 6)];
+            this.muestras = new long[(tamano + MUESTREO - 1) / MUESTREO];
+            long mascara = (1L << bitsBajos) - 1;
+            for (int i = 0; i < tamano; i++) {
+                long valor = valores[i];
+                if (bitsBajos > 0) {
+                    long bit = (long) i * bitsBajos;
+                    bajos[(int) (bit >>> 6)] |= (valor & mascara) << bit;
+                    int restantes = (int) (bit & 63) + bitsBajos - 64;
+                    if (restantes > 0) {
+                        bajos[(int) (bit >>> 6) + 1] |= (valor & mascara) >>> (bitsBajos - restantes);
+                    }
+                }
+                long posicion = (valor >>> bitsBajos) + i;
+                altos[(int) (posicion >>> 6)] |= 1L << posicion;
+                if (i % MUESTREO == 0) {
+                    muestras[i / MUESTREO] = posicion;
+                }
+            }
+        }
+
+        /**
+         * Obtiene el número de valores.
+         * @return Tamaño de la secuencia
+         */
+        int tamano() {
+            return tamano;
+        }
+
+        /**
+         * Obtiene el valor de una posición.
+         * @param i Posición
+         * @return Valor
+         */
+        long get(int i) {
+            // Posición del i-ésimo bit encendido de los altos, desde la muestra anterior
+            long inicio = muestras[i / MUESTREO];
+            int restantes = i % MUESTREO;
+            int palabra = (int) (inicio >>> 6);
+            long bits = altos[palabra] & (-1L << inicio);
+            int cuenta;
+            while (restantes >= (cuenta = Long.bitCount(bits))) {
+                restantes -= cuenta;
+                bits = altos[++palabra];
+            }
+            for (; restantes > 0; restantes--) {
+                bits &= bits - 1;
+            }
+            long alto = ((long) palabra << 6) + Long.numberOfTrailingZeros(bits) - i;
+            if (bitsBajos == 0) {
+                return alto;
+            }
+            long bit = (long) i * bitsBajos;
+            long bajo = bajos[(int) (bit >>> 6)] >>> bit;
+            int restantesBajos = (int) (bit & 63) + bitsBajos - 64;
+            if (restantesBajos > 0) {
+                bajo |= bajos[(int) (bit >>> 6) + 1] << (bitsBajos - restantesBajos);
+            }
+            return (alto << bitsBajos) | (bajo & ((1L << bitsBajos) - 1));
+        }
+
+        /**
+         * Obtiene los bytes retenidos por la secuencia.
+         * @return Bytes, con encabezados de objeto y arreglos
+         */
+        long getBytes() {
+            return 24 + alinear(16 + 8L * bajos.length) + alinear(16 + 8L * altos.length)
+                   + alinear(16 + 8L * muestras.length);
+        }
+    }
+}
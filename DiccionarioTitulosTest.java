@@ -0,0 +1,175 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la clase DiccionarioTitulos.
+ * Verifica las búsquedas y los recorridos contra un conjunto ordenado de
+ * referencia, la secuencia Elias-Fano y que el diccionario ocupe menos que
+ * los títulos como String.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class DiccionarioTitulosTest
+{
+    /** Títulos de prueba, con repetidos y acentos */
+    private List<String> titulos;
+    /** Títulos distintos en orden de bytes UTF-8 */
+    private List<String> ordenados;
+
+    /**
+     * Genera los títulos de prueba y su orden de referencia.
+     */
+    @BeforeEach
+    public void setUp() {
+        Random aleatorio = new Random(5);
+        String[] palabras = {"el", "la", "de", "historia", "árbol", "ñandú", "mar", "noche", "cien", "años"};
+        titulos = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder titulo = new StringBuilder();
+            for (int p = 0; p < 2 + aleatorio.nextInt(4); p++) {
+                titulo.append(p > 0 ? " " : "").append(palabras[aleatorio.nextInt(palabras.length)]);
+            }
+            titulos.add(titulo.toString());
+        }
+        titulos.add("");
+        titulos.add("Cien años de soledad");
+        titulos.add("Cien años de soledad");
+        Set<String> distintos = new TreeSet<>((a, b) -> Arrays.compareUnsigned(
+            a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8)));
+        distintos.addAll(titulos);
+        ordenados = new ArrayList<>(distintos);
+    }
+
+    /**
+     * Prueba la búsqueda exacta, getTitulo y el recorrido completo.
+     */
+    @Test
+    public void testBuscarYRecorrer() {
+        DiccionarioTitulos diccionario = new DiccionarioTitulos(titulos);
+        assertEquals(ordenados.size(), diccionario.tamano());
+        for (int i = 0; i < ordenados.size(); i++) {
+            assertEquals(i, diccionario.buscar(ordenados.get(i)));
+            assertEquals(ordenados.get(i), diccionario.getTitulo(i));
+        }
+        assertTrue(diccionario.contiene("Cien años de soledad"));
+        assertFalse(diccionario.contiene("Cien años"));
+        int insercion = -diccionario.buscar("Cien años") - 1;
+        assertEquals(ordenados.indexOf("Cien años de soledad"), insercion);
+        // Claves ausentes vecinas de cada título: su punto de inserción
+        List<byte[]> bytes = new ArrayList<>();
+        for (String titulo : ordenados) {
+            bytes.add(titulo.getBytes(StandardCharsets.UTF_8));
+        }
+        for (String titulo : ordenados) {
+            for (String clave : new String[] {titulo + " ", titulo + "\u0000", titulo.isEmpty() ? "~" : titulo.substring(0, titulo.length() - 1)}) {
+                int esperado = Collections.binarySearch(bytes, clave.getBytes(StandardCharsets.UTF_8), Arrays::compareUnsigned);
+                assertEquals(esperado, diccionario.buscar(clave), clave);
+            }
+        }
+        assertEquals(0, diccionario.buscar(""));
+        assertEquals(-2, diccionario.buscar("\u0000"));
+
+        List<String> recorridos = new ArrayList<>();
+        int visitados = diccionario.recorrer(0, Integer.MAX_VALUE, (rango, titulo, longitud) -> {
+            assertEquals(recorridos.size(), rango);
+            recorridos.add(new String(titulo, 0, longitud, StandardCharsets.UTF_8));
+            return true;
+        });
+        assertEquals(ordenados, recorridos);
+        assertEquals(ordenados.size(), visitados);
+        assertThrows(IndexOutOfBoundsException.class, () -> diccionario.getTitulo(ordenados.size()));
+    }
+
+    /**
+     * Prueba los recorridos por prefijo y por rango de títulos.
+     */
+    @Test
+    public void testPrefijoYRango() {
+        DiccionarioTitulos diccionario = new DiccionarioTitulos(titulos);
+        for (String prefijo : new String[] {"historia", "árbol ñ", "la", "z", ""}) {
+            List<String> esperados = new ArrayList<>();
+            for (String titulo : ordenados) {
+                if (titulo.startsWith(prefijo)) {
+                    esperados.add(titulo);
+                }
+            }
+            List<String> obtenidos = new ArrayList<>();
+            int visitados = diccionario.recorrerPrefijo(prefijo, (rango, titulo, longitud) ->
+                obtenidos.add(new String(titulo, 0, longitud, StandardCharsets.UTF_8)));
+            assertEquals(esperados, obtenidos, prefijo);
+            assertEquals(esperados.size(), visitados);
+        }
+
+        int desde = diccionario.rango("de");
+        int hasta = diccionario.rango("la");
+        List<String> obtenidos = new ArrayList<>();
+        diccionario.recorrerRango("de", "la", (rango, titulo, longitud) ->
+            obtenidos.add(new String(titulo, 0, longitud, StandardCharsets.UTF_8)));
+        assertEquals(ordenados.subList(desde, hasta), obtenidos);
+        assertTrue(obtenidos.get(0).startsWith("de"));
+
+        // El visitante puede detener el recorrido
+        assertEquals(3, diccionario.recorrer(10, 100, (rango, titulo, longitud) -> rango < 12));
+
+        DiccionarioTitulos vacio = new DiccionarioTitulos(List.of());
+        assertEquals(0, vacio.tamano());
+        assertEquals(-1, vacio.buscar("Rayuela"));
+        assertEquals(0, vacio.recorrerPrefijo("", (rango, titulo, longitud) -> true));
+    }
+
+    /**
+     * Prueba la secuencia Elias-Fano con saltos grandes y muchos valores.
+     */
+    @Test
+    public void testSecuenciaEliasFano() {
+        Random aleatorio = new Random(9);
+        long[] valores = new long[5000];
+        long valor = 0;
+        for (int i = 0; i < valores.length; i++) {
+            valor += i % 1000 == 0 ? 1000000 : aleatorio.nextInt(40);
+            valores[i] = valor;
+        }
+        DiccionarioTitulos.SecuenciaEliasFano secuencia = new DiccionarioTitulos.SecuenciaEliasFano(valores, valor + 1);
+        assertEquals(valores.length, secuencia.tamano());
+        for (int i = 0; i < valores.length; i++) {
+            assertEquals(valores[i], secuencia.get(i), "posición " + i);
+        }
+        assertTrue(secuencia.getBytes() < 8L * valores.length / 2);
+    }
+
+    /**
+     * Prueba que el diccionario ocupe bastante menos que los títulos como
+     * String y que la biblioteca congele sus títulos.
+     */
+    @Test
+    public void testTamanoYBiblioteca() {
+        DiccionarioTitulos diccionario = new DiccionarioTitulos(titulos);
+        assertTrue(diccionario.getBytes() * 3 < DiccionarioTitulos.bytesComoString(titulos),
+                   diccionario.getBytes() + " " + DiccionarioTitulos.bytesComoString(titulos));
+
+        Biblioteca biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        biblioteca.agregarLibro(new Libro("Rayuela", "Julio Cortázar", "9788437604572", 736));
+        biblioteca.agregarLibro(new Libro("Ficciones", "Jorge Luis Borges", "9788499089515", 224));
+        biblioteca.agregarLibro(new Libro("Ficciones", "Jorge Luis Borges", "9788499089515", 224));
+        DiccionarioTitulos catalogo = biblioteca.congelarTitulos();
+        assertEquals(2, catalogo.tamano());
+        assertEquals("Ficciones", catalogo.getTitulo(0));
+        assertEquals(1, catalogo.buscar("Rayuela"));
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        titulos = null;
+        ordenados = null;
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Entrada del catálogo que agrupa los ejemplares físicos de un mismo ISBN.
+ *
+ * Lleva dos contadores atómicos, el total de ejemplares y los disponibles, que
+ * pueden consultarse en O(1) y sin cerrojo. Las copias libres esperan además en
+ * una cola no bloqueante: un préstamo reclama una con reclamar() antes de
+ * adquirir el cerrojo de la biblioteca, de modo que con N copias de un título
+ * muy solicitado sólo N peticiones llegan a competir por el cerrojo y el resto
+ * se rechaza sin él. Ninguna operación recorre las copias.
+ *
+ * Cada copia en la cola lleva una marca; reclamar() sólo entrega una copia si
+ * retira su marca, así que dos hilos nunca reclaman la misma copia. Las
+ * entradas que perdieron la marca (copias prestadas por otra vía o eliminadas)
+ * se descartan al llegar a la cabeza de la cola.
+ *
+ * Salvo reclamar() y los contadores, el resto de operaciones se invoca bajo el
+ * cerrojo de la biblioteca.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Ejemplares {
+    /** ISBN común a todas las copias */
+    private final String isbn;
+    /** Copias físicas, en el orden en que se agregaron */
+    private final List<Libro> copias;
+    /** Número total de copias */
+    private final AtomicInteger total;
+    /** Número de copias no prestadas */
+    private final AtomicInteger disponibles;
+    /** Copias registradas, por identidad */
+    private final Set<Libro> registradas;
+    /** Copias prestadas, en el orden en que se prestaron */
+    private final Set<Libro> prestadas;
+    /** Copias libres pendientes de reclamar; puede contener entradas sin marca */
+    private final Queue<Libro> libres;
+    /** Marcas de las copias de la cola que todavía pueden reclamarse */
+    private final Set<Libro> marcadas;
+
+    /**
+     * Crea una entrada sin copias.
+     * @param isbn ISBN del título
+     */
+    public Ejemplares(String isbn) {
+        this.isbn = isbn;
+        this.copias = new ArrayList<>(1);
+        this.total = new AtomicInteger();
+        this.disponibles = new AtomicInteger();
+        this.registradas = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.prestadas = new LinkedHashSet<>();
+        this.libres = new ConcurrentLinkedQueue<>();
+        this.marcadas = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Obtiene el ISBN del título.
+     * @return El ISBN
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * Obtiene el número total de copias.
+     * @return Copias registradas
+     */
+    public int getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Obtiene el número de copias disponibles.
+     * @return Copias no prestadas
+     */
+    public int getDisponibles() {
+        return disponibles.get();
+    }
+
+    /**
+     * Indica si queda al menos una copia disponible.
+     * @return true si alguna copia puede prestarse
+     */
+    public boolean hayDisponible() {
+        return disponibles.get() > 0;
+    }
+
+    /**
+     * Agrega una copia física. Una copia que ya estaba registrada se ignora.
+     * @param libro La copia a agregar
+     * @return true si la copia se agregó
+     */
+    public boolean agregarCopia(Libro libro) {
+        if (!registradas.add(libro)) {
+            return false;
+        }
+        copias.add(libro);
+        total.incrementAndGet();
+        if (libro.isPrestado()) {
+            prestadas.add(libro);
+        } else {
+            disponibles.incrementAndGet();
+            ofrecer(libro);
+        }
+        return true;
+    }
+
+    /**
+     * Elimina una copia física.
+     * @param libro La copia a eliminar
+     * @return true si la copia estaba registrada
+     */
+    public boolean eliminarCopia(Libro libro) {
+        if (!registradas.remove(libro)) {
+            return false;
+        }
+        copias.remove(libro);
+        total.decrementAndGet();
+        if (libro.isPrestado()) {
+            prestadas.remove(libro);
+        } else {
+            disponibles.decrementAndGet();
+            marcadas.remove(libro);
+        }
+        return true;
+    }
+
+    /**
+     * Actualiza el contador de disponibles después de que una copia cambió de estado.
+     * @param libro La copia que pasó de disponible a prestada o viceversa
+     */
+    public void estadoCambiado(Libro libro) {
+        if (libro.isPrestado()) {
+            disponibles.decrementAndGet();
+            prestadas.add(libro);
+            marcadas.remove(libro);
+        } else {
+            disponibles.incrementAndGet();
+            prestadas.remove(libro);
+            ofrecer(libro);
+        }
+    }
+
+    /**
+     * Obtiene la primera copia registrada.
+     * @return La primera copia o null si no hay ninguna
+     */
+    public Libro primeraCopia() {
+        return copias.isEmpty() ? null : copias.get(0);
+    }
+
+    /**
+     * Reclama una copia libre sin adquirir ningún cerrojo. La copia queda fuera
+     * de la cola hasta que se presta o se devuelve con soltar().
+     * @return Una copia no prestada y sin reclamar, o null si no queda ninguna
+     */
+    public Libro reclamar() {
+        Libro libro;
+        while ((libro = libres.poll()) != null) {
+            if (marcadas.remove(libro)) {
+                return libro;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Devuelve a la cola una copia reclamada que finalmente no se prestó.
+     * @param libro La copia reclamada
+     */
+    public void soltar(Libro libro) {
+        if (registradas.contains(libro) && !libro.isPrestado()) {
+            ofrecer(libro);
+        }
+    }
+
+    /**
+     * Indica si una copia sigue registrada en esta entrada.
+     * @param libro La copia consultada
+     * @return true si la copia pertenece a la entrada
+     */
+    public boolean contiene(Libro libro) {
+        return registradas.contains(libro);
+    }
+
+    /**
+     * Obtiene la copia prestada hace más tiempo.
+     * @return Una copia prestada o null
+     */
+    public Libro copiaPrestada() {
+        return prestadas.isEmpty() ? null : prestadas.iterator().next();
+    }
+
+    /**
+     * Obtiene las copias registradas.
+     * @return Lista no modificable de copias
+     */
+    public List<Libro> getCopias() {
+        return Collections.unmodifiableList(copias);
+    }
+
+    private void ofrecer(Libro libro) {
+        if (marcadas.add(libro)) {
+            libres.add(libro);
+        }
+    }
+
+    /**
+     * Devuelve una representación en cadena de la entrada.
+     * @return String con el ISBN y los contadores
+     */
+    public String toString() {
+        return "Ejemplares [isbn=" + isbn + ", total=" + total.get() +
+               ", disponibles=" + disponibles.get() + "]";
+    }
+}
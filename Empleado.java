@@ -2,10 +2,16 @@
 /**
  * Clase que representa a un empleado de la biblioteca.
  * Extiende de la clase Persona y añade funcionalidades específicas para la gestión de préstamos.
+ * El historial de préstamos puede configurarse en dos niveles (ver HistorialPrestamos)
+ * para que los préstamos antiguos pasen a disco y no ocupen el heap.
  * 
  * @author Roberto Salazar Márquez
  * @version 1.1
  */
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
 import java.util.*;
 
 public class Empleado extends Persona {
@@ -20,7 +26,11 @@ public class Empleado extends Persona {
     /** Cola de Préstamos pendientes de ser atendidos */
     private Queue<Prestamo> prestamosEnProceso;
     /** Historial de prestamos asignados por el empleado*/
-    private List<Prestamo> historialPrestamos;
+    private HistorialPrestamos historialPrestamos;
+    /** Último préstamo creado por el empleado, o null */
+    private Prestamo ultimoPrestamo;
+    /** Reloj del que toman sus fechas los préstamos que procesa el empleado */
+    private volatile Clock reloj = Clock.systemDefaultZone();
     /** Contador para generar IDs únicos */
     private static int contadorId = 0;
     
@@ -43,7 +53,7 @@ public class Empleado extends Persona {
         this.salario = salario;
         this.puesto = puesto;
         this.prestamosEnProceso = new LinkedList<>();
-        this.historialPrestamos = new ArrayList<>();
+        this.historialPrestamos = new HistorialPrestamos();
     }
 
     /**
@@ -103,11 +113,48 @@ public class Empleado extends Persona {
     }
     
     /**
-     * Obtiene una copia defensiva del historial de préstamos
-     * @return Una nueva List con todo el historial de préstamos
+     * Obtiene una copia defensiva del historial de préstamos en memoria.
+     * Con un historial en dos niveles sólo incluye los préstamos recientes;
+     * los anteriores se obtienen con consultarHistorial.
+     * @return Una nueva List con los préstamos del historial en memoria
      */
     public List<Prestamo> getHistorialPrestamos() {
-        return new ArrayList<>(historialPrestamos);
+        return historialPrestamos.getRecientes();
+    }
+
+    /**
+     * Consulta el historial completo de préstamos en un intervalo de fechas,
+     * incluidos los que ya pasaron a disco.
+     * @param desde Primera fecha, inclusive
+     * @param hasta Última fecha, inclusive
+     * @return Registros de los préstamos del intervalo, en orden de fecha
+     */
+    public List<RegistroPrestamo> consultarHistorial(LocalDate desde, LocalDate hasta) {
+        return historialPrestamos.consultar(desde, hasta);
+    }
+
+    /**
+     * Configura el historial en dos niveles: los préstamos recientes en memoria
+     * y los antiguos en segmentos comprimidos bajo directorio/{id}. Los
+     * préstamos que ya estaban en el historial se conservan.
+     * @param directorio Directorio base de los historiales
+     * @param capacidad Número máximo de préstamos en memoria
+     * @throws IOException si no se puede crear el directorio
+     */
+    public void configurarHistorial(Path directorio, int capacidad) throws IOException {
+        HistorialPrestamos nuevo = new HistorialPrestamos(directorio.resolve(getId()), capacidad);
+        for (Prestamo prestamo : historialPrestamos.getRecientes()) {
+            nuevo.agregar(prestamo);
+        }
+        historialPrestamos = nuevo;
+    }
+
+    /**
+     * Obtiene el historial de préstamos del empleado.
+     * @return El historial
+     */
+    public HistorialPrestamos getHistorial() {
+        return historialPrestamos;
     }
 
     /**
@@ -136,9 +183,10 @@ public class Empleado extends Persona {
     public boolean procesarPrestamo(Libro libro, Usuario usuario) {
         if (libro != null && usuario != null && !libro.isPrestado()) {
             if (usuario.solicitarPrestamo(libro)) {
-                Prestamo nuevoPrestamo = new Prestamo(generarId(), usuario, libro);
+                Prestamo nuevoPrestamo = new Prestamo(generarId(), usuario, libro, reloj);
                 prestamosEnProceso.offer(nuevoPrestamo);
-                historialPrestamos.add(nuevoPrestamo);
+                historialPrestamos.agregar(nuevoPrestamo);
+                ultimoPrestamo = nuevoPrestamo;
                 return true;
             }
         }
@@ -146,14 +194,84 @@ public class Empleado extends Persona {
     }
     
     /**
-     * Procesa la devolución de un préstamo, liberando el préstamo gestionado
-     * por el empleado.
+     * Configura el reloj del que toman sus fechas los préstamos que procese el
+     * empleado a partir de ahora. La biblioteca le asigna el suyo.
+     * @param reloj El reloj; Clock.systemDefaultZone() por defecto
+     */
+    public void configurarReloj(Clock reloj) {
+        this.reloj = Objects.requireNonNull(reloj);
+    }
+
+    /**
+     * Obtiene el último préstamo creado con procesarPrestamo, para que quien
+     * lo solicitó tome sus fechas del propio préstamo.
+     * @return El préstamo, o null si el empleado no ha creado ninguno
+     */
+    Prestamo getUltimoPrestamo() {
+        return ultimoPrestamo;
+    }
+
+    /**
+     * Procesa la devolución de un préstamo, liberando y marcando como devuelto
+     * el primer préstamo gestionado por el empleado.
      * 
      * @return true si se procesó la devolución exitosamente, false en caso contrario
      */
     public boolean devolverPrestamo() {
         Prestamo prestamo = prestamosEnProceso.poll();
-        return prestamo != null;
+        if (prestamo == null) {
+            return false;
+        }
+        prestamo.cerrar();
+        return true;
+    }
+
+    /**
+     * Procesa la devolución del primer préstamo en proceso de un libro con el
+     * ISBN dado, marcándolo como devuelto. Si el empleado no gestiona ningún
+     * préstamo de ese ISBN no se modifica ninguno.
+     * 
+     * @param isbn El ISBN del libro devuelto
+     * @return true si se cerró un préstamo de ese ISBN, false si el empleado no gestiona ninguno
+     */
+    public boolean devolverPrestamo(String isbn) {
+        Iterator<Prestamo> it = prestamosEnProceso.iterator();
+        while (it.hasNext()) {
+            Prestamo prestamo = it.next();
+            if (prestamo.esDeIsbn(isbn)) {
+                it.remove();
+                prestamo.cerrar();
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Extiende el primer préstamo en proceso de un libro con el ISBN dado.
+     * 
+     * @param isbn El ISBN del libro prestado
+     * @param dias Días que se extiende el préstamo
+     * @return true si se extendió, false si no hay un préstamo activo y sin vencer de ese ISBN
+     */
+    public boolean extenderPrestamo(String isbn, int dias) {
+        Prestamo prestamo = buscarPrestamo(isbn);
+        return prestamo != null && prestamo.extenderPrestamo(dias);
+    }
+
+    /**
+     * Busca el primer préstamo en proceso de un libro con el ISBN dado.
+     * 
+     * @param isbn El ISBN del libro prestado
+     * @return El préstamo, o null si el empleado no gestiona ninguno de ese ISBN
+     */
+    Prestamo buscarPrestamo(String isbn) {
+        for (Prestamo prestamo : prestamosEnProceso) {
+            if (prestamo.esDeIsbn(isbn)) {
+                return prestamo;
+            }
+        }
+        return null;
     }
     
     /**
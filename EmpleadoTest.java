@@ -99,6 +99,29 @@ public class EmpleadoTest
         assertFalse(empleado.devolverPrestamo());
     }
 
+    /**
+     * Prueba la devolución por ISBN.
+     * Verifica que se cierre el préstamo de ese libro y no el primero de la cola.
+     */
+    @Test
+    public void testDevolverPrestamoPorIsbn() {
+        Libro otro = new Libro("Rayuela", "Julio Cortázar", "9788437604572", 736);
+        empleado.procesarPrestamo(libro, usuario);
+        empleado.procesarPrestamo(otro, new Usuario("Luis Ruiz", "U002"));
+
+        assertTrue(empleado.devolverPrestamo("9788437604572"));
+        List<Prestamo> historial = empleado.getHistorialPrestamos();
+        assertEquals(Prestamo.ACTIVO, historial.get(0).getEstado());
+        assertEquals(Prestamo.DEVUELTO, historial.get(1).getEstado());
+        assertNotNull(historial.get(1).getFechaDevolucionReal());
+        assertEquals(1, empleado.getPrestamosEnProceso().size());
+
+        // Sin préstamos de ese ISBN no se cierra ninguno
+        assertFalse(empleado.devolverPrestamo("9780000000000"));
+        assertEquals(Prestamo.ACTIVO, historial.get(0).getEstado());
+        assertEquals(1, empleado.getPrestamosEnProceso().size());
+    }
+
     /**
      * Prueba el procesamiento exitoso de un préstamo.
      * Verifica el comportamiento cuando el libro está prestado.
@@ -0,0 +1,468 @@
+/**
+ * Entrega de los archivos de los libros digitales desde un almacén local.
+ *
+ * Cada LibroDigital se asocia con un archivo del almacén: el registrado
+ * explícitamente o, por defecto, "{isbn}.{formato}" dentro del directorio base.
+ * Los bytes se envían con FileChannel.transferTo, que sobre un SocketChannel o
+ * un FileChannel usa la copia directa del sistema operativo (sendfile) y no pasa
+ * el contenido por el heap de Java.
+ *
+ * Se admiten peticiones de rango de un solo intervalo ("bytes=a-b", "bytes=a-" y
+ * "bytes=-n"), lo que permite reanudar descargas. Cada transferencia reserva
+ * antes de empezar una descarga con LibroDigital.descargar(), de modo que
+ * nunca hay más transferencias en curso que descargas permitidas. La reserva
+ * se conserva sólo si con ella el cliente termina de recibir todos los bytes
+ * del archivo, en una respuesta o en varios rangos reanudados; en otro caso,
+ * incluido un error, se libera. Así una descarga reanudada se cuenta una sola
+ * vez y una consulta de la cola del archivo ("bytes=-100") no se cuenta.
+ *
+ * Si se indica un AlmacenContenido, los libros con contenido almacenado se
+ * sirven desde sus trozos deduplicados y su etiqueta es el hash del contenido.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class EntregaContenido {
+    /** Cliente de las transferencias que no indican uno */
+    public static final String CLIENTE_LOCAL = "";
+    /** Descargas parciales que se recuerdan como máximo */
+    private static final int MAXIMO_PROGRESOS = 10000;
+
+    /** Directorio base del almacén */
+    private final Path directorio;
+    /** Almacén deduplicado, o null si sólo se usa el directorio */
+    private final AlmacenContenido almacen;
+    /** Archivos registrados explícitamente por ISBN */
+    private final Map<String, Path> archivosPorIsbn;
+    /** Bytes enviados en total */
+    private final LongAdder bytesEnviados;
+    /** Descargas que se completaron y se contaron */
+    private final LongAdder descargasCompletas;
+    /** Bytes recibidos por cada cliente de cada archivo aún incompleto */
+    private final ConcurrentMap<String, Progreso> progresos;
+
+    /**
+     * Crea un componente de entrega sobre un directorio local.
+     * @param directorio Directorio base del almacén
+     */
+    public EntregaContenido(Path directorio) {
+        this(directorio, null);
+    }
+
+    /**
+     * Crea un componente de entrega que sirve desde un almacén deduplicado los
+     * libros con contenido almacenado, y desde el directorio los demás.
+     *
+     * @param directorio Directorio base del almacén
+     * @param almacen Almacén de contenido
+     */
+    public EntregaContenido(Path directorio, AlmacenContenido almacen) {
+        this.directorio = directorio;
+        this.almacen = almacen;
+        this.archivosPorIsbn = new ConcurrentHashMap<>();
+        this.bytesEnviados = new LongAdder();
+        this.descargasCompletas = new LongAdder();
+        this.progresos = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Asocia un ISBN con un archivo concreto, en lugar del nombre por defecto.
+     *
+     * @param isbn ISBN del libro digital
+     * @param archivo Archivo con el contenido
+     */
+    public void registrar(String isbn, Path archivo) {
+        archivosPorIsbn.put(isbn, archivo);
+    }
+
+    /**
+     * Obtiene el archivo que corresponde a un libro digital.
+     *
+     * @param libro El libro digital
+     * @return Ruta del archivo, exista o no
+     */
+    public Path ubicar(LibroDigital libro) {
+        Path archivo = archivosPorIsbn.get(libro.getIsbn());
+        if (archivo != null) {
+            return archivo;
+        }
+        return directorio.resolve(libro.getIsbn() + "." + libro.getFormato().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Obtiene el tamaño del archivo de un libro digital.
+     *
+     * @param libro El libro digital
+     * @return Tamaño en bytes
+     * @throws IOException si el archivo no existe o no puede leerse
+     */
+    public long tamano(LibroDigital libro) throws IOException {
+        String hash = hashAlmacenado(libro);
+        if (hash != null) {
+            return almacen.tamano(hash);
+        }
+        return Files.size(ubicar(libro));
+    }
+
+    /**
+     * Obtiene una etiqueta que cambia cuando cambia el archivo, para validar
+     * que una descarga reanudada continúa sobre el mismo contenido.
+     *
+     * @param libro El libro digital
+     * @return Etiqueta entre comillas, formada por el tamaño y la fecha de modificación
+     * @throws IOException si el archivo no existe o no puede leerse
+     */
+    public String etiqueta(LibroDigital libro) throws IOException {
+        String hash = hashAlmacenado(libro);
+        if (hash != null) {
+            return "\"" + hash + "\"";
+        }
+        Path archivo = ubicar(libro);
+        return "\"" + Long.toHexString(Files.size(archivo)) + "-"
+            + Long.toHexString(Files.getLastModifiedTime(archivo).toMillis()) + "\"";
+    }
+
+    /**
+     * Obtiene el tipo MIME de un libro digital según su formato.
+     *
+     * @param libro El libro digital
+     * @return Tipo MIME
+     */
+    public static String tipoContenido(LibroDigital libro) {
+        switch (libro.getFormato().toUpperCase(Locale.ROOT)) {
+            case "PDF":
+                return "application/pdf";
+            case "EPUB":
+                return "application/epub+zip";
+            case "MOBI":
+                return "application/x-mobipocket-ebook";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    /**
+     * Interpreta la cabecera Range de una petición.
+     * Las cabeceras ausentes, mal formadas o con varios intervalos se tratan
+     * como una petición del archivo completo, como permite HTTP.
+     *
+     * @param cabecera Valor de la cabecera Range, o null
+     * @param tamano Tamaño del archivo
+     * @return El rango a enviar, o null si el rango no puede satisfacerse
+     */
+    public static Rango interpretarRango(String cabecera, long tamano) {
+        Rango completo = new Rango(0, tamano - 1, false);
+        if (cabecera == null || !cabecera.startsWith("bytes=") || cabecera.indexOf(',') >= 0) {
+            return completo;
+        }
+        String especificacion = cabecera.substring(6).trim();
+        int guion = especificacion.indexOf('-');
+        if (guion < 0) {
+            return completo;
+        }
+        try {
+            String desde = especificacion.substring(0, guion).trim();
+            String hasta = especificacion.substring(guion + 1).trim();
+            long inicio;
+            long fin;
+            if (desde.isEmpty()) {
+                long sufijo = Long.parseLong(hasta);
+                if (sufijo <= 0) {
+                    return null;
+                }
+                inicio = Math.max(0, tamano - sufijo);
+                fin = tamano - 1;
+            } else {
+                inicio = Long.parseLong(desde);
+                long ultimo = hasta.isEmpty() ? Long.MAX_VALUE : Long.parseLong(hasta);
+                if (ultimo < inicio) {
+                    return completo;
+                }
+                fin = Math.min(ultimo, tamano - 1);
+            }
+            return inicio < tamano ? new Rango(inicio, fin, true) : null;
+        } catch (NumberFormatException e) {
+            return completo;
+        }
+    }
+
+    /**
+     * Envía un rango del archivo de un libro digital a un canal de destino,
+     * reservando antes una descarga.
+     *
+     * @param libro El libro digital
+     * @param rango Rango a enviar
+     * @param destino Canal de destino; con un SocketChannel o un FileChannel no
+     *                se copian los bytes en el heap
+     * @return Número de bytes enviados
+     * @throws IllegalStateException si se alcanzó el límite de descargas del libro
+     * @throws IOException si falla la lectura del archivo o la escritura en el destino
+     */
+    public long transferir(LibroDigital libro, Rango rango, WritableByteChannel destino) throws IOException {
+        if (!libro.descargar()) {
+            throw new IllegalStateException("Se alcanzó el límite de descargas de " + libro.getIsbn());
+        }
+        return transferirReservada(libro, rango, destino, CLIENTE_LOCAL);
+    }
+
+    /**
+     * Envía un rango del archivo de un libro digital a un canal de destino.
+     * El llamador debe haber reservado una descarga con LibroDigital.descargar();
+     * la reserva se conserva si con este rango el cliente termina de recibir el
+     * archivo completo y se libera en cualquier otro caso.
+     *
+     * @param libro El libro digital
+     * @param rango Rango a enviar
+     * @param destino Canal de destino; con un SocketChannel o un FileChannel no
+     *                se copian los bytes en el heap
+     * @param cliente Identificador del cliente, para reunir sus rangos reanudados
+     * @return Número de bytes enviados
+     * @throws IOException si falla la lectura del archivo o la escritura en el destino
+     */
+    public long transferirReservada(LibroDigital libro, Rango rango, WritableByteChannel destino,
+                                    String cliente) throws IOException {
+        long[] enviados = {0};
+        boolean completa = false;
+        try {
+            String hash = hashAlmacenado(libro);
+            long tamano;
+            if (hash != null) {
+                tamano = almacen.tamano(hash);
+                almacen.transferir(hash, rango.getInicio(), rango.getLongitud(), destino, n -> enviados[0] += n);
+            } else {
+                try (FileChannel archivo = FileChannel.open(ubicar(libro), StandardOpenOption.READ)) {
+                    tamano = archivo.size();
+                    enviar(archivo, rango, destino, enviados);
+                }
+            }
+            completa = registrar(libro, cliente, tamano, rango.getInicio(), enviados[0]);
+        } catch (IOException | RuntimeException e) {
+            // Los bytes que alcanzaron a salir cuentan para una reanudación
+            try {
+                registrar(libro, cliente, -1, rango.getInicio(), enviados[0]);
+            } catch (IOException | RuntimeException ignorada) {
+                e.addSuppressed(ignorada);
+            }
+            throw e;
+        } finally {
+            bytesEnviados.add(enviados[0]);
+            if (completa) {
+                descargasCompletas.increment();
+            } else {
+                libro.liberarDescarga();
+            }
+        }
+        return enviados[0];
+    }
+
+    /**
+     * Copia un rango de un archivo al destino con transferTo, acumulando en
+     * enviados[0] los bytes escritos.
+     */
+    private static void enviar(FileChannel archivo, Rango rango, WritableByteChannel destino,
+                               long[] enviados) throws IOException {
+        long posicion = rango.getInicio();
+        long restantes = rango.getLongitud();
+        while (restantes > 0) {
+            long n = archivo.transferTo(posicion, restantes, destino);
+            if (n <= 0) {
+                if (posicion >= archivo.size()) {
+                    throw new EOFException("El archivo se acortó durante la transferencia");
+                }
+                continue;
+            }
+            posicion += n;
+            restantes -= n;
+            enviados[0] += n;
+        }
+    }
+
+    /**
+     * Anota los bytes que recibió un cliente e indica si con ellos completó el
+     * archivo. Un rango que cubre el archivo entero no necesita anotarse.
+     *
+     * @param tamano Tamaño del archivo, o -1 si la transferencia falló
+     * @return true si el cliente ya recibió todos los bytes del archivo
+     */
+    private boolean registrar(LibroDigital libro, String cliente, long tamano, long inicio, long enviados)
+            throws IOException {
+        if (tamano >= 0 && inicio == 0 && enviados == tamano) {
+            progresos.remove(clave(libro, cliente));
+            return true;
+        }
+        if (enviados == 0) {
+            return false;
+        }
+        String clave = clave(libro, cliente);
+        if (progresos.size() >= MAXIMO_PROGRESOS && !progresos.containsKey(clave)) {
+            // Se olvidan las descargas parciales más antiguas
+            progresos.values().removeIf(progreso -> progreso.anterior(MAXIMO_PROGRESOS / 2));
+        }
+        Progreso progreso = progresos.computeIfAbsent(clave, k -> new Progreso());
+        if (progreso.agregar(inicio, inicio + enviados - 1, tamano)) {
+            progresos.remove(clave, progreso);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Clave del progreso de un cliente sobre una versión del archivo.
+     */
+    private String clave(LibroDigital libro, String cliente) throws IOException {
+        return cliente + "\u0000" + libro.getIsbn() + "\u0000" + etiqueta(libro);
+    }
+
+    /**
+     * Obtiene el hash del libro si debe servirse desde el almacén.
+     */
+    private String hashAlmacenado(LibroDigital libro) {
+        String hash = libro.getHashContenido();
+        return almacen != null && hash != null && almacen.contiene(hash) ? hash : null;
+    }
+
+    /**
+     * Obtiene el número total de bytes enviados.
+     * @return Bytes enviados
+     */
+    public long getBytesEnviados() {
+        return bytesEnviados.sum();
+    }
+
+    /**
+     * Obtiene el número de descargas que un cliente terminó de recibir.
+     * @return Descargas completas
+     */
+    public long getDescargasCompletas() {
+        return descargasCompletas.sum();
+    }
+
+    /**
+     * Obtiene el número de descargas parciales que se están recordando.
+     * @return Descargas que algún cliente empezó y no ha completado
+     */
+    public int getDescargasParciales() {
+        return progresos.size();
+    }
+
+    /**
+     * Intervalos de bytes de un archivo que ya recibió un cliente, unidos
+     * cuando se tocan.
+     */
+    private static class Progreso {
+        /** Contador global para saber qué progresos son más antiguos */
+        private static final AtomicLong RELOJ = new AtomicLong();
+        /** Inicio de cada intervalo recibido, con su fin inclusive */
+        private final TreeMap<Long, Long> intervalos = new TreeMap<>();
+        /** Momento de la última actualización según RELOJ */
+        private volatile long actualizado = RELOJ.incrementAndGet();
+        /** true una vez que se completó, para contarlo una sola vez */
+        private boolean completo;
+
+        /**
+         * Agrega un intervalo recibido.
+         *
+         * @param tamano Tamaño del archivo, o -1 si no se conoce
+         * @return true si con este intervalo el archivo quedó completo
+         */
+        synchronized boolean agregar(long inicio, long fin, long tamano) {
+            actualizado = RELOJ.incrementAndGet();
+            Map.Entry<Long, Long> previo = intervalos.floorEntry(inicio);
+            if (previo != null && previo.getValue() >= inicio - 1) {
+                inicio = previo.getKey();
+                fin = Math.max(fin, previo.getValue());
+            }
+            Map.Entry<Long, Long> siguiente;
+            while ((siguiente = intervalos.ceilingEntry(inicio)) != null && siguiente.getKey() <= fin + 1) {
+                fin = Math.max(fin, siguiente.getValue());
+                intervalos.remove(siguiente.getKey());
+            }
+            intervalos.put(inicio, fin);
+            if (!completo && tamano > 0 && intervalos.size() == 1 && inicio == 0 && fin >= tamano - 1) {
+                completo = true;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Indica si este progreso quedó entre los más antiguos.
+         */
+        boolean anterior(int recientes) {
+            return actualizado < RELOJ.get() - recientes;
+        }
+    }
+
+    /**
+     * Intervalo cerrado de bytes [inicio, fin] de un archivo.
+     */
+    public static class Rango {
+        private final long inicio;
+        private final long fin;
+        private final boolean parcial;
+
+        /**
+         * Crea un rango.
+         *
+         * @param inicio Primer byte
+         * @param fin Último byte, inclusive
+         * @param parcial true si responde a una petición de rango (206)
+         */
+        public Rango(long inicio, long fin, boolean parcial) {
+            this.inicio = inicio;
+            this.fin = fin;
+            this.parcial = parcial;
+        }
+
+        /**
+         * Obtiene el primer byte del rango.
+         * @return Posición inicial
+         */
+        public long getInicio() {
+            return inicio;
+        }
+
+        /**
+         * Obtiene el último byte del rango.
+         * @return Posición final, inclusive
+         */
+        public long getFin() {
+            return fin;
+        }
+
+        /**
+         * Obtiene el número de bytes del rango.
+         * @return Longitud del rango
+         */
+        public long getLongitud() {
+            return fin - inicio + 1;
+        }
+
+        /**
+         * Indica si el rango responde a una petición parcial.
+         * @return true si debe contestarse con 206 Partial Content
+         */
+        public boolean isParcial() {
+            return parcial;
+        }
+
+        /**
+         * Devuelve el rango en el formato de la cabecera Content-Range.
+         * @param tamano Tamaño total del archivo
+         * @return Por ejemplo "bytes 0-499/1234"
+         */
+        public String contentRange(long tamano) {
+            return "bytes " + inicio + "-" + fin + "/" + tamano;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la clase EntregaContenido.
+ * Verifica la interpretación de rangos, la transferencia de archivos y el
+ * conteo de descargas completas.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class EntregaContenidoTest
+{
+    /** Directorio temporal del almacén */
+    private Path directorio;
+    /** Componente de entrega de prueba */
+    private EntregaContenido entrega;
+    /** Libro digital con un archivo de 1000 bytes */
+    private LibroDigital libro;
+    /** Contenido del archivo del libro */
+    private byte[] contenido;
+
+    /**
+     * Crea un almacén temporal con el archivo de un libro digital.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        directorio = Files.createTempDirectory("almacen");
+        entrega = new EntregaContenido(directorio);
+        libro = new LibroDigital("Java Programming", "John Doe", "9780000000001", 425, "PDF", 0.001, "");
+        contenido = new byte[1000];
+        new Random(7).nextBytes(contenido);
+        Files.write(directorio.resolve("9780000000001.pdf"), contenido);
+    }
+
+    /**
+     * Prueba la interpretación de la cabecera Range.
+     */
+    @Test
+    public void testInterpretarRango() {
+        EntregaContenido.Rango completo = EntregaContenido.interpretarRango(null, 1000);
+        assertFalse(completo.isParcial());
+        assertEquals(1000, completo.getLongitud());
+
+        EntregaContenido.Rango rango = EntregaContenido.interpretarRango("bytes=100-199", 1000);
+        assertTrue(rango.isParcial());
+        assertEquals(100, rango.getLongitud());
+        assertEquals("bytes 100-199/1000", rango.contentRange(1000));
+
+        assertEquals(900, EntregaContenido.interpretarRango("bytes=900-5000", 1000).getInicio());
+        assertEquals(999, EntregaContenido.interpretarRango("bytes=900-5000", 1000).getFin());
+        assertEquals(950, EntregaContenido.interpretarRango("bytes=-50", 1000).getInicio());
+        assertEquals(500, EntregaContenido.interpretarRango("bytes=500-", 1000).getLongitud());
+        assertNull(EntregaContenido.interpretarRango("bytes=1000-", 1000));
+        assertFalse(EntregaContenido.interpretarRango("bytes=0-1,5-9", 1000).isParcial());
+        assertFalse(EntregaContenido.interpretarRango("bytes=x-y", 1000).isParcial());
+    }
+
+    /**
+     * Prueba una descarga reanudada: sólo la parte que llega al final del
+     * archivo cuenta como descarga.
+     */
+    @Test
+    public void testDescargaReanudada() throws IOException {
+        Path destino = directorio.resolve("copia");
+        try (FileChannel salida = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertEquals(400, entrega.transferir(libro,
+                EntregaContenido.interpretarRango("bytes=0-399", 1000), salida));
+            assertEquals(0, libro.getDescargasActuales());
+            assertEquals(600, entrega.transferir(libro,
+                EntregaContenido.interpretarRango("bytes=400-", 1000), salida));
+        }
+        assertArrayEquals(contenido, Files.readAllBytes(destino));
+        assertEquals(1, libro.getDescargasActuales());
+        assertEquals(1, entrega.getDescargasCompletas());
+        assertEquals(1000, entrega.getBytesEnviados());
+    }
+
+    /**
+     * Prueba que los rangos que no completan el archivo no gasten descargas,
+     * que cada cliente reúna sólo sus propios rangos y que al agotarse el
+     * límite no se transfiera nada.
+     */
+    @Test
+    public void testRangosSueltosYLimite() throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        for (int i = 0; i < 5; i++) {
+            entrega.transferir(libro, EntregaContenido.interpretarRango("bytes=-100", 1000), Channels.newChannel(salida));
+        }
+        assertEquals(0, libro.getDescargasActuales());
+        assertEquals(0, entrega.getDescargasCompletas());
+
+        // La primera mitad la recibe un cliente y la segunda otro
+        assertTrue(libro.descargar());
+        entrega.transferirReservada(libro, EntregaContenido.interpretarRango("bytes=0-499", 1000),
+                                    Channels.newChannel(salida), "10.0.0.1");
+        assertTrue(libro.descargar());
+        entrega.transferirReservada(libro, EntregaContenido.interpretarRango("bytes=500-", 1000),
+                                    Channels.newChannel(salida), "10.0.0.2");
+        assertEquals(0, libro.getDescargasActuales());
+        // Los dos clientes y la cola que pidió el cliente local
+        assertEquals(3, entrega.getDescargasParciales());
+
+        for (int i = 0; i < 3; i++) {
+            entrega.transferir(libro, EntregaContenido.interpretarRango(null, 1000), Channels.newChannel(salida));
+        }
+        assertEquals(3, libro.getDescargasActuales());
+        long enviados = entrega.getBytesEnviados();
+        assertThrows(IllegalStateException.class, () -> entrega.transferir(libro,
+            EntregaContenido.interpretarRango(null, 1000), Channels.newChannel(new ByteArrayOutputStream())));
+        assertEquals(enviados, entrega.getBytesEnviados());
+        assertEquals(3, libro.getDescargasActuales());
+        assertEquals(3, entrega.getDescargasCompletas());
+    }
+
+    /**
+     * Prueba la transferencia a un canal arbitrario y un archivo registrado explícitamente.
+     */
+    @Test
+    public void testArchivoRegistrado() throws IOException {
+        Path otro = directorio.resolve("otro.bin");
+        Files.write(otro, new byte[] {1, 2, 3});
+        entrega.registrar("9780000000001", otro);
+        assertEquals(3, entrega.tamano(libro));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        entrega.transferir(libro, EntregaContenido.interpretarRango(null, 3), Channels.newChannel(salida));
+        assertArrayEquals(new byte[] {1, 2, 3}, salida.toByteArray());
+        assertEquals("application/pdf", EntregaContenido.tipoContenido(libro));
+    }
+
+    /**
+     * Elimina el almacén temporal después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio)) {
+            for (Path archivo : archivos) {
+                Files.delete(archivo);
+            }
+        }
+        Files.delete(directorio);
+        entrega = null;
+        libro = null;
+    }
+}
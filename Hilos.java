@@ -0,0 +1,120 @@
+/**
+ * Utilidades para crear hilos y ejecutores del sistema de biblioteca.
+ * Cuando la máquina virtual ofrece hilos virtuales (Java 21 o superior) se usan
+ * éstos; en versiones anteriores se recurre a hilos de plataforma tipo demonio,
+ * de modo que el proyecto sigue compilando y funcionando con JDK anteriores.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class Hilos {
+    /** Fábrica de hilos virtuales, o null si la plataforma no los soporta */
+    private static final ThreadFactory FABRICA_VIRTUAL = crearFabricaVirtual();
+
+    /**
+     * Constructor privado: la clase sólo ofrece métodos estáticos.
+     */
+    private Hilos() {
+    }
+
+    /**
+     * Indica si la máquina virtual actual soporta hilos virtuales.
+     * @return true si hay hilos virtuales disponibles
+     */
+    public static boolean hayHilosVirtuales() {
+        return FABRICA_VIRTUAL != null;
+    }
+
+    /**
+     * Crea un ejecutor que lanza un hilo nuevo por cada tarea.
+     * Usa hilos virtuales cuando están disponibles y, si no, un grupo
+     * de hilos de plataforma en caché.
+     *
+     * @param nombre Prefijo para el nombre de los hilos creados
+     * @return ExecutorService con un hilo por tarea
+     */
+    public static ExecutorService nuevoEjecutorPorTarea(String nombre) {
+        if (FABRICA_VIRTUAL != null) {
+            return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0L, TimeUnit.SECONDS,
+                                          new SynchronousQueue<>(), FABRICA_VIRTUAL);
+        }
+        return Executors.newCachedThreadPool(fabricaPlataforma(nombre));
+    }
+
+    /**
+     * Crea un ejecutor con un número fijo de hilos de plataforma tipo demonio
+     * y una cola acotada. Cuando la cola está llena rechaza las tareas nuevas
+     * con RejectedExecutionException en lugar de acumularlas.
+     *
+     * @param nombre Prefijo para el nombre de los hilos creados
+     * @param hilos Número de hilos
+     * @param capacidad Número máximo de tareas en espera
+     * @return ThreadPoolExecutor acotado
+     */
+    public static ThreadPoolExecutor nuevoEjecutorAcotado(String nombre, int hilos, int capacidad) {
+        return new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(capacidad),
+                                      fabricaPlataforma(nombre), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Crea un temporizador de un solo hilo demonio que descarta al momento las
+     * tareas canceladas, para que los plazos que no llegan a vencer no se
+     * acumulen en su cola.
+     *
+     * @param nombre Nombre del hilo
+     * @return ScheduledThreadPoolExecutor de un hilo
+     */
+    public static ScheduledThreadPoolExecutor nuevoTemporizador(String nombre) {
+        ScheduledThreadPoolExecutor temporizador = new ScheduledThreadPoolExecutor(1, fabricaPlataforma(nombre));
+        temporizador.setRemoveOnCancelPolicy(true);
+        return temporizador;
+    }
+
+    /**
+     * Inicia un hilo (virtual si es posible) que ejecuta la tarea indicada.
+     *
+     * @param nombre Nombre del hilo
+     * @param tarea Tarea a ejecutar
+     * @return El hilo ya iniciado
+     */
+    public static Thread iniciar(String nombre, Runnable tarea) {
+        Thread hilo = FABRICA_VIRTUAL != null
+            ? FABRICA_VIRTUAL.newThread(tarea)
+            : fabricaPlataforma(nombre).newThread(tarea);
+        hilo.setName(nombre);
+        hilo.start();
+        return hilo;
+    }
+
+    /**
+     * Crea una fábrica de hilos de plataforma tipo demonio.
+     * @param nombre Prefijo para el nombre de los hilos
+     * @return ThreadFactory de hilos demonio numerados
+     */
+    private static ThreadFactory fabricaPlataforma(String nombre) {
+        AtomicInteger contador = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, nombre + "-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    /**
+     * Obtiene por reflexión la fábrica de hilos virtuales de Java 21.
+     * @return ThreadFactory de hilos virtuales o null si no existe
+     */
+    private static ThreadFactory crearFabricaVirtual() {
+        try {
+            Object constructor = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(constructor);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/**
+ * Historial de préstamos en dos niveles: los recientes en memoria y los
+ * antiguos en disco.
+ *
+ * Los préstamos recientes se guardan como objetos Prestamo en un anillo acotado
+ * (ArrayDeque). Cuando el anillo se llena, hasta la mitad de su capacidad de
+ * préstamos ya devueltos, de los más antiguos, se convierte en RegistroPrestamo
+ * y se añade a segmentos comprimidos con GZIP, uno por mes de la fecha de
+ * préstamo ("prestamos-AAAA-MM.gz"). Cada volcado se añade al segmento como un
+ * miembro GZIP nuevo, que GZIPInputStream lee de corrido, así que nunca se
+ * reescribe un segmento.
+ *
+ * Cada miembro se comprime primero en memoria y se añade con una sola
+ * escritura de RandomAccessFile, que no se aborta si se interrumpe el hilo. Si
+ * la escritura falla, el segmento se recorta a su longitud anterior. Un índice
+ * ("prestamos.idx", reemplazado de forma atómica con un archivo temporal)
+ * guarda el número de registros y la longitud válida de cada segmento, de
+ * modo que al abrir el historial no hay que descomprimir los segmentos para
+ * contarlos y se descarta cualquier resto de una escritura interrumpida.
+ *
+ * Sólo se vuelcan préstamos cerrados, de modo que lo escrito en disco es
+ * definitivo: un préstamo que se extiende, vence o se devuelve después sigue
+ * en memoria con su estado real. Los préstamos abiertos ya están retenidos
+ * por el empleado que los gestiona, así que el heap que añade el historial
+ * queda acotado por la capacidad del anillo más los préstamos en curso.
+ *
+ * Las consultas por intervalo de fechas leen sólo los segmentos de los meses
+ * del intervalo y los combinan con el anillo. Sin directorio, el historial se
+ * queda completo en memoria, como antes.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class HistorialPrestamos {
+    /** Capacidad por defecto del anillo en memoria */
+    public static final int CAPACIDAD_POR_DEFECTO = 1024;
+    /** Prefijo del nombre de los segmentos */
+    private static final String PREFIJO = "prestamos-";
+    /** Extensión de los segmentos */
+    private static final String EXTENSION = ".gz";
+    /** Nombre del índice de los segmentos */
+    private static final String INDICE = "prestamos.idx";
+
+    /** Directorio de los segmentos, o null si todo el historial está en memoria */
+    private final Path directorio;
+    /** Número máximo de préstamos en memoria */
+    private final int capacidad;
+    /** Préstamos recientes, del más antiguo al más reciente */
+    private final ArrayDeque<Prestamo> recientes;
+    /** Registros en disco por mes */
+    private final TreeMap<YearMonth, Long> registrosPorMes;
+    /** Longitud válida de cada segmento, en bytes */
+    private final Map<YearMonth, Long> bytesPorMes;
+    /** Total de registros en disco */
+    private long enDisco;
+    /** Tamaño del anillo a partir del cual se vuelca */
+    private int umbral;
+
+    /**
+     * Crea un historial completamente en memoria.
+     */
+    public HistorialPrestamos() {
+        this.directorio = null;
+        this.capacidad = Integer.MAX_VALUE;
+        this.umbral = Integer.MAX_VALUE;
+        this.recientes = new ArrayDeque<>();
+        this.registrosPorMes = new TreeMap<>();
+        this.bytesPorMes = new HashMap<>();
+    }
+
+    /**
+     * Crea un historial con un anillo en memoria y segmentos en disco.
+     * Los segmentos que ya existan en el directorio forman parte del historial;
+     * sólo se leen para contarlos los que no aparecen en el índice.
+     *
+     * @param directorio Directorio de los segmentos
+     * @param capacidad Número máximo de préstamos en memoria
+     * @throws IOException si no se puede crear o leer el directorio
+     * @throws IllegalArgumentException si la capacidad es menor que 2
+     */
+    public HistorialPrestamos(Path directorio, int capacidad) throws IOException {
+        if (capacidad < 2) {
+            throw new IllegalArgumentException("La capacidad debe ser al menos 2");
+        }
+        this.directorio = Files.createDirectories(directorio);
+        this.capacidad = capacidad;
+        this.umbral = capacidad;
+        this.recientes = new ArrayDeque<>(capacidad);
+        this.registrosPorMes = new TreeMap<>();
+        this.bytesPorMes = new HashMap<>();
+        Map<YearMonth, long[]> indice = leerIndice();
+        boolean recontado = false;
+        try (DirectoryStream<Path> segmentos = Files.newDirectoryStream(directorio, PREFIJO + "*" + EXTENSION)) {
+            for (Path segmento : segmentos) {
+                YearMonth mes = mesDe(segmento);
+                long[] entrada = indice.get(mes);
+                long longitud = Files.size(segmento);
+                long registros;
+                if (entrada != null && longitud >= entrada[1]) {
+                    if (longitud > entrada[1]) {
+                        // Resto de una escritura que no llegó al índice
+                        recortar(segmento, entrada[1]);
+                    }
+                    registros = entrada[0];
+                    longitud = entrada[1];
+                } else if (longitud == 0) {
+                    Files.delete(segmento);
+                    recontado = true;
+                    continue;
+                } else {
+                    // Segmento sin índice, por ejemplo de una versión anterior
+                    registros = leer(segmento, null, null, null);
+                    recontado = true;
+                }
+                registrosPorMes.put(mes, registros);
+                bytesPorMes.put(mes, longitud);
+                enDisco += registros;
+            }
+        }
+        if (recontado || indice.size() != registrosPorMes.size()) {
+            guardarIndice();
+        }
+    }
+
+    /**
+     * Agrega un préstamo al historial. Si el anillo está lleno, primero se
+     * vuelcan a disco sus préstamos devueltos más antiguos.
+     *
+     * @param prestamo El préstamo
+     * @throws UncheckedIOException si no se puede escribir el segmento
+     */
+    public synchronized void agregar(Prestamo prestamo) {
+        if (recientes.size() >= umbral) {
+            try {
+                volcar(capacidad / 2);
+            } finally {
+                // Si quedan muchos préstamos abiertos no se vuelve a recorrer
+                // el anillo hasta que crezca otra media capacidad
+                umbral = Math.max(capacidad, recientes.size() + capacidad / 2);
+            }
+        }
+        recientes.addLast(prestamo);
+    }
+
+    /**
+     * Obtiene los préstamos que siguen en memoria.
+     * @return Copia de los préstamos recientes, del más antiguo al más reciente
+     */
+    public synchronized List<Prestamo> getRecientes() {
+        return new ArrayList<>(recientes);
+    }
+
+    /**
+     * Consulta los préstamos cuya fecha de préstamo está en un intervalo,
+     * combinando los segmentos en disco con los préstamos en memoria.
+     *
+     * @param desde Primera fecha, inclusive
+     * @param hasta Última fecha, inclusive
+     * @return Registros en orden de fecha de préstamo; dentro de una fecha,
+     *         primero los de disco en orden de volcado y después los de memoria
+     * @throws UncheckedIOException si no se puede leer un segmento
+     */
+    public synchronized List<RegistroPrestamo> consultar(LocalDate desde, LocalDate hasta) {
+        List<RegistroPrestamo> resultado = new ArrayList<>();
+        for (YearMonth mes : registrosPorMes.subMap(YearMonth.from(desde), true, YearMonth.from(hasta), true).keySet()) {
+            try {
+                leer(segmento(mes), desde, hasta, resultado);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        long primerDia = desde.toEpochDay();
+        long ultimoDia = hasta.toEpochDay();
+        for (Prestamo prestamo : recientes) {
+            int dia = prestamo.getDiaPrestamo();
+            if (dia >= primerDia && dia <= ultimoDia) {
+                resultado.add(RegistroPrestamo.de(prestamo));
+            }
+        }
+        resultado.sort(Comparator.comparingInt(RegistroPrestamo::getDiaPrestamo));
+        return resultado;
+    }
+
+    /**
+     * Vuelca a disco todos los préstamos devueltos que siguen en memoria.
+     * @throws UncheckedIOException si no se puede escribir un segmento
+     */
+    public synchronized void volcarTodo() {
+        volcar(recientes.size());
+    }
+
+    /**
+     * Obtiene el número total de préstamos del historial.
+     * @return Préstamos en memoria más registros en disco
+     */
+    public synchronized long getTotal() {
+        return recientes.size() + enDisco;
+    }
+
+    /**
+     * Obtiene el número de préstamos en memoria.
+     * @return Préstamos en el anillo
+     */
+    public synchronized int getEnMemoria() {
+        return recientes.size();
+    }
+
+    /**
+     * Obtiene el número de registros en disco.
+     * @return Registros en los segmentos
+     */
+    public synchronized long getEnDisco() {
+        return enDisco;
+    }
+
+    /**
+     * Obtiene el número de segmentos en disco.
+     * @return Un segmento por mes con registros
+     */
+    public synchronized int getSegmentos() {
+        return registrosPorMes.size();
+    }
+
+    /**
+     * Vuelca hasta cuantos de los préstamos devueltos más antiguos, agrupados
+     * por mes. Los préstamos abiertos se quedan en el anillo.
+     */
+    private void volcar(int cuantos) {
+        if (directorio == null || cuantos <= 0) {
+            return;
+        }
+        Map<YearMonth, List<Prestamo>> porMes = new TreeMap<>();
+        Iterator<Prestamo> it = recientes.iterator();
+        for (int elegidos = 0; elegidos < cuantos && it.hasNext(); ) {
+            Prestamo prestamo = it.next();
+            if (prestamo.getEstado() == Prestamo.DEVUELTO) {
+                porMes.computeIfAbsent(YearMonth.from(prestamo.getFechaPrestamo()), m -> new ArrayList<>()).add(prestamo);
+                elegidos++;
+            }
+        }
+        Set<Prestamo> escritos = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            for (Map.Entry<YearMonth, List<Prestamo>> mes : porMes.entrySet()) {
+                escribir(mes.getKey(), mes.getValue());
+                escritos.addAll(mes.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            // Los meses ya escritos salen del anillo para no duplicarse en disco
+            recientes.removeIf(escritos::contains);
+        }
+    }
+
+    /**
+     * Añade un miembro GZIP con los préstamos de un mes a su segmento y
+     * actualiza el índice. Si algo falla, el segmento y el índice quedan como
+     * estaban.
+     */
+    private void escribir(YearMonth mes, List<Prestamo> prestamos) throws IOException {
+        ByteArrayOutputStream miembro = new ByteArrayOutputStream();
+        try (Writer salida = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(miembro),
+                                                                       StandardCharsets.UTF_8))) {
+            for (Prestamo prestamo : prestamos) {
+                salida.write(RegistroPrestamo.de(prestamo).aLinea());
+                salida.write('\n');
+            }
+        }
+        Path segmento = segmento(mes);
+        long longitud = bytesPorMes.getOrDefault(mes, 0L);
+        long registros = registrosPorMes.getOrDefault(mes, 0L);
+        // RandomAccessFile no usa un canal interrumpible: una interrupción del
+        // hilo no deja el miembro a medias
+        try (RandomAccessFile archivo = new RandomAccessFile(segmento.toFile(), "rw")) {
+            try {
+                archivo.setLength(longitud);
+                archivo.seek(longitud);
+                archivo.write(miembro.toByteArray());
+                archivo.getFD().sync();
+                registrosPorMes.put(mes, registros + prestamos.size());
+                bytesPorMes.put(mes, longitud + miembro.size());
+                guardarIndice();
+            } catch (IOException | RuntimeException e) {
+                registrosPorMes.put(mes, registros);
+                bytesPorMes.put(mes, longitud);
+                try {
+                    archivo.setLength(longitud);
+                } catch (IOException ignorada) {
+                    e.addSuppressed(ignorada);
+                }
+                throw e;
+            }
+        } finally {
+            if (longitud == 0 && registrosPorMes.getOrDefault(mes, 0L) == 0) {
+                registrosPorMes.remove(mes);
+                bytesPorMes.remove(mes);
+                Files.deleteIfExists(segmento);
+            }
+        }
+        enDisco += prestamos.size();
+    }
+
+    /**
+     * Lee el índice de los segmentos.
+     *
+     * @return Registros y longitud de cada mes, vacío si no hay índice
+     */
+    private Map<YearMonth, long[]> leerIndice() throws IOException {
+        Map<YearMonth, long[]> indice = new HashMap<>();
+        Path ruta = directorio.resolve(INDICE);
+        if (!Files.exists(ruta)) {
+            return indice;
+        }
+        for (String linea : Files.readAllLines(ruta, StandardCharsets.UTF_8)) {
+            String[] campos = linea.split("\t");
+            if (campos.length == 3) {
+                indice.put(YearMonth.parse(campos[0]),
+                           new long[] {Long.parseLong(campos[1]), Long.parseLong(campos[2])});
+            }
+        }
+        return indice;
+    }
+
+    /**
+     * Reemplaza el índice escribiendo un archivo temporal y renombrándolo.
+     * FileOutputStream y el renombrado tampoco se abortan por una interrupción.
+     */
+    private void guardarIndice() throws IOException {
+        Path temporal = directorio.resolve(INDICE + ".tmp");
+        try (FileOutputStream salida = new FileOutputStream(temporal.toFile())) {
+            StringBuilder texto = new StringBuilder();
+            for (Map.Entry<YearMonth, Long> mes : registrosPorMes.entrySet()) {
+                texto.append(mes.getKey()).append('\t').append(mes.getValue()).append('\t')
+                     .append(bytesPorMes.get(mes.getKey())).append('\n');
+            }
+            salida.write(texto.toString().getBytes(StandardCharsets.UTF_8));
+            salida.getFD().sync();
+        }
+        Files.move(temporal, directorio.resolve(INDICE), StandardCopyOption.ATOMIC_MOVE,
+                   StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Recorta un segmento a su longitud válida.
+     */
+    private static void recortar(Path segmento, long longitud) throws IOException {
+        try (RandomAccessFile archivo = new RandomAccessFile(segmento.toFile(), "rw")) {
+            archivo.setLength(longitud);
+        }
+    }
+
+    /**
+     * Lee un segmento y añade los registros del intervalo a la lista indicada.
+     *
+     * @param resultado Lista de salida, o null para sólo contar los registros
+     * @return Número de registros del segmento
+     */
+    private static long leer(Path segmento, LocalDate desde, LocalDate hasta,
+                             List<RegistroPrestamo> resultado) throws IOException {
+        long registros = 0;
+        try (BufferedReader entrada = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segmento)), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                registros++;
+                if (resultado != null) {
+                    RegistroPrestamo registro = RegistroPrestamo.deLinea(linea);
+                    int dia = registro.getDiaPrestamo();
+                    if (dia >= desde.toEpochDay() && dia <= hasta.toEpochDay()) {
+                        resultado.add(registro);
+                    }
+                }
+            }
+        }
+        return registros;
+    }
+
+    private Path segmento(YearMonth mes) {
+        return directorio.resolve(PREFIJO + mes + EXTENSION);
+    }
+
+    private static YearMonth mesDe(Path segmento) {
+        String nombre = segmento.getFileName().toString();
+        return YearMonth.parse(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()));
+    }
+}
@@ -0,0 +1,214 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Clase de pruebas unitarias para la clase HistorialPrestamos.
+ * Verifica el volcado a disco de los préstamos cerrados y las consultas que
+ * combinan ambos niveles.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class HistorialPrestamosTest
+{
+    /** Directorio temporal de los segmentos */
+    private Path directorio;
+    /** Historial de prueba con capacidad para 4 préstamos en memoria */
+    private HistorialPrestamos historial;
+    /** Usuario de los préstamos */
+    private Usuario usuario;
+
+    /**
+     * Crea un historial vacío en un directorio temporal.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        directorio = Files.createTempDirectory("historial");
+        historial = new HistorialPrestamos(directorio, 4);
+        usuario = new Usuario("Ana López", "U001");
+    }
+
+    /**
+     * Crea un préstamo de un libro con el número indicado.
+     */
+    private Prestamo prestamo(int n) {
+        return new Prestamo("P" + n, usuario, new Libro("Libro " + n, "Autor", "978000000" + n, 100));
+    }
+
+    /**
+     * Crea un préstamo ya devuelto de un libro con el número indicado.
+     */
+    private Prestamo devuelto(int n) {
+        Prestamo prestamo = prestamo(n);
+        prestamo.cerrar();
+        return prestamo;
+    }
+
+    /**
+     * Prueba que el anillo se mantenga acotado y la consulta vea ambos niveles.
+     */
+    @Test
+    public void testVolcadoYConsulta() {
+        for (int i = 0; i < 10; i++) {
+            historial.agregar(devuelto(i));
+        }
+        assertEquals(10, historial.getTotal());
+        assertTrue(historial.getEnMemoria() <= 4);
+        assertEquals(10 - historial.getEnMemoria(), historial.getEnDisco());
+        assertEquals(1, historial.getSegmentos());
+
+        LocalDate hoy = LocalDate.now();
+        List<RegistroPrestamo> registros = historial.consultar(hoy, hoy);
+        assertEquals(10, registros.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("P" + i, registros.get(i).getId());
+            assertEquals("U001", registros.get(i).getIdUsuario());
+        }
+        assertEquals("Libro 3", registros.get(3).getTitulo());
+        assertTrue(historial.consultar(hoy.minusYears(1), hoy.minusDays(1)).isEmpty());
+    }
+
+    /**
+     * Prueba que un historial reabierto conserve los registros en disco.
+     */
+    @Test
+    public void testReabrir() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            historial.agregar(devuelto(i));
+        }
+        historial.volcarTodo();
+        assertEquals(0, historial.getEnMemoria());
+        historial.agregar(devuelto(3));
+        historial.volcarTodo();
+
+        historial = new HistorialPrestamos(directorio, 4);
+        assertEquals(4, historial.getEnDisco());
+        assertEquals("P3", historial.consultar(LocalDate.now(), LocalDate.now()).get(3).getId());
+    }
+
+    /**
+     * Prueba que un volcado con el hilo interrumpido se complete, que el resto
+     * de una escritura a medias se descarte al reabrir y que sin índice los
+     * segmentos se vuelvan a contar.
+     */
+    @Test
+    public void testEscrituraInterrumpidaYIndice() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            historial.agregar(devuelto(i));
+        }
+        Thread.currentThread().interrupt();
+        try {
+            historial.volcarTodo();
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+        assertEquals(3, historial.getEnDisco());
+        assertTrue(Files.exists(directorio.resolve("prestamos.idx")));
+
+        // Un miembro truncado, como el que deja una escritura abortada
+        Path segmento;
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            segmento = archivos.filter(ruta -> ruta.toString().endsWith(".gz")).findFirst().get();
+        }
+        long longitud = Files.size(segmento);
+        byte[] miembro = Files.readAllBytes(segmento);
+        Files.write(segmento, Arrays.copyOf(miembro, miembro.length / 2), StandardOpenOption.APPEND);
+
+        historial = new HistorialPrestamos(directorio, 4);
+        assertEquals(longitud, Files.size(segmento));
+        assertEquals(3, historial.getEnDisco());
+        historial.agregar(devuelto(3));
+        historial.volcarTodo();
+        LocalDate hoy = LocalDate.now();
+        assertEquals(4, historial.consultar(hoy, hoy).size());
+
+        Files.delete(directorio.resolve("prestamos.idx"));
+        historial = new HistorialPrestamos(directorio, 4);
+        assertEquals(4, historial.getEnDisco());
+        assertTrue(Files.exists(directorio.resolve("prestamos.idx")));
+    }
+
+    /**
+     * Prueba que los préstamos abiertos no se vuelquen y que, al cerrarse,
+     * lleguen a disco con su estado, su fecha de devolución y su extensión.
+     */
+    @Test
+    public void testSoloSeVuelcanPrestamosCerrados() {
+        List<Prestamo> abiertos = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Prestamo prestamo = prestamo(i);
+            abiertos.add(prestamo);
+            historial.agregar(prestamo);
+        }
+        historial.volcarTodo();
+        assertEquals(6, historial.getEnMemoria());
+        assertEquals(0, historial.getEnDisco());
+
+        assertTrue(abiertos.get(1).extenderPrestamo(7));
+        for (Prestamo prestamo : abiertos) {
+            prestamo.cerrar();
+        }
+        historial.agregar(prestamo(6));
+        assertEquals(7, historial.getTotal());
+        assertTrue(historial.getEnDisco() > 0);
+
+        historial.volcarTodo();
+        assertEquals(1, historial.getEnMemoria());
+        LocalDate hoy = LocalDate.now();
+        List<RegistroPrestamo> registros = historial.consultar(hoy, hoy);
+        assertEquals(7, registros.size());
+        for (RegistroPrestamo registro : registros.subList(0, 6)) {
+            assertEquals(Prestamo.DEVUELTO, registro.getEstado());
+            assertEquals(hoy, registro.getFechaDevolucionReal());
+        }
+        assertEquals(hoy.plusDays(21), registros.get(1).getFechaDevolucionEsperada());
+        assertEquals(Prestamo.ACTIVO, registros.get(6).getEstado());
+        assertNull(registros.get(6).getFechaDevolucionReal());
+    }
+
+    /**
+     * Prueba la conversión de un registro a texto y de vuelta.
+     */
+    @Test
+    public void testRegistroEnLinea() {
+        RegistroPrestamo registro = RegistroPrestamo.de(prestamo(7));
+        RegistroPrestamo leido = RegistroPrestamo.deLinea(registro.aLinea());
+        assertEquals("P7", leido.getId());
+        assertEquals("9780000007", leido.getIsbn());
+        assertEquals(registro.getFechaDevolucionEsperada(), leido.getFechaDevolucionEsperada());
+        assertEquals(Prestamo.ACTIVO, leido.getEstado());
+        assertNull(leido.getFechaDevolucionReal());
+        assertThrows(IllegalArgumentException.class, () -> RegistroPrestamo.deLinea("incompleto"));
+
+        RegistroPrestamo cerrado = RegistroPrestamo.deLinea(RegistroPrestamo.de(devuelto(8)).aLinea());
+        assertEquals(LocalDate.now(), cerrado.getFechaDevolucionReal());
+        assertEquals(Prestamo.DEVUELTO, cerrado.getEstado());
+
+        // Líneas escritas antes de guardar la fecha real de devolución
+        RegistroPrestamo anterior = RegistroPrestamo.deLinea("P9\tU001\t978\t2024-01-02\t2024-01-16\t1\tUn\ttítulo");
+        assertNull(anterior.getFechaDevolucionReal());
+        assertEquals(Prestamo.DEVUELTO, anterior.getEstado());
+        assertEquals("Un\ttítulo", anterior.getTitulo());
+    }
+
+    /**
+     * Elimina el directorio temporal después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            archivos.sorted(Comparator.reverseOrder()).forEach(ruta -> ruta.toFile().delete());
+        }
+        historial = null;
+        usuario = null;
+    }
+}
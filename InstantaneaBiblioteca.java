@@ -0,0 +1,361 @@
+/**
+ * Estado inmutable de una biblioteca en un momento dado.
+ *
+ * La biblioteca publica una instantánea nueva en cada modificación, bajo su
+ * cerrojo, a partir de la anterior: los libros, usuarios y empleados se guardan
+ * en mapas persistentes (MapaPersistente), de modo que cada versión copia sólo
+ * el camino de la entrada que cambió y comparte todo lo demás. Obtener la
+ * instantánea actual es una lectura volátil, O(1) y sin cerrojo, y los
+ * informes pueden recorrerla todo el tiempo que necesiten sin bloquear los
+ * préstamos ni ver estados intermedios.
+ *
+ * Cada instantánea recuerda además qué modificación la produjo, de modo que
+ * la secuencia de instantáneas puede enviarse como un flujo de cambios
+ * (ver CambioBiblioteca y ReplicaPrimaria).
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class InstantaneaBiblioteca {
+    /** Instantánea de una biblioteca recién creada */
+    static final InstantaneaBiblioteca VACIA = new InstantaneaBiblioteca(0, Instant.EPOCH,
+        MapaPersistente.vacio(), 0, MapaPersistente.vacio(), MapaPersistente.vacio(), -1, null);
+
+    /** Número de versión; aumenta en uno con cada modificación */
+    private final long version;
+    /** Momento de la modificación que produjo esta versión */
+    private final Instant momento;
+    /** Libros por número de secuencia */
+    private final MapaPersistente<Long, FichaLibro> libros;
+    /** Número de libros prestados */
+    private final int prestados;
+    /** Nombres de los usuarios por ID */
+    private final MapaPersistente<String, String> usuarios;
+    /** Empleados por ID */
+    private final MapaPersistente<String, FichaEmpleado> empleados;
+    /** Tipo de la modificación que produjo esta versión (ver CambioBiblioteca), o -1 */
+    private final int tipoCambio;
+    /** Secuencia del libro o ID de la persona modificada */
+    private final Object claveCambio;
+
+    private InstantaneaBiblioteca(long version, Instant momento, MapaPersistente<Long, FichaLibro> libros,
+                                  int prestados, MapaPersistente<String, String> usuarios,
+                                  MapaPersistente<String, FichaEmpleado> empleados,
+                                  int tipoCambio, Object claveCambio) {
+        this.version = version;
+        this.momento = momento;
+        this.libros = libros;
+        this.prestados = prestados;
+        this.usuarios = usuarios;
+        this.empleados = empleados;
+        this.tipoCambio = tipoCambio;
+        this.claveCambio = claveCambio;
+    }
+
+    /**
+     * Obtiene el número de versión de la instantánea.
+     * @return Versión, empezando en 0 para una biblioteca vacía
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Obtiene el momento de la última modificación incluida.
+     * @return Momento de la modificación
+     */
+    public Instant getMomento() {
+        return momento;
+    }
+
+    /**
+     * Obtiene los libros por número de secuencia, el mismo que usan los
+     * cursores de Biblioteca.getLibrosDisponibles.
+     * @return Mapa inmutable de libros
+     */
+    public MapaPersistente<Long, FichaLibro> getLibros() {
+        return libros;
+    }
+
+    /**
+     * Obtiene los nombres de los usuarios por ID.
+     * @return Mapa inmutable de usuarios
+     */
+    public MapaPersistente<String, String> getUsuarios() {
+        return usuarios;
+    }
+
+    /**
+     * Obtiene los empleados por ID.
+     * @return Mapa inmutable de empleados
+     */
+    public MapaPersistente<String, FichaEmpleado> getEmpleados() {
+        return empleados;
+    }
+
+    /**
+     * Obtiene el número de libros.
+     * @return Total de libros
+     */
+    public int getTotalLibros() {
+        return libros.tamano();
+    }
+
+    /**
+     * Obtiene el número de libros prestados, sin recorrer los libros.
+     * @return Libros prestados
+     */
+    public int getTotalPrestados() {
+        return prestados;
+    }
+
+    /**
+     * Obtiene un flujo de los libros de la instantánea.
+     * @return Stream de fichas de libro, sin orden definido
+     */
+    public Stream<FichaLibro> streamLibros() {
+        return libros.stream().map(Map.Entry::getValue);
+    }
+
+    /**
+     * Busca los ejemplares de un ISBN en la instantánea.
+     * @param isbn El ISBN
+     * @return Fichas de los ejemplares, sin orden definido
+     */
+    public List<FichaLibro> buscarPorIsbn(String isbn) {
+        return streamLibros().filter(ficha -> ficha.getIsbn().equals(isbn)).collect(Collectors.toList());
+    }
+
+    /**
+     * Devuelve la instantánea siguiente con un libro agregado o actualizado.
+     */
+    InstantaneaBiblioteca conLibro(long secuencia, Libro libro) {
+        FichaLibro anterior = libros.get(secuencia);
+        FichaLibro ficha = new FichaLibro(secuencia, libro);
+        int cambio = (ficha.isPrestado() ? 1 : 0) - (anterior != null && anterior.isPrestado() ? 1 : 0);
+        return new InstantaneaBiblioteca(version + 1, Instant.now(), libros.con(secuencia, ficha),
+                                         prestados + cambio, usuarios, empleados,
+                                         CambioBiblioteca.LIBRO, secuencia);
+    }
+
+    /**
+     * Devuelve la instantánea siguiente sin un libro.
+     */
+    InstantaneaBiblioteca sinLibro(long secuencia) {
+        FichaLibro anterior = libros.get(secuencia);
+        if (anterior == null) {
+            return this;
+        }
+        return new InstantaneaBiblioteca(version + 1, Instant.now(), libros.sin(secuencia),
+                                         prestados - (anterior.isPrestado() ? 1 : 0), usuarios, empleados,
+                                         CambioBiblioteca.SIN_LIBRO, secuencia);
+    }
+
+    /**
+     * Devuelve la instantánea siguiente con un usuario agregado.
+     */
+    InstantaneaBiblioteca conUsuario(Usuario usuario) {
+        return new InstantaneaBiblioteca(version + 1, Instant.now(), libros, prestados,
+                                         usuarios.con(usuario.getId(), usuario.getNombre()), empleados,
+                                         CambioBiblioteca.USUARIO, usuario.getId());
+    }
+
+    /**
+     * Devuelve la instantánea siguiente sin un usuario.
+     */
+    InstantaneaBiblioteca sinUsuario(String id) {
+        return new InstantaneaBiblioteca(version + 1, Instant.now(), libros, prestados,
+                                         usuarios.sin(id), empleados, CambioBiblioteca.SIN_USUARIO, id);
+    }
+
+    /**
+     * Devuelve la instantánea siguiente con un empleado agregado o actualizado.
+     */
+    InstantaneaBiblioteca conEmpleado(Empleado empleado) {
+        return new InstantaneaBiblioteca(version + 1, Instant.now(), libros, prestados, usuarios,
+                                         empleados.con(empleado.getId(), new FichaEmpleado(empleado)),
+                                         CambioBiblioteca.EMPLEADO, empleado.getId());
+    }
+
+    /**
+     * Devuelve la instantánea siguiente sin un empleado.
+     */
+    InstantaneaBiblioteca sinEmpleado(String id) {
+        return new InstantaneaBiblioteca(version + 1, Instant.now(), libros, prestados, usuarios,
+                                         empleados.sin(id), CambioBiblioteca.SIN_EMPLEADO, id);
+    }
+
+    /**
+     * Obtiene la modificación que produjo esta versión, con los datos que
+     * tiene en ella la entrada modificada.
+     * @return El cambio, o null para la instantánea de una biblioteca vacía
+     */
+    public CambioBiblioteca getCambio() {
+        switch (tipoCambio) {
+            case CambioBiblioteca.LIBRO:
+                return CambioBiblioteca.libro(version, momento, libros.get((Long) claveCambio));
+            case CambioBiblioteca.SIN_LIBRO:
+                return CambioBiblioteca.sinLibro(version, momento, (Long) claveCambio);
+            case CambioBiblioteca.USUARIO:
+                return CambioBiblioteca.usuario(version, momento, (String) claveCambio, usuarios.get((String) claveCambio));
+            case CambioBiblioteca.SIN_USUARIO:
+                return CambioBiblioteca.sinUsuario(version, momento, (String) claveCambio);
+            case CambioBiblioteca.EMPLEADO:
+                return CambioBiblioteca.empleado(version, momento, empleados.get((String) claveCambio));
+            case CambioBiblioteca.SIN_EMPLEADO:
+                return CambioBiblioteca.sinEmpleado(version, momento, (String) claveCambio);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Retorna un resumen de la instantánea.
+     * @return String con la versión y los totales
+     */
+    public String toString() {
+        return "InstantaneaBiblioteca [version=" + version + ", momento=" + momento +
+               ", libros=" + libros.tamano() + ", prestados=" + prestados +
+               ", usuarios=" + usuarios.tamano() + ", empleados=" + empleados.tamano() + "]";
+    }
+
+    /**
+     * Datos inmutables de un ejemplar en una instantánea.
+     */
+    public static final class FichaLibro {
+        private final long secuencia;
+        private final String titulo;
+        private final String autor;
+        private final String isbn;
+        private final int numPaginas;
+        private final boolean prestado;
+
+        FichaLibro(long secuencia, Libro libro) {
+            this(secuencia, libro.getTitulo(), libro.getAutor(), libro.getIsbn(), libro.getNumPaginas(),
+                 libro.isPrestado());
+        }
+
+        FichaLibro(long secuencia, String titulo, String autor, String isbn, int numPaginas, boolean prestado) {
+            this.secuencia = secuencia;
+            this.titulo = titulo;
+            this.autor = autor;
+            this.isbn = isbn;
+            this.numPaginas = numPaginas;
+            this.prestado = prestado;
+        }
+
+        /**
+         * Obtiene el número de secuencia del ejemplar en la biblioteca.
+         * @return Número de secuencia
+         */
+        public long getSecuencia() {
+            return secuencia;
+        }
+
+        /**
+         * Obtiene el título del libro.
+         * @return Título
+         */
+        public String getTitulo() {
+            return titulo;
+        }
+
+        /**
+         * Obtiene el autor del libro.
+         * @return Autor
+         */
+        public String getAutor() {
+            return autor;
+        }
+
+        /**
+         * Obtiene el ISBN del libro.
+         * @return ISBN
+         */
+        public String getIsbn() {
+            return isbn;
+        }
+
+        /**
+         * Obtiene el número de páginas del libro.
+         * @return Número de páginas
+         */
+        public int getNumPaginas() {
+            return numPaginas;
+        }
+
+        /**
+         * Indica si el ejemplar estaba prestado.
+         * @return true si estaba prestado
+         */
+        public boolean isPrestado() {
+            return prestado;
+        }
+
+        /**
+         * Retorna una representación en cadena de la ficha.
+         * @return String con los datos del ejemplar
+         */
+        public String toString() {
+            return titulo + " (" + isbn + ")" + (prestado ? " [prestado]" : "");
+        }
+    }
+
+    /**
+     * Datos inmutables de un empleado en una instantánea.
+     */
+    public static final class FichaEmpleado {
+        private final String id;
+        private final String nombre;
+        private final String puesto;
+        private final int turno;
+
+        FichaEmpleado(Empleado empleado) {
+            this(empleado.getId(), empleado.getNombre(), empleado.getPuesto(), empleado.getTurno());
+        }
+
+        FichaEmpleado(String id, String nombre, String puesto, int turno) {
+            this.id = id;
+            this.nombre = nombre;
+            this.puesto = puesto;
+            this.turno = turno;
+        }
+
+        /**
+         * Obtiene el ID del empleado.
+         * @return ID
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Obtiene el nombre del empleado.
+         * @return Nombre
+         */
+        public String getNombre() {
+            return nombre;
+        }
+
+        /**
+         * Obtiene el puesto del empleado.
+         * @return Puesto
+         */
+        public String getPuesto() {
+            return puesto;
+        }
+
+        /**
+         * Obtiene el turno del empleado.
+         * @return Turno (MATUTINO, VESPERTINO o MIXTO)
+         */
+        public int getTurno() {
+            return turno;
+        }
+    }
+}
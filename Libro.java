@@ -11,6 +11,9 @@
  * @author Roberto SALAZAR MARQUEZ
  * @version 1.0
  */
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 public class Libro
 {
    private String titulo;
@@ -18,6 +21,8 @@ public class Libro
    private String isbn;
    private int numPaginas;
    private boolean prestado;
+   /** Observadores avisados de los cambios del libro; se crea al registrar el primero */
+   private volatile List<ObservadorLibro> observadores;
    
     /**
      * Constructor por defecto que inicializa un libro con valores predeterminados.
@@ -92,8 +97,37 @@ public class Libro
      * @param titulo El nuevo titulo del libro
      */
     public void setTitulo(String titulo) {
-        if (titulo != null && !titulo.trim().isEmpty()) {
+        if (titulo != null && !titulo.trim().isEmpty() && !titulo.equals(this.titulo)) {
+            String tituloAnterior = this.titulo;
             this.titulo = titulo;
+            List<ObservadorLibro> actuales = observadores;
+            if (actuales != null) {
+                for (ObservadorLibro observador : actuales) {
+                    observador.tituloCambiado(this, tituloAnterior);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Registra un observador que será avisado de los cambios del libro.
+     * Los observadores no se copian en el constructor de copia.
+     * @param observador El observador a registrar
+     */
+    public synchronized void agregarObservador(ObservadorLibro observador) {
+        if (observadores == null) {
+            observadores = new CopyOnWriteArrayList<>();
+        }
+        observadores.add(observador);
+    }
+    
+    /**
+     * Elimina un observador registrado previamente.
+     * @param observador El observador a eliminar
+     */
+    public synchronized void eliminarObservador(ObservadorLibro observador) {
+        if (observadores != null) {
+            observadores.remove(observador);
         }
     }
     
@@ -111,8 +145,15 @@ public class Libro
      * @param autor El nuevo autor del libro
      */
     public void setAutor(String autor) {
-        if (autor != null && !autor.trim().isEmpty()) {
+        if (autor != null && !autor.trim().isEmpty() && !autor.equals(this.autor)) {
+            String autorAnterior = this.autor;
             this.autor = autor;
+            List<ObservadorLibro> actuales = observadores;
+            if (actuales != null) {
+                for (ObservadorLibro observador : actuales) {
+                    observador.autorCambiado(this, autorAnterior);
+                }
+            }
         }
     }
     
@@ -130,8 +171,15 @@ public class Libro
      * @param isbn El nuevo ISBN del libro
      */
     public void setIsbn(String isbn) {
-        if (isbn != null && isbn.matches("\\d{13}")) {
+        if (isbn != null && isbn.matches("\\d{13}") && !isbn.equals(this.isbn)) {
+            String isbnAnterior = this.isbn;
             this.isbn = isbn;
+            List<ObservadorLibro> actuales = observadores;
+            if (actuales != null) {
+                for (ObservadorLibro observador : actuales) {
+                    observador.isbnCambiado(this, isbnAnterior);
+                }
+            }
         }
     }
     
@@ -167,7 +215,10 @@ public class Libro
      * @param prestado El nuevo estado de préstamo del libro
      */
     public void setPrestado(boolean prestado) {
-        this.prestado = prestado;
+        if (this.prestado != prestado) {
+            this.prestado = prestado;
+            avisarEstadoPrestamo();
+        }
     }
     
     /**
@@ -180,6 +231,7 @@ public class Libro
     public boolean prestarLibro() {
         if (!prestado) {
             prestado = true;
+            avisarEstadoPrestamo();
             return true;
         }
         return false;
@@ -194,7 +246,22 @@ public class Libro
      * independientemente de su estado actual.
      */
     public void devolverLibro() {
-        prestado = false;
+        if (prestado) {
+            prestado = false;
+            avisarEstadoPrestamo();
+        }
+    }
+    
+    /**
+     * Avisa a los observadores que cambió el estado de préstamo del libro.
+     */
+    private void avisarEstadoPrestamo() {
+        List<ObservadorLibro> actuales = observadores;
+        if (actuales != null) {
+            for (ObservadorLibro observador : actuales) {
+                observador.estadoPrestamoCambiado(this);
+            }
+        }
     }
     
     /**
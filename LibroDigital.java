@@ -4,10 +4,21 @@
  * Esta clase añade funcionalidades específicas para libros digitales como formato,
  * tamaño del archivo, URL de descarga y control de descargas.
  * 
+ * Además del límite de descargas, cada libro digital tiene un pool de licencias
+ * de préstamo simultáneas con vencimiento (ver PoolLicencias), que se adquieren y
+ * devuelven sin cerrojos.
+ * 
  * @author Roberto Salazar
  * @version 1.0
  */
+import java.time.Duration;
+
 public class LibroDigital extends Libro {
+    /** Número de licencias simultáneas de un libro digital nuevo */
+    public static final int LICENCIAS_POR_DEFECTO = 1;
+    /** Duración por defecto de un préstamo digital */
+    public static final Duration DURACION_LICENCIA = Duration.ofDays(14);
+
     /** Formato del archivo (PDF, EPUB, MOBI, etc.) */
     private String formato; 
     /** Tamaño del archivo en megabytes */
@@ -18,6 +29,10 @@ public class LibroDigital extends Libro {
     private int descargasPermitidas;
     /** Contador de descargas realizadas */
     private int descargasActuales;
+    /** Pool de licencias de préstamo simultáneas */
+    private volatile PoolLicencias licencias;
+    /** Hash del archivo en el almacén de contenido, o null si no está almacenado */
+    private volatile String hashContenido;
     
     /**
      * Constructor que crea un nuevo libro digital con todos sus atributos.
@@ -38,6 +53,7 @@ public class LibroDigital extends Libro {
         this.urlDescarga = urlDescarga;
         this.descargasPermitidas = 3; // Valor por defecto
         this.descargasActuales = 0;
+        this.licencias = new PoolLicencias(LICENCIAS_POR_DEFECTO);
     }
     
     /**
@@ -55,6 +71,7 @@ public class LibroDigital extends Libro {
         this.urlDescarga = urlDescarga;
         this.descargasPermitidas = 3; // Valor por defecto
         this.descargasActuales = 0;
+        this.licencias = new PoolLicencias(LICENCIAS_POR_DEFECTO);
     }
     
     /**
@@ -99,7 +116,7 @@ public class LibroDigital extends Libro {
      * 
      * @return número de descargas actuales
      */
-    public int getDescargasActuales() { 
+    public synchronized int getDescargasActuales() { 
         return descargasActuales; 
     }
     
@@ -108,7 +125,7 @@ public class LibroDigital extends Libro {
      * 
      * @return true si la descarga fue exitosa, false si se alcanzó el límite
      */
-    public boolean descargar() {
+    public synchronized boolean descargar() {
         if (descargasActuales < descargasPermitidas) {
             descargasActuales++;
             return true;
@@ -116,13 +133,99 @@ public class LibroDigital extends Libro {
         return false;
     }
     
+    /**
+     * Devuelve una descarga obtenida con descargar() que no llegó a
+     * completarse, para que otra pueda usarla.
+     */
+    public synchronized void liberarDescarga() {
+        if (descargasActuales > 0) {
+            descargasActuales--;
+        }
+    }
+
     /**
      * Reinicia el contador de descargas a cero.
      */
-    public void reiniciarDescargas() {
+    public synchronized void reiniciarDescargas() {
         descargasActuales = 0;
     }
  
+    /**
+     * Presta una licencia digital por la duración por defecto.
+     * 
+     * @return La licencia concedida, o null si no queda ninguna libre
+     */
+    public Licencia prestarLicencia() {
+        return prestarLicencia(DURACION_LICENCIA);
+    }
+    
+    /**
+     * Presta una licencia digital por el tiempo indicado. La operación no usa
+     * cerrojos; al vencer, la licencia la recupera el barredor compartido.
+     * 
+     * @param duracion Tiempo durante el que la licencia es válida
+     * @return La licencia concedida, o null si no queda ninguna libre
+     */
+    public Licencia prestarLicencia(Duration duracion) {
+        PoolLicencias pool = licencias;
+        Licencia licencia = pool.adquirir(duracion);
+        if (licencia != null && pool.marcarVigilado()) {
+            BarredorLicencias.compartido().registrar(pool);
+        }
+        return licencia;
+    }
+    
+    /**
+     * Devuelve una licencia digital antes de su vencimiento.
+     * 
+     * @param licencia La licencia a devolver
+     * @return true si la licencia seguía ocupada, false si ya se había devuelto o vencido
+     */
+    public boolean devolverLicencia(Licencia licencia) {
+        return licencia.getPool().liberar(licencia);
+    }
+    
+    /**
+     * Cambia el número de licencias simultáneas creando un pool nuevo.
+     * Las licencias del pool anterior pueden devolverse, pero ya no cuentan
+     * para el nuevo límite.
+     * 
+     * @param numero Número de licencias simultáneas
+     */
+    public synchronized void configurarLicencias(int numero) {
+        PoolLicencias anterior = licencias;
+        licencias = new PoolLicencias(numero);
+        BarredorLicencias.compartido().eliminar(anterior);
+    }
+    
+    /**
+     * Obtiene el pool de licencias del libro.
+     * 
+     * @return El pool de licencias actual
+     */
+    public PoolLicencias getPoolLicencias() {
+        return licencias;
+    }
+    
+    /**
+     * Obtiene el hash del archivo del libro en el almacén de contenido.
+     * 
+     * @return Hash del contenido, o null si no está almacenado
+     */
+    public String getHashContenido() {
+        return hashContenido;
+    }
+    
+    /**
+     * Cambia el hash del contenido. Sólo lo usa AlmacenContenido, que lleva
+     * la cuenta de referencias.
+     * 
+     * @param hashContenido Hash del contenido, o null
+     */
+    void setHashContenido(String hashContenido) {
+        this.hashContenido = hashContenido;
+    }
+    
     /**
      * Sobrescribe el método prestarLibro de la clase padre.
      * Verifica si hay descargas disponibles antes de realizar el préstamo.
@@ -148,6 +251,7 @@ public class LibroDigital extends Libro {
                "\nFormato: " + formato +
                "\nTamaño: " + tamanoMB + " MB" +
                "\nURL de descarga: " + urlDescarga +
-               "\nDescargas realizadas: " + descargasActuales + "/" + descargasPermitidas;
+               "\nDescargas realizadas: " + descargasActuales + "/" + descargasPermitidas +
+               "\nLicencias libres: " + licencias.getLibres() + "/" + licencias.getTotal();
     }
 }
\ No newline at end of file
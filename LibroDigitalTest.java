@@ -78,4 +78,39 @@ public class LibroDigitalTest
         assertEquals(0, libroDigital2.getDescargasActuales());
     }
     
-}
+    /**
+     * Prueba el préstamo y la devolución de licencias digitales.
+     */
+    @Test
+    public void testLicencias() {
+        libroDigital1.configurarLicencias(2);
+        Licencia primera = libroDigital1.prestarLicencia();
+        assertNotNull(primera);
+        assertNotNull(libroDigital1.prestarLicencia());
+        assertNull(libroDigital1.prestarLicencia());
+        assertTrue(libroDigital1.devolverLicencia(primera));
+        assertEquals(1, libroDigital1.getPoolLicencias().getLibres());
+    }
+
+    /**
+     * Prueba que cada pool se registre en el barredor por sí mismo, de modo
+     * que un préstamo tardío del pool anterior no impida registrar el nuevo.
+     */
+    @Test
+    public void testRegistroDeCadaPool() {
+        PoolLicencias anterior = libroDigital1.getPoolLicencias();
+        assertNotNull(libroDigital1.prestarLicencia());
+        assertTrue(anterior.isVigilado());
+
+        libroDigital1.configurarLicencias(1);
+        PoolLicencias nuevo = libroDigital1.getPoolLicencias();
+        assertFalse(nuevo.isVigilado());
+        // Un hilo que leyó el pool anterior antes del cambio ya no lo registra
+        assertFalse(anterior.marcarVigilado());
+
+        assertNotNull(libroDigital1.prestarLicencia());
+        assertTrue(nuevo.isVigilado());
+        assertFalse(nuevo.marcarVigilado());
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+/**
+ * Licencia de préstamo digital concedida por un PoolLicencias.
+ *
+ * Ocupa una ranura del pool hasta que se devuelve o hasta que, vencida, el
+ * barredor la recupera. Cada licencia es un objeto distinto, de modo que una
+ * licencia ya recuperada no puede liberar la ranura que otro lector ocupa
+ * después.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.Instant;
+
+public class Licencia {
+    private final PoolLicencias pool;
+    private final int ranura;
+    private final long venceMs;
+
+    /**
+     * Crea una licencia. Sólo la usa PoolLicencias.
+     *
+     * @param pool Pool que concede la licencia
+     * @param ranura Ranura ocupada
+     * @param venceMs Momento de vencimiento en milisegundos de época
+     */
+    Licencia(PoolLicencias pool, int ranura, long venceMs) {
+        this.pool = pool;
+        this.ranura = ranura;
+        this.venceMs = venceMs;
+    }
+
+    /**
+     * Obtiene la ranura del pool que ocupa la licencia.
+     * @return Índice de la ranura
+     */
+    public int getRanura() {
+        return ranura;
+    }
+
+    /**
+     * Obtiene el momento en que vence la licencia.
+     * @return Fecha de vencimiento
+     */
+    public Instant getVencimiento() {
+        return Instant.ofEpochMilli(venceMs);
+    }
+
+    /**
+     * Indica si la licencia sigue ocupando su ranura y no ha vencido.
+     * @return true si la licencia puede usarse
+     */
+    public boolean isVigente() {
+        return pool.ocupa(this) && !pool.haVencido(this);
+    }
+
+    /**
+     * Obtiene el pool que concedió la licencia.
+     * @return El pool de origen
+     */
+    PoolLicencias getPool() {
+        return pool;
+    }
+
+    /**
+     * Obtiene el momento de vencimiento en milisegundos de época.
+     * @return Vencimiento en milisegundos
+     */
+    long getVenceMs() {
+        return venceMs;
+    }
+
+    /**
+     * Devuelve una representación en cadena de la licencia.
+     * @return String con la ranura y el vencimiento
+     */
+    public String toString() {
+        return "Licencia [ranura=" + ranura + ", vence=" + getVencimiento() + "]";
+    }
+}
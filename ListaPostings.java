@@ -0,0 +1,259 @@
+/**
+ * Lista de apariciones (postings) comprimida de un término del motor de búsqueda.
+ *
+ * Cada aparición se codifica con enteros de longitud variable (varint):
+ * la diferencia con el documento anterior, la frecuencia en el título, la
+ * frecuencia en el autor, la longitud en bytes de las posiciones y las posiciones
+ * como diferencias sucesivas. Cada 64 apariciones se guarda un punto de salto
+ * (último documento y desplazamiento) para que un cursor pueda avanzar hasta un
+ * documento sin decodificar toda la lista.
+ *
+ * Los documentos deben agregarse en orden creciente de identificador. Un
+ * documento borrado no se quita de la lista, pero se descuenta de la
+ * frecuencia de documento vigente (descontar).
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.Arrays;
+
+public class ListaPostings {
+    /** Número de apariciones entre puntos de salto */
+    public static final int INTERVALO_SALTO = 64;
+    /** Valor de documento de un cursor agotado */
+    public static final int AGOTADO = Integer.MAX_VALUE;
+
+    private byte[] datos;
+    private int longitud;
+    private int ultimoDoc;
+    private int numDocs;
+    /** Documentos de la lista que ya se borraron */
+    private int numBorrados;
+    private int[] saltoDoc;
+    private int[] saltoDesplazamiento;
+    private int numSaltos;
+
+    /**
+     * Crea una lista vacía.
+     */
+    public ListaPostings() {
+        this.datos = new byte[16];
+        this.ultimoDoc = -1;
+        this.saltoDoc = new int[0];
+        this.saltoDesplazamiento = new int[0];
+    }
+
+    /**
+     * Agrega la aparición del término en un documento.
+     *
+     * @param doc Identificador del documento, mayor que el último agregado
+     * @param frecuenciaTitulo Apariciones en el título
+     * @param frecuenciaAutor Apariciones en el autor
+     * @param posiciones Posiciones del término, en orden creciente
+     */
+    public void agregar(int doc, int frecuenciaTitulo, int frecuenciaAutor, int[] posiciones) {
+        if (doc <= ultimoDoc) {
+            throw new IllegalArgumentException("Los documentos deben agregarse en orden creciente");
+        }
+        if (numDocs > 0 && numDocs % INTERVALO_SALTO == 0) {
+            if (numSaltos == saltoDoc.length) {
+                saltoDoc = Arrays.copyOf(saltoDoc, Math.max(4, numSaltos * 2));
+                saltoDesplazamiento = Arrays.copyOf(saltoDesplazamiento, saltoDoc.length);
+            }
+            saltoDoc[numSaltos] = ultimoDoc;
+            saltoDesplazamiento[numSaltos] = longitud;
+            numSaltos++;
+        }
+        int bytesPosiciones = 0;
+        int anterior = 0;
+        for (int posicion : posiciones) {
+            bytesPosiciones += tamanoVarint(posicion - anterior);
+            anterior = posicion;
+        }
+        asegurar(20 + bytesPosiciones);
+        escribir(doc - ultimoDoc);
+        escribir(frecuenciaTitulo);
+        escribir(frecuenciaAutor);
+        escribir(bytesPosiciones);
+        anterior = 0;
+        for (int posicion : posiciones) {
+            escribir(posicion - anterior);
+            anterior = posicion;
+        }
+        ultimoDoc = doc;
+        numDocs++;
+    }
+
+    /**
+     * Obtiene el número de documentos de la lista (frecuencia de documento).
+     * @return Número de documentos
+     */
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    /**
+     * Obtiene el número de documentos de la lista que no se han borrado.
+     * @return Frecuencia de documento vigente
+     */
+    public int getNumDocsVigentes() {
+        return numDocs - numBorrados;
+    }
+
+    /**
+     * Descuenta un documento borrado de la frecuencia de documento vigente.
+     */
+    void descontar() {
+        numBorrados++;
+    }
+
+    /**
+     * Obtiene el tamaño comprimido de la lista.
+     * @return Bytes ocupados por las apariciones
+     */
+    public int getBytes() {
+        return longitud;
+    }
+
+    /**
+     * Crea un cursor posicionado antes del primer documento.
+     * @return Nuevo cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    private void asegurar(int adicional) {
+        if (longitud + adicional > datos.length) {
+            datos = Arrays.copyOf(datos, Math.max(datos.length * 2, longitud + adicional));
+        }
+    }
+
+    private void escribir(int valor) {
+        while ((valor & ~0x7f) != 0) {
+            datos[longitud++] = (byte) ((valor & 0x7f) | 0x80);
+            valor >>>= 7;
+        }
+        datos[longitud++] = (byte) valor;
+    }
+
+    private static int tamanoVarint(int valor) {
+        int bytes = 1;
+        while ((valor & ~0x7f) != 0) {
+            valor >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Cursor de lectura secuencial con avance por saltos.
+     * Refleja el contenido de la lista en el momento en que se recorre.
+     */
+    public class Cursor {
+        private int desplazamiento;
+        private int doc = -1;
+        private int frecuenciaTitulo;
+        private int frecuenciaAutor;
+        private int inicioPosiciones;
+        private int bytesPosiciones;
+        private int leidos;
+        private int limite = longitud;
+        private int totalDocs = numDocs;
+
+        /**
+         * Obtiene el documento actual.
+         * @return Identificador del documento, -1 antes de empezar o AGOTADO al terminar
+         */
+        public int doc() {
+            return doc;
+        }
+
+        /**
+         * Obtiene la frecuencia del término en el título del documento actual.
+         * @return Apariciones en el título
+         */
+        public int frecuenciaTitulo() {
+            return frecuenciaTitulo;
+        }
+
+        /**
+         * Obtiene la frecuencia del término en el autor del documento actual.
+         * @return Apariciones en el autor
+         */
+        public int frecuenciaAutor() {
+            return frecuenciaAutor;
+        }
+
+        /**
+         * Decodifica las posiciones del término en el documento actual.
+         * @return Posiciones en orden creciente
+         */
+        public int[] posiciones() {
+            int[] posiciones = new int[frecuenciaTitulo + frecuenciaAutor];
+            int[] lector = {inicioPosiciones};
+            int anterior = 0;
+            for (int i = 0; i < posiciones.length; i++) {
+                anterior += leer(lector);
+                posiciones[i] = anterior;
+            }
+            return posiciones;
+        }
+
+        /**
+         * Avanza al siguiente documento.
+         * @return El nuevo documento actual o AGOTADO
+         */
+        public int siguiente() {
+            if (leidos >= totalDocs || desplazamiento >= limite) {
+                doc = AGOTADO;
+                return doc;
+            }
+            int[] lector = {desplazamiento};
+            doc += leer(lector);
+            frecuenciaTitulo = leer(lector);
+            frecuenciaAutor = leer(lector);
+            bytesPosiciones = leer(lector);
+            inicioPosiciones = lector[0];
+            desplazamiento = inicioPosiciones + bytesPosiciones;
+            leidos++;
+            return doc;
+        }
+
+        /**
+         * Avanza hasta el primer documento mayor o igual al indicado,
+         * aprovechando los puntos de salto.
+         * @param objetivo Documento buscado
+         * @return El nuevo documento actual o AGOTADO
+         */
+        public int avanzar(int objetivo) {
+            if (doc >= objetivo) {
+                return doc;
+            }
+            int salto = Arrays.binarySearch(saltoDoc, 0, numSaltos, objetivo);
+            salto = salto >= 0 ? salto - 1 : -salto - 2;
+            if (salto >= 0 && saltoDesplazamiento[salto] > desplazamiento
+                    && saltoDesplazamiento[salto] <= limite) {
+                desplazamiento = saltoDesplazamiento[salto];
+                doc = saltoDoc[salto];
+                leidos = (salto + 1) * INTERVALO_SALTO;
+            }
+            while (doc < objetivo) {
+                siguiente();
+            }
+            return doc;
+        }
+
+        private int leer(int[] lector) {
+            int valor = 0;
+            int desplazamientoBits = 0;
+            byte b;
+            do {
+                b = datos[lector[0]++];
+                valor |= (b & 0x7f) << desplazamientoBits;
+                desplazamientoBits += 7;
+            } while (b < 0);
+            return valor;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Mapa de identidad: guarda una única instancia viva por clave, por ejemplo
+ * un Usuario por ID o un Libro por ISBN.
+ *
+ * canonico(clave, valor) devuelve la instancia ya registrada para la clave si
+ * sigue viva, o registra el valor dado; así quien construye o lee un objeto
+ * duplicado puede quedarse con el canónico y soltar la copia. Los valores se
+ * guardan con referencias débiles: el mapa no impide que se recolecten, y las
+ * entradas de valores recolectados se descartan en la siguiente operación.
+ *
+ * Las claves deben tener equals y hashCode coherentes y, como String o
+ * Persona, calcular su código hash una sola vez. Es seguro para varios hilos
+ * sin cerrojo.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MapaIdentidad<K, V> {
+    /** Referencia débil a cada instancia canónica, por clave */
+    private final ConcurrentHashMap<K, Referencia<K, V>> entradas;
+    /** Referencias cuyas instancias ya se recolectaron */
+    private final ReferenceQueue<V> recolectadas;
+
+    /**
+     * Crea un mapa de identidad vacío.
+     */
+    public MapaIdentidad() {
+        this.entradas = new ConcurrentHashMap<>();
+        this.recolectadas = new ReferenceQueue<>();
+    }
+
+    /**
+     * Obtiene la instancia canónica de una clave, registrando el valor dado si
+     * no había ninguna viva.
+     *
+     * @param clave La clave
+     * @param valor Instancia a registrar si la clave no tiene una viva
+     * @return La instancia canónica: la ya registrada, o valor
+     */
+    public V canonico(K clave, V valor) {
+        purgar();
+        Referencia<K, V> nueva = new Referencia<>(clave, valor, recolectadas);
+        while (true) {
+            Referencia<K, V> actual = entradas.putIfAbsent(clave, nueva);
+            if (actual == null) {
+                return valor;
+            }
+            V vivo = actual.get();
+            if (vivo != null) {
+                return vivo;
+            }
+            if (entradas.replace(clave, actual, nueva)) {
+                return valor;
+            }
+        }
+    }
+
+    /**
+     * Obtiene la instancia canónica de una clave.
+     *
+     * @param clave La clave
+     * @return La instancia registrada, o null si no hay una viva
+     */
+    public V obtener(K clave) {
+        Referencia<K, V> referencia = entradas.get(clave);
+        return referencia != null ? referencia.get() : null;
+    }
+
+    /**
+     * Elimina la instancia canónica de una clave, si es la indicada.
+     *
+     * @param clave La clave
+     * @param valor La instancia que se espera registrada
+     * @return true si valor era la instancia canónica y se eliminó
+     */
+    public boolean eliminar(K clave, V valor) {
+        purgar();
+        Referencia<K, V> referencia = entradas.get(clave);
+        return referencia != null && referencia.get() == valor && entradas.remove(clave, referencia);
+    }
+
+    /**
+     * Obtiene el número de claves con una instancia registrada. Puede incluir
+     * instancias recolectadas que aún no se han descartado.
+     *
+     * @return Número de entradas
+     */
+    public int tamano() {
+        purgar();
+        return entradas.size();
+    }
+
+    /**
+     * Descarta las entradas de instancias recolectadas.
+     */
+    private void purgar() {
+        Reference<? extends V> recolectada;
+        while ((recolectada = recolectadas.poll()) != null) {
+            Referencia<?, ?> referencia = (Referencia<?, ?>) recolectada;
+            entradas.remove(referencia.clave, referencia);
+        }
+    }
+
+    /**
+     * Referencia débil que recuerda su clave, para descartar su entrada.
+     */
+    private static final class Referencia<K, V> extends WeakReference<V> {
+        final K clave;
+
+        Referencia(K clave, V valor, ReferenceQueue<V> cola) {
+            super(valor, cola);
+            this.clave = clave;
+        }
+    }
+}
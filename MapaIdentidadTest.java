@@ -0,0 +1,75 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Clase de pruebas unitarias para la clase MapaIdentidad.
+ * Verifica que haya una sola instancia por clave y que las instancias
+ * recolectadas no retengan su entrada.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class MapaIdentidadTest
+{
+    /** Mapa de usuarios por ID */
+    private MapaIdentidad<String, Usuario> mapa;
+
+    /**
+     * Crea un mapa vacío.
+     */
+    @BeforeEach
+    public void setUp() {
+        mapa = new MapaIdentidad<>();
+    }
+
+    /**
+     * Prueba que la primera instancia registrada sea la canónica.
+     */
+    @Test
+    public void testCanonico() {
+        Usuario original = new Usuario("Ana López", "U001");
+        Usuario duplicado = new Usuario("Ana López", "U001");
+        assertSame(original, mapa.canonico("U001", original));
+        assertSame(original, mapa.canonico("U001", duplicado));
+        assertSame(original, mapa.obtener("U001"));
+        assertNull(mapa.obtener("U002"));
+
+        assertFalse(mapa.eliminar("U001", duplicado));
+        assertTrue(mapa.eliminar("U001", original));
+        assertNull(mapa.obtener("U001"));
+        assertSame(duplicado, mapa.canonico("U001", duplicado));
+        assertEquals(1, mapa.tamano());
+    }
+
+    /**
+     * Prueba que las instancias sin otras referencias se recolecten y su
+     * entrada se descarte.
+     */
+    @Test
+    public void testRecoleccion() throws InterruptedException {
+        Usuario retenido = mapa.canonico("U000", new Usuario("Retenido", "U000"));
+        for (int i = 1; i <= 1000; i++) {
+            mapa.canonico("U" + i, new Usuario("Usuario " + i, "U" + i));
+        }
+        for (int intento = 0; intento < 50 && mapa.tamano() > 1; intento++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, mapa.tamano());
+        assertSame(retenido, mapa.obtener("U000"));
+        Usuario nuevo = new Usuario("Nuevo", "U5");
+        assertSame(nuevo, mapa.canonico("U5", nuevo));
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        mapa = null;
+    }
+}
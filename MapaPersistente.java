@@ -0,0 +1,405 @@
+/**
+ * Mapa inmutable y persistente basado en un trie de mapas de bits (HAMT).
+ *
+ * Cada modificación devuelve un mapa nuevo que comparte con el anterior todos
+ * los nodos que no cambiaron: sólo se copia el camino de la raíz a la clave,
+ * de a lo sumo siete nodos de hasta 32 hijos. Las versiones anteriores siguen
+ * siendo válidas e inmutables, por lo que pueden leerse desde cualquier hilo
+ * sin cerrojos mientras otras versiones se siguen modificando.
+ *
+ * Las claves deben tener equals y hashCode coherentes y no admitir null.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public final class MapaPersistente<K, V> implements Iterable<Map.Entry<K, V>> {
+    /** Bits del hash que consume cada nivel del trie */
+    private static final int BITS = 5;
+    /** Mapa vacío compartido */
+    private static final MapaPersistente<?, ?> VACIO = new MapaPersistente<>(null, 0);
+
+    /** Raíz del trie, o null si el mapa está vacío */
+    private final Nodo raiz;
+    /** Número de entradas */
+    private final int tamano;
+
+    private MapaPersistente(Nodo raiz, int tamano) {
+        this.raiz = raiz;
+        this.tamano = tamano;
+    }
+
+    /**
+     * Obtiene el mapa vacío.
+     * @return Un mapa sin entradas
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> MapaPersistente<K, V> vacio() {
+        return (MapaPersistente<K, V>) VACIO;
+    }
+
+    /**
+     * Obtiene el número de entradas.
+     * @return Tamaño del mapa
+     */
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * Indica si el mapa no tiene entradas.
+     * @return true si está vacío
+     */
+    public boolean estaVacio() {
+        return tamano == 0;
+    }
+
+    /**
+     * Obtiene el valor asociado a una clave.
+     *
+     * @param clave La clave
+     * @return El valor, o null si la clave no está
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K clave) {
+        return raiz == null ? null : (V) raiz.buscar(clave, dispersar(clave), 0);
+    }
+
+    /**
+     * Indica si el mapa contiene una clave.
+     * @param clave La clave
+     * @return true si la clave está en el mapa
+     */
+    public boolean contiene(K clave) {
+        return get(clave) != null;
+    }
+
+    /**
+     * Devuelve un mapa con la clave asociada al valor indicado.
+     *
+     * @param clave La clave
+     * @param valor El valor, distinto de null
+     * @return Mapa nuevo, o este mismo si la clave ya tenía ese valor
+     */
+    public MapaPersistente<K, V> con(K clave, V valor) {
+        Objects.requireNonNull(valor);
+        int hash = dispersar(clave);
+        Hoja hoja = new Hoja(hash, clave, valor);
+        if (raiz == null) {
+            return new MapaPersistente<>(hoja, 1);
+        }
+        boolean[] agregada = new boolean[1];
+        Nodo nueva = raiz.con(hoja, 0, agregada);
+        return nueva == raiz ? this : new MapaPersistente<>(nueva, tamano + (agregada[0] ? 1 : 0));
+    }
+
+    /**
+     * Devuelve un mapa sin la clave indicada.
+     *
+     * @param clave La clave
+     * @return Mapa nuevo, o este mismo si la clave no estaba
+     */
+    public MapaPersistente<K, V> sin(K clave) {
+        if (raiz == null) {
+            return this;
+        }
+        Nodo nueva = raiz.sin(clave, dispersar(clave), 0);
+        if (nueva == raiz) {
+            return this;
+        }
+        return nueva == null ? vacio() : new MapaPersistente<>(nueva, tamano - 1);
+    }
+
+    /**
+     * Recorre todas las entradas.
+     * @param accion Acción que recibe cada clave y su valor
+     */
+    public void forEach(BiConsumer<? super K, ? super V> accion) {
+        for (Map.Entry<K, V> entrada : this) {
+            accion.accept(entrada.getKey(), entrada.getValue());
+        }
+    }
+
+    /**
+     * Recorre las entradas en el orden del trie, que no es el de inserción.
+     * @return Iterador de entradas inmutables
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new Iterador<>(raiz);
+    }
+
+    /**
+     * Obtiene un flujo de las entradas del mapa.
+     * @return Stream secuencial de entradas
+     */
+    public Stream<Map.Entry<K, V>> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), tamano,
+            Spliterator.DISTINCT | Spliterator.IMMUTABLE | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Mezcla los bits altos del hash con los bajos, que son los que se usan primero.
+     */
+    private static int dispersar(Object clave) {
+        int h = clave.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Crea la rama mínima que separa dos nodos con hashes distintos.
+     */
+    private static Nodo fusionar(Nodo a, int hashA, Nodo b, int hashB, int desplazamiento) {
+        int ia = (hashA >>> desplazamiento) & 31;
+        int ib = (hashB >>> desplazamiento) & 31;
+        if (ia == ib) {
+            return new Rama(1 << ia, new Nodo[] {fusionar(a, hashA, b, hashB, desplazamiento + BITS)});
+        }
+        return new Rama((1 << ia) | (1 << ib), ia < ib ? new Nodo[] {a, b} : new Nodo[] {b, a});
+    }
+
+    /**
+     * Nodo del trie. Los nodos nunca se modifican después de construirse.
+     */
+    private abstract static class Nodo {
+        abstract Object buscar(Object clave, int hash, int desplazamiento);
+
+        abstract Nodo con(Hoja hoja, int desplazamiento, boolean[] agregada);
+
+        /** @return El nodo sin la clave, este mismo si no estaba, o null si queda vacío */
+        abstract Nodo sin(Object clave, int hash, int desplazamiento);
+    }
+
+    /**
+     * Una entrada.
+     */
+    private static final class Hoja extends Nodo {
+        final int hash;
+        final Object clave;
+        final Object valor;
+
+        Hoja(int hash, Object clave, Object valor) {
+            this.hash = hash;
+            this.clave = clave;
+            this.valor = valor;
+        }
+
+        @Override
+        Object buscar(Object clave, int hash, int desplazamiento) {
+            return this.hash == hash && this.clave.equals(clave) ? valor : null;
+        }
+
+        @Override
+        Nodo con(Hoja hoja, int desplazamiento, boolean[] agregada) {
+            if (hoja.hash != hash) {
+                agregada[0] = true;
+                return fusionar(this, hash, hoja, hoja.hash, desplazamiento);
+            }
+            if (clave.equals(hoja.clave)) {
+                return valor.equals(hoja.valor) ? this : hoja;
+            }
+            agregada[0] = true;
+            return new Colision(hash, new Hoja[] {this, hoja});
+        }
+
+        @Override
+        Nodo sin(Object clave, int hash, int desplazamiento) {
+            return this.hash == hash && this.clave.equals(clave) ? null : this;
+        }
+    }
+
+    /**
+     * Entradas cuyas claves tienen el mismo hash completo.
+     */
+    private static final class Colision extends Nodo {
+        final int hash;
+        final Hoja[] hojas;
+
+        Colision(int hash, Hoja[] hojas) {
+            this.hash = hash;
+            this.hojas = hojas;
+        }
+
+        @Override
+        Object buscar(Object clave, int hash, int desplazamiento) {
+            if (this.hash == hash) {
+                for (Hoja hoja : hojas) {
+                    if (hoja.clave.equals(clave)) {
+                        return hoja.valor;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Nodo con(Hoja hoja, int desplazamiento, boolean[] agregada) {
+            if (hoja.hash != hash) {
+                agregada[0] = true;
+                return fusionar(this, hash, hoja, hoja.hash, desplazamiento);
+            }
+            for (int i = 0; i < hojas.length; i++) {
+                if (hojas[i].clave.equals(hoja.clave)) {
+                    if (hojas[i].valor.equals(hoja.valor)) {
+                        return this;
+                    }
+                    Hoja[] copia = hojas.clone();
+                    copia[i] = hoja;
+                    return new Colision(hash, copia);
+                }
+            }
+            agregada[0] = true;
+            Hoja[] copia = Arrays.copyOf(hojas, hojas.length + 1);
+            copia[hojas.length] = hoja;
+            return new Colision(hash, copia);
+        }
+
+        @Override
+        Nodo sin(Object clave, int hash, int desplazamiento) {
+            if (this.hash != hash) {
+                return this;
+            }
+            for (int i = 0; i < hojas.length; i++) {
+                if (hojas[i].clave.equals(clave)) {
+                    if (hojas.length == 2) {
+                        return hojas[1 - i];
+                    }
+                    Hoja[] copia = new Hoja[hojas.length - 1];
+                    System.arraycopy(hojas, 0, copia, 0, i);
+                    System.arraycopy(hojas, i + 1, copia, i, hojas.length - i - 1);
+                    return new Colision(hash, copia);
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Nodo interno: un mapa de bits de 32 posiciones y un hijo por cada bit activo.
+     */
+    private static final class Rama extends Nodo {
+        final int mapaBits;
+        final Nodo[] hijos;
+
+        Rama(int mapaBits, Nodo[] hijos) {
+            this.mapaBits = mapaBits;
+            this.hijos = hijos;
+        }
+
+        @Override
+        Object buscar(Object clave, int hash, int desplazamiento) {
+            int bit = 1 << ((hash >>> desplazamiento) & 31);
+            if ((mapaBits & bit) == 0) {
+                return null;
+            }
+            return hijos[Integer.bitCount(mapaBits & (bit - 1))].buscar(clave, hash, desplazamiento + BITS);
+        }
+
+        @Override
+        Nodo con(Hoja hoja, int desplazamiento, boolean[] agregada) {
+            int bit = 1 << ((hoja.hash >>> desplazamiento) & 31);
+            int indice = Integer.bitCount(mapaBits & (bit - 1));
+            if ((mapaBits & bit) == 0) {
+                agregada[0] = true;
+                Nodo[] copia = new Nodo[hijos.length + 1];
+                System.arraycopy(hijos, 0, copia, 0, indice);
+                copia[indice] = hoja;
+                System.arraycopy(hijos, indice, copia, indice + 1, hijos.length - indice);
+                return new Rama(mapaBits | bit, copia);
+            }
+            Nodo hijo = hijos[indice].con(hoja, desplazamiento + BITS, agregada);
+            if (hijo == hijos[indice]) {
+                return this;
+            }
+            Nodo[] copia = hijos.clone();
+            copia[indice] = hijo;
+            return new Rama(mapaBits, copia);
+        }
+
+        @Override
+        Nodo sin(Object clave, int hash, int desplazamiento) {
+            int bit = 1 << ((hash >>> desplazamiento) & 31);
+            if ((mapaBits & bit) == 0) {
+                return this;
+            }
+            int indice = Integer.bitCount(mapaBits & (bit - 1));
+            Nodo hijo = hijos[indice].sin(clave, hash, desplazamiento + BITS);
+            if (hijo == hijos[indice]) {
+                return this;
+            }
+            if (hijo != null) {
+                // Una rama que queda con una sola hoja se reemplaza por la hoja
+                if (hijos.length == 1 && !(hijo instanceof Rama)) {
+                    return hijo;
+                }
+                Nodo[] copia = hijos.clone();
+                copia[indice] = hijo;
+                return new Rama(mapaBits, copia);
+            }
+            if (hijos.length == 1) {
+                return null;
+            }
+            if (hijos.length == 2 && !(hijos[1 - indice] instanceof Rama)) {
+                return hijos[1 - indice];
+            }
+            Nodo[] copia = new Nodo[hijos.length - 1];
+            System.arraycopy(hijos, 0, copia, 0, indice);
+            System.arraycopy(hijos, indice + 1, copia, indice, hijos.length - indice - 1);
+            return new Rama(mapaBits & ~bit, copia);
+        }
+    }
+
+    /**
+     * Recorrido en profundidad del trie con una pila explícita.
+     */
+    private static final class Iterador<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final ArrayDeque<Nodo> pila = new ArrayDeque<>();
+        private Hoja[] colision;
+        private int posicionColision;
+
+        Iterador(Nodo raiz) {
+            if (raiz != null) {
+                pila.push(raiz);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return colision != null || !pila.isEmpty();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            while (true) {
+                if (colision != null) {
+                    Hoja hoja = colision[posicionColision++];
+                    if (posicionColision == colision.length) {
+                        colision = null;
+                    }
+                    return new AbstractMap.SimpleImmutableEntry<>((K) hoja.clave, (V) hoja.valor);
+                }
+                Nodo nodo = pila.poll();
+                if (nodo == null) {
+                    throw new NoSuchElementException();
+                }
+                if (nodo instanceof Hoja) {
+                    Hoja hoja = (Hoja) nodo;
+                    return new AbstractMap.SimpleImmutableEntry<>((K) hoja.clave, (V) hoja.valor);
+                } else if (nodo instanceof Colision) {
+                    colision = ((Colision) nodo).hojas;
+                    posicionColision = 0;
+                } else {
+                    Nodo[] hijos = ((Rama) nodo).hijos;
+                    for (int i = hijos.length - 1; i >= 0; i--) {
+                        pila.push(hijos[i]);
+                    }
+                }
+            }
+        }
+    }
+}
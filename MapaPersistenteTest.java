@@ -0,0 +1,120 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la clase MapaPersistente.
+ * Verifica las operaciones contra un HashMap y que las versiones anteriores
+ * no cambien.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class MapaPersistenteTest
+{
+    /** Generador con semilla fija */
+    private Random aleatorio;
+
+    /**
+     * Clave con hash constante, para forzar colisiones.
+     */
+    private static final class ClaveColision {
+        final int valor;
+
+        ClaveColision(int valor) {
+            this.valor = valor;
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            return otro instanceof ClaveColision && ((ClaveColision) otro).valor == valor;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+
+    /**
+     * Inicializa el generador aleatorio.
+     */
+    @BeforeEach
+    public void setUp() {
+        aleatorio = new Random(3);
+    }
+
+    /**
+     * Prueba una secuencia aleatoria de altas y bajas contra un HashMap.
+     */
+    @Test
+    public void testContraHashMap() {
+        MapaPersistente<Integer, Integer> mapa = MapaPersistente.vacio();
+        Map<Integer, Integer> esperado = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int clave = aleatorio.nextInt(5000);
+            if (aleatorio.nextInt(3) == 0) {
+                mapa = mapa.sin(clave);
+                esperado.remove(clave);
+            } else {
+                mapa = mapa.con(clave, i);
+                esperado.put(clave, i);
+            }
+        }
+        assertEquals(esperado.size(), mapa.tamano());
+        for (int clave = 0; clave < 5000; clave++) {
+            assertEquals(esperado.get(clave), mapa.get(clave));
+        }
+        Map<Integer, Integer> recorrido = new HashMap<>();
+        mapa.forEach(recorrido::put);
+        assertEquals(esperado, recorrido);
+    }
+
+    /**
+     * Prueba que modificar un mapa no altere sus versiones anteriores.
+     */
+    @Test
+    public void testVersionesAnteriores() {
+        MapaPersistente<String, String> v1 = MapaPersistente.<String, String>vacio().con("a", "1").con("b", "2");
+        MapaPersistente<String, String> v2 = v1.con("a", "3").sin("b").con("c", "4");
+        assertEquals("1", v1.get("a"));
+        assertEquals("2", v1.get("b"));
+        assertNull(v1.get("c"));
+        assertEquals("3", v2.get("a"));
+        assertFalse(v2.contiene("b"));
+        assertEquals(2, v2.tamano());
+        assertSame(v2, v2.sin("x"));
+        assertSame(v2, v2.con("c", "4"));
+        assertTrue(v2.sin("a").sin("c").estaVacio());
+    }
+
+    /**
+     * Prueba claves con el mismo hash.
+     */
+    @Test
+    public void testColisiones() {
+        MapaPersistente<Object, Integer> mapa = MapaPersistente.vacio();
+        for (int i = 0; i < 5; i++) {
+            mapa = mapa.con(new ClaveColision(i), i);
+        }
+        mapa = mapa.con("otra", 99);
+        assertEquals(6, mapa.tamano());
+        assertEquals(Integer.valueOf(3), mapa.get(new ClaveColision(3)));
+        mapa = mapa.sin(new ClaveColision(3)).sin(new ClaveColision(0));
+        assertNull(mapa.get(new ClaveColision(3)));
+        assertEquals(Integer.valueOf(4), mapa.get(new ClaveColision(4)));
+        assertEquals(4, mapa.stream().count());
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        aleatorio = null;
+    }
+}
@@ -0,0 +1,457 @@
+/**
+ * Motor de búsqueda de texto completo sobre el título y el autor de los libros.
+ *
+ * Los textos se dividen en palabras plegadas (sin mayúsculas ni acentos) con
+ * Tokenizador y se guardan en un índice invertido de listas comprimidas
+ * (ListaPostings). Las consultas admiten:
+ * - Palabras sueltas, combinadas por defecto con AND: {@code quijote cervantes}
+ * - Alternativas con OR: {@code principito OR quijote}
+ * - Frases exactas entre comillas: {@code "cien anos"}
+ *
+ * Los resultados se ordenan con BM25F: el título pesa el doble que el autor.
+ * Para obtener los K mejores no se puntúan todos los documentos: cada cláusula
+ * conoce una cota superior de su puntuación y, con el algoritmo MaxScore, las
+ * cláusulas que no pueden llevar un documento al resultado sólo se evalúan para
+ * los candidatos que generan las demás.
+ *
+ * Un libro eliminado o modificado se marca como borrado y, si sigue en el catálogo,
+ * se vuelve a indexar con un identificador nuevo. Los documentos borrados no
+ * cuentan en el IDF ni en la longitud media, y cuando pasan de una cuarta parte
+ * del índice (UMBRAL_COMPACTACION) el índice se reconstruye sin ellos. No es
+ * seguro para hilos: la Biblioteca lo usa bajo su cerrojo.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.*;
+
+public class MotorBusqueda {
+    /** Parámetro de saturación de frecuencia de BM25 */
+    private static final double K1 = 1.2;
+    /** Parámetro de normalización por longitud de BM25 */
+    private static final double B = 0.75;
+    /** Peso del campo título */
+    private static final int PESO_TITULO = 2;
+    /** Peso del campo autor */
+    private static final int PESO_AUTOR = 1;
+    /** Posición a partir de la cual se numeran las palabras del autor */
+    private static final int INICIO_AUTOR = 1 << 16;
+    /** Fracción de documentos borrados a partir de la cual se compacta el índice */
+    private static final double UMBRAL_COMPACTACION = 0.25;
+
+    /** Listas de apariciones por término */
+    private final Map<String, ListaPostings> postings;
+    /** Libro de cada identificador de documento, null si fue eliminado */
+    private final List<Libro> documentos;
+    /** Identificador de documento vigente de cada libro */
+    private final Map<Libro, Integer> idPorLibro;
+    /** Longitud ponderada (título y autor) de cada documento */
+    private int[] longitudes;
+    /** Listas en que aparece cada documento vigente, para descontarlo al borrarlo */
+    private ListaPostings[][] terminos;
+    /** Número de documentos vigentes */
+    private int vivos;
+    /** Suma de las longitudes ponderadas de los documentos vigentes */
+    private long sumaLongitudes;
+
+    /**
+     * Crea un motor de búsqueda vacío.
+     */
+    public MotorBusqueda() {
+        this.postings = new HashMap<>();
+        this.documentos = new ArrayList<>();
+        this.idPorLibro = new IdentityHashMap<>();
+        this.longitudes = new int[64];
+        this.terminos = new ListaPostings[64][];
+    }
+
+    /**
+     * Indexa el título y el autor de un libro. Un libro ya indexado se ignora.
+     * @param libro El libro a indexar
+     */
+    public void agregarLibro(Libro libro) {
+        if (idPorLibro.containsKey(libro)) {
+            return;
+        }
+        int doc = documentos.size();
+        documentos.add(libro);
+        idPorLibro.put(libro, doc);
+        List<String> titulo = Tokenizador.tokenizar(libro.getTitulo());
+        List<String> autor = Tokenizador.tokenizar(libro.getAutor());
+        Map<String, List<Integer>> posiciones = new LinkedHashMap<>();
+        for (int i = 0; i < titulo.size(); i++) {
+            posiciones.computeIfAbsent(titulo.get(i), t -> new ArrayList<>()).add(i);
+        }
+        for (int i = 0; i < autor.size(); i++) {
+            posiciones.computeIfAbsent(autor.get(i), t -> new ArrayList<>()).add(INICIO_AUTOR + i);
+        }
+        ListaPostings[] listas = new ListaPostings[posiciones.size()];
+        int k = 0;
+        for (Map.Entry<String, List<Integer>> entrada : posiciones.entrySet()) {
+            int[] lista = new int[entrada.getValue().size()];
+            int enTitulo = 0;
+            for (int i = 0; i < lista.length; i++) {
+                lista[i] = entrada.getValue().get(i);
+                if (lista[i] < INICIO_AUTOR) {
+                    enTitulo++;
+                }
+            }
+            listas[k] = postings.computeIfAbsent(entrada.getKey(), t -> new ListaPostings());
+            listas[k++].agregar(doc, enTitulo, lista.length - enTitulo, lista);
+        }
+        if (doc == longitudes.length) {
+            longitudes = Arrays.copyOf(longitudes, doc * 2);
+            terminos = Arrays.copyOf(terminos, doc * 2);
+        }
+        terminos[doc] = listas;
+        longitudes[doc] = PESO_TITULO * titulo.size() + PESO_AUTOR * autor.size();
+        sumaLongitudes += longitudes[doc];
+        vivos++;
+    }
+
+    /**
+     * Elimina un libro del índice. Si los documentos borrados superan el
+     * umbral de compactación, el índice se reconstruye.
+     * @param libro El libro a eliminar
+     */
+    public void eliminarLibro(Libro libro) {
+        Integer doc = idPorLibro.remove(libro);
+        if (doc != null) {
+            documentos.set(doc, null);
+            for (ListaPostings lista : terminos[doc]) {
+                lista.descontar();
+            }
+            terminos[doc] = null;
+            sumaLongitudes -= longitudes[doc];
+            vivos--;
+            if (getBorrados() > UMBRAL_COMPACTACION * documentos.size()) {
+                compactar();
+            }
+        }
+    }
+
+    /**
+     * Reconstruye el índice sólo con los documentos vigentes, en el mismo
+     * orden, de modo que las listas dejan de contener documentos borrados.
+     */
+    public void compactar() {
+        List<Libro> vigentes = new ArrayList<>(vivos);
+        for (Libro libro : documentos) {
+            if (libro != null) {
+                vigentes.add(libro);
+            }
+        }
+        postings.clear();
+        documentos.clear();
+        idPorLibro.clear();
+        longitudes = new int[Math.max(64, vigentes.size())];
+        terminos = new ListaPostings[longitudes.length][];
+        vivos = 0;
+        sumaLongitudes = 0;
+        for (Libro libro : vigentes) {
+            agregarLibro(libro);
+        }
+    }
+
+    /**
+     * Vuelve a indexar un libro cuyo título o autor cambió.
+     * @param libro El libro modificado
+     */
+    public void actualizarLibro(Libro libro) {
+        if (idPorLibro.containsKey(libro)) {
+            eliminarLibro(libro);
+            agregarLibro(libro);
+        }
+    }
+
+    /**
+     * Obtiene el número de libros indexados.
+     * @return Número de documentos vigentes
+     */
+    public int getTotalDocumentos() {
+        return vivos;
+    }
+
+    /**
+     * Obtiene el número de documentos borrados que siguen en las listas.
+     * @return Documentos pendientes de compactar
+     */
+    public int getBorrados() {
+        return documentos.size() - vivos;
+    }
+
+    /**
+     * Obtiene el tamaño total de las listas de apariciones comprimidas.
+     * @return Bytes ocupados por las listas
+     */
+    public long getBytesIndice() {
+        long bytes = 0;
+        for (ListaPostings lista : postings.values()) {
+            bytes += lista.getBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Busca los libros que satisfacen la consulta y los ordena por relevancia.
+     *
+     * @param consulta Consulta con palabras, frases entre comillas y operadores AND/OR
+     * @param maximo Número máximo de resultados
+     * @return Los libros más relevantes, del más al menos relevante
+     */
+    public List<Libro> buscar(String consulta, int maximo) {
+        List<Clausula> clausulas = analizar(consulta);
+        List<Libro> resultados = new ArrayList<>();
+        if (clausulas.isEmpty() || maximo <= 0) {
+            return resultados;
+        }
+        for (Clausula clausula : clausulas) {
+            clausula.siguienteCoincidencia(0);
+        }
+        clausulas.sort(Comparator.comparingDouble(c -> c.cota));
+        int n = clausulas.size();
+        double[] cotasAcumuladas = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            cotasAcumuladas[i + 1] = cotasAcumuladas[i] + clausulas.get(i).cota;
+        }
+
+        // Montículo de mínimos con los mejores documentos: {puntuación, documento}
+        PriorityQueue<double[]> mejores = new PriorityQueue<>(
+            (a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(b[1], a[1]));
+        double umbral = -1;
+        int esenciales = 0;
+        while (true) {
+            while (esenciales < n && cotasAcumuladas[esenciales + 1] <= umbral) {
+                esenciales++;
+            }
+            if (esenciales == n) {
+                break;
+            }
+            int candidato = ListaPostings.AGOTADO;
+            for (int i = esenciales; i < n; i++) {
+                candidato = Math.min(candidato, clausulas.get(i).doc);
+            }
+            if (candidato == ListaPostings.AGOTADO) {
+                break;
+            }
+            double puntuacion = 0;
+            for (int i = esenciales; i < n; i++) {
+                Clausula clausula = clausulas.get(i);
+                if (clausula.doc == candidato) {
+                    puntuacion += clausula.puntuar();
+                    clausula.siguienteCoincidencia(candidato + 1);
+                }
+            }
+            for (int i = esenciales - 1; i >= 0 && puntuacion + cotasAcumuladas[i + 1] > umbral; i--) {
+                Clausula clausula = clausulas.get(i);
+                if (clausula.doc < candidato) {
+                    clausula.siguienteCoincidencia(candidato);
+                }
+                if (clausula.doc == candidato) {
+                    puntuacion += clausula.puntuar();
+                }
+            }
+            if (mejores.size() < maximo) {
+                mejores.add(new double[] {puntuacion, candidato});
+            } else if (puntuacion > mejores.peek()[0]) {
+                mejores.poll();
+                mejores.add(new double[] {puntuacion, candidato});
+            }
+            if (mejores.size() == maximo) {
+                umbral = mejores.peek()[0];
+            }
+        }
+        List<double[]> ordenados = new ArrayList<>(mejores);
+        ordenados.sort((a, b) -> a[0] != b[0] ? Double.compare(b[0], a[0]) : Double.compare(a[1], b[1]));
+        for (double[] resultado : ordenados) {
+            resultados.add(documentos.get((int) resultado[1]));
+        }
+        return resultados;
+    }
+
+    /**
+     * Analiza una consulta y la convierte en una disyunción de cláusulas
+     * conjuntivas. AND tiene precedencia sobre OR.
+     */
+    private List<Clausula> analizar(String consulta) {
+        List<Clausula> clausulas = new ArrayList<>();
+        List<List<String>> elementos = new ArrayList<>();
+        int i = 0;
+        while (i <= consulta.length()) {
+            if (i == consulta.length()) {
+                agregarClausula(clausulas, elementos);
+                break;
+            }
+            char c = consulta.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int fin = consulta.indexOf('"', i + 1);
+                fin = fin < 0 ? consulta.length() : fin;
+                List<String> frase = Tokenizador.tokenizar(consulta.substring(i + 1, fin));
+                if (!frase.isEmpty()) {
+                    elementos.add(frase);
+                }
+                i = fin + 1;
+            } else {
+                int fin = i;
+                while (fin < consulta.length() && !Character.isWhitespace(consulta.charAt(fin))
+                       && consulta.charAt(fin) != '"') {
+                    fin++;
+                }
+                String palabra = consulta.substring(i, fin);
+                if (palabra.equals("OR")) {
+                    agregarClausula(clausulas, elementos);
+                    elementos = new ArrayList<>();
+                } else if (!palabra.equals("AND")) {
+                    List<String> partes = Tokenizador.tokenizar(palabra);
+                    if (!partes.isEmpty()) {
+                        elementos.add(partes);
+                    }
+                }
+                i = fin;
+            }
+        }
+        return clausulas;
+    }
+
+    /**
+     * Crea la cláusula de una lista de elementos (palabras o frases) y la agrega.
+     * Una cláusula con alguna palabra que no está en el índice no puede coincidir
+     * y se descarta.
+     */
+    private void agregarClausula(List<Clausula> clausulas, List<List<String>> elementos) {
+        if (elementos.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> indices = new LinkedHashMap<>();
+        List<int[]> frases = new ArrayList<>();
+        for (List<String> elemento : elementos) {
+            int[] frase = new int[elemento.size()];
+            for (int j = 0; j < elemento.size(); j++) {
+                String termino = elemento.get(j);
+                if (!postings.containsKey(termino)) {
+                    return;
+                }
+                Integer indice = indices.get(termino);
+                if (indice == null) {
+                    indice = indices.size();
+                    indices.put(termino, indice);
+                }
+                frase[j] = indice;
+            }
+            if (frase.length > 1) {
+                frases.add(frase);
+            }
+        }
+        ListaPostings.Cursor[] cursores = new ListaPostings.Cursor[indices.size()];
+        double[] idf = new double[indices.size()];
+        for (Map.Entry<String, Integer> entrada : indices.entrySet()) {
+            ListaPostings lista = postings.get(entrada.getKey());
+            cursores[entrada.getValue()] = lista.cursor();
+            idf[entrada.getValue()] = idf(lista.getNumDocsVigentes());
+        }
+        clausulas.add(new Clausula(cursores, idf, frases));
+    }
+
+    /**
+     * Calcula el IDF de BM25 para un término que aparece en df documentos.
+     */
+    private double idf(int df) {
+        int frecuencia = Math.min(df, vivos);
+        return Math.log(1 + (vivos - frecuencia + 0.5) / (frecuencia + 0.5));
+    }
+
+    /**
+     * Conjunción de palabras y frases evaluada documento a documento.
+     */
+    private class Clausula {
+        final ListaPostings.Cursor[] cursores;
+        final double[] idf;
+        final List<int[]> frases;
+        final double cota;
+        int doc = -1;
+
+        Clausula(ListaPostings.Cursor[] cursores, double[] idf, List<int[]> frases) {
+            this.cursores = cursores;
+            this.idf = idf;
+            this.frases = frases;
+            double suma = 0;
+            for (double valor : idf) {
+                suma += valor * (K1 + 1);
+            }
+            this.cota = suma;
+        }
+
+        /**
+         * Avanza a la primera coincidencia vigente en un documento mayor o igual al indicado.
+         */
+        void siguienteCoincidencia(int desde) {
+            int objetivo = desde;
+            while (true) {
+                boolean alineados = true;
+                for (ListaPostings.Cursor cursor : cursores) {
+                    int actual = cursor.avanzar(objetivo);
+                    if (actual != objetivo) {
+                        objetivo = actual;
+                        alineados = false;
+                        break;
+                    }
+                }
+                if (objetivo == ListaPostings.AGOTADO) {
+                    doc = ListaPostings.AGOTADO;
+                    return;
+                }
+                if (alineados) {
+                    if (documentos.get(objetivo) != null && frasesCoinciden()) {
+                        doc = objetivo;
+                        return;
+                    }
+                    objetivo++;
+                }
+            }
+        }
+
+        /**
+         * Calcula la puntuación BM25F de la cláusula en el documento actual.
+         */
+        double puntuar() {
+            double promedio = vivos == 0 ? 1 : (double) sumaLongitudes / vivos;
+            double normalizacion = K1 * (1 - B + B * longitudes[doc] / promedio);
+            double puntuacion = 0;
+            for (int i = 0; i < cursores.length; i++) {
+                double frecuencia = PESO_TITULO * cursores[i].frecuenciaTitulo()
+                                  + PESO_AUTOR * cursores[i].frecuenciaAutor();
+                puntuacion += idf[i] * frecuencia * (K1 + 1) / (frecuencia + normalizacion);
+            }
+            return puntuacion;
+        }
+
+        /**
+         * Verifica que todas las frases aparezcan en posiciones consecutivas.
+         */
+        private boolean frasesCoinciden() {
+            for (int[] frase : frases) {
+                int[][] posiciones = new int[frase.length][];
+                for (int j = 0; j < frase.length; j++) {
+                    posiciones[j] = cursores[frase[j]].posiciones();
+                }
+                boolean encontrada = false;
+                for (int inicio : posiciones[0]) {
+                    boolean consecutiva = true;
+                    for (int j = 1; j < frase.length && consecutiva; j++) {
+                        consecutiva = Arrays.binarySearch(posiciones[j], inicio + j) >= 0;
+                    }
+                    if (consecutiva) {
+                        encontrada = true;
+                        break;
+                    }
+                }
+                if (!encontrada) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
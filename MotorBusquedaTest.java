@@ -0,0 +1,181 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la clase MotorBusqueda.
+ * Verifica la tokenización con acentos, las consultas AND, OR y de frase,
+ * el orden por relevancia y la actualización del índice.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class MotorBusquedaTest
+{
+    /** Motor de búsqueda de prueba */
+    private MotorBusqueda motor;
+    /** Libros de prueba */
+    private Libro quijote, cien, amor, principito;
+
+    /**
+     * Configura un motor con cuatro libros.
+     */
+    @BeforeEach
+    public void setUp() {
+        motor = new MotorBusqueda();
+        quijote = new Libro("Don Quijote de la Mancha", "Miguel de Cervantes", "9788424922498", 863);
+        cien = new Libro("Cien años de soledad", "Gabriel García Márquez", "9780307474728", 417);
+        amor = new Libro("El amor en los tiempos del cólera", "Gabriel García Márquez", "9780307387264", 464);
+        principito = new Libro("El Principito", "Antoine de Saint-Exupéry", "9788498381498", 96);
+        motor.agregarLibro(quijote);
+        motor.agregarLibro(cien);
+        motor.agregarLibro(amor);
+        motor.agregarLibro(principito);
+    }
+
+    /**
+     * Prueba la tokenización y el plegado de acentos.
+     */
+    @Test
+    public void testTokenizador() {
+        assertEquals(Arrays.asList("cien", "anos", "de", "soledad"), Tokenizador.tokenizar("Cien AÑOS de soledad"));
+        assertEquals(Arrays.asList("saint", "exupery"), Tokenizador.tokenizar("Saint-Exupéry"));
+    }
+
+    /**
+     * Prueba las consultas conjuntivas sobre título y autor, sin acentos.
+     */
+    @Test
+    public void testConsultaAnd() {
+        assertEquals(Arrays.asList(cien), motor.buscar("anos marquez", 10));
+        assertEquals(Arrays.asList(quijote), motor.buscar("mancha AND cervantes", 10));
+        assertTrue(motor.buscar("mancha principito", 10).isEmpty());
+        assertTrue(motor.buscar("inexistente", 10).isEmpty());
+    }
+
+    /**
+     * Prueba las consultas disyuntivas y el límite de resultados.
+     */
+    @Test
+    public void testConsultaOr() {
+        assertEquals(new HashSet<>(Arrays.asList(quijote, principito)),
+                     new HashSet<>(motor.buscar("quijote OR principito", 10)));
+        assertEquals(1, motor.buscar("quijote OR principito", 1).size());
+        assertEquals(Arrays.asList(principito), motor.buscar("inexistente OR principito", 10));
+    }
+
+    /**
+     * Prueba las frases exactas.
+     */
+    @Test
+    public void testConsultaFrase() {
+        assertEquals(Arrays.asList(cien), motor.buscar("\"cien años\"", 10));
+        assertTrue(motor.buscar("\"años cien\"", 10).isEmpty());
+        assertEquals(2, motor.buscar("\"garcia marquez\"", 10).size());
+    }
+
+    /**
+     * Prueba que un término en el título puntúe más que en el autor.
+     */
+    @Test
+    public void testRelevancia() {
+        Libro gabriel = new Libro("Gabriel", "Anónimo", "9780000000001", 10);
+        motor.agregarLibro(gabriel);
+        assertEquals(gabriel, motor.buscar("gabriel", 10).get(0));
+    }
+
+    /**
+     * Prueba la eliminación y la actualización de libros indexados.
+     */
+    @Test
+    public void testActualizacion() {
+        motor.eliminarLibro(quijote);
+        assertTrue(motor.buscar("quijote", 10).isEmpty());
+
+        principito.setTitulo("El Principito y el zorro");
+        motor.actualizarLibro(principito);
+        assertEquals(Arrays.asList(principito), motor.buscar("zorro", 10));
+        assertEquals(3, motor.getTotalDocumentos());
+    }
+
+    /**
+     * Prueba que los documentos borrados no cuenten en el IDF y que, al pasar
+     * del umbral, el índice se compacte hasta quedar igual que uno nuevo.
+     */
+    @Test
+    public void testBorradosYCompactacion() {
+        motor = new MotorBusqueda();
+        MotorBusqueda nuevo = new MotorBusqueda();
+        Libro a = new Libro("alfa", "Anónimo", "1", 10);
+        Libro b = new Libro("beta", "Anónimo", "2", 10);
+        Libro c = new Libro("alfa gamma", "Anónimo", "3", 10);
+        List<Libro> vigentes = new ArrayList<>(Arrays.asList(a, b, c));
+        for (int i = 0; i < 9; i++) {
+            vigentes.add(new Libro("relleno " + i, "Anónimo", "R" + i, 10));
+        }
+        List<Libro> borrados = new ArrayList<>();
+        for (Libro libro : vigentes) {
+            motor.agregarLibro(libro);
+            nuevo.agregarLibro(libro);
+        }
+        for (int i = 0; i < 3; i++) {
+            borrados.add(new Libro("beta " + i, "Anónimo", "B" + i, 10));
+            motor.agregarLibro(borrados.get(i));
+        }
+        for (Libro libro : borrados) {
+            motor.eliminarLibro(libro);
+        }
+        assertEquals(3, motor.getBorrados());
+        // beta aparece en un solo documento vigente y pesa más que alfa
+        assertEquals(Arrays.asList(b, a, c), motor.buscar("alfa OR beta", 10));
+        assertEquals(nuevo.buscar("alfa OR beta", 10), motor.buscar("alfa OR beta", 10));
+
+        // Al pasar de una cuarta parte de borrados el índice se reconstruye
+        motor.eliminarLibro(vigentes.get(11));
+        nuevo.eliminarLibro(vigentes.get(11));
+        assertEquals(0, motor.getBorrados());
+        nuevo.compactar();
+        assertEquals(nuevo.getBytesIndice(), motor.getBytesIndice());
+        assertEquals(11, motor.getTotalDocumentos());
+        assertTrue(motor.buscar("beta 0", 10).isEmpty());
+
+        // Las ediciones de título no hacen crecer el índice sin límite
+        for (int i = 0; i < 100; i++) {
+            c.setTitulo("alfa gamma " + i);
+            motor.actualizarLibro(c);
+            assertTrue(motor.getBorrados() <= 3);
+        }
+        assertEquals(Arrays.asList(c), motor.buscar("gamma 99", 10));
+        assertEquals(11, motor.getTotalDocumentos());
+    }
+
+    /**
+     * Prueba el avance por saltos en listas largas.
+     */
+    @Test
+    public void testListaPostingsConSaltos() {
+        ListaPostings lista = new ListaPostings();
+        for (int doc = 0; doc < 1000; doc += 3) {
+            lista.agregar(doc, 1, 0, new int[] {doc % 7});
+        }
+        ListaPostings.Cursor cursor = lista.cursor();
+        assertEquals(501, cursor.avanzar(500));
+        assertEquals(501 % 7, cursor.posiciones()[0]);
+        assertEquals(504, cursor.siguiente());
+        assertEquals(999, cursor.avanzar(998));
+        assertEquals(ListaPostings.AGOTADO, cursor.siguiente());
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        motor = null;
+        quijote = cien = amor = principito = null;
+    }
+}
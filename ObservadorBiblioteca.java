@@ -0,0 +1,19 @@
+/**
+ * Interfaz para recibir, en orden de versión, los cambios que publica una
+ * Biblioteca (ver CambioBiblioteca). Se invoca con el cerrojo de la biblioteca
+ * adquirido, inmediatamente después de publicar cada instantánea, por lo que
+ * debe retornar pronto y no llamar a métodos de la biblioteca desde otro hilo
+ * mientras tanto.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public interface ObservadorBiblioteca {
+
+    /**
+     * Se invoca después de cada modificación de la biblioteca.
+     *
+     * @param cambio La modificación, con la versión que produjo
+     */
+    void cambioPublicado(CambioBiblioteca cambio);
+}
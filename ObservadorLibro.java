@@ -0,0 +1,47 @@
+/**
+ * Interfaz para recibir avisos de cambios en un Libro.
+ * La Biblioteca la usa para mantener al día sus estructuras auxiliares
+ * (caché de búsquedas, índices) cuando se modifica un libro que ya forma parte
+ * de su colección. Todos los métodos tienen una implementación vacía por defecto,
+ * de modo que cada observador sólo sobrescribe los avisos que le interesan.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public interface ObservadorLibro {
+
+    /**
+     * Se invoca después de que cambia el título de un libro.
+     *
+     * @param libro El libro modificado
+     * @param tituloAnterior El título que tenía antes del cambio
+     */
+    default void tituloCambiado(Libro libro, String tituloAnterior) {
+    }
+
+    /**
+     * Se invoca después de que cambia el autor de un libro.
+     *
+     * @param libro El libro modificado
+     * @param autorAnterior El autor que tenía antes del cambio
+     */
+    default void autorCambiado(Libro libro, String autorAnterior) {
+    }
+
+    /**
+     * Se invoca después de que cambia el ISBN de un libro.
+     *
+     * @param libro El libro modificado
+     * @param isbnAnterior El ISBN que tenía antes del cambio
+     */
+    default void isbnCambiado(Libro libro, String isbnAnterior) {
+    }
+
+    /**
+     * Se invoca después de que un libro pasa de disponible a prestado o viceversa.
+     *
+     * @param libro El libro modificado; su nuevo estado se consulta con isPrestado()
+     */
+    default void estadoPrestamoCambiado(Libro libro) {
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Página de resultados de un recorrido paginado por cursor.
+ * El cursor es opaco para el cliente: basta con pasarlo a la siguiente llamada
+ * para continuar justo después del último elemento de esta página.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ * @param <T> Tipo de los elementos de la página
+ */
+import java.util.*;
+
+public class Pagina<T> {
+    /** Elementos de la página */
+    private final List<T> elementos;
+    /** Cursor para pedir la página siguiente */
+    private final long cursorSiguiente;
+    /** Indica si quedan elementos después de esta página */
+    private final boolean hayMas;
+
+    /**
+     * Crea una página.
+     *
+     * @param elementos Elementos de la página
+     * @param cursorSiguiente Cursor para pedir la página siguiente
+     * @param hayMas true si quedan elementos después de esta página
+     */
+    public Pagina(List<T> elementos, long cursorSiguiente, boolean hayMas) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.cursorSiguiente = cursorSiguiente;
+        this.hayMas = hayMas;
+    }
+
+    /**
+     * Obtiene los elementos de la página.
+     * @return Lista no modificable de elementos
+     */
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    /**
+     * Obtiene el cursor para pedir la página siguiente.
+     * @return Cursor de continuación
+     */
+    public long getCursorSiguiente() {
+        return cursorSiguiente;
+    }
+
+    /**
+     * Indica si quedan elementos después de esta página.
+     * @return true si hay más páginas
+     */
+    public boolean hayMas() {
+        return hayMas;
+    }
+
+    /**
+     * Devuelve una representación en cadena de la página.
+     * @return String con el número de elementos y el cursor
+     */
+    public String toString() {
+        return "Pagina [elementos=" + elementos.size() + ", cursorSiguiente=" + cursorSiguiente +
+               ", hayMas=" + hayMas + "]";
+    }
+}
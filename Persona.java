@@ -2,19 +2,27 @@
  * Clase abstracta que representa una persona en el sistema de biblioteca.
  * Sirve como base para representar a los usuarios persona del sistema
  * 
+ * Dos personas son iguales si son de la misma clase y tienen el mismo ID, que
+ * no cambia; el código hash se calcula una sola vez en el constructor. Así una
+ * copia (por ejemplo la de Prestamo.getUsuario) coincide con el original en
+ * los conjuntos y mapas.
+ * 
  * @author Roberto Salazar Márquez 
  * @version 1.0
  */
+import java.util.Objects;
 
 public abstract class Persona {
     /** Nombre de la persona */
     private String nombre;
     /** Identificador único de la persona */
-    private String id;
+    private final String id;
     /** Correo electrónico de contacto */
     private String email;
     /** Número telefónico de contacto */
     private String telefono;
+    /** Código hash de la clase y el ID, calculado en el constructor */
+    private final int hash;
 
     /**
      * Constructor de la clase Persona.
@@ -26,6 +34,7 @@ public abstract class Persona {
         this.id = id;
         this.email = "usuario@servidor.com";
         this.telefono = "0000000000";
+        this.hash = 31 * getClass().getName().hashCode() + (id != null ? id.hashCode() : 0);
     }
 
     
@@ -86,6 +95,32 @@ public abstract class Persona {
     }
 
 
+    /**
+     * Compara por clase e ID.
+     * @param otro Objeto a comparar
+     * @return true si es una persona de la misma clase con el mismo ID
+     */
+    @Override
+    public boolean equals(Object otro) {
+        if (this == otro) {
+            return true;
+        }
+        if (otro == null || otro.getClass() != getClass()) {
+            return false;
+        }
+        Persona persona = (Persona) otro;
+        return hash == persona.hash && Objects.equals(id, persona.id);
+    }
+
+    /**
+     * Obtiene el código hash guardado en el constructor.
+     * @return Código hash de la clase y el ID
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     // Método abstracto que deberán implementar las clases hijas
     public abstract String obtenerTipo();
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+/**
+ * Pool de licencias simultáneas de préstamo digital para un libro.
+ *
+ * Cada licencia ocupa una ranura de un AtomicReferenceArray durante un tiempo
+ * limitado. Un contador atómico de ranuras libres actúa como semáforo sin
+ * bloqueo: quien lo decrementa tiene garantizada una ranura vacía, que reclama
+ * con compareAndSet empezando en una posición aleatoria para repartir la
+ * contención. Adquirir y devolver son, por tanto, libres de cerrojos, y cuando
+ * no quedan licencias el rechazo cuesta una sola lectura.
+ *
+ * Las licencias vencidas no se liberan solas: BarredorLicencias llama
+ * periódicamente a recuperarVencidas(), que las reclama en bloque. El propio
+ * pool recuerda si ya se registró en el barredor (marcarVigilado), de modo
+ * que cada pool se registra una sola vez aunque su libro lo reemplace.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PoolLicencias {
+    /** Ranuras del pool; null indica una ranura libre */
+    private final AtomicReferenceArray<Licencia> ranuras;
+    /** Ranuras libres aún no reclamadas por ningún hilo */
+    private final AtomicInteger libres;
+    /** Reloj con el que se calculan los vencimientos */
+    private final Clock reloj;
+    /** Indica si el pool ya se registró en un barredor */
+    private final AtomicBoolean vigilado;
+    private final LongAdder concedidas;
+    private final LongAdder rechazadas;
+    private final LongAdder recuperadas;
+
+    /**
+     * Crea un pool con el número de licencias indicado y el reloj del sistema.
+     * @param licencias Número de licencias simultáneas
+     */
+    public PoolLicencias(int licencias) {
+        this(licencias, Clock.systemUTC());
+    }
+
+    /**
+     * Crea un pool con el número de licencias y el reloj indicados.
+     *
+     * @param licencias Número de licencias simultáneas
+     * @param reloj Reloj para calcular los vencimientos
+     */
+    public PoolLicencias(int licencias, Clock reloj) {
+        if (licencias < 0) {
+            throw new IllegalArgumentException("El número de licencias no puede ser negativo");
+        }
+        this.ranuras = new AtomicReferenceArray<>(licencias);
+        this.libres = new AtomicInteger(licencias);
+        this.reloj = reloj;
+        this.vigilado = new AtomicBoolean();
+        this.concedidas = new LongAdder();
+        this.rechazadas = new LongAdder();
+        this.recuperadas = new LongAdder();
+    }
+
+    /**
+     * Intenta adquirir una licencia por el tiempo indicado.
+     *
+     * @param duracion Tiempo durante el que la licencia es válida
+     * @return La licencia concedida, o null si no queda ninguna libre
+     */
+    public Licencia adquirir(Duration duracion) {
+        int disponibles;
+        do {
+            disponibles = libres.get();
+            if (disponibles == 0) {
+                rechazadas.increment();
+                return null;
+            }
+        } while (!libres.compareAndSet(disponibles, disponibles - 1));
+
+        // El decremento reserva una ranura vacía; sólo falta encontrarla.
+        long venceMs = reloj.millis() + duracion.toMillis();
+        int total = ranuras.length();
+        int inicio = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; ; i++) {
+            int ranura = (inicio + i) % total;
+            if (ranuras.get(ranura) == null) {
+                Licencia licencia = new Licencia(this, ranura, venceMs);
+                if (ranuras.compareAndSet(ranura, null, licencia)) {
+                    concedidas.increment();
+                    return licencia;
+                }
+            }
+        }
+    }
+
+    /**
+     * Devuelve una licencia al pool.
+     *
+     * @param licencia La licencia a devolver
+     * @return true si la licencia ocupaba su ranura; false si ya se había
+     *         devuelto o el barredor la había recuperado por vencida
+     */
+    public boolean liberar(Licencia licencia) {
+        if (licencia.getPool() == this
+                && ranuras.compareAndSet(licencia.getRanura(), licencia, null)) {
+            libres.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Recupera en bloque todas las licencias vencidas.
+     * @return Número de licencias recuperadas
+     */
+    public int recuperarVencidas() {
+        long ahora = reloj.millis();
+        int recuperadasAhora = 0;
+        for (int i = 0; i < ranuras.length(); i++) {
+            Licencia licencia = ranuras.get(i);
+            if (licencia != null && licencia.getVenceMs() <= ahora
+                    && ranuras.compareAndSet(i, licencia, null)) {
+                libres.incrementAndGet();
+                recuperadasAhora++;
+            }
+        }
+        recuperadas.add(recuperadasAhora);
+        return recuperadasAhora;
+    }
+
+    /**
+     * Obtiene el número total de licencias del pool.
+     * @return Licencias simultáneas
+     */
+    public int getTotal() {
+        return ranuras.length();
+    }
+
+    /**
+     * Obtiene el número de licencias libres.
+     * @return Licencias que pueden adquirirse ahora
+     */
+    public int getLibres() {
+        return libres.get();
+    }
+
+    /**
+     * Obtiene el número de licencias concedidas desde que se creó el pool.
+     * @return Total de licencias concedidas
+     */
+    public long getConcedidas() {
+        return concedidas.sum();
+    }
+
+    /**
+     * Obtiene el número de solicitudes rechazadas por falta de licencias.
+     * @return Total de rechazos
+     */
+    public long getRechazadas() {
+        return rechazadas.sum();
+    }
+
+    /**
+     * Obtiene el número de licencias vencidas recuperadas por el barredor.
+     * @return Total de licencias recuperadas
+     */
+    public long getRecuperadas() {
+        return recuperadas.sum();
+    }
+
+    /**
+     * Marca el pool como registrado en el barredor.
+     * @return true sólo para el primer hilo que lo marca, que es quien debe registrarlo
+     */
+    boolean marcarVigilado() {
+        return !vigilado.get() && vigilado.compareAndSet(false, true);
+    }
+
+    /**
+     * Indica si el pool ya se marcó como registrado en el barredor.
+     */
+    boolean isVigilado() {
+        return vigilado.get();
+    }
+
+    /**
+     * Indica si una licencia sigue ocupando su ranura.
+     */
+    boolean ocupa(Licencia licencia) {
+        return ranuras.get(licencia.getRanura()) == licencia;
+    }
+
+    /**
+     * Indica si una licencia alcanzó su vencimiento según el reloj del pool.
+     */
+    boolean haVencido(Licencia licencia) {
+        return licencia.getVenceMs() <= reloj.millis();
+    }
+
+    /**
+     * Devuelve una representación en cadena del pool.
+     * @return String con las licencias libres y totales
+     */
+    public String toString() {
+        return "PoolLicencias [libres=" + libres.get() + "/" + ranuras.length() +
+               ", concedidas=" + concedidas.sum() + ", rechazadas=" + rechazadas.sum() +
+               ", recuperadas=" + recuperadas.sum() + "]";
+    }
+}
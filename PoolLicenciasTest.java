@@ -0,0 +1,136 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase de pruebas unitarias para las clases PoolLicencias y BarredorLicencias.
+ * Verifica la concesión, devolución y recuperación de licencias, y que el pool
+ * nunca conceda más licencias de las que tiene con muchos hilos a la vez.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class PoolLicenciasTest
+{
+    /** Pool de prueba con tres licencias */
+    private PoolLicencias pool;
+
+    /**
+     * Configura un pool con tres licencias.
+     */
+    @BeforeEach
+    public void setUp() {
+        pool = new PoolLicencias(3);
+    }
+
+    /**
+     * Prueba que el pool rechace solicitudes al agotarse y acepte tras una devolución.
+     */
+    @Test
+    public void testAdquirirYLiberar() {
+        Licencia primera = pool.adquirir(Duration.ofHours(1));
+        assertNotNull(pool.adquirir(Duration.ofHours(1)));
+        assertNotNull(pool.adquirir(Duration.ofHours(1)));
+        assertNull(pool.adquirir(Duration.ofHours(1)));
+        assertEquals(0, pool.getLibres());
+        assertEquals(1, pool.getRechazadas());
+
+        assertTrue(primera.isVigente());
+        assertTrue(pool.liberar(primera));
+        assertFalse(pool.liberar(primera));
+        assertFalse(primera.isVigente());
+        assertNotNull(pool.adquirir(Duration.ofHours(1)));
+    }
+
+    /**
+     * Prueba que el barredor recupere las licencias vencidas y que una licencia
+     * recuperada no libere la ranura de la licencia que la reemplaza.
+     */
+    @Test
+    public void testRecuperarVencidas() {
+        Licencia vencida = pool.adquirir(Duration.ZERO);
+        pool.adquirir(Duration.ofHours(1));
+        assertFalse(vencida.isVigente());
+
+        BarredorLicencias barredor = new BarredorLicencias(Duration.ofSeconds(1));
+        barredor.registrar(pool);
+        assertEquals(1, barredor.barrer());
+        assertEquals(2, pool.getLibres());
+        assertEquals(1, pool.getRecuperadas());
+
+        pool.adquirir(Duration.ofHours(1));
+        pool.adquirir(Duration.ofHours(1));
+        assertFalse(pool.liberar(vencida));
+        assertEquals(0, pool.getLibres());
+    }
+
+    /**
+     * Prueba que el hilo del barredor recupere licencias en segundo plano.
+     */
+    @Test
+    public void testBarredorEnSegundoPlano() throws InterruptedException {
+        BarredorLicencias barredor = new BarredorLicencias(Duration.ofMillis(5));
+        barredor.registrar(pool);
+        pool.adquirir(Duration.ZERO);
+        barredor.iniciar();
+        try {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (pool.getLibres() < 3 && System.nanoTime() < limite) {
+                Thread.sleep(5);
+            }
+        } finally {
+            barredor.detener();
+        }
+        assertEquals(3, pool.getLibres());
+    }
+
+    /**
+     * Prueba que muchos hilos compitiendo por pocas licencias nunca excedan el límite.
+     */
+    @Test
+    public void testConcurrencia() throws Exception {
+        AtomicInteger enUso = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> tareas = new ArrayList<>();
+        for (int h = 0; h < 8; h++) {
+            tareas.add(ejecutor.submit(() -> {
+                int concedidas = 0;
+                for (int i = 0; i < 20000; i++) {
+                    Licencia licencia = pool.adquirir(Duration.ofHours(1));
+                    if (licencia != null) {
+                        maximo.accumulateAndGet(enUso.incrementAndGet(), Math::max);
+                        enUso.decrementAndGet();
+                        assertTrue(pool.liberar(licencia));
+                        concedidas++;
+                    }
+                }
+                return concedidas;
+            }));
+        }
+        long total = 0;
+        for (Future<Integer> tarea : tareas) {
+            total += tarea.get();
+        }
+        ejecutor.shutdown();
+        assertTrue(maximo.get() <= 3);
+        assertEquals(3, pool.getLibres());
+        assertEquals(total, pool.getConcedidas());
+        assertEquals(8 * 20000, total + pool.getRechazadas());
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        pool = null;
+    }
+}
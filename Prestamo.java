@@ -4,19 +4,41 @@
  * Mantiene el registro de los préstamos, incluyendo información sobre el usuario, el libro,
  * las fechas relevantes y el estado actual del préstamo.
  * 
+ * Para que el historial pueda retener muchos préstamos, las fechas se guardan
+ * como días desde la época (LocalDate.toEpochDay) y el estado en un byte; los
+ * LocalDate se crean sólo al pedirlos. Un ID de la forma que genera
+ * Empleado.generarId ("P" seguido de dígitos) se guarda como número.
+ * La fecha actual se toma del reloj con que se creó el préstamo (el del
+ * empleado que lo procesa) y el día se calcula una vez por día, no en cada
+ * verificación.
+ * 
  * @author Roberto Salazar Márquez
  * @version 1.1
  */
 import java.time.*;
+import java.util.Objects;
 
 public class Prestamo {
-    private String id;
+    /** Número del ID de la forma "P" + dígitos, o -1 si idTexto guarda el ID */
+    private int numero;
+    /** ID que no tiene la forma "P" + dígitos, o null */
+    private String idTexto;
     private Usuario usuario;
     private Libro libro;
-    private LocalDate fechaPrestamo;
-    private LocalDate fechaDevolucionEsperada;
-    private LocalDate fechaDevolucionReal;
-    private int estado;
+    /** Fecha del préstamo, en días desde la época */
+    private int diaPrestamo;
+    /** Fecha esperada de devolución, en días desde la época */
+    private int diaDevolucionEsperada;
+    /** Fecha real de devolución, en días desde la época, o SIN_DEVOLUCION */
+    private int diaDevolucionReal;
+    private byte estado;
+    /** Reloj del que se toma la fecha actual */
+    private final Clock reloj;
+
+    /** Valor de diaDevolucionReal mientras no se ha devuelto el libro */
+    private static final int SIN_DEVOLUCION = Integer.MIN_VALUE;
+    /** Último día calculado; sus límites dependen sólo de la zona, no del reloj */
+    private static volatile Dia hoy = new Dia(0, 0, 0, ZoneOffset.UTC);
 
     /** Constante que representa un préstamo activo */
     public static final int ACTIVO = 0;
@@ -33,22 +55,112 @@ public class Prestamo {
      */
     
     public Prestamo(String id, Usuario usuario, Libro libro) {
+        this(id, usuario, libro, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor que inicializa un nuevo préstamo con las fechas de un reloj
+     * dado, por ejemplo uno simulado.
+     * @param id Identificador único del préstamo
+     * @param usuario Usuario que realiza el préstamo
+     * @param libro Libro a prestar
+     * @param reloj Reloj del que se toman la fecha del préstamo y la actual
+     */
+    public Prestamo(String id, Usuario usuario, Libro libro, Clock reloj) {
         /** Identificador único del préstamo */
-        this.id = id;
+        this.reloj = Objects.requireNonNull(reloj);
+        this.numero = numeroDe(id);
+        this.idTexto = numero < 0 ? id : null;
         this.usuario = usuario;
         this.libro = libro;
-        this.fechaPrestamo = LocalDate.now();
-        this.fechaDevolucionEsperada = fechaPrestamo.plusDays(14); // 14 días de préstamo por defecto
-        this.fechaDevolucionReal = null;
+        this.diaPrestamo = diaActual();
+        this.diaDevolucionEsperada = diaPrestamo + 14; // 14 días de préstamo por defecto
+        this.diaDevolucionReal = SIN_DEVOLUCION;
         this.estado = ACTIVO;
     }
 
+    /**
+     * Obtiene el número de un ID de la forma "P" seguido de al menos cuatro
+     * dígitos, sin ceros de más a la izquierda, de modo que el ID pueda
+     * reconstruirse igual con String.format("P%04d", numero).
+     * @return El número, o -1 si el ID no tiene esa forma
+     */
+    private static int numeroDe(String id) {
+        if (id == null || id.length() < 5 || id.length() > 10 || id.charAt(0) != 'P'
+                || (id.length() > 5 && id.charAt(1) == '0')) {
+            return -1;
+        }
+        int valor = 0;
+        for (int i = 1; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    /**
+     * Obtiene el día actual del reloj del préstamo en días desde la época.
+     * Sólo consulta el calendario cuando cambia el día o la zona.
+     * @return Día actual
+     */
+    private int diaActual() {
+        long ahora = reloj.millis();
+        ZoneId zona = reloj.getZone();
+        Dia cache = hoy;
+        if (ahora < cache.inicio || ahora >= cache.fin || !zona.equals(cache.zona)) {
+            LocalDate fecha = Instant.ofEpochMilli(ahora).atZone(zona).toLocalDate();
+            cache = new Dia(fecha.toEpochDay(), fecha.atStartOfDay(zona).toInstant().toEpochMilli(),
+                            fecha.plusDays(1).atStartOfDay(zona).toInstant().toEpochMilli(), zona);
+            hoy = cache;
+        }
+        return (int) cache.dia;
+    }
+
+    /**
+     * Día en caché con sus límites en milisegundos y la zona en que se calculó.
+     * Es inmutable para que los hilos lo lean sin sincronizar.
+     */
+    private static final class Dia {
+        final long dia;
+        final long inicio;
+        final long fin;
+        final ZoneId zona;
+
+        Dia(long dia, long inicio, long fin, ZoneId zona) {
+            this.dia = dia;
+            this.inicio = inicio;
+            this.fin = fin;
+            this.zona = zona;
+        }
+    }
+
+    /**
+     * Indica si el libro prestado tiene el ISBN dado, sin copiar el libro.
+     * @param isbn El ISBN
+     * @return true si el libro prestado tiene ese ISBN
+     */
+    boolean esDeIsbn(String isbn) {
+        return libro.getIsbn().equals(isbn);
+    }
+
+    /**
+     * Obtiene el ejemplar prestado sin copiarlo, para localizar lo que la
+     * biblioteca guarda de él.
+     * @return El ejemplar prestado
+     */
+    Libro getEjemplar() {
+        return libro;
+    }
+
     /**
      * Obtiene el identificador del préstamo.
      * @return Identificador único del préstamo
      */
     public String getId() { 
-        return id; 
+        return idTexto != null ? idTexto : String.format("P%04d", numero); 
     }
 
     /**
@@ -72,7 +184,15 @@ public class Prestamo {
      * @return Fecha del préstamo
      */
     public LocalDate getFechaPrestamo() { 
-        return fechaPrestamo; 
+        return LocalDate.ofEpochDay(diaPrestamo); 
+    }
+
+    /**
+     * Obtiene la fecha del préstamo sin crear un LocalDate.
+     * @return Fecha del préstamo en días desde la época
+     */
+    public int getDiaPrestamo() {
+        return diaPrestamo;
     }
     
     /**
@@ -80,7 +200,15 @@ public class Prestamo {
      * @return Fecha esperada de devolución
      */
     public LocalDate getFechaDevolucionEsperada() { 
-        return fechaDevolucionEsperada; 
+        return LocalDate.ofEpochDay(diaDevolucionEsperada); 
+    }
+
+    /**
+     * Obtiene la fecha esperada de devolución sin crear un LocalDate.
+     * @return Fecha esperada de devolución en días desde la época
+     */
+    public int getDiaDevolucionEsperada() {
+        return diaDevolucionEsperada;
     }
     
     /**
@@ -88,7 +216,7 @@ public class Prestamo {
      * @return Fecha real de devolución, null si aún no se ha devuelto
      */
     public LocalDate getFechaDevolucionReal() { 
-        return fechaDevolucionReal; 
+        return diaDevolucionReal == SIN_DEVOLUCION ? null : LocalDate.ofEpochDay(diaDevolucionReal); 
     }
     
     /**
@@ -120,7 +248,7 @@ public class Prestamo {
      */
     public boolean procesarDevolucion() {
     if (estado == ACTIVO) {
-        fechaDevolucionReal = LocalDate.now();
+        diaDevolucionReal = diaActual();
         libro.devolverLibro();  // Primero marcamos el libro como disponible
         if (usuario.devolverLibro(libro)) {  // Pasamos el libro como parámetro
             estado = DEVUELTO;
@@ -132,13 +260,28 @@ public class Prestamo {
     return false;
 }
     
+    /**
+     * Marca el préstamo como devuelto en la fecha actual, esté activo o
+     * vencido. A diferencia de procesarDevolucion no modifica el libro ni el
+     * usuario, cuyo estado actualiza quien procesa la devolución.
+     * @return true si el préstamo seguía abierto
+     */
+    boolean cerrar() {
+        if (estado == DEVUELTO) {
+            return false;
+        }
+        diaDevolucionReal = diaActual();
+        estado = DEVUELTO;
+        return true;
+    }
+
     /**
      * Verifica y actualiza el estado del préstamo.
      * Si la fecha actual supera la fecha de devolución esperada, 
      * el estado cambia a VENCIDO.
      */
     public void verificarEstado() {
-        if (estado == ACTIVO && LocalDate.now().isAfter(fechaDevolucionEsperada)) {
+        if (estado == ACTIVO && diaActual() > diaDevolucionEsperada) {
             estado = VENCIDO;
         }
     }
@@ -149,8 +292,8 @@ public class Prestamo {
      * @return true si la extensión fue exitosa, false si el préstamo no está activo o está vencido
      */
     public boolean extenderPrestamo(int dias) {
-        if (estado == ACTIVO && !LocalDate.now().isAfter(fechaDevolucionEsperada)) {
-            fechaDevolucionEsperada = fechaDevolucionEsperada.plusDays(dias);
+        if (estado == ACTIVO && diaActual() <= diaDevolucionEsperada) {
+            diaDevolucionEsperada += dias;
             return true;
         }
         return false;
@@ -179,12 +322,12 @@ public class Prestamo {
                 estadoStr = "DESCONOCIDO";
         }
         
-        return "Prestamo [ID=" + id + 
+        return "Prestamo [ID=" + getId() + 
                ", Usuario=" + usuario.getNombre() +
                ", Libro=" + libro.getTitulo() +
-               ", Fecha Prestamo=" + fechaPrestamo +
-               ", Fecha Devolución Esperada=" + fechaDevolucionEsperada +
-               ", Fecha Devolución Real=" + (fechaDevolucionReal != null ? fechaDevolucionReal : "No devuelto") +
+               ", Fecha Prestamo=" + getFechaPrestamo() +
+               ", Fecha Devolución Esperada=" + getFechaDevolucionEsperada() +
+               ", Fecha Devolución Real=" + (diaDevolucionReal != SIN_DEVOLUCION ? getFechaDevolucionReal() : "No devuelto") +
                ", Estado=" + estadoStr + "]";
     }
 }
\ No newline at end of file
@@ -130,6 +130,21 @@ public class PrestamoTest
         assertTrue(resultado.contains("ACTIVO"));
     }
 
+    /**
+     *  Verifica que los IDs se conserven tal cual, se guarden como número
+     *  o como texto, y que las fechas se expongan como días y como LocalDate.
+     */
+    @Test
+    public void testRepresentacionCompacta() {
+        for (String id : new String[] {"P0000", "P0042", "P12345", "P00042", "P042", "X0001", "P12a4", ""}) {
+            assertEquals(id, new Prestamo(id, usuario, libro).getId());
+        }
+        assertEquals(LocalDate.now(), prestamo.getFechaPrestamo());
+        assertEquals(LocalDate.now().toEpochDay(), prestamo.getDiaPrestamo());
+        assertEquals(prestamo.getDiaPrestamo() + 14, prestamo.getDiaDevolucionEsperada());
+        assertNull(prestamo.getFechaDevolucionReal());
+    }
+
     /**
      *  Limpia el ambiente de pruebas después de cada test.
      */
@@ -0,0 +1,139 @@
+/**
+ * Prueba de carga local para ServidorBiblioteca.
+ * Levanta el servidor sobre una biblioteca generada y abre muchos clientes
+ * concurrentes con conexiones persistentes (keep-alive); cada cliente realiza
+ * una serie de consultas encadenadas de forma asíncrona, sin dedicar un hilo
+ * por cliente. Al terminar informa el rendimiento y los percentiles de latencia.
+ *
+ * Uso: java -Dsun.net.httpserver.nodelay=true PruebaCargaServidor [clientes] [peticionesPorCliente] [libros]
+ *
+ * Para decenas de miles de clientes es necesario elevar el límite de
+ * descriptores de archivo del sistema (por ejemplo, ulimit -n 100000).
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.net.URI;
+import java.net.http.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PruebaCargaServidor {
+
+    /**
+     * Crea la biblioteca de demostración que sirven esta prueba,
+     * ServidorBiblioteca.main y PruebaReplicacion.
+     * @return Biblioteca con empleados, libros y usuarios de ejemplo
+     */
+    public static Biblioteca bibliotecaDemostracion() {
+        Biblioteca biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        biblioteca.agregarEmpleado(new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario"));
+        biblioteca.agregarEmpleado(new Empleado("María García", "E002", 8000.00, "Asistente"));
+        biblioteca.agregarLibro(new Libro("Don Quijote de la Mancha", "Miguel de Cervantes", "9788424922498", 863));
+        biblioteca.agregarLibro(new Libro("Cien años de soledad", "Gabriel García Márquez", "9780307474728", 417));
+        biblioteca.agregarLibro(new Libro("El Principito", "Antoine de Saint-Exupéry", "9788498381498", 96));
+        biblioteca.agregarLibro(new Libro("1984", "George Orwell", "9788499890944", 326));
+        biblioteca.agregarLibro(new Libro("Orgullo y Prejuicio", "Jane Austen", "9788491052050", 424));
+        biblioteca.agregarUsuario(new Usuario("Ana López", "U001"));
+        biblioteca.agregarUsuario(new Usuario("Carlos Ruiz", "U002"));
+        return biblioteca;
+    }
+
+    /**
+     * Ejecuta la prueba de carga.
+     * @param args clientes, peticiones por cliente y número de libros
+     */
+    public static void main(String[] args) throws Exception {
+        int clientes = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int peticiones = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int numLibros = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+        Biblioteca biblioteca = bibliotecaDemostracion();
+        for (int i = 0; i < numLibros; i++) {
+            biblioteca.agregarLibro(new Libro("Libro de prueba " + i, "Autor " + (i % 100),
+                                              String.format("%013d", i), 100 + i % 400));
+        }
+        ServidorBiblioteca servidor = new ServidorBiblioteca(biblioteca, 0, clientes);
+        servidor.iniciar();
+        String base = "http://localhost:" + servidor.getPuerto();
+
+        HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+        long[][] latencias = new long[clientes][peticiones];
+        AtomicLong errores = new AtomicLong();
+        CompletableFuture<?>[] sesiones = new CompletableFuture<?>[clientes];
+
+        System.out.println("Clientes concurrentes: " + clientes + ", peticiones por cliente: " + peticiones +
+                           (Hilos.hayHilosVirtuales() ? " (hilos virtuales)" : " (hilos de plataforma)"));
+        long inicio = System.nanoTime();
+        for (int c = 0; c < clientes; c++) {
+            sesiones[c] = sesion(cliente, base, c, 0, latencias[c], errores);
+        }
+        CompletableFuture.allOf(sesiones).join();
+        long duracion = System.nanoTime() - inicio;
+        servidor.detener(0);
+
+        long[] todas = new long[clientes * peticiones];
+        for (int c = 0; c < clientes; c++) {
+            System.arraycopy(latencias[c], 0, todas, c * peticiones, peticiones);
+        }
+        Arrays.sort(todas);
+        System.out.printf("Peticiones: %d en %.2f s (%.0f pet/s), errores: %d%n",
+                          todas.length, duracion / 1e9, todas.length / (duracion / 1e9), errores.get());
+        System.out.printf("Latencia p50=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms%n",
+                          percentil(todas, 0.50), percentil(todas, 0.99),
+                          percentil(todas, 0.999), todas[todas.length - 1] / 1e6);
+    }
+
+    /**
+     * Encadena las peticiones de un cliente una tras otra sobre la misma conexión.
+     */
+    private static CompletableFuture<Void> sesion(HttpClient cliente, String base, int idCliente, int n,
+                                                  long[] latencias, AtomicLong errores) {
+        if (n == latencias.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + ruta(idCliente, n)))
+            .timeout(Duration.ofSeconds(60))
+            .GET()
+            .build();
+        long inicio = System.nanoTime();
+        return cliente.sendAsync(peticion, HttpResponse.BodyHandlers.discarding())
+            .handle((respuesta, error) -> {
+                latencias[n] = System.nanoTime() - inicio;
+                if (error != null || respuesta.statusCode() >= 500) {
+                    if (errores.getAndIncrement() == 0) {
+                        System.out.println("Primer error: " + (error != null ? error : respuesta.statusCode()));
+                    }
+                }
+                return null;
+            })
+            .thenCompose(ignorado -> sesion(cliente, base, idCliente, n + 1, latencias, errores));
+    }
+
+    /**
+     * Elige la ruta de la n-ésima petición de un cliente (consulta, búsqueda o estado).
+     */
+    private static String ruta(int idCliente, int n) {
+        switch ((idCliente + n) % 3) {
+            case 0:
+                return "/libros/9788498381498";
+            case 1:
+                return "/libros?titulo=principito";
+            default:
+                return "/estado";
+        }
+    }
+
+    /**
+     * Calcula un percentil, en milisegundos, de latencias ordenadas en nanosegundos.
+     */
+    private static double percentil(long[] ordenadas, double p) {
+        int indice = (int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1);
+        return ordenadas[Math.max(0, indice)] / 1e6;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Medición de DiccionarioTitulos frente a guardar los títulos como String.
+ * Genera títulos de catálogo con palabras frecuentes e informa:
+ * - los bytes por título como String (estimados y medidos en el heap) y en el
+ *   diccionario,
+ * - el tiempo de construcción,
+ * - el costo de una búsqueda exacta y de un recorrido por prefijo.
+ *
+ * Uso: java PruebaDiccionarioTitulos [titulos] [busquedas]
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.*;
+
+public class PruebaDiccionarioTitulos {
+    /** Evita que el compilador JIT descarte las lecturas medidas */
+    private static volatile long sumidero;
+
+    private static final String[] PALABRAS = {
+        "el", "la", "los", "las", "de", "del", "y", "en", "historia", "libro", "manual", "introducción",
+        "guía", "teoría", "práctica", "principios", "fundamentos", "sistemas", "programación", "datos",
+        "mundo", "vida", "tiempo", "noche", "ciudad", "mar", "sombra", "memoria", "amor", "guerra",
+        "poesía", "cuentos", "novela", "ensayo", "arte", "ciencia", "química", "física", "economía",
+        "política", "derecho", "filosofía", "música", "lenguaje", "cálculo", "álgebra", "redes"
+    };
+
+    /**
+     * Ejecuta la medición.
+     * @param args número de títulos y de búsquedas
+     */
+    public static void main(String[] args) throws Exception {
+        int numTitulos = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int busquedas = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+        Random aleatorio = new Random(1);
+        long antes = memoriaUsada();
+        List<String> titulos = new ArrayList<>(numTitulos);
+        for (int i = 0; i < numTitulos; i++) {
+            titulos.add(generarTitulo(aleatorio, i));
+        }
+        long conString = memoriaUsada() - antes - (16 + 4L * numTitulos);
+        long estimado = DiccionarioTitulos.bytesComoString(titulos);
+
+        long inicio = System.nanoTime();
+        DiccionarioTitulos diccionario = new DiccionarioTitulos(titulos);
+        double msConstruir = (System.nanoTime() - inicio) / 1e6;
+        System.out.printf("Títulos: %d (%d distintos); construcción: %.0f ms%n",
+                          numTitulos, diccionario.tamano(), msConstruir);
+        System.out.printf("Como String: %.1f bytes/título (estimado %.1f); diccionario: %.1f bytes/título (%.1fx menos)%n",
+                          conString / (double) numTitulos, estimado / (double) diccionario.tamano(),
+                          diccionario.getBytesPorTitulo(), estimado / (double) diccionario.getBytes());
+
+        String[] consultas = new String[4096];
+        for (int i = 0; i < consultas.length; i++) {
+            consultas[i] = titulos.get(aleatorio.nextInt(numTitulos));
+        }
+        long total = 0;
+        for (int ronda = 0; ronda < 2; ronda++) {
+            inicio = System.nanoTime();
+            for (int i = 0; i < busquedas; i++) {
+                total += diccionario.buscar(consultas[i & (consultas.length - 1)]);
+            }
+        }
+        double nsBuscar = (System.nanoTime() - inicio) / (double) busquedas;
+
+        long[] bytes = {0};
+        inicio = System.nanoTime();
+        int visitados = diccionario.recorrerPrefijo("Historia", (rango, titulo, longitud) -> {
+            bytes[0] += longitud;
+            return true;
+        });
+        double msPrefijo = (System.nanoTime() - inicio) / 1e6;
+        sumidero = total + bytes[0];
+        System.out.printf("Búsqueda exacta: %.0f ns; recorrido del prefijo \"Historia\": %d títulos en %.1f ms%n",
+                          nsBuscar, visitados, msPrefijo);
+    }
+
+    /**
+     * Genera un título de tres a siete palabras con un número de volumen
+     * ocasional.
+     */
+    private static String generarTitulo(Random aleatorio, int i) {
+        StringBuilder titulo = new StringBuilder();
+        int palabras = 3 + aleatorio.nextInt(5);
+        for (int p = 0; p < palabras; p++) {
+            String palabra = PALABRAS[Math.min(PALABRAS.length - 1, (int) (-Math.log(1 - aleatorio.nextDouble()) * 8))];
+            titulo.append(p == 0 ? Character.toUpperCase(palabra.charAt(0)) + palabra.substring(1) : " " + palabra);
+        }
+        if (i % 4 == 0) {
+            titulo.append(", vol. ").append(1 + i % 12);
+        }
+        return titulo.toString();
+    }
+
+    /**
+     * Memoria del heap en uso después de recolectar la basura.
+     */
+    private static long memoriaUsada() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Medición del costo de las instantáneas de Biblioteca.
+ * Sobre una biblioteca generada mide:
+ * - el costo de publicar una instantánea en cada préstamo y devolución,
+ * - el costo de obtener una instantánea y recorrerla,
+ * - la memoria que retienen las instantáneas antiguas que siguen referenciadas,
+ * - el rendimiento de los préstamos mientras otro hilo recorre instantáneas.
+ *
+ * Uso: java PruebaInstantaneas [libros] [operaciones] [instantaneasRetenidas]
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PruebaInstantaneas {
+    /** Evita que el compilador JIT descarte las lecturas medidas */
+    private static volatile long sumidero;
+
+    /**
+     * Ejecuta la medición.
+     * @param args libros, operaciones de préstamo y devolución, e instantáneas retenidas
+     */
+    public static void main(String[] args) throws Exception {
+        int numLibros = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int operaciones = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        int retenidas = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        Biblioteca biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        biblioteca.agregarEmpleado(new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario"));
+        biblioteca.agregarUsuario(new Usuario("Ana López", "U001"));
+        String[] isbns = new String[numLibros];
+        for (int i = 0; i < numLibros; i++) {
+            isbns[i] = String.format("%013d", i);
+            biblioteca.agregarLibro(new Libro("Libro de prueba " + i, "Autor " + (i % 100), isbns[i], 100 + i % 400));
+        }
+        Random aleatorio = new Random(1);
+        System.out.println("Libros: " + numLibros + ", operaciones: " + operaciones);
+
+        // 1. Préstamos y devoluciones; cada uno publica dos instantáneas (préstamo y devolución)
+        ciclos(biblioteca, isbns, aleatorio, operaciones / 10);
+        long inicio = System.nanoTime();
+        ciclos(biblioteca, isbns, aleatorio, operaciones);
+        double nsPorCiclo = (System.nanoTime() - inicio) / (double) operaciones;
+
+        // Costo aislado de publicar una instantánea sobre el mismo número de libros
+        InstantaneaBiblioteca base = biblioteca.getInstantanea();
+        Libro muestra = new Libro("Muestra", "Autor", "9999999999999", 100);
+        InstantaneaBiblioteca actual = base;
+        for (int i = 0; i < operaciones / 10; i++) {
+            actual = base.conLibro(1 + aleatorio.nextInt(numLibros), muestra);
+        }
+        inicio = System.nanoTime();
+        for (int i = 0; i < operaciones; i++) {
+            actual = base.conLibro(1 + aleatorio.nextInt(numLibros), muestra);
+        }
+        double nsPorPublicacion = (System.nanoTime() - inicio) / (double) operaciones;
+        System.out.printf("Préstamo + devolución: %.0f ns; publicar una instantánea: %.0f ns (%.1f%% del ciclo)%n",
+                          nsPorCiclo, nsPorPublicacion, 200 * nsPorPublicacion / nsPorCiclo);
+
+        // 2. Obtener y recorrer una instantánea
+        inicio = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < 1000000; i++) {
+            total += biblioteca.getInstantanea().getTotalPrestados();
+        }
+        double nsObtener = (System.nanoTime() - inicio) / 1e6;
+        sumidero = total;
+        inicio = System.nanoTime();
+        long prestados = biblioteca.getInstantanea().streamLibros().filter(InstantaneaBiblioteca.FichaLibro::isPrestado).count();
+        double msRecorrer = (System.nanoTime() - inicio) / 1e6;
+        System.out.printf("Obtener instantánea: %.1f ns; recorrer %d libros: %.1f ms (%d prestados)%n",
+                          nsObtener, numLibros, msRecorrer, prestados);
+
+        // 3. Memoria retenida por instantáneas antiguas, una cada 100 operaciones
+        long antes = memoriaUsada();
+        List<InstantaneaBiblioteca> historial = new ArrayList<>(retenidas);
+        for (int i = 0; i < retenidas; i++) {
+            ciclos(biblioteca, isbns, aleatorio, 50);
+            historial.add(biblioteca.getInstantanea());
+        }
+        long despues = memoriaUsada();
+        System.out.printf("Retener %d instantáneas (100 modificaciones entre cada una): %.1f KB por instantánea%n",
+                          historial.size(), (despues - antes) / 1024.0 / retenidas);
+        historial.clear();
+
+        // 4. Préstamos mientras otro hilo recorre instantáneas sin cerrojo
+        AtomicBoolean activo = new AtomicBoolean(true);
+        AtomicLong recorridos = new AtomicLong();
+        Thread lector = new Thread(() -> {
+            while (activo.get()) {
+                biblioteca.getInstantanea().streamLibros().filter(InstantaneaBiblioteca.FichaLibro::isPrestado).count();
+                recorridos.incrementAndGet();
+            }
+        });
+        lector.start();
+        inicio = System.nanoTime();
+        ciclos(biblioteca, isbns, aleatorio, operaciones);
+        double nsConLector = (System.nanoTime() - inicio) / (double) operaciones;
+        activo.set(false);
+        lector.join();
+        System.out.printf("Préstamo + devolución con un lector concurrente: %.0f ns (%d recorridos completos)%n",
+                          nsConLector, recorridos.get());
+        System.out.println("Última instantánea: " + actual.getVersion() + " / " + biblioteca.getInstantanea());
+    }
+
+    /**
+     * Presta y devuelve libros al azar.
+     */
+    private static void ciclos(Biblioteca biblioteca, String[] isbns, Random aleatorio, int n) {
+        for (int i = 0; i < n; i++) {
+            String isbn = isbns[aleatorio.nextInt(isbns.length)];
+            biblioteca.prestarLibro(isbn, "U001", "E001");
+            biblioteca.devolverLibro(isbn, "E001");
+        }
+    }
+
+    /**
+     * Memoria del heap en uso después de recolectar la basura.
+     */
+    private static long memoriaUsada() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Medición de PublicadorLibros frente a buscarLibrosPorTitulo en una búsqueda
+ * muy amplia. Informa el tiempo hasta el primer resultado y hasta el último,
+ * y la memoria que retiene la lista completa frente a un lote del publicador.
+ *
+ * Uso: java PruebaPublicadorLibros [libros] [consulta]
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.List;
+import java.util.concurrent.Flow;
+
+public class PruebaPublicadorLibros {
+    /** Evita que el compilador JIT descarte los resultados */
+    private static volatile long sumidero;
+
+    /**
+     * Ejecuta la medición.
+     * @param args número de libros y texto a buscar en el título
+     */
+    public static void main(String[] args) throws Exception {
+        int numLibros = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        String consulta = args.length > 1 ? args[1] : "a";
+
+        Biblioteca biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        biblioteca.configurarCacheBusquedas(0);
+        for (int i = 0; i < numLibros; i++) {
+            biblioteca.agregarLibro(new Libro("Libro de prueba " + i, "Autor " + (i % 100),
+                                              String.format("%013d", i), 100 + i % 400));
+        }
+        System.out.println("Libros: " + numLibros + ", consulta: \"" + consulta + "\"");
+
+        for (int ronda = 0; ronda < 3; ronda++) {
+            long inicio = System.nanoTime();
+            List<Libro> lista = biblioteca.buscarLibrosPorTitulo(consulta);
+            long primeroLista = System.nanoTime() - inicio;
+            sumidero = lista.size();
+
+            long[] tiempos = new long[2];
+            long[] recibidos = {0};
+            long inicioPublicador = System.nanoTime();
+            biblioteca.publicarLibrosPorTitulo(consulta).subscribe(new Flow.Subscriber<Libro>() {
+                @Override
+                public void onSubscribe(Flow.Subscription suscripcion) {
+                    suscripcion.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Libro libro) {
+                    if (recibidos[0]++ == 0) {
+                        tiempos[0] = System.nanoTime() - inicioPublicador;
+                    }
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    error.printStackTrace();
+                }
+
+                @Override
+                public void onComplete() {
+                    tiempos[1] = System.nanoTime() - inicioPublicador;
+                }
+            });
+            System.out.printf("Lista: %d resultados, primero y último a los %.1f ms (%.1f MB retenidos); "
+                              + "publicador: primero a los %.1f µs, último a los %.1f ms (lote de %d)%n",
+                              lista.size(), primeroLista / 1e6, (16 + 4.0 * lista.size()) / 1e6,
+                              tiempos[0] / 1e3, tiempos[1] / 1e6, PublicadorLibros.TAMANO_LOTE);
+        }
+    }
+}
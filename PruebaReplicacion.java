@@ -0,0 +1,81 @@
+/**
+ * Prueba local de la replicación de lectura con varios procesos.
+ * Levanta una ReplicaPrimaria sobre una biblioteca generada con un hilo que
+ * presta y devuelve libros sin pausa, y lanza réplicas seguidoras en JVM
+ * separadas de la misma máquina (ReplicaSeguidora.main) que atienden
+ * consultas durante el tiempo indicado. Al terminar suma las lecturas por
+ * segundo de todas las réplicas e informa su retraso.
+ *
+ * Uso: java PruebaReplicacion [replicas] [segundos] [libros] [hilosPorReplica]
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PruebaReplicacion {
+
+    /**
+     * Ejecuta la prueba.
+     * @param args réplicas, segundos, número de libros e hilos lectores por réplica
+     */
+    public static void main(String[] args) throws Exception {
+        int replicas = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int numLibros = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        int hilos = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        Biblioteca biblioteca = PruebaCargaServidor.bibliotecaDemostracion();
+        String[] isbns = new String[numLibros];
+        for (int i = 0; i < numLibros; i++) {
+            isbns[i] = String.format("%013d", i);
+            biblioteca.agregarLibro(new Libro("Libro de prueba " + i, "Autor " + (i % 100), isbns[i], 100 + i % 400));
+        }
+        ReplicaPrimaria primaria = new ReplicaPrimaria(biblioteca, 0);
+        primaria.iniciar();
+
+        AtomicBoolean activo = new AtomicBoolean(true);
+        AtomicLong escrituras = new AtomicLong();
+        Thread escritor = Hilos.iniciar("escritor", () -> {
+            Random aleatorio = new Random(1);
+            while (activo.get()) {
+                String isbn = isbns[aleatorio.nextInt(isbns.length)];
+                biblioteca.prestarLibro(isbn, "U001", "E001");
+                biblioteca.devolverLibro(isbn, "E001");
+                escrituras.addAndGet(2);
+            }
+        });
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> procesos = new ArrayList<>();
+        for (int r = 0; r < replicas; r++) {
+            procesos.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "ReplicaSeguidora",
+                                            String.valueOf(primaria.getPuerto()), String.valueOf(segundos),
+                                            String.valueOf(hilos))
+                         .redirectErrorStream(true).start());
+        }
+        long lecturas = 0;
+        for (int r = 0; r < replicas; r++) {
+            try (BufferedReader salida = new BufferedReader(new InputStreamReader(procesos.get(r).getInputStream()))) {
+                String linea;
+                while ((linea = salida.readLine()) != null) {
+                    System.out.println("Réplica " + r + ": " + linea);
+                    if (linea.startsWith("lecturas/s=")) {
+                        lecturas += Long.parseLong(linea.substring(11, linea.indexOf(' ')));
+                    }
+                }
+            }
+            procesos.get(r).waitFor();
+        }
+        activo.set(false);
+        escritor.join();
+        System.out.printf("Réplicas: %d, lecturas/s en total: %d, escrituras/s en la primaria: %d, desconexiones: %d%n",
+                          replicas, lecturas, escrituras.get() / segundos, primaria.getDesconexiones());
+        primaria.detener();
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Publicador reactivo (java.util.concurrent.Flow) de los libros de una
+ * búsqueda o un listado, para enviar resultados muy grandes sin construir
+ * antes la lista completa.
+ *
+ * Los libros se leen de una Fuente por lotes de como mucho TAMANO_LOTE, a
+ * partir de un cursor (la secuencia del último libro examinado), sólo cuando
+ * el suscriptor tiene demanda pendiente: el primer resultado sale en cuanto
+ * se encuentra y la memoria retenida por suscripción es un lote, sin importar
+ * cuántos resultados haya en total. Cada suscripción recorre la fuente desde
+ * el principio.
+ *
+ * Las señales a un suscriptor nunca se solapan y se entregan en el ejecutor
+ * del publicador; con el ejecutor por defecto se entregan en el hilo que
+ * llama a request, sin crecer la pila si el suscriptor pide más desde onNext.
+ * Una petición de cero o menos elementos cancela la suscripción con
+ * IllegalArgumentException, y un error de la fuente se entrega con onError.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PublicadorLibros implements Flow.Publisher<Libro> {
+    /** Libros examinados como máximo en cada lectura de la fuente */
+    public static final int TAMANO_LOTE = 256;
+    /** Cursor de una fuente que ya no tiene más libros */
+    public static final long AGOTADO = -1;
+
+    /**
+     * Origen de los libros de un publicador.
+     */
+    @FunctionalInterface
+    public interface Fuente {
+        /**
+         * Examina en orden hasta maximo libros posteriores al cursor y agrega
+         * a destino los que correspondan.
+         *
+         * @param cursor Cursor devuelto por la lectura anterior, o 0 para empezar
+         * @param maximo Número máximo de libros a examinar
+         * @param destino Lista donde se agregan los libros leídos
+         * @return Cursor para continuar, o AGOTADO si no quedan libros
+         */
+        long leer(long cursor, int maximo, List<Libro> destino);
+    }
+
+    /** Origen de los libros */
+    private final Fuente fuente;
+    /** Ejecutor de las señales a los suscriptores */
+    private final Executor ejecutor;
+
+    /**
+     * Crea un publicador que entrega las señales en el hilo que pide libros.
+     *
+     * @param fuente Origen de los libros
+     */
+    public PublicadorLibros(Fuente fuente) {
+        this(fuente, Runnable::run);
+    }
+
+    /**
+     * Crea un publicador que entrega las señales en el ejecutor indicado.
+     *
+     * @param fuente Origen de los libros
+     * @param ejecutor Ejecutor de las señales
+     */
+    public PublicadorLibros(Fuente fuente, Executor ejecutor) {
+        this.fuente = Objects.requireNonNull(fuente);
+        this.ejecutor = Objects.requireNonNull(ejecutor);
+    }
+
+    /**
+     * Crea un publicador con la misma fuente que entrega las señales en otro
+     * ejecutor.
+     *
+     * @param ejecutor Ejecutor de las señales
+     * @return Nuevo publicador
+     */
+    public PublicadorLibros enEjecutor(Executor ejecutor) {
+        return new PublicadorLibros(fuente, ejecutor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Libro> suscriptor) {
+        Suscripcion suscripcion = new Suscripcion(Objects.requireNonNull(suscriptor));
+        suscripcion.programar();
+    }
+
+    /**
+     * Suscripción de un suscriptor: lleva su demanda, su cursor y el lote
+     * pendiente de entregar. Sólo un hilo a la vez ejecuta entregar.
+     */
+    private final class Suscripcion implements Flow.Subscription {
+        private final Flow.Subscriber<? super Libro> suscriptor;
+        /** Elementos pedidos y aún no entregados */
+        private final AtomicLong demanda;
+        /** Entregas programadas; el hilo que la lleva de 0 a 1 entrega */
+        private final AtomicInteger pendientes;
+        private final ArrayDeque<Libro> lote;
+        private final List<Libro> lectura;
+        private long cursor;
+        private boolean suscrito;
+        private volatile boolean terminada;
+        private volatile Throwable peticionInvalida;
+
+        Suscripcion(Flow.Subscriber<? super Libro> suscriptor) {
+            this.suscriptor = suscriptor;
+            this.demanda = new AtomicLong();
+            this.pendientes = new AtomicInteger();
+            this.lote = new ArrayDeque<>();
+            this.lectura = new ArrayList<>();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                peticionInvalida = new IllegalArgumentException("Se deben pedir uno o más elementos: " + n);
+            } else {
+                demanda.getAndAccumulate(n, (actual, pedida) -> actual + pedida < 0 ? Long.MAX_VALUE : actual + pedida);
+            }
+            programar();
+        }
+
+        @Override
+        public void cancel() {
+            terminada = true;
+        }
+
+        void programar() {
+            if (pendientes.getAndIncrement() == 0) {
+                try {
+                    ejecutor.execute(this::entregar);
+                } catch (RuntimeException e) {
+                    terminada = true;
+                    suscriptor.onError(e);
+                }
+            }
+        }
+
+        /**
+         * Entrega señales mientras haya demanda y libros, hasta atender todas
+         * las programaciones.
+         */
+        private void entregar() {
+            int atendidas = 1;
+            do {
+                try {
+                    if (!suscrito) {
+                        suscrito = true;
+                        suscriptor.onSubscribe(this);
+                    }
+                    emitir();
+                } catch (RuntimeException e) {
+                    if (!terminada) {
+                        terminada = true;
+                        suscriptor.onError(e);
+                    }
+                }
+                atendidas = pendientes.addAndGet(-atendidas);
+            } while (atendidas != 0);
+        }
+
+        private void emitir() {
+            while (!terminada) {
+                if (peticionInvalida != null) {
+                    terminada = true;
+                    suscriptor.onError(peticionInvalida);
+                    return;
+                }
+                if (lote.isEmpty() && cursor != AGOTADO) {
+                    // Sólo se lee de la fuente cuando hay demanda
+                    if (demanda.get() == 0) {
+                        return;
+                    }
+                    leerLote();
+                    continue;
+                }
+                if (lote.isEmpty()) {
+                    terminada = true;
+                    suscriptor.onComplete();
+                    return;
+                }
+                if (demanda.get() == 0) {
+                    return;
+                }
+                demanda.decrementAndGet();
+                suscriptor.onNext(lote.poll());
+            }
+        }
+
+        private void leerLote() {
+            lectura.clear();
+            cursor = fuente.leer(cursor, TAMANO_LOTE, lectura);
+            lote.addAll(lectura);
+        }
+    }
+}
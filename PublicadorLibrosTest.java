@@ -0,0 +1,206 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Clase de pruebas unitarias para la clase PublicadorLibros.
+ * Verifica que se respete la demanda del suscriptor, que los resultados
+ * coincidan con las búsquedas y listados existentes, la cancelación, los
+ * errores y la entrega en otro ejecutor.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class PublicadorLibrosTest
+{
+    /** Biblioteca con muchos libros */
+    private Biblioteca biblioteca;
+
+    /**
+     * Crea una biblioteca con 2000 libros, un empleado y un usuario.
+     */
+    @BeforeEach
+    public void setUp() {
+        biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        biblioteca.agregarEmpleado(new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario"));
+        biblioteca.agregarUsuario(new Usuario("Ana López", "U001"));
+        for (int i = 0; i < 2000; i++) {
+            biblioteca.agregarLibro(new Libro((i % 3 == 0 ? "Antología " : "Obra ") + i, "Autor " + (i % 10),
+                                              String.format("%013d", i), 100));
+        }
+    }
+
+    /**
+     * Prueba que sólo se entreguen los libros pedidos y que la cancelación
+     * detenga la entrega.
+     */
+    @Test
+    public void testDemandaYCancelacion() {
+        Suscriptor suscriptor = new Suscriptor();
+        biblioteca.publicarLibrosPorTitulo("antología").subscribe(suscriptor);
+        assertNotNull(suscriptor.suscripcion);
+        assertTrue(suscriptor.recibidos.isEmpty());
+
+        suscriptor.suscripcion.request(3);
+        assertEquals(3, suscriptor.recibidos.size());
+        assertEquals("Antología 0", suscriptor.recibidos.get(0).getTitulo());
+        assertEquals("Antología 6", suscriptor.recibidos.get(2).getTitulo());
+        suscriptor.suscripcion.request(2);
+        assertEquals(5, suscriptor.recibidos.size());
+
+        suscriptor.suscripcion.cancel();
+        suscriptor.suscripcion.request(10);
+        assertEquals(5, suscriptor.recibidos.size());
+        assertFalse(suscriptor.completado);
+        assertNull(suscriptor.error);
+    }
+
+    /**
+     * Prueba que la búsqueda y los listados publiquen lo mismo que sus
+     * variantes que construyen la lista completa, aun pidiendo de uno en uno
+     * desde onNext.
+     */
+    @Test
+    public void testCoincideConBusquedaYListados() {
+        for (int i = 0; i < 2000; i += 7) {
+            biblioteca.prestarLibro(String.format("%013d", i), "U001", "E001");
+        }
+        Suscriptor busqueda = new Suscriptor(1);
+        biblioteca.publicarLibrosPorTitulo("ANTOLOGÍA 1").subscribe(busqueda);
+        assertTrue(busqueda.completado);
+        assertEquals(biblioteca.buscarLibrosPorTitulo("antología 1"), busqueda.recibidos);
+
+        Suscriptor todos = new Suscriptor(1);
+        biblioteca.publicarLibrosPorTitulo("").subscribe(todos);
+        assertEquals(2000, todos.recibidos.size());
+
+        Suscriptor disponibles = new Suscriptor(Long.MAX_VALUE);
+        biblioteca.publicarLibrosDisponibles().subscribe(disponibles);
+        assertEquals(biblioteca.getLibrosDisponibles(), disponibles.recibidos);
+        Suscriptor prestados = new Suscriptor(50);
+        biblioteca.publicarLibrosPrestados().subscribe(prestados);
+        assertEquals(biblioteca.getLibrosPrestados(), prestados.recibidos);
+        assertTrue(prestados.completado);
+
+        Suscriptor vacio = new Suscriptor(1);
+        biblioteca.publicarLibrosPorTitulo("inexistente").subscribe(vacio);
+        assertTrue(vacio.completado);
+        assertTrue(vacio.recibidos.isEmpty());
+    }
+
+    /**
+     * Prueba que cada libro se publique exactamente una vez aunque se preste
+     * y se devuelva durante el recorrido.
+     */
+    @Test
+    public void testCambiosDuranteElRecorrido() {
+        Suscriptor suscriptor = new Suscriptor();
+        biblioteca.publicarLibrosPorTitulo("o").subscribe(suscriptor);
+        Random aleatorio = new Random(3);
+        while (!suscriptor.completado) {
+            suscriptor.suscripcion.request(10);
+            for (int i = 0; i < 20; i++) {
+                String isbn = String.format("%013d", aleatorio.nextInt(2000));
+                if (!biblioteca.prestarLibro(isbn, "U001", "E001")) {
+                    biblioteca.devolverLibro(isbn, "E001");
+                }
+            }
+        }
+        Set<Libro> distintos = Collections.newSetFromMap(new IdentityHashMap<>());
+        distintos.addAll(suscriptor.recibidos);
+        assertEquals(2000, suscriptor.recibidos.size());
+        assertEquals(2000, distintos.size());
+    }
+
+    /**
+     * Prueba los errores por petición inválida o de la fuente, y la entrega
+     * en otro ejecutor.
+     */
+    @Test
+    public void testErroresYEjecutor() throws Exception {
+        Suscriptor invalido = new Suscriptor();
+        biblioteca.publicarLibrosDisponibles().subscribe(invalido);
+        invalido.suscripcion.request(0);
+        assertTrue(invalido.error instanceof IllegalArgumentException);
+
+        Suscriptor fallido = new Suscriptor(5);
+        new PublicadorLibros((cursor, maximo, destino) -> {
+            throw new IllegalStateException("fuente caída");
+        }).subscribe(fallido);
+        assertTrue(fallido.error instanceof IllegalStateException);
+        assertFalse(fallido.completado);
+
+        ExecutorService ejecutor = Executors.newSingleThreadExecutor();
+        try {
+            Suscriptor asincrono = new Suscriptor(Long.MAX_VALUE);
+            biblioteca.publicarLibrosPorTitulo("obra").enEjecutor(ejecutor).subscribe(asincrono);
+            assertTrue(asincrono.fin.await(5, TimeUnit.SECONDS));
+            assertTrue(asincrono.completado);
+            assertEquals(1333, asincrono.recibidos.size());
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+    /**
+     * Suscriptor de prueba que guarda lo recibido y, si se indica, pide un
+     * número fijo de libros al suscribirse y después de cada uno.
+     */
+    private static class Suscriptor implements Flow.Subscriber<Libro> {
+        final List<Libro> recibidos = new ArrayList<>();
+        final CountDownLatch fin = new CountDownLatch(1);
+        final long porPeticion;
+        Flow.Subscription suscripcion;
+        volatile boolean completado;
+        volatile Throwable error;
+
+        Suscriptor() {
+            this(0);
+        }
+
+        Suscriptor(long porPeticion) {
+            this.porPeticion = porPeticion;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription suscripcion) {
+            this.suscripcion = suscripcion;
+            if (porPeticion > 0) {
+                suscripcion.request(porPeticion);
+            }
+        }
+
+        @Override
+        public void onNext(Libro libro) {
+            recibidos.add(libro);
+            if (porPeticion > 0 && porPeticion < Long.MAX_VALUE && recibidos.size() % porPeticion == 0) {
+                suscripcion.request(porPeticion);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+            fin.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completado = true;
+            fin.countDown();
+        }
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        biblioteca = null;
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Red federada de sucursales, donde cada sucursal es una Biblioteca independiente.
+ * Permite buscar libros por título y verificar disponibilidad en todas las
+ * sucursales a la vez, repartiendo las consultas en paralelo sobre un ForkJoinPool
+ * y combinando los resultados que lleguen dentro de un límite de latencia.
+ * Las consultas bloquean en el cerrojo de cada sucursal, así que por defecto la
+ * red usa un pool propio y no el común, que comparten los streams paralelos.
+ * También encamina un préstamo hacia la sucursal que tenga un ejemplar
+ * disponible; como los IDs de empleado son propios de cada sucursal, el
+ * empleado se indica por sucursal o se asigna en cada una.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+public class RedBibliotecas {
+    /** Sucursales registradas, ordenadas por nombre */
+    private final Map<String, Biblioteca> sucursales;
+    /** Número mínimo de hilos del pool propio de la red */
+    private static final int HILOS_MINIMOS = 4;
+
+    /** Pool donde se ejecutan las consultas a cada sucursal */
+    private final ForkJoinPool pool;
+    /** Indica si el pool lo creó la red y debe cerrarlo detener() */
+    private final boolean poolPropio;
+    /** Tiempo máximo total que espera una consulta federada, en milisegundos */
+    private volatile long limiteLatenciaMs;
+
+    /**
+     * Crea una red con un pool de fork-join propio.
+     *
+     * @param limiteLatenciaMs Tiempo máximo de espera de cada consulta federada
+     */
+    public RedBibliotecas(long limiteLatenciaMs) {
+        this(new ForkJoinPool(Math.max(HILOS_MINIMOS, Runtime.getRuntime().availableProcessors())),
+             true, limiteLatenciaMs);
+    }
+
+    /**
+     * Crea una red que ejecuta sus consultas en el pool indicado.
+     *
+     * @param pool Pool de fork-join para las consultas a sucursales
+     * @param limiteLatenciaMs Tiempo máximo de espera de cada consulta federada
+     */
+    public RedBibliotecas(ForkJoinPool pool, long limiteLatenciaMs) {
+        this(pool, false, limiteLatenciaMs);
+    }
+
+    private RedBibliotecas(ForkJoinPool pool, boolean poolPropio, long limiteLatenciaMs) {
+        this.sucursales = new ConcurrentSkipListMap<>();
+        this.pool = Objects.requireNonNull(pool);
+        this.poolPropio = poolPropio;
+        this.limiteLatenciaMs = limiteLatenciaMs;
+    }
+
+    /**
+     * Cierra el pool de la red si lo creó ella; un pool recibido en el
+     * constructor lo cierra quien lo creó.
+     */
+    public void detener() {
+        if (poolPropio) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Registra una sucursal en la red, reemplazando a otra con el mismo nombre.
+     * @param sucursal Biblioteca a registrar
+     */
+    public void registrarSucursal(Biblioteca sucursal) {
+        sucursales.put(sucursal.getNombre(), sucursal);
+    }
+
+    /**
+     * Elimina una sucursal de la red.
+     * @param nombre Nombre de la sucursal a eliminar
+     */
+    public void eliminarSucursal(String nombre) {
+        sucursales.remove(nombre);
+    }
+
+    /**
+     * Obtiene una sucursal por su nombre.
+     * @param nombre Nombre de la sucursal
+     * @return La sucursal o null si no está registrada
+     */
+    public Biblioteca obtenerSucursal(String nombre) {
+        return sucursales.get(nombre);
+    }
+
+    /**
+     * Obtiene el número de sucursales registradas.
+     * @return Cantidad de sucursales
+     */
+    public int getTotalSucursales() {
+        return sucursales.size();
+    }
+
+    /**
+     * Obtiene el límite de latencia de las consultas federadas.
+     * @return Límite en milisegundos
+     */
+    public long getLimiteLatenciaMs() {
+        return limiteLatenciaMs;
+    }
+
+    /**
+     * Establece el límite de latencia de las consultas federadas.
+     * @param limiteLatenciaMs Nuevo límite en milisegundos, mayor que cero
+     */
+    public void setLimiteLatenciaMs(long limiteLatenciaMs) {
+        if (limiteLatenciaMs > 0) {
+            this.limiteLatenciaMs = limiteLatenciaMs;
+        }
+    }
+
+    /**
+     * Busca libros por título en todas las sucursales en paralelo.
+     * Las sucursales que no respondan dentro del límite de latencia se omiten
+     * del resultado.
+     *
+     * @param titulo El título o parte del título a buscar
+     * @return Mapa ordenado de nombre de sucursal a los libros encontrados en ella
+     */
+    public Map<String, List<Libro>> buscarLibrosPorTitulo(String titulo) {
+        Map<String, List<Libro>> resultados = consultar(sucursal -> sucursal.buscarLibrosPorTitulo(titulo));
+        resultados.values().removeIf(List::isEmpty);
+        return resultados;
+    }
+
+    /**
+     * Obtiene las sucursales que tienen disponible un libro con el ISBN indicado.
+     * Las sucursales que no respondan dentro del límite de latencia se omiten.
+     *
+     * @param isbn El ISBN del libro
+     * @return Lista con los nombres de las sucursales con el libro disponible
+     */
+    public List<String> sucursalesConDisponibilidad(String isbn) {
+        List<String> disponibles = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entrada : consultar(sucursal -> sucursal.hayEjemplarDisponible(isbn)).entrySet()) {
+            if (entrada.getValue()) {
+                disponibles.add(entrada.getKey());
+            }
+        }
+        return disponibles;
+    }
+
+    /**
+     * Presta un libro en la primera sucursal que tenga un ejemplar disponible y
+     * donde el usuario esté registrado. En cada sucursal el préstamo lo procesa
+     * el empleado que asigna la propia sucursal (ver Biblioteca.prestarLibro).
+     *
+     * @param isbn El ISBN del libro a prestar
+     * @param idUsuario El ID del usuario que solicita el préstamo
+     * @return El nombre de la sucursal donde se realizó el préstamo o null si no fue posible
+     */
+    public String prestarLibro(String isbn, String idUsuario) {
+        for (String nombre : sucursalesConDisponibilidad(isbn)) {
+            Biblioteca sucursal = sucursales.get(nombre);
+            if (sucursal != null && sucursal.prestarLibro(isbn, idUsuario) != null) {
+                return nombre;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Presta un libro en la primera sucursal que tenga un ejemplar disponible y
+     * donde el usuario y el empleado indicado para ella estén registrados. Las
+     * sucursales sin empleado indicado se omiten.
+     *
+     * @param isbn El ISBN del libro a prestar
+     * @param idUsuario El ID del usuario que solicita el préstamo
+     * @param empleadoPorSucursal ID del empleado que procesa el préstamo en cada sucursal
+     * @return El nombre de la sucursal donde se realizó el préstamo o null si no fue posible
+     */
+    public String prestarLibro(String isbn, String idUsuario, Map<String, String> empleadoPorSucursal) {
+        for (String nombre : sucursalesConDisponibilidad(isbn)) {
+            Biblioteca sucursal = sucursales.get(nombre);
+            String idEmpleado = empleadoPorSucursal.get(nombre);
+            if (sucursal != null && idEmpleado != null && sucursal.prestarLibro(isbn, idUsuario, idEmpleado)) {
+                return nombre;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ejecuta una consulta en todas las sucursales en paralelo y recoge las
+     * respuestas que terminen antes del límite de latencia.
+     *
+     * @param consulta Operación a ejecutar sobre cada sucursal
+     * @return Mapa ordenado de nombre de sucursal a su respuesta
+     */
+    private <T> Map<String, T> consultar(Function<Biblioteca, T> consulta) {
+        Map<String, CompletableFuture<T>> pendientes = new LinkedHashMap<>();
+        for (Map.Entry<String, Biblioteca> entrada : sucursales.entrySet()) {
+            Biblioteca sucursal = entrada.getValue();
+            pendientes.put(entrada.getKey(), CompletableFuture.supplyAsync(() -> consulta.apply(sucursal), pool));
+        }
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limiteLatenciaMs);
+        Map<String, T> respuestas = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<T>> entrada : pendientes.entrySet()) {
+            try {
+                long restante = Math.max(0, limite - System.nanoTime());
+                respuestas.put(entrada.getKey(), entrada.getValue().get(restante, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException | ExecutionException e) {
+                entrada.getValue().cancel(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return respuestas;
+    }
+}
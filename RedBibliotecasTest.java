@@ -0,0 +1,123 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Clase de pruebas unitarias para la clase RedBibliotecas.
+ * Verifica la búsqueda federada y el encaminamiento de préstamos entre sucursales.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class RedBibliotecasTest
+{
+    /** Red de sucursales para las pruebas */
+    private RedBibliotecas red;
+    /** Sucursales de prueba */
+    private Biblioteca centro, norte;
+
+    /**
+     * Configura una red con dos sucursales que comparten un título.
+     */
+    @BeforeEach
+    public void setUp() {
+        centro = new Biblioteca("Centro", "Av. Universidad 3000");
+        norte = new Biblioteca("Norte", "Calzada Norte 120");
+        centro.agregarEmpleado(new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario"));
+        Empleado mixto = new Empleado("Luis Ruiz", "E002", 16000.00, "Bibliotecario");
+        mixto.setTurno(Empleado.MIXTO);
+        norte.agregarEmpleado(mixto);
+        for (Biblioteca sucursal : Arrays.asList(centro, norte)) {
+            sucursal.agregarUsuario(new Usuario("Ana López", "U001"));
+            sucursal.agregarLibro(new Libro("El Principito", "Antoine de Saint-Exupéry", "9788498381498", 96));
+        }
+        norte.agregarLibro(new Libro("1984", "George Orwell", "9788499890944", 326));
+        red = new RedBibliotecas(1000);
+        red.registrarSucursal(centro);
+        red.registrarSucursal(norte);
+    }
+
+    /**
+     * Prueba la búsqueda por título en todas las sucursales.
+     */
+    @Test
+    public void testBuscarLibrosPorTitulo() {
+        Map<String, List<Libro>> resultados = red.buscarLibrosPorTitulo("principito");
+        assertEquals(2, resultados.size());
+        assertEquals(1, resultados.get("Centro").size());
+
+        resultados = red.buscarLibrosPorTitulo("1984");
+        assertEquals(1, resultados.size());
+        assertTrue(resultados.containsKey("Norte"));
+    }
+
+    /**
+     * Prueba que el préstamo se encamine a una sucursal con el libro disponible
+     * y lo procese el empleado indicado para esa sucursal.
+     */
+    @Test
+    public void testPrestarLibroEncaminado() {
+        Map<String, String> empleados = new HashMap<>();
+        empleados.put("Centro", "E001");
+        empleados.put("Norte", "E002");
+        assertEquals(Arrays.asList("Centro", "Norte"), red.sucursalesConDisponibilidad("9788498381498"));
+        // Sin empleado para Centro, el préstamo pasa a Norte
+        assertEquals("Norte", red.prestarLibro("9788498381498", "U001", Collections.singletonMap("Norte", "E002")));
+        assertEquals(Arrays.asList("Centro"), red.sucursalesConDisponibilidad("9788498381498"));
+        assertEquals("Centro", red.prestarLibro("9788498381498", "U001", empleados));
+        assertNull(red.prestarLibro("9788498381498", "U001", empleados));
+        assertEquals(1, norte.obtenerEmpleado("E002").getPrestamosEnProceso().size());
+    }
+
+    /**
+     * Prueba el préstamo con el empleado que asigna cada sucursal: 1984 sólo
+     * está en Norte, cuyo empleado mixto atiende en cualquier turno.
+     */
+    @Test
+    public void testPrestarLibroConEmpleadoAsignado() {
+        assertEquals("Norte", red.prestarLibro("9788499890944", "U001"));
+        assertEquals(1, norte.obtenerEmpleado("E002").getPrestamosEnProceso().size());
+        assertNull(red.prestarLibro("9788499890944", "U001"));
+    }
+
+    /**
+     * Prueba que por defecto las consultas se ejecuten en un pool propio y no
+     * en el común, y que detener() cierre sólo ese pool.
+     */
+    @Test
+    public void testPoolPropio() {
+        Set<ForkJoinPool> pools = ConcurrentHashMap.newKeySet();
+        red.registrarSucursal(new Biblioteca("Sur", "Av. Sur 1") {
+            public List<Libro> buscarLibrosPorTitulo(String titulo) {
+                pools.add(ForkJoinTask.getPool());
+                return super.buscarLibrosPorTitulo(titulo);
+            }
+        });
+        assertEquals(2, red.buscarLibrosPorTitulo("principito").size());
+        assertEquals(1, pools.size());
+        ForkJoinPool propio = pools.iterator().next();
+        assertNotSame(ForkJoinPool.commonPool(), propio);
+        red.detener();
+        assertTrue(propio.isShutdown());
+
+        ForkJoinPool externo = new ForkJoinPool(2);
+        new RedBibliotecas(externo, 1000).detener();
+        assertFalse(externo.isShutdown());
+        externo.shutdown();
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        red.detener();
+        red = null;
+        centro = norte = null;
+    }
+}
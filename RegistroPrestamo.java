@@ -0,0 +1,211 @@
+/**
+ * Registro inmutable de un préstamo para el historial de un empleado.
+ * Guarda sólo identificadores y fechas, no los objetos Usuario y Libro, de modo
+ * que puede escribirse en disco y leerse de nuevo sin reconstruir el catálogo.
+ * Como en Prestamo, las fechas se guardan en días desde la época y el estado
+ * en un byte. El historial sólo escribe en disco los préstamos ya devueltos,
+ * así que los registros leídos de disco tienen su estado y fechas finales.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.LocalDate;
+
+public class RegistroPrestamo {
+    /** Separador de campos en la forma de texto */
+    private static final char SEPARADOR = '\t';
+    /** Valor de diaDevolucionReal mientras no se ha devuelto el libro */
+    private static final int SIN_DEVOLUCION = Integer.MIN_VALUE;
+    /** Texto de la fecha real de devolución mientras no se ha devuelto */
+    private static final String SIN_FECHA = "-";
+
+    /** ID del préstamo */
+    private final String id;
+    /** ID del usuario */
+    private final String idUsuario;
+    /** ISBN del libro */
+    private final String isbn;
+    /** Título del libro al momento del préstamo */
+    private final String titulo;
+    /** Fecha del préstamo, en días desde la época */
+    private final int diaPrestamo;
+    /** Fecha esperada de devolución, en días desde la época */
+    private final int diaDevolucionEsperada;
+    /** Fecha real de devolución, en días desde la época, o SIN_DEVOLUCION */
+    private final int diaDevolucionReal;
+    /** Estado del préstamo al registrarse (ver constantes de Prestamo) */
+    private final byte estado;
+
+    /**
+     * Crea un registro de un préstamo que no se ha devuelto.
+     *
+     * @param id ID del préstamo
+     * @param idUsuario ID del usuario
+     * @param isbn ISBN del libro
+     * @param titulo Título del libro
+     * @param fechaPrestamo Fecha del préstamo
+     * @param fechaDevolucionEsperada Fecha esperada de devolución
+     * @param estado Estado del préstamo
+     */
+    public RegistroPrestamo(String id, String idUsuario, String isbn, String titulo,
+                            LocalDate fechaPrestamo, LocalDate fechaDevolucionEsperada, int estado) {
+        this(id, idUsuario, isbn, titulo, fechaPrestamo, fechaDevolucionEsperada, null, estado);
+    }
+
+    /**
+     * Crea un registro de préstamo.
+     *
+     * @param id ID del préstamo
+     * @param idUsuario ID del usuario
+     * @param isbn ISBN del libro
+     * @param titulo Título del libro
+     * @param fechaPrestamo Fecha del préstamo
+     * @param fechaDevolucionEsperada Fecha esperada de devolución
+     * @param fechaDevolucionReal Fecha real de devolución, o null si no se ha devuelto
+     * @param estado Estado del préstamo
+     */
+    public RegistroPrestamo(String id, String idUsuario, String isbn, String titulo, LocalDate fechaPrestamo,
+                            LocalDate fechaDevolucionEsperada, LocalDate fechaDevolucionReal, int estado) {
+        this.id = id;
+        this.idUsuario = idUsuario;
+        this.isbn = isbn;
+        this.titulo = titulo;
+        this.diaPrestamo = (int) fechaPrestamo.toEpochDay();
+        this.diaDevolucionEsperada = (int) fechaDevolucionEsperada.toEpochDay();
+        this.diaDevolucionReal = fechaDevolucionReal == null ? SIN_DEVOLUCION : (int) fechaDevolucionReal.toEpochDay();
+        this.estado = (byte) estado;
+    }
+
+    /**
+     * Crea el registro de un préstamo con su estado actual.
+     *
+     * @param prestamo El préstamo
+     * @return Registro con los datos del préstamo
+     */
+    public static RegistroPrestamo de(Prestamo prestamo) {
+        Libro libro = prestamo.getLibro();
+        return new RegistroPrestamo(prestamo.getId(), prestamo.getUsuario().getId(), libro.getIsbn(),
+                                    libro.getTitulo(), prestamo.getFechaPrestamo(),
+                                    prestamo.getFechaDevolucionEsperada(), prestamo.getFechaDevolucionReal(),
+                                    prestamo.getEstado());
+    }
+
+    /**
+     * Obtiene el ID del préstamo.
+     * @return ID del préstamo
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Obtiene el ID del usuario.
+     * @return ID del usuario
+     */
+    public String getIdUsuario() {
+        return idUsuario;
+    }
+
+    /**
+     * Obtiene el ISBN del libro.
+     * @return ISBN del libro
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * Obtiene el título del libro al momento del préstamo.
+     * @return Título del libro
+     */
+    public String getTitulo() {
+        return titulo;
+    }
+
+    /**
+     * Obtiene la fecha del préstamo.
+     * @return Fecha del préstamo
+     */
+    public LocalDate getFechaPrestamo() {
+        return LocalDate.ofEpochDay(diaPrestamo);
+    }
+
+    /**
+     * Obtiene la fecha del préstamo sin crear un LocalDate.
+     * @return Fecha del préstamo en días desde la época
+     */
+    public int getDiaPrestamo() {
+        return diaPrestamo;
+    }
+
+    /**
+     * Obtiene la fecha esperada de devolución.
+     * @return Fecha esperada de devolución
+     */
+    public LocalDate getFechaDevolucionEsperada() {
+        return LocalDate.ofEpochDay(diaDevolucionEsperada);
+    }
+
+    /**
+     * Obtiene la fecha real de devolución.
+     * @return Fecha real de devolución, null si aún no se había devuelto
+     */
+    public LocalDate getFechaDevolucionReal() {
+        return diaDevolucionReal == SIN_DEVOLUCION ? null : LocalDate.ofEpochDay(diaDevolucionReal);
+    }
+
+    /**
+     * Obtiene el estado del préstamo al registrarse.
+     * @return Estado (ACTIVO, DEVUELTO o VENCIDO)
+     */
+    public int getEstado() {
+        return estado;
+    }
+
+    /**
+     * Convierte el registro en una línea de texto con campos separados por
+     * tabuladores. El título va al final y se le quitan los saltos de línea.
+     *
+     * @return Línea sin salto de línea final
+     */
+    public String aLinea() {
+        return id + SEPARADOR + idUsuario + SEPARADOR + isbn + SEPARADOR + getFechaPrestamo() + SEPARADOR
+            + getFechaDevolucionEsperada() + SEPARADOR
+            + (diaDevolucionReal == SIN_DEVOLUCION ? SIN_FECHA : getFechaDevolucionReal().toString())
+            + SEPARADOR + estado + SEPARADOR + titulo.replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Lee un registro escrito con aLinea(). También acepta las líneas sin
+     * fecha real de devolución de versiones anteriores.
+     *
+     * @param linea Línea de texto
+     * @return El registro
+     * @throws IllegalArgumentException si la línea no tiene el formato esperado
+     */
+    public static RegistroPrestamo deLinea(String linea) {
+        String[] campos = linea.split(String.valueOf(SEPARADOR), 8);
+        if (campos.length > 5 && campos[5].length() == 1 && Character.isDigit(campos[5].charAt(0))) {
+            // Formato anterior: el estado ocupa el lugar de la fecha real
+            String[] anterior = linea.split(String.valueOf(SEPARADOR), 7);
+            campos = anterior.length != 7 ? anterior : new String[] {
+                anterior[0], anterior[1], anterior[2], anterior[3], anterior[4], SIN_FECHA, anterior[5], anterior[6]};
+        }
+        if (campos.length != 8) {
+            throw new IllegalArgumentException("Registro de préstamo inválido: " + linea);
+        }
+        return new RegistroPrestamo(campos[0], campos[1], campos[2], campos[7], LocalDate.parse(campos[3]),
+                                    LocalDate.parse(campos[4]),
+                                    campos[5].equals(SIN_FECHA) ? null : LocalDate.parse(campos[5]),
+                                    Integer.parseInt(campos[6]));
+    }
+
+    /**
+     * Retorna una representación en cadena del registro.
+     * @return String con los datos del registro
+     */
+    public String toString() {
+        return "RegistroPrestamo [ID=" + id + ", Usuario=" + idUsuario + ", ISBN=" + isbn
+            + ", Fecha Prestamo=" + getFechaPrestamo() + ", Estado=" + estado + "]";
+    }
+}
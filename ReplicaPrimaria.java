@@ -0,0 +1,239 @@
+/**
+ * Lado primario de la replicación de una Biblioteca hacia réplicas de solo
+ * lectura (ver ReplicaSeguidora), normalmente en otros procesos de la misma
+ * máquina.
+ *
+ * Escucha en un puerto de la interfaz local. A cada réplica que se conecta le
+ * envía primero la instantánea vigente completa y después, en orden de
+ * versión, cada cambio que publica la biblioteca (libros agregados,
+ * eliminados, prestados o devueltos; usuarios y empleados agregados o
+ * eliminados). La instantánea y el registro del observador se obtienen en el
+ * mismo paso bajo el cerrojo de la biblioteca (Biblioteca.agregarObservador),
+ * así que no se pierde ni se repite ningún cambio.
+ *
+ * Cada réplica tiene su propia cola acotada y su propio hilo de envío: la
+ * biblioteca sólo encola el cambio, sin esperar la red. Si una réplica se
+ * atrasa hasta llenar su cola se desconecta, y al reconectarse recibe una
+ * instantánea nueva. Cuando no hay cambios se envía un latido con la versión
+ * actual, para que las réplicas midan su retraso.
+ *
+ * Protocolo: un entero MAGICO; INICIO y la versión; los cambios de la
+ * instantánea; FIN y la versión; después cambios (CambioBiblioteca) y latidos
+ * (LATIDO, versión y milisegundos de la época) intercalados.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReplicaPrimaria {
+    /** Inicio del flujo */
+    static final int MAGICO = 0x5245504C;
+    /** Marca el inicio de una instantánea completa */
+    static final int INICIO = 0x10;
+    /** Marca el fin de una instantánea completa */
+    static final int FIN = 0x11;
+    /** Latido con la versión actual de la primaria */
+    static final int LATIDO = 0x12;
+
+    /** Cambios pendientes que admite la cola de cada réplica */
+    public static final int CAPACIDAD_COLA = 65536;
+    /** Milisegundos sin cambios tras los que se envía un latido */
+    public static final int INTERVALO_LATIDO_MS = 100;
+
+    private final Biblioteca biblioteca;
+    private final ServerSocket servidor;
+    private final List<Seguidor> seguidores;
+    private final AtomicLong desconexiones;
+    private volatile boolean activo;
+    private Thread aceptador;
+
+    /**
+     * Crea la primaria escuchando en la interfaz local.
+     *
+     * @param biblioteca La biblioteca a replicar
+     * @param puerto Puerto, o 0 para uno libre
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ReplicaPrimaria(Biblioteca biblioteca, int puerto) throws IOException {
+        this.biblioteca = biblioteca;
+        this.servidor = new ServerSocket();
+        this.servidor.setReuseAddress(true);
+        this.servidor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto));
+        this.seguidores = new CopyOnWriteArrayList<>();
+        this.desconexiones = new AtomicLong();
+    }
+
+    /**
+     * Empieza a aceptar réplicas.
+     */
+    public synchronized void iniciar() {
+        activo = true;
+        aceptador = Hilos.iniciar("replica-primaria", this::aceptar);
+    }
+
+    /**
+     * Deja de aceptar réplicas y desconecta las conectadas. Al retornar el
+     * puerto queda libre para otra primaria.
+     */
+    public synchronized void detener() {
+        activo = false;
+        try {
+            servidor.close();
+        } catch (IOException e) {
+            // ya estaba cerrado
+        }
+        for (Seguidor seguidor : seguidores) {
+            seguidor.cerrar();
+        }
+        if (aceptador != null) {
+            try {
+                aceptador.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Obtiene el puerto en que escucha la primaria.
+     * @return Puerto local
+     */
+    public int getPuerto() {
+        return servidor.getLocalPort();
+    }
+
+    /**
+     * Obtiene el número de réplicas conectadas.
+     * @return Réplicas conectadas
+     */
+    public int getSeguidores() {
+        return seguidores.size();
+    }
+
+    /**
+     * Obtiene cuántas réplicas se desconectaron por llenar su cola.
+     * @return Desconexiones por atraso
+     */
+    public long getDesconexiones() {
+        return desconexiones.get();
+    }
+
+    private void aceptar() {
+        while (activo) {
+            try {
+                Socket socket = servidor.accept();
+                socket.setTcpNoDelay(true);
+                Seguidor seguidor = new Seguidor(socket);
+                seguidores.add(seguidor);
+                InstantaneaBiblioteca base = biblioteca.agregarObservador(seguidor);
+                Hilos.iniciar("replica-envio", () -> seguidor.enviar(base));
+            } catch (IOException e) {
+                // servidor cerrado o conexión fallida; se sigue si está activo
+            }
+        }
+    }
+
+    /**
+     * Escribe una instantánea completa como cambios con su versión.
+     */
+    private static void escribirInstantanea(InstantaneaBiblioteca base, DataOutputStream salida) throws IOException {
+        long version = base.getVersion();
+        salida.writeByte(INICIO);
+        salida.writeLong(version);
+        IOException[] error = new IOException[1];
+        base.getUsuarios().forEach((id, nombre) -> escribir(
+            CambioBiblioteca.usuario(version, base.getMomento(), id, nombre), salida, error));
+        base.getEmpleados().forEach((id, empleado) -> escribir(
+            CambioBiblioteca.empleado(version, base.getMomento(), empleado), salida, error));
+        base.getLibros().forEach((secuencia, libro) -> escribir(
+            CambioBiblioteca.libro(version, base.getMomento(), libro), salida, error));
+        if (error[0] != null) {
+            throw error[0];
+        }
+        salida.writeByte(FIN);
+        salida.writeLong(version);
+    }
+
+    private static void escribir(CambioBiblioteca cambio, DataOutputStream salida, IOException[] error) {
+        if (error[0] == null) {
+            try {
+                cambio.escribir(salida);
+            } catch (IOException e) {
+                error[0] = e;
+            }
+        }
+    }
+
+    /**
+     * Una réplica conectada: recibe los cambios de la biblioteca en su cola y
+     * los envía desde su propio hilo.
+     */
+    private final class Seguidor implements ObservadorBiblioteca {
+        private final Socket socket;
+        private final BlockingQueue<CambioBiblioteca> cola;
+        private volatile boolean desbordado;
+
+        Seguidor(Socket socket) {
+            this.socket = socket;
+            this.cola = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+        }
+
+        @Override
+        public void cambioPublicado(CambioBiblioteca cambio) {
+            if (!desbordado && !cola.offer(cambio)) {
+                desbordado = true;
+                desconexiones.incrementAndGet();
+                biblioteca.eliminarObservador(this);
+            }
+        }
+
+        void enviar(InstantaneaBiblioteca base) {
+            try (DataOutputStream salida = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream(), 1 << 16))) {
+                salida.writeInt(MAGICO);
+                escribirInstantanea(base, salida);
+                salida.flush();
+                while (activo && !desbordado) {
+                    CambioBiblioteca cambio = cola.poll(INTERVALO_LATIDO_MS, TimeUnit.MILLISECONDS);
+                    if (cambio == null) {
+                        salida.writeByte(LATIDO);
+                        salida.writeLong(biblioteca.getInstantanea().getVersion());
+                        salida.writeLong(System.currentTimeMillis());
+                    }
+                    while (cambio != null) {
+                        cambio.escribir(salida);
+                        cambio = cola.poll();
+                    }
+                    salida.flush();
+                }
+            } catch (IOException e) {
+                // la réplica se desconectó
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                cerrar();
+            }
+        }
+
+        void cerrar() {
+            biblioteca.eliminarObservador(this);
+            seguidores.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ya estaba cerrado
+            }
+        }
+    }
+}
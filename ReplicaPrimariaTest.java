@@ -0,0 +1,187 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.*;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la replicación de Biblioteca.
+ * Verifica la serialización de los cambios, que varias réplicas converjan al
+ * estado de la primaria y que una réplica que se conecta tarde cargue la
+ * instantánea completa.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class ReplicaPrimariaTest
+{
+    /** Biblioteca primaria */
+    private Biblioteca biblioteca;
+    /** Primaria que replica la biblioteca */
+    private ReplicaPrimaria primaria;
+    /** Réplicas abiertas por la prueba */
+    private List<ReplicaSeguidora> replicas;
+
+    /**
+     * Crea la biblioteca primaria con un empleado, un usuario y dos libros, y
+     * empieza a replicarla.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        biblioteca.agregarEmpleado(new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario"));
+        biblioteca.agregarUsuario(new Usuario("Ana López", "U001"));
+        biblioteca.agregarLibro(new Libro("Ficciones", "Jorge Luis Borges", "9788499089515", 224));
+        biblioteca.agregarLibro(new Libro("Rayuela", "Julio Cortázar", "9788437604572", 736));
+        primaria = new ReplicaPrimaria(biblioteca, 0);
+        primaria.iniciar();
+        replicas = new ArrayList<>();
+    }
+
+    /**
+     * Prueba que cada tipo de cambio se lea igual a como se escribió.
+     */
+    @Test
+    public void testSerializacionCambios() throws IOException {
+        Instant momento = Instant.ofEpochSecond(1700000000L, 123456789);
+        InstantaneaBiblioteca.FichaLibro ficha = new InstantaneaBiblioteca.FichaLibro(
+            7, "Ficciones", null, "9788499089515", 224, true);
+        InstantaneaBiblioteca.FichaEmpleado empleado = new InstantaneaBiblioteca.FichaEmpleado(
+            "E001", "Juan Pérez", "Bibliotecario", Empleado.VESPERTINO);
+        List<CambioBiblioteca> cambios = List.of(
+            CambioBiblioteca.libro(1, momento, ficha),
+            CambioBiblioteca.sinLibro(2, momento, 7),
+            CambioBiblioteca.usuario(3, momento, "U001", "Ana López"),
+            CambioBiblioteca.sinUsuario(4, momento, "U001"),
+            CambioBiblioteca.empleado(5, momento, empleado),
+            CambioBiblioteca.sinEmpleado(6, momento, "E001"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream salida = new DataOutputStream(bytes);
+        for (CambioBiblioteca cambio : cambios) {
+            cambio.escribir(salida);
+        }
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (CambioBiblioteca esperado : cambios) {
+            CambioBiblioteca leido = CambioBiblioteca.leer(entrada.readUnsignedByte(), entrada);
+            assertEquals(esperado.getTipo(), leido.getTipo());
+            assertEquals(esperado.getVersion(), leido.getVersion());
+            assertEquals(momento, leido.getMomento());
+            assertEquals(esperado.getSecuencia(), leido.getSecuencia());
+            assertEquals(esperado.getId(), leido.getId());
+            assertEquals(esperado.getNombreUsuario(), leido.getNombreUsuario());
+            if (leido.getTipo() == CambioBiblioteca.LIBRO) {
+                assertEquals("Ficciones", leido.getLibro().getTitulo());
+                assertNull(leido.getLibro().getAutor());
+                assertTrue(leido.getLibro().isPrestado());
+            } else if (leido.getTipo() == CambioBiblioteca.EMPLEADO) {
+                assertEquals("Bibliotecario", leido.getEmpleado().getPuesto());
+                assertEquals(Empleado.VESPERTINO, leido.getEmpleado().getTurno());
+            }
+        }
+        assertEquals(-1, entrada.read());
+    }
+
+    /**
+     * Prueba que dos réplicas apliquen en orden los préstamos, devoluciones,
+     * altas y bajas hechos en la primaria, y que informen su retraso.
+     */
+    @Test
+    public void testReplicasConvergen() throws InterruptedException {
+        ReplicaSeguidora primera = replica();
+        ReplicaSeguidora segunda = replica();
+        assertTrue(primera.esperarVersion(biblioteca.getInstantanea().getVersion(), 5000));
+        assertTrue(segunda.esperarVersion(biblioteca.getInstantanea().getVersion(), 5000));
+        assertEquals(1, primera.getEjemplaresDisponibles("9788499089515"));
+
+        assertTrue(biblioteca.prestarLibro("9788499089515", "U001", "E001"));
+        Libro copia = new Libro("Ficciones", "Jorge Luis Borges", "9788499089515", 224);
+        biblioteca.agregarLibro(copia);
+        biblioteca.eliminarLibro(biblioteca.buscarLibroPorIsbn("9788437604572"));
+        biblioteca.agregarUsuario(new Usuario("Carlos Ruiz", "U002"));
+        biblioteca.eliminarUsuario(biblioteca.buscarUsuarioPorId("U001"));
+        biblioteca.agregarEmpleado(new Empleado("María García", "E002", 8000.00, "Asistente"));
+        copia.setTitulo("Ficciones (edición anotada)");
+        long version = biblioteca.getInstantanea().getVersion();
+
+        for (ReplicaSeguidora replica : List.of(primera, segunda)) {
+            assertTrue(replica.esperarVersion(version, 5000));
+            Biblioteca local = replica.getBiblioteca();
+            assertEquals(2, local.getTotalEjemplares("9788499089515"));
+            assertEquals(1, replica.getEjemplaresDisponibles("9788499089515"));
+            assertNull(replica.buscarLibroPorIsbn("9788437604572"));
+            assertEquals(1, replica.buscarLibros("anotada", 10).size());
+            assertNull(local.buscarUsuarioPorId("U001"));
+            assertEquals("Carlos Ruiz", local.buscarUsuarioPorId("U002").getNombre());
+            assertEquals("Asistente", local.obtenerEmpleado("E002").getPuesto());
+            assertEquals(biblioteca.getTotalLibros(), local.getTotalLibros());
+            assertEquals(7, replica.getCambiosAplicados());
+            assertEquals(1, replica.getResincronizaciones());
+            assertEquals(0, replica.getRetrasoVersiones());
+            assertEquals(0, replica.getRetrasoMs());
+        }
+        assertEquals(2, primaria.getSeguidores());
+    }
+
+    /**
+     * Prueba que una réplica conectada tarde, o reconectada tras caerse la
+     * primaria, cargue el estado completo desde una instantánea.
+     */
+    @Test
+    public void testReplicaTardiaYReconexion() throws IOException, InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            biblioteca.agregarLibro(new Libro("Libro de prueba " + i, "Autor " + (i % 10), String.format("%013d", i), 100));
+        }
+        biblioteca.prestarLibro("0000000000042", "U001", "E001");
+        ReplicaSeguidora replica = replica();
+        assertTrue(replica.esperarVersion(biblioteca.getInstantanea().getVersion(), 5000));
+        assertEquals(502, replica.getBiblioteca().getTotalLibros());
+        assertEquals(0, replica.getEjemplaresDisponibles("0000000000042"));
+        assertEquals(0, replica.getCambiosAplicados());
+
+        // La primaria se cae; la réplica sigue atendiendo con el último estado
+        int puerto = primaria.getPuerto();
+        primaria.detener();
+        biblioteca.devolverLibro("0000000000042", "E001");
+        assertEquals(0, replica.getEjemplaresDisponibles("0000000000042"));
+
+        // Al volver en el mismo puerto la réplica se resincroniza
+        primaria = new ReplicaPrimaria(biblioteca, puerto);
+        primaria.iniciar();
+        long limite = System.currentTimeMillis() + 5000;
+        while (replica.getResincronizaciones() < 2 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, replica.getResincronizaciones());
+        assertEquals(1, replica.getEjemplaresDisponibles("0000000000042"));
+        assertEquals(biblioteca.getInstantanea().getVersion(), replica.getVersion());
+    }
+
+    /**
+     * Crea e inicia una réplica de la primaria.
+     */
+    private ReplicaSeguidora replica() {
+        ReplicaSeguidora replica = new ReplicaSeguidora("localhost", primaria.getPuerto());
+        replicas.add(replica);
+        replica.iniciar();
+        return replica;
+    }
+
+    /**
+     * Detiene la replicación y limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        for (ReplicaSeguidora replica : replicas) {
+            replica.detener();
+        }
+        primaria.detener();
+        replicas = null;
+        primaria = null;
+        biblioteca = null;
+    }
+}
@@ -0,0 +1,377 @@
+/**
+ * Réplica de solo lectura de una Biblioteca primaria (ver ReplicaPrimaria),
+ * para atender búsquedas y consultas de disponibilidad fuera del proceso
+ * primario.
+ *
+ * Se conecta a la primaria, carga la instantánea completa en una Biblioteca
+ * local nueva y a partir de ahí aplica cada cambio en orden de versión. Las
+ * consultas se atienden desde esa Biblioteca local, que sólo modifica el hilo
+ * de la réplica; los libros que devuelve no deben modificarse. Si la conexión
+ * se pierde, se reintenta y se vuelve a cargar una instantánea completa; hasta
+ * que termina de cargarse se siguen atendiendo consultas con el estado
+ * anterior.
+ *
+ * El retraso se informa en versiones (cambios publicados por la primaria que
+ * aún no se aplican) y en milisegundos (antigüedad del último cambio aplicado
+ * cuando todavía hay cambios pendientes, o cero si está al día).
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReplicaSeguidora {
+    /** Milisegundos de espera antes de reconectar */
+    public static final int ESPERA_RECONEXION_MS = 200;
+
+    private final String host;
+    private final int puerto;
+    private final AtomicLong cambiosAplicados;
+    private final AtomicLong resincronizaciones;
+    /** Estado que atiende las consultas; null hasta la primera carga */
+    private volatile Estado estado;
+    private volatile long versionPrimaria;
+    private volatile long retrasoMs;
+    private volatile boolean activo;
+    private volatile Socket socket;
+    private Thread hilo;
+
+    /**
+     * Crea una réplica de la primaria indicada, sin conectarla.
+     *
+     * @param host Host de la primaria
+     * @param puerto Puerto de la primaria
+     */
+    public ReplicaSeguidora(String host, int puerto) {
+        this.host = host;
+        this.puerto = puerto;
+        this.cambiosAplicados = new AtomicLong();
+        this.resincronizaciones = new AtomicLong();
+        this.versionPrimaria = -1;
+    }
+
+    /**
+     * Conecta la réplica y empieza a aplicar cambios.
+     */
+    public synchronized void iniciar() {
+        if (!activo) {
+            activo = true;
+            hilo = Hilos.iniciar("replica-seguidora", this::ejecutar);
+        }
+    }
+
+    /**
+     * Desconecta la réplica. Las consultas siguen atendiéndose con el último
+     * estado aplicado.
+     */
+    public synchronized void detener() {
+        activo = false;
+        cerrarSocket();
+        if (hilo != null) {
+            hilo.interrupt();
+        }
+    }
+
+    /**
+     * Espera hasta que la réplica haya aplicado la versión indicada.
+     *
+     * @param version Versión de la primaria
+     * @param milisegundos Tiempo máximo de espera
+     * @return true si la alcanzó, false si se agotó el tiempo
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public synchronized boolean esperarVersion(long version, long milisegundos) throws InterruptedException {
+        long limite = System.currentTimeMillis() + milisegundos;
+        while (getVersion() < version) {
+            long restante = limite - System.currentTimeMillis();
+            if (restante <= 0) {
+                return false;
+            }
+            wait(restante);
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene la biblioteca local con el estado replicado. Es de solo lectura:
+     * sólo la modifica el hilo de la réplica.
+     *
+     * @return Biblioteca local, o null si aún no se carga ninguna instantánea
+     */
+    public Biblioteca getBiblioteca() {
+        Estado actual = estado;
+        return actual != null ? actual.biblioteca : null;
+    }
+
+    /**
+     * Busca libros por palabras del título o del autor en la réplica.
+     *
+     * @param consulta Palabras a buscar
+     * @param maximo Número máximo de resultados
+     * @return Libros encontrados, vacía si aún no hay estado
+     */
+    public List<Libro> buscarLibros(String consulta, int maximo) {
+        Biblioteca biblioteca = getBiblioteca();
+        return biblioteca != null ? biblioteca.buscarLibros(consulta, maximo) : List.of();
+    }
+
+    /**
+     * Busca un libro por su ISBN en la réplica.
+     *
+     * @param isbn El ISBN
+     * @return El primer ejemplar con ese ISBN, o null
+     */
+    public Libro buscarLibroPorIsbn(String isbn) {
+        Biblioteca biblioteca = getBiblioteca();
+        return biblioteca != null ? biblioteca.buscarLibroPorIsbn(isbn) : null;
+    }
+
+    /**
+     * Obtiene el número de ejemplares disponibles de un ISBN en la réplica.
+     *
+     * @param isbn El ISBN
+     * @return Ejemplares no prestados
+     */
+    public int getEjemplaresDisponibles(String isbn) {
+        Biblioteca biblioteca = getBiblioteca();
+        return biblioteca != null ? biblioteca.getEjemplaresDisponibles(isbn) : 0;
+    }
+
+    /**
+     * Obtiene la última versión de la primaria aplicada.
+     * @return Versión aplicada, o -1 si aún no hay estado
+     */
+    public long getVersion() {
+        Estado actual = estado;
+        return actual != null ? actual.version : -1;
+    }
+
+    /**
+     * Obtiene la última versión de la primaria que se conoce.
+     * @return Versión de la primaria, o -1 si aún no se conoce
+     */
+    public long getVersionPrimaria() {
+        return versionPrimaria;
+    }
+
+    /**
+     * Obtiene el retraso en versiones respecto de la primaria.
+     * @return Cambios publicados por la primaria que aún no se aplican
+     */
+    public long getRetrasoVersiones() {
+        return Math.max(0, versionPrimaria - getVersion());
+    }
+
+    /**
+     * Obtiene el retraso en milisegundos respecto de la primaria.
+     * @return Antigüedad del último cambio aplicado si hay pendientes, o 0
+     */
+    public long getRetrasoMs() {
+        return getRetrasoVersiones() > 0 ? retrasoMs : 0;
+    }
+
+    /**
+     * Obtiene el número de cambios aplicados después de cargar instantáneas.
+     * @return Cambios aplicados
+     */
+    public long getCambiosAplicados() {
+        return cambiosAplicados.get();
+    }
+
+    /**
+     * Obtiene cuántas instantáneas completas se han cargado.
+     * @return Cargas completas, incluida la primera
+     */
+    public long getResincronizaciones() {
+        return resincronizaciones.get();
+    }
+
+    private void ejecutar() {
+        while (activo) {
+            try (Socket conexion = new Socket(host, puerto)) {
+                socket = conexion;
+                conexion.setTcpNoDelay(true);
+                recibir(new DataInputStream(new BufferedInputStream(conexion.getInputStream(), 1 << 16)));
+            } catch (IOException e) {
+                // primaria caída o conexión cerrada; se reintenta
+            }
+            if (activo) {
+                try {
+                    Thread.sleep(ESPERA_RECONEXION_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee el flujo de la primaria hasta que se cierre.
+     */
+    private void recibir(DataInputStream entrada) throws IOException {
+        if (entrada.readInt() != ReplicaPrimaria.MAGICO) {
+            throw new IOException("Flujo de replicación no válido");
+        }
+        Estado carga = null;
+        while (activo) {
+            int tipo = entrada.readUnsignedByte();
+            if (tipo == ReplicaPrimaria.INICIO) {
+                carga = new Estado(entrada.readLong());
+            } else if (tipo == ReplicaPrimaria.FIN) {
+                entrada.readLong();
+                estado = carga;
+                carga = null;
+                resincronizaciones.incrementAndGet();
+                avisar();
+            } else if (tipo == ReplicaPrimaria.LATIDO) {
+                versionPrimaria = entrada.readLong();
+                entrada.readLong();
+            } else {
+                CambioBiblioteca cambio = CambioBiblioteca.leer(tipo, entrada);
+                if (carga != null) {
+                    carga.aplicar(cambio);
+                } else {
+                    estado.aplicar(cambio);
+                    estado.version = cambio.getVersion();
+                    versionPrimaria = Math.max(versionPrimaria, cambio.getVersion());
+                    retrasoMs = Math.max(0, System.currentTimeMillis() - cambio.getMomento().toEpochMilli());
+                    cambiosAplicados.incrementAndGet();
+                    if (entrada.available() == 0) {
+                        avisar();
+                    }
+                }
+            }
+        }
+    }
+
+    private synchronized void avisar() {
+        notifyAll();
+    }
+
+    private void cerrarSocket() {
+        Socket actual = socket;
+        if (actual != null) {
+            try {
+                actual.close();
+            } catch (IOException e) {
+                // ya estaba cerrado
+            }
+        }
+    }
+
+    /**
+     * Biblioteca local de una carga y la correspondencia entre las secuencias
+     * de la primaria y los ejemplares locales. Sólo la modifica el hilo de la
+     * réplica.
+     */
+    private static final class Estado {
+        final Biblioteca biblioteca;
+        final Map<Long, Libro> libros;
+        volatile long version;
+
+        Estado(long version) {
+            this.biblioteca = new Biblioteca("Réplica", "");
+            this.libros = new HashMap<>();
+            this.version = version;
+        }
+
+        void aplicar(CambioBiblioteca cambio) {
+            switch (cambio.getTipo()) {
+                case CambioBiblioteca.LIBRO:
+                    InstantaneaBiblioteca.FichaLibro ficha = cambio.getLibro();
+                    Libro libro = libros.get(ficha.getSecuencia());
+                    if (libro == null) {
+                        libro = new Libro(ficha.getTitulo(), ficha.getAutor(), ficha.getIsbn(), ficha.getNumPaginas());
+                        libro.setPrestado(ficha.isPrestado());
+                        libros.put(ficha.getSecuencia(), libro);
+                        biblioteca.agregarLibro(libro);
+                    } else {
+                        libro.setTitulo(ficha.getTitulo());
+                        libro.setAutor(ficha.getAutor());
+                        libro.setIsbn(ficha.getIsbn());
+                        libro.setNumPaginas(ficha.getNumPaginas());
+                        libro.setPrestado(ficha.isPrestado());
+                    }
+                    break;
+                case CambioBiblioteca.SIN_LIBRO:
+                    Libro eliminado = libros.remove(cambio.getSecuencia());
+                    if (eliminado != null) {
+                        biblioteca.eliminarLibro(eliminado);
+                    }
+                    break;
+                case CambioBiblioteca.USUARIO:
+                    biblioteca.agregarUsuario(new Usuario(cambio.getNombreUsuario(), cambio.getId()));
+                    break;
+                case CambioBiblioteca.SIN_USUARIO:
+                    Usuario usuario = biblioteca.buscarUsuarioPorId(cambio.getId());
+                    if (usuario != null) {
+                        biblioteca.eliminarUsuario(usuario);
+                    }
+                    break;
+                case CambioBiblioteca.EMPLEADO:
+                    InstantaneaBiblioteca.FichaEmpleado datos = cambio.getEmpleado();
+                    Empleado empleado = new Empleado(datos.getNombre(), datos.getId(), 0, datos.getPuesto());
+                    empleado.setTurno(datos.getTurno());
+                    biblioteca.eliminarEmpleado(datos.getId());
+                    biblioteca.agregarEmpleado(empleado);
+                    break;
+                default:
+                    biblioteca.eliminarEmpleado(cambio.getId());
+            }
+        }
+    }
+
+    /**
+     * Conecta una réplica a una primaria local, atiende consultas durante el
+     * tiempo indicado e imprime las lecturas por segundo y el retraso.
+     * Argumentos: puerto [segundos] [hilos].
+     *
+     * @param args Argumentos de la línea de comandos
+     * @throws InterruptedException si se interrumpe la espera
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int puerto = Integer.parseInt(args[0]);
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int hilos = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        ReplicaSeguidora replica = new ReplicaSeguidora("localhost", puerto);
+        replica.iniciar();
+        while (replica.getBiblioteca() == null) {
+            Thread.sleep(10);
+        }
+        AtomicLong lecturas = new AtomicLong();
+        long fin = System.nanoTime() + segundos * 1_000_000_000L;
+        Thread[] lectores = new Thread[hilos];
+        for (int h = 0; h < hilos; h++) {
+            int semilla = h;
+            lectores[h] = Hilos.iniciar("lector-" + h, () -> {
+                java.util.Random aleatorio = new java.util.Random(semilla);
+                long propias = 0;
+                while (System.nanoTime() < fin) {
+                    replica.getEjemplaresDisponibles(String.format("%013d", aleatorio.nextInt(10000)));
+                    replica.buscarLibros("prueba " + aleatorio.nextInt(10000), 10);
+                    propias += 2;
+                }
+                lecturas.addAndGet(propias);
+            });
+        }
+        long retrasoMaximo = 0;
+        while (System.nanoTime() < fin) {
+            Thread.sleep(50);
+            retrasoMaximo = Math.max(retrasoMaximo, replica.getRetrasoVersiones());
+        }
+        for (Thread lector : lectores) {
+            lector.join();
+        }
+        replica.detener();
+        System.out.printf("lecturas/s=%d version=%d retrasoVersiones=%d retrasoMaximo=%d resincronizaciones=%d%n",
+                          lecturas.get() / segundos, replica.getVersion(), replica.getRetrasoVersiones(),
+                          retrasoMaximo, replica.getResincronizaciones());
+    }
+}
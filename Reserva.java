@@ -0,0 +1,158 @@
+/**
+ * Reserva de un usuario en la lista de espera de un ISBN.
+ *
+ * Una reserva nace pendiente y termina en uno de tres estados: asignada (se le
+ * prestó un ejemplar devuelto), vencida (no se atendió antes de su fecha límite)
+ * o cancelada. Las transiciones se hacen con una operación atómica, de modo que
+ * una reserva no puede asignarse y cancelarse a la vez.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Reserva {
+    /** Constante que representa una reserva en espera */
+    public static final int PENDIENTE = 0;
+    /** Constante que representa una reserva atendida con un préstamo */
+    public static final int ASIGNADA = 1;
+    /** Constante que representa una reserva que no se atendió a tiempo */
+    public static final int VENCIDA = 2;
+    /** Constante que representa una reserva cancelada */
+    public static final int CANCELADA = 3;
+
+    private final String isbn;
+    private final String idUsuario;
+    private final long turno;
+    private final Instant fechaReserva;
+    private final Instant fechaVencimiento;
+    private final AtomicInteger estado;
+    private volatile Libro libroAsignado;
+
+    /**
+     * Crea una reserva pendiente.
+     *
+     * @param isbn ISBN reservado
+     * @param idUsuario ID del usuario que reserva
+     * @param turno Número de turno dentro de la lista de espera
+     * @param fechaReserva Momento en que se hizo la reserva
+     * @param fechaVencimiento Momento a partir del cual la reserva vence
+     */
+    public Reserva(String isbn, String idUsuario, long turno, Instant fechaReserva, Instant fechaVencimiento) {
+        this.isbn = isbn;
+        this.idUsuario = idUsuario;
+        this.turno = turno;
+        this.fechaReserva = fechaReserva;
+        this.fechaVencimiento = fechaVencimiento;
+        this.estado = new AtomicInteger(PENDIENTE);
+    }
+
+    /**
+     * Obtiene el ISBN reservado.
+     * @return El ISBN
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * Obtiene el ID del usuario que reservó.
+     * @return ID del usuario
+     */
+    public String getIdUsuario() {
+        return idUsuario;
+    }
+
+    /**
+     * Obtiene el número de turno de la reserva en su lista de espera.
+     * @return Turno, creciente en orden de llegada
+     */
+    public long getTurno() {
+        return turno;
+    }
+
+    /**
+     * Obtiene el momento en que se hizo la reserva.
+     * @return Fecha de la reserva
+     */
+    public Instant getFechaReserva() {
+        return fechaReserva;
+    }
+
+    /**
+     * Obtiene el momento a partir del cual la reserva vence.
+     * @return Fecha de vencimiento
+     */
+    public Instant getFechaVencimiento() {
+        return fechaVencimiento;
+    }
+
+    /**
+     * Obtiene el estado actual de la reserva.
+     * @return Estado (PENDIENTE, ASIGNADA, VENCIDA o CANCELADA)
+     */
+    public int getEstado() {
+        return estado.get();
+    }
+
+    /**
+     * Indica si la reserva sigue en espera.
+     * @return true si está pendiente
+     */
+    public boolean isPendiente() {
+        return estado.get() == PENDIENTE;
+    }
+
+    /**
+     * Indica si la reserva ya alcanzó su fecha de vencimiento.
+     * @param ahora Momento actual
+     * @return true si la fecha de vencimiento ya pasó
+     */
+    public boolean haVencido(Instant ahora) {
+        return !ahora.isBefore(fechaVencimiento);
+    }
+
+    /**
+     * Obtiene el ejemplar prestado al atender la reserva.
+     * @return El ejemplar asignado o null si la reserva no se ha atendido
+     */
+    public Libro getLibroAsignado() {
+        return libroAsignado;
+    }
+
+    /**
+     * Cierra la reserva pendiente con el estado indicado.
+     *
+     * @param nuevoEstado ASIGNADA, VENCIDA o CANCELADA
+     * @return true si la reserva estaba pendiente y cambió de estado
+     */
+    boolean finalizar(int nuevoEstado) {
+        return estado.compareAndSet(PENDIENTE, nuevoEstado);
+    }
+
+    /**
+     * Registra el ejemplar prestado a una reserva ya asignada.
+     * @param libro El ejemplar prestado
+     */
+    void asignarLibro(Libro libro) {
+        libroAsignado = libro;
+    }
+
+    /**
+     * Cancela una reserva asignada cuyo préstamo no pudo completarse.
+     */
+    void anular() {
+        estado.compareAndSet(ASIGNADA, CANCELADA);
+    }
+
+    /**
+     * Devuelve una representación en cadena de la reserva.
+     * @return String con los datos de la reserva
+     */
+    public String toString() {
+        String[] estados = {"PENDIENTE", "ASIGNADA", "VENCIDA", "CANCELADA"};
+        return "Reserva [isbn=" + isbn + ", usuario=" + idUsuario + ", turno=" + turno +
+               ", estado=" + estados[estado.get()] + ", vence=" + fechaVencimiento + "]";
+    }
+}
@@ -0,0 +1,359 @@
+/**
+ * Servidor HTTP/JSON embebido que expone las operaciones de una Biblioteca.
+ * Está construido sobre com.sun.net.httpserver e infla un hilo (virtual cuando
+ * la plataforma lo permite) por cada petición, por lo que una petición que espera
+ * no ocupa un hilo de plataforma.
+ *
+ * Rutas disponibles:
+ * - GET  /libros/{isbn}                            Consulta un libro por ISBN
+ * - GET  /libros?titulo=texto                      Busca libros por título
+ * - POST /prestamos?isbn=&amp;usuario=&amp;empleado=       Presta un libro
+ * - POST /devoluciones?isbn=&amp;empleado=               Devuelve un libro
+ * - GET  /usuarios/{id}                            Consulta un usuario
+ * - GET  /estado                                   Resumen de la biblioteca
+ *
+ * El servidor del JDK no activa TCP_NODELAY por defecto, y sin él las
+ * respuestas pequeñas esperan el ACK retardado del cliente (~40 ms). Como la
+ * propiedad afecta a todos los HttpServer del proceso, no se fija aquí: hay que
+ * lanzar la JVM con -Dsun.net.httpserver.nodelay=true.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+public class ServidorBiblioteca {
+    /** Biblioteca sobre la que operan las peticiones */
+    private final Biblioteca biblioteca;
+    /** Servidor HTTP del JDK */
+    private final HttpServer servidor;
+    /** Ejecutor con un hilo por petición */
+    private final ExecutorService ejecutor;
+
+    /**
+     * Crea un servidor para la biblioteca indicada, sin iniciarlo.
+     *
+     * @param biblioteca Biblioteca a exponer
+     * @param puerto Puerto TCP donde escuchar (0 para uno libre)
+     * @param pendientes Máximo de conexiones pendientes de aceptar
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ServidorBiblioteca(Biblioteca biblioteca, int puerto, int pendientes) throws IOException {
+        this.biblioteca = biblioteca;
+        this.servidor = HttpServer.create(new InetSocketAddress(puerto), pendientes);
+        this.ejecutor = Hilos.nuevoEjecutorPorTarea("http-biblioteca");
+        servidor.setExecutor(ejecutor);
+        servidor.createContext("/libros", this::atenderLibros);
+        servidor.createContext("/prestamos", this::atenderPrestamos);
+        servidor.createContext("/devoluciones", this::atenderDevoluciones);
+        servidor.createContext("/usuarios", this::atenderUsuarios);
+        servidor.createContext("/estado", this::atenderEstado);
+    }
+
+    /**
+     * Inicia la atención de peticiones.
+     */
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * Detiene el servidor esperando como máximo el tiempo indicado.
+     * @param segundos Segundos de espera para las peticiones en curso
+     */
+    public void detener(int segundos) {
+        servidor.stop(segundos);
+        ejecutor.shutdown();
+    }
+
+    /**
+     * Obtiene el puerto en que escucha el servidor.
+     * @return Número de puerto
+     */
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Atiende GET /libros/{isbn} y GET /libros?titulo=.
+     */
+    private void atenderLibros(HttpExchange intercambio) throws IOException {
+        if (!exigirMetodo(intercambio, "GET")) {
+            return;
+        }
+        String isbn = segmentoFinal(intercambio, "/libros");
+        if (isbn != null) {
+            Libro libro = biblioteca.buscarLibroPorIsbn(isbn);
+            if (libro == null) {
+                responder(intercambio, 404, error("Libro no encontrado"));
+            } else {
+                responder(intercambio, 200, libroJson(libro));
+            }
+            return;
+        }
+        String titulo = parametros(intercambio).get("titulo");
+        if (titulo == null) {
+            responder(intercambio, 400, error("Falta el parámetro titulo"));
+            return;
+        }
+        List<Libro> resultados = biblioteca.buscarLibrosPorTitulo(titulo);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < resultados.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(libroJson(resultados.get(i)));
+        }
+        responder(intercambio, 200, json.append(']').toString());
+    }
+
+    /**
+     * Atiende POST /prestamos?isbn=&amp;usuario=&amp;empleado=.
+     */
+    private void atenderPrestamos(HttpExchange intercambio) throws IOException {
+        if (!exigirMetodo(intercambio, "POST")) {
+            return;
+        }
+        Map<String, String> params = parametros(intercambio);
+        String isbn = params.get("isbn");
+        String usuario = params.get("usuario");
+        String empleado = params.get("empleado");
+        if (isbn == null || usuario == null || empleado == null) {
+            responder(intercambio, 400, error("Se requieren isbn, usuario y empleado"));
+            return;
+        }
+        boolean exito = biblioteca.prestarLibro(isbn, usuario, empleado);
+        responder(intercambio, exito ? 200 : 409, "{\"exito\":" + exito + "}");
+    }
+
+    /**
+     * Atiende POST /devoluciones?isbn=&amp;empleado=.
+     */
+    private void atenderDevoluciones(HttpExchange intercambio) throws IOException {
+        if (!exigirMetodo(intercambio, "POST")) {
+            return;
+        }
+        Map<String, String> params = parametros(intercambio);
+        String isbn = params.get("isbn");
+        String empleado = params.get("empleado");
+        if (isbn == null || empleado == null) {
+            responder(intercambio, 400, error("Se requieren isbn y empleado"));
+            return;
+        }
+        boolean exito = biblioteca.devolverLibro(isbn, empleado);
+        responder(intercambio, exito ? 200 : 409, "{\"exito\":" + exito + "}");
+    }
+
+    /**
+     * Atiende GET /usuarios/{id}.
+     */
+    private void atenderUsuarios(HttpExchange intercambio) throws IOException {
+        if (!exigirMetodo(intercambio, "GET")) {
+            return;
+        }
+        String id = segmentoFinal(intercambio, "/usuarios");
+        if (id == null) {
+            responder(intercambio, 400, error("Falta el ID del usuario"));
+            return;
+        }
+        String json = null;
+        synchronized (biblioteca) {
+            Usuario usuario = biblioteca.buscarUsuarioPorId(id);
+            if (usuario != null) {
+                json = usuarioJson(usuario);
+            }
+        }
+        if (json == null) {
+            responder(intercambio, 404, error("Usuario no encontrado"));
+        } else {
+            responder(intercambio, 200, json);
+        }
+    }
+
+    /**
+     * Atiende GET /estado. Los contadores salen de una misma instantánea de la
+     * biblioteca, sin adquirir su cerrojo ni copiar el catálogo.
+     */
+    private void atenderEstado(HttpExchange intercambio) throws IOException {
+        if (!exigirMetodo(intercambio, "GET")) {
+            return;
+        }
+        InstantaneaBiblioteca instantanea = biblioteca.getInstantanea();
+        int prestados = instantanea.getTotalPrestados();
+        String json = "{\"nombre\":" + texto(biblioteca.getNombre()) +
+                      ",\"ubicacion\":" + texto(biblioteca.getUbicación()) +
+                      ",\"libros\":" + instantanea.getTotalLibros() +
+                      ",\"disponibles\":" + (instantanea.getTotalLibros() - prestados) +
+                      ",\"prestados\":" + prestados +
+                      ",\"usuarios\":" + instantanea.getUsuarios().tamano() +
+                      ",\"empleados\":" + instantanea.getEmpleados().tamano() +
+                      ",\"cacheBusquedas\":" + cacheJson(biblioteca.getCacheBusquedas()) + "}";
+        responder(intercambio, 200, json);
+    }
+
+    /**
+     * Verifica el método HTTP de la petición y responde 405 si no coincide.
+     * @return true si el método es el esperado
+     */
+    private boolean exigirMetodo(HttpExchange intercambio, String metodo) throws IOException {
+        if (metodo.equals(intercambio.getRequestMethod())) {
+            return true;
+        }
+        intercambio.getResponseHeaders().set("Allow", metodo);
+        responder(intercambio, 405, error("Método no permitido"));
+        return false;
+    }
+
+    /**
+     * Obtiene el segmento que sigue a la ruta base, por ejemplo el ISBN en /libros/{isbn}.
+     * @return El segmento decodificado o null si la ruta es exactamente la base
+     */
+    private static String segmentoFinal(HttpExchange intercambio, String base) {
+        String ruta = intercambio.getRequestURI().getPath();
+        if (ruta.length() <= base.length() + 1) {
+            return null;
+        }
+        return URLDecoder.decode(ruta.substring(base.length() + 1), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodifica los parámetros de la consulta (query string) de la petición.
+     * @return Mapa de parámetro a valor
+     */
+    private static Map<String, String> parametros(HttpExchange intercambio) {
+        Map<String, String> params = new HashMap<>();
+        String consulta = intercambio.getRequestURI().getRawQuery();
+        if (consulta == null) {
+            return params;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            if (igual > 0) {
+                params.put(URLDecoder.decode(par.substring(0, igual), StandardCharsets.UTF_8),
+                           URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Envía una respuesta JSON con el código indicado.
+     * Se consume el cuerpo de la petición para conservar la conexión persistente.
+     */
+    private static void responder(HttpExchange intercambio, int codigo, String json) throws IOException {
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            entrada.transferTo(OutputStream.nullOutputStream());
+        }
+        byte[] cuerpo = json.getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(codigo, cuerpo.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(cuerpo);
+        }
+    }
+
+    /**
+     * Representa un libro como objeto JSON.
+     */
+    static String libroJson(Libro libro) {
+        return "{\"isbn\":" + texto(libro.getIsbn()) +
+               ",\"titulo\":" + texto(libro.getTitulo()) +
+               ",\"autor\":" + texto(libro.getAutor()) +
+               ",\"paginas\":" + libro.getNumPaginas() +
+               ",\"prestado\":" + libro.isPrestado() + "}";
+    }
+
+    /**
+     * Representa un usuario como objeto JSON.
+     */
+    static String usuarioJson(Usuario usuario) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"id\":").append(texto(usuario.getId()))
+            .append(",\"nombre\":").append(texto(usuario.getNombre()))
+            .append(",\"librosPrestados\":[");
+        List<Libro> prestados = usuario.getLibrosPrestado();
+        for (int i = 0; i < prestados.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(texto(prestados.get(i).getIsbn()));
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Representa las estadísticas de la caché de búsquedas como objeto JSON.
+     */
+    static String cacheJson(CacheBusquedas cache) {
+        if (cache == null) {
+            return "null";
+        }
+        return "{\"aciertos\":" + cache.getAciertos() +
+               ",\"fallos\":" + cache.getFallos() +
+               ",\"desalojos\":" + cache.getDesalojos() +
+               ",\"invalidaciones\":" + cache.getInvalidaciones() +
+               ",\"entradas\":" + cache.getTamano() + "}";
+    }
+
+    /**
+     * Construye un objeto JSON de error.
+     */
+    private static String error(String mensaje) {
+        return "{\"error\":" + texto(mensaje) + "}";
+    }
+
+    /**
+     * Escapa una cadena como literal JSON.
+     */
+    static String texto(String valor) {
+        if (valor == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder(valor.length() + 2).append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * Inicia el servidor con la biblioteca de demostración de Main.
+     * Uso: java -Dsun.net.httpserver.nodelay=true ServidorBiblioteca [puerto]
+     * @param args Puerto opcional (8080 por defecto)
+     */
+    public static void main(String[] args) throws IOException {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        ServidorBiblioteca servidor = new ServidorBiblioteca(PruebaCargaServidor.bibliotecaDemostracion(), puerto, 4096);
+        servidor.iniciar();
+        System.out.println("Servidor de biblioteca escuchando en el puerto " + servidor.getPuerto() +
+                           (Hilos.hayHilosVirtuales() ? " (hilos virtuales)" : " (hilos de plataforma)"));
+    }
+}
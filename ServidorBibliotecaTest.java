@@ -0,0 +1,167 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.*;
+import java.time.Duration;
+
+/**
+ * Clase de pruebas unitarias para la clase ServidorBiblioteca.
+ * Levanta el servidor en un puerto libre y verifica cada ruta, incluidos los
+ * cuerpos de error 400, 404 y 405.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class ServidorBibliotecaTest
+{
+    /** Servidor de prueba en un puerto libre */
+    private ServidorBiblioteca servidor;
+    /** Cliente HTTP de las pruebas */
+    private HttpClient cliente;
+
+    /**
+     * Inicia el servidor sobre la biblioteca de demostración.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        servidor = new ServidorBiblioteca(PruebaCargaServidor.bibliotecaDemostracion(), 0, 16);
+        servidor.iniciar();
+        cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    /**
+     * Prueba la consulta por ISBN y la búsqueda por título.
+     */
+    @Test
+    public void testLibros() throws Exception {
+        HttpResponse<String> libro = pedir("GET", "/libros/9788498381498");
+        assertEquals(200, libro.statusCode());
+        assertEquals("application/json; charset=utf-8", libro.headers().firstValue("Content-Type").get());
+        assertEquals("{\"isbn\":\"9788498381498\",\"titulo\":\"El Principito\",\"autor\":\"Antoine de Saint-Exupéry\","
+                     + "\"paginas\":96,\"prestado\":false}", libro.body());
+
+        HttpResponse<String> busqueda = pedir("GET", "/libros?titulo=cien%20a%C3%B1os");
+        assertEquals(200, busqueda.statusCode());
+        assertTrue(busqueda.body().startsWith("[{\"isbn\":\"9780307474728\""));
+        assertEquals("[]", pedir("GET", "/libros?titulo=inexistente").body());
+
+        HttpResponse<String> noEncontrado = pedir("GET", "/libros/9799999999999");
+        assertEquals(404, noEncontrado.statusCode());
+        assertEquals("{\"error\":\"Libro no encontrado\"}", noEncontrado.body());
+
+        HttpResponse<String> sinTitulo = pedir("GET", "/libros");
+        assertEquals(400, sinTitulo.statusCode());
+        assertEquals("{\"error\":\"Falta el parámetro titulo\"}", sinTitulo.body());
+    }
+
+    /**
+     * Prueba el préstamo y la devolución, sus conflictos y sus parámetros.
+     */
+    @Test
+    public void testPrestamosYDevoluciones() throws Exception {
+        HttpResponse<String> prestamo = pedir("POST", "/prestamos?isbn=9788499890944&usuario=U001&empleado=E001");
+        assertEquals(200, prestamo.statusCode());
+        assertEquals("{\"exito\":true}", prestamo.body());
+        assertEquals("true", campo(pedir("GET", "/libros/9788499890944").body(), "prestado"));
+
+        HttpResponse<String> repetido = pedir("POST", "/prestamos?isbn=9788499890944&usuario=U002&empleado=E001");
+        assertEquals(409, repetido.statusCode());
+        assertEquals("{\"exito\":false}", repetido.body());
+
+        HttpResponse<String> incompleto = pedir("POST", "/prestamos?isbn=9788499890944&usuario=U001");
+        assertEquals(400, incompleto.statusCode());
+        assertEquals("{\"error\":\"Se requieren isbn, usuario y empleado\"}", incompleto.body());
+
+        HttpResponse<String> devolucion = pedir("POST", "/devoluciones?isbn=9788499890944&empleado=E001");
+        assertEquals(200, devolucion.statusCode());
+        assertEquals("{\"exito\":true}", devolucion.body());
+        assertEquals(409, pedir("POST", "/devoluciones?isbn=9788499890944&empleado=E001").statusCode());
+
+        HttpResponse<String> sinEmpleado = pedir("POST", "/devoluciones?isbn=9788499890944");
+        assertEquals(400, sinEmpleado.statusCode());
+        assertEquals("{\"error\":\"Se requieren isbn y empleado\"}", sinEmpleado.body());
+    }
+
+    /**
+     * Prueba la consulta de usuarios y el resumen de la biblioteca.
+     */
+    @Test
+    public void testUsuariosYEstado() throws Exception {
+        pedir("POST", "/prestamos?isbn=9788424922498&usuario=U002&empleado=E002");
+        HttpResponse<String> usuario = pedir("GET", "/usuarios/U002");
+        assertEquals(200, usuario.statusCode());
+        assertEquals("{\"id\":\"U002\",\"nombre\":\"Carlos Ruiz\",\"librosPrestados\":[\"9788424922498\"]}",
+                     usuario.body());
+
+        HttpResponse<String> noEncontrado = pedir("GET", "/usuarios/U999");
+        assertEquals(404, noEncontrado.statusCode());
+        assertEquals("{\"error\":\"Usuario no encontrado\"}", noEncontrado.body());
+
+        HttpResponse<String> sinId = pedir("GET", "/usuarios");
+        assertEquals(400, sinId.statusCode());
+        assertEquals("{\"error\":\"Falta el ID del usuario\"}", sinId.body());
+
+        String estado = pedir("GET", "/estado").body();
+        assertEquals("\"Biblioteca Central\"", campo(estado, "nombre"));
+        assertEquals("5", campo(estado, "libros"));
+        assertEquals("4", campo(estado, "disponibles"));
+        assertEquals("1", campo(estado, "prestados"));
+        assertEquals("2", campo(estado, "usuarios"));
+        assertEquals("2", campo(estado, "empleados"));
+    }
+
+    /**
+     * Prueba el método no permitido y una ruta sin contexto.
+     */
+    @Test
+    public void testErrores() throws Exception {
+        HttpResponse<String> metodo = pedir("POST", "/libros/9788498381498");
+        assertEquals(405, metodo.statusCode());
+        assertEquals("GET", metodo.headers().firstValue("Allow").get());
+        assertEquals("{\"error\":\"Método no permitido\"}", metodo.body());
+        assertEquals(405, pedir("GET", "/prestamos?isbn=1&usuario=U001&empleado=E001").statusCode());
+        assertEquals(404, pedir("GET", "/inexistente").statusCode());
+    }
+
+    /**
+     * Envía una petición sin cuerpo al servidor.
+     */
+    private HttpResponse<String> pedir(String metodo, String ruta) throws Exception {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + servidor.getPuerto() + ruta))
+            .method(metodo, HttpRequest.BodyPublishers.noBody())
+            .timeout(Duration.ofSeconds(10))
+            .build();
+        return cliente.send(peticion, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Obtiene el valor sin procesar de un campo de nivel superior de un objeto JSON plano.
+     */
+    private static String campo(String json, String nombre) {
+        String clave = "\"" + nombre + "\":";
+        int inicio = json.indexOf(clave) + clave.length();
+        int fin = inicio;
+        while (fin < json.length() && json.charAt(fin) != ',' && json.charAt(fin) != '}') {
+            fin++;
+        }
+        return json.substring(inicio, fin);
+    }
+
+    /**
+     * Detiene el servidor después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        servidor.detener(0);
+        servidor = null;
+        cliente = null;
+    }
+}
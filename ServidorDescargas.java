@@ -0,0 +1,303 @@
+/**
+ * Servidor HTTP/1.1 mínimo para descargar los archivos de los libros digitales.
+ *
+ * A diferencia de ServidorBiblioteca, no usa com.sun.net.httpserver: su flujo de
+ * salida obliga a copiar cada byte en el heap. Aquí cada conexión es un
+ * SocketChannel bloqueante atendido por un hilo (virtual cuando la plataforma lo
+ * permite) y el cuerpo se envía con EntregaContenido.transferir(), que llega al
+ * socket con la copia directa del sistema operativo.
+ *
+ * Rutas disponibles:
+ * - GET  /descargas/{isbn}    Descarga el archivo; admite Range e If-Range
+ * - HEAD /descargas/{isbn}    Sólo las cabeceras
+ *
+ * Las conexiones se mantienen abiertas entre peticiones salvo que el cliente
+ * envíe "Connection: close". Cada GET reserva una descarga del libro antes de
+ * responder y contesta 403 si no queda ninguna; la descarga sólo se cuenta
+ * cuando el cliente (identificado por su dirección) termina de recibir el
+ * archivo completo.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+public class ServidorDescargas {
+    /** Tamaño máximo de la línea de petición más las cabeceras */
+    private static final int MAXIMO_CABECERAS = 8192;
+    /** Prefijo de la ruta de descargas */
+    private static final String RUTA = "/descargas/";
+
+    /** Biblioteca donde se buscan los libros digitales */
+    private final Biblioteca biblioteca;
+    /** Componente que localiza y envía los archivos */
+    private final EntregaContenido entrega;
+    /** Canal que acepta las conexiones */
+    private final ServerSocketChannel canal;
+    /** Ejecutor con un hilo por conexión */
+    private final ExecutorService ejecutor;
+    /** Hilo que acepta conexiones, o null si el servidor no está iniciado */
+    private Thread aceptador;
+
+    /**
+     * Crea un servidor de descargas, sin iniciarlo.
+     *
+     * @param biblioteca Biblioteca donde se buscan los libros digitales
+     * @param entrega Componente que localiza y envía los archivos
+     * @param puerto Puerto TCP donde escuchar (0 para uno libre)
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ServidorDescargas(Biblioteca biblioteca, EntregaContenido entrega, int puerto) throws IOException {
+        this.biblioteca = biblioteca;
+        this.entrega = entrega;
+        this.canal = ServerSocketChannel.open();
+        this.canal.bind(new InetSocketAddress(puerto));
+        this.ejecutor = Hilos.nuevoEjecutorPorTarea("descargas");
+    }
+
+    /**
+     * Inicia la aceptación de conexiones.
+     */
+    public synchronized void iniciar() {
+        if (aceptador == null) {
+            aceptador = Hilos.iniciar("descargas-aceptador", this::aceptar);
+        }
+    }
+
+    /**
+     * Deja de aceptar conexiones y cierra el puerto.
+     */
+    public synchronized void detener() {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            // El canal ya estaba cerrado
+        }
+        ejecutor.shutdownNow();
+        aceptador = null;
+    }
+
+    /**
+     * Obtiene el puerto en que escucha el servidor.
+     * @return Número de puerto
+     * @throws IOException si el canal está cerrado
+     */
+    public int getPuerto() throws IOException {
+        return ((InetSocketAddress) canal.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Bucle del hilo aceptador.
+     */
+    private void aceptar() {
+        while (canal.isOpen()) {
+            try {
+                SocketChannel cliente = canal.accept();
+                ejecutor.execute(() -> atender(cliente));
+            } catch (IOException | RuntimeException e) {
+                if (!canal.isOpen()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Atiende las peticiones sucesivas de una conexión.
+     */
+    private void atender(SocketChannel cliente) {
+        try (SocketChannel conexion = cliente) {
+            conexion.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer entrada = ByteBuffer.allocate(MAXIMO_CABECERAS);
+            while (true) {
+                Map<String, String> cabeceras = new HashMap<>();
+                String[] linea = leerPeticion(conexion, entrada, cabeceras);
+                if (linea == null) {
+                    return;
+                }
+                boolean continuar = responder(conexion, linea[0], linea[1], cabeceras)
+                    && !"close".equalsIgnoreCase(cabeceras.get("connection"));
+                if (!continuar) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // El cliente cerró la conexión o dejó de leer
+        }
+    }
+
+    /**
+     * Lee la línea de petición y las cabeceras. Los bytes que sobran quedan en
+     * el búfer para la siguiente petición de la conexión.
+     *
+     * @return Método y ruta, o null si la conexión se cerró
+     */
+    private static String[] leerPeticion(SocketChannel conexion, ByteBuffer entrada,
+                                         Map<String, String> cabeceras) throws IOException {
+        int fin;
+        while ((fin = finCabeceras(entrada)) < 0) {
+            if (!entrada.hasRemaining()) {
+                throw new IOException("Cabeceras demasiado largas");
+            }
+            if (conexion.read(entrada) < 0) {
+                return null;
+            }
+        }
+        String texto = new String(entrada.array(), 0, fin, StandardCharsets.ISO_8859_1);
+        entrada.flip();
+        entrada.position(fin + 4);
+        entrada.compact();
+
+        String[] lineas = texto.split("\r\n");
+        String[] partes = lineas[0].split(" ");
+        if (partes.length < 3) {
+            throw new IOException("Línea de petición inválida");
+        }
+        for (int i = 1; i < lineas.length; i++) {
+            int dosPuntos = lineas[i].indexOf(':');
+            if (dosPuntos > 0) {
+                cabeceras.put(lineas[i].substring(0, dosPuntos).trim().toLowerCase(Locale.ROOT),
+                              lineas[i].substring(dosPuntos + 1).trim());
+            }
+        }
+        return new String[] {partes[0], partes[1]};
+    }
+
+    /**
+     * Busca el final de las cabeceras ("\r\n\r\n") en los bytes leídos.
+     */
+    private static int finCabeceras(ByteBuffer entrada) {
+        byte[] datos = entrada.array();
+        for (int i = 0; i + 3 < entrada.position(); i++) {
+            if (datos[i] == '\r' && datos[i + 1] == '\n' && datos[i + 2] == '\r' && datos[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Contesta una petición.
+     *
+     * @return true si la conexión puede seguir usándose
+     */
+    private boolean responder(SocketChannel conexion, String metodo, String ruta,
+                              Map<String, String> cabeceras) throws IOException {
+        boolean cabeza = metodo.equals("HEAD");
+        if (!cabeza && !metodo.equals("GET")) {
+            return responderVacio(conexion, 405, "Method Not Allowed", "Allow: GET, HEAD\r\n");
+        }
+        Libro libro = ruta.startsWith(RUTA) ? biblioteca.buscarLibroPorIsbn(ruta.substring(RUTA.length())) : null;
+        if (!(libro instanceof LibroDigital)) {
+            return responderVacio(conexion, 404, "Not Found", "");
+        }
+        LibroDigital digital = (LibroDigital) libro;
+        long tamano;
+        String etiqueta;
+        try {
+            tamano = entrega.tamano(digital);
+            etiqueta = entrega.etiqueta(digital);
+        } catch (IOException e) {
+            return responderVacio(conexion, 404, "Not Found", "");
+        }
+
+        String cabeceraRango = cabeceras.get("range");
+        String siRango = cabeceras.get("if-range");
+        if (siRango != null && !siRango.equals(etiqueta)) {
+            cabeceraRango = null;
+        }
+        EntregaContenido.Rango rango = EntregaContenido.interpretarRango(cabeceraRango, tamano);
+        if (rango == null) {
+            return responderVacio(conexion, 416, "Range Not Satisfiable",
+                                  "Content-Range: bytes */" + tamano + "\r\n");
+        }
+
+        // La descarga se reserva antes de enviar nada, para que las peticiones
+        // simultáneas no superen el límite; transferirReservada la libera si
+        // el cliente no llega a completar el archivo
+        if (cabeza ? digital.getDescargasActuales() >= digital.getDescargasPermitidas() : !digital.descargar()) {
+            return responderVacio(conexion, 403, "Forbidden", "");
+        }
+        StringBuilder respuesta = new StringBuilder();
+        respuesta.append(rango.isParcial() ? "HTTP/1.1 206 Partial Content\r\n" : "HTTP/1.1 200 OK\r\n");
+        respuesta.append("Content-Type: ").append(EntregaContenido.tipoContenido(digital)).append("\r\n");
+        respuesta.append("Content-Length: ").append(rango.getLongitud()).append("\r\n");
+        respuesta.append("Accept-Ranges: bytes\r\n");
+        respuesta.append("ETag: ").append(etiqueta).append("\r\n");
+        if (rango.isParcial()) {
+            respuesta.append("Content-Range: ").append(rango.contentRange(tamano)).append("\r\n");
+        }
+        respuesta.append("\r\n");
+        try {
+            escribir(conexion, respuesta.toString());
+        } catch (IOException e) {
+            if (!cabeza) {
+                digital.liberarDescarga();
+            }
+            throw e;
+        }
+        if (!cabeza) {
+            entrega.transferirReservada(digital, rango, conexion, cliente(conexion));
+        }
+        return true;
+    }
+
+    /**
+     * Identifica al cliente de una conexión por su dirección, de modo que los
+     * rangos de una descarga reanudada en otra conexión se reúnan.
+     */
+    private static String cliente(SocketChannel conexion) throws IOException {
+        return ((InetSocketAddress) conexion.getRemoteAddress()).getAddress().getHostAddress();
+    }
+
+    /**
+     * Contesta con un código de estado y sin cuerpo.
+     *
+     * @return true, la conexión puede seguir usándose
+     */
+    private static boolean responderVacio(SocketChannel conexion, int codigo, String razon,
+                                          String extra) throws IOException {
+        escribir(conexion, "HTTP/1.1 " + codigo + " " + razon + "\r\n" + extra + "Content-Length: 0\r\n\r\n");
+        return true;
+    }
+
+    private static void escribir(SocketChannel conexion, String texto) throws IOException {
+        ByteBuffer salida = ByteBuffer.wrap(texto.getBytes(StandardCharsets.ISO_8859_1));
+        while (salida.hasRemaining()) {
+            conexion.write(salida);
+        }
+    }
+
+    /**
+     * Inicia un servidor de descargas sobre un directorio. Cada archivo
+     * "{isbn}.{formato}" del directorio se publica como un libro digital.
+     *
+     * @param args Directorio del almacén y, opcionalmente, el puerto
+     * @throws IOException si no se puede leer el directorio o abrir el puerto
+     */
+    public static void main(String[] args) throws IOException {
+        Path directorio = Paths.get(args.length > 0 ? args[0] : ".");
+        int puerto = args.length > 1 ? Integer.parseInt(args[1]) : 8081;
+        Biblioteca biblioteca = new Biblioteca("Biblioteca Digital", directorio.toString());
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, "*.*")) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                int punto = nombre.lastIndexOf('.');
+                biblioteca.agregarLibro(new LibroDigital(nombre, "Desconocido", nombre.substring(0, punto), 0,
+                    nombre.substring(punto + 1).toUpperCase(Locale.ROOT), Files.size(archivo) / 1048576.0,
+                    RUTA + nombre.substring(0, punto)));
+            }
+        }
+        ServidorDescargas servidor = new ServidorDescargas(biblioteca, new EntregaContenido(directorio), puerto);
+        System.out.println("Servidor de descargas escuchando en el puerto " + servidor.getPuerto());
+        servidor.aceptar();
+    }
+}
@@ -0,0 +1,246 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la clase ServidorDescargas.
+ * Verifica las respuestas completas y parciales (200, 206 y 416), los errores
+ * 404 y 405, y que las descargas se reserven antes de enviar el archivo para
+ * que las peticiones simultáneas no superen el límite.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class ServidorDescargasTest
+{
+    /** Directorio temporal con los archivos */
+    private Path directorio;
+    /** Libro digital con un archivo de 1000 bytes */
+    private LibroDigital libro;
+    /** Libro digital con un archivo grande, para dejar transferencias a medias */
+    private LibroDigital grande;
+    /** Contenido del archivo del libro */
+    private byte[] contenido;
+    /** Servidor de prueba en un puerto libre */
+    private ServidorDescargas servidor;
+
+    /**
+     * Crea los archivos de dos libros digitales e inicia el servidor.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        directorio = Files.createTempDirectory("descargas");
+        contenido = new byte[1000];
+        new Random(11).nextBytes(contenido);
+        Files.write(directorio.resolve("9780000000001.pdf"), contenido);
+        Files.write(directorio.resolve("9780000000002.epub"), new byte[64 * 1024 * 1024]);
+        Biblioteca biblioteca = new Biblioteca("Biblioteca Digital", directorio.toString());
+        libro = new LibroDigital("Java Programming", "John Doe", "9780000000001", 425, "PDF", 0.001, "");
+        grande = new LibroDigital("Rayuela", "Julio Cortázar", "9780000000002", 736, "EPUB", 64, "");
+        biblioteca.agregarLibro(libro);
+        biblioteca.agregarLibro(grande);
+        biblioteca.agregarLibro(new Libro("Ficciones", "Jorge Luis Borges", "9788499089515", 224));
+        servidor = new ServidorDescargas(biblioteca, new EntregaContenido(directorio), 0);
+        servidor.iniciar();
+    }
+
+    /**
+     * Prueba la descarga completa, un rango 206, un rango no satisfacible 416
+     * y las rutas inexistentes.
+     */
+    @Test
+    public void testRespuestas() throws Exception {
+        try (Socket socket = conectar()) {
+            Respuesta completa = pedir(socket, "GET", "9780000000001", null);
+            assertEquals(200, completa.codigo);
+            assertEquals("application/pdf", completa.cabeceras.get("content-type"));
+            assertEquals("bytes", completa.cabeceras.get("accept-ranges"));
+            assertArrayEquals(contenido, completa.cuerpo);
+
+            // La conexión se reutiliza para las siguientes peticiones
+            Respuesta parcial = pedir(socket, "GET", "9780000000001", "bytes=100-199");
+            assertEquals(206, parcial.codigo);
+            assertEquals("bytes 100-199/1000", parcial.cabeceras.get("content-range"));
+            assertArrayEquals(Arrays.copyOfRange(contenido, 100, 200), parcial.cuerpo);
+
+            Respuesta sufijo = pedir(socket, "GET", "9780000000001", "bytes=-50");
+            assertEquals(206, sufijo.codigo);
+            assertArrayEquals(Arrays.copyOfRange(contenido, 950, 1000), sufijo.cuerpo);
+
+            Respuesta fuera = pedir(socket, "GET", "9780000000001", "bytes=1000-");
+            assertEquals(416, fuera.codigo);
+            assertEquals("bytes */1000", fuera.cabeceras.get("content-range"));
+            assertEquals(0, fuera.cuerpo.length);
+
+            Respuesta cabeza = pedir(socket, "HEAD", "9780000000001", null);
+            assertEquals(200, cabeza.codigo);
+            assertEquals("1000", cabeza.cabeceras.get("content-length"));
+
+            assertEquals(404, pedir(socket, "GET", "9799999999999", null).codigo);
+            assertEquals(404, pedir(socket, "GET", "9788499089515", null).codigo);
+            assertEquals(405, pedir(socket, "POST", "9780000000001", null).codigo);
+        }
+        // Sólo la descarga completa se cuenta; los rangos sueltos no
+        esperar(libro, 1);
+    }
+
+    /**
+     * Prueba que una descarga reanudada en varios rangos y conexiones se
+     * cuente una sola vez, y que al agotarse el límite se conteste 403.
+     */
+    @Test
+    public void testReanudacionYLimite() throws Exception {
+        try (Socket socket = conectar()) {
+            assertEquals(206, pedir(socket, "GET", "9780000000001", "bytes=0-599").codigo);
+        }
+        // La reserva se libera después de enviar el último byte
+        esperar(libro, 0);
+        try (Socket socket = conectar()) {
+            Respuesta resto = pedir(socket, "GET", "9780000000001", "bytes=600-");
+            assertEquals(206, resto.codigo);
+            assertEquals(1, libro.getDescargasActuales());
+            // Repetir la cola del archivo no cuenta otra descarga
+            assertEquals(206, pedir(socket, "GET", "9780000000001", "bytes=-100").codigo);
+            esperar(libro, 1);
+
+            assertEquals(200, pedir(socket, "GET", "9780000000001", null).codigo);
+            assertEquals(200, pedir(socket, "GET", "9780000000001", null).codigo);
+            assertEquals(3, libro.getDescargasActuales());
+            assertEquals(403, pedir(socket, "GET", "9780000000001", null).codigo);
+            assertEquals(403, pedir(socket, "GET", "9780000000001", "bytes=0-9").codigo);
+        }
+        assertEquals(3, libro.getDescargasActuales());
+    }
+
+    /**
+     * Prueba que las transferencias en curso ocupen su descarga: con tres
+     * clientes que no leen, un cuarto recibe 403, y la descarga de un cliente
+     * que se desconecta a medias se libera.
+     */
+    @Test
+    public void testReservaDuranteLaTransferencia() throws Exception {
+        List<Socket> lentos = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                Socket socket = conectar();
+                lentos.add(socket);
+                enviar(socket, "GET", "9780000000002", null);
+                esperar(grande, i + 1);
+            }
+            try (Socket cuarto = conectar()) {
+                assertEquals(403, pedir(cuarto, "GET", "9780000000002", null).codigo);
+            }
+
+            Respuesta leida = leer(lentos.get(0).getInputStream(), false);
+            assertEquals(200, leida.codigo);
+            assertEquals(64 * 1024 * 1024, leida.cuerpo.length);
+            assertEquals(3, grande.getDescargasActuales());
+
+            lentos.get(1).close();
+            esperar(grande, 2);
+        } finally {
+            for (Socket socket : lentos) {
+                socket.close();
+            }
+        }
+        esperar(grande, 1);
+    }
+
+    /**
+     * Espera a que el libro tenga el número indicado de descargas reservadas.
+     */
+    private static void esperar(LibroDigital digital, int descargas) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10000;
+        while (digital.getDescargasActuales() != descargas) {
+            assertTrue(System.currentTimeMillis() < limite,
+                       "descargas: " + digital.getDescargasActuales() + ", esperadas: " + descargas);
+            Thread.sleep(5);
+        }
+    }
+
+    private Socket conectar() throws IOException {
+        Socket socket = new Socket("localhost", servidor.getPuerto());
+        socket.setSoTimeout(10000);
+        return socket;
+    }
+
+    private static void enviar(Socket socket, String metodo, String isbn, String rango) throws IOException {
+        String peticion = metodo + " /descargas/" + isbn + " HTTP/1.1\r\nHost: localhost\r\n"
+            + (rango != null ? "Range: " + rango + "\r\n" : "") + "\r\n";
+        socket.getOutputStream().write(peticion.getBytes(StandardCharsets.ISO_8859_1));
+        socket.getOutputStream().flush();
+    }
+
+    private static Respuesta pedir(Socket socket, String metodo, String isbn, String rango) throws IOException {
+        enviar(socket, metodo, isbn, rango);
+        return leer(socket.getInputStream(), metodo.equals("HEAD"));
+    }
+
+    /**
+     * Lee una respuesta: la línea de estado, las cabeceras y Content-Length
+     * bytes de cuerpo.
+     */
+    private static Respuesta leer(InputStream entrada, boolean sinCuerpo) throws IOException {
+        Respuesta respuesta = new Respuesta();
+        String estado = leerLinea(entrada);
+        respuesta.codigo = Integer.parseInt(estado.split(" ")[1]);
+        String linea;
+        while (!(linea = leerLinea(entrada)).isEmpty()) {
+            int dosPuntos = linea.indexOf(':');
+            respuesta.cabeceras.put(linea.substring(0, dosPuntos).trim().toLowerCase(Locale.ROOT),
+                                    linea.substring(dosPuntos + 1).trim());
+        }
+        int longitud = sinCuerpo ? 0 : Integer.parseInt(respuesta.cabeceras.get("content-length"));
+        respuesta.cuerpo = new DataInputStream(entrada).readNBytes(longitud);
+        assertEquals(longitud, respuesta.cuerpo.length);
+        return respuesta;
+    }
+
+    private static String leerLinea(InputStream entrada) throws IOException {
+        StringBuilder linea = new StringBuilder();
+        int c;
+        while ((c = entrada.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException("Conexión cerrada");
+            }
+            if (c != '\r') {
+                linea.append((char) c);
+            }
+        }
+        return linea.toString();
+    }
+
+    /**
+     * Respuesta HTTP leída por las pruebas.
+     */
+    private static class Respuesta {
+        int codigo;
+        Map<String, String> cabeceras = new HashMap<>();
+        byte[] cuerpo;
+    }
+
+    /**
+     * Detiene el servidor y elimina los archivos después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        servidor.detener();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio)) {
+            for (Path archivo : archivos) {
+                Files.delete(archivo);
+            }
+        }
+        Files.delete(directorio);
+        servidor = null;
+        libro = null;
+        grande = null;
+    }
+}
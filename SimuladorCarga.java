@@ -0,0 +1,543 @@
+/**
+ * Simulador de carga determinista para Biblioteca.
+ *
+ * Genera una biblioteca con el número de usuarios, libros y empleados pedido
+ * y la somete durante varios días simulados a préstamos, devoluciones,
+ * búsquedas y extensiones. Los libros y los usuarios se eligen con una
+ * distribución de Zipf (unos pocos títulos y lectores concentran la mayor
+ * parte del tráfico) y las palabras de los títulos también, de modo que las
+ * búsquedas se parecen a las reales. El tiempo lo marca un reloj simulado
+ * (RelojSimulado) que la biblioteca y sus préstamos usan en lugar del reloj
+ * del sistema: cada operación avanza el reloj y cada día cubre el horario de
+ * 8:00 a 20:00, con el cambio de turno a las 14:00.
+ *
+ * Con la misma semilla y configuración la secuencia de operaciones y sus
+ * resultados son idénticos; el informe incluye una huella de los resultados
+ * para comprobarlo. Además informa el rendimiento, los percentiles de
+ * latencia por tipo de operación y la memoria del heap que ocupa el sistema.
+ *
+ * Uso: java SimuladorCarga [usuarios] [libros] [empleados] [dias] [operacionesPorDia] [semilla]
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.*;
+import java.util.*;
+
+public class SimuladorCarga {
+    /** Operación de préstamo */
+    public static final int PRESTAMO = 0;
+    /** Operación de devolución */
+    public static final int DEVOLUCION = 1;
+    /** Operación de búsqueda por relevancia */
+    public static final int BUSQUEDA = 2;
+    /** Operación de extensión de un préstamo */
+    public static final int EXTENSION = 3;
+    /** Nombres de las operaciones, por constante */
+    private static final String[] NOMBRES = {"prestamo", "devolucion", "busqueda", "extension"};
+    /** Peso acumulado de cada operación sobre 100 */
+    private static final int[] MEZCLA = {40, 70, 95, 100};
+
+    /** Primer día simulado */
+    private static final LocalDate PRIMER_DIA = LocalDate.of(2024, 1, 1);
+    /** Hora de apertura */
+    private static final LocalTime APERTURA = LocalTime.of(8, 0);
+    /** Duración de la jornada */
+    private static final Duration JORNADA = Duration.ofHours(12);
+    /** Exponente de las distribuciones de Zipf */
+    private static final double EXPONENTE = 1.0;
+    /** Sílabas con las que se forman las palabras de los títulos */
+    private static final String[] SILABAS = {"ba", "ce", "di", "fo", "gu", "la", "me", "ni", "po", "ru",
+                                             "sa", "te", "vi", "zo", "cha", "mu"};
+
+    private final int numUsuarios;
+    private final int numLibros;
+    private final int numEmpleados;
+    private final int dias;
+    private final int operacionesPorDia;
+    private final long semilla;
+
+    /**
+     * Crea un simulador.
+     *
+     * @param numUsuarios Número de usuarios
+     * @param numLibros Número de libros, cada uno con su propio ISBN
+     * @param numEmpleados Número de empleados, repartidos entre los tres turnos
+     * @param dias Días simulados
+     * @param operacionesPorDia Operaciones en cada día
+     * @param semilla Semilla del generador aleatorio
+     * @throws IllegalArgumentException si algún número no es positivo
+     */
+    public SimuladorCarga(int numUsuarios, int numLibros, int numEmpleados, int dias,
+                          int operacionesPorDia, long semilla) {
+        if (numUsuarios <= 0 || numLibros <= 0 || numEmpleados <= 0 || dias <= 0 || operacionesPorDia <= 0) {
+            throw new IllegalArgumentException("Los tamaños de la simulación deben ser positivos");
+        }
+        this.numUsuarios = numUsuarios;
+        this.numLibros = numLibros;
+        this.numEmpleados = numEmpleados;
+        this.dias = dias;
+        this.operacionesPorDia = operacionesPorDia;
+        this.semilla = semilla;
+    }
+
+    /**
+     * Ejecuta la simulación. Los préstamos de la biblioteca simulada toman la
+     * fecha del reloj simulado; el resto del proceso no se ve afectado.
+     *
+     * @return Informe con los resultados
+     */
+    public Informe ejecutar() {
+        Random aleatorio = new Random(semilla);
+        RelojSimulado reloj = new RelojSimulado(PRIMER_DIA.atTime(APERTURA).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        long heapBase = memoriaUsada();
+        long inicio = System.nanoTime();
+        Biblioteca biblioteca = new Biblioteca("Biblioteca Simulada", "Simulación");
+        biblioteca.configurarReloj(reloj);
+        String[] titulos = poblar(biblioteca, aleatorio);
+        long nsCarga = System.nanoTime() - inicio;
+        long heapInicial = memoriaUsada() - heapBase;
+
+        DistribucionZipf libros = new DistribucionZipf(numLibros, EXPONENTE);
+        DistribucionZipf usuarios = new DistribucionZipf(numUsuarios, EXPONENTE);
+        HistogramaLatencias[] latencias = new HistogramaLatencias[NOMBRES.length];
+        for (int i = 0; i < latencias.length; i++) {
+            latencias[i] = new HistogramaLatencias();
+        }
+        long[] exitos = new long[NOMBRES.length];
+        // Préstamos en curso como (libro << 32 | empleado), para devolverlos o extenderlos
+        long[] activos = new long[1024];
+        int numActivos = 0;
+        long huella = 1;
+        Duration paso = JORNADA.dividedBy(operacionesPorDia);
+
+        inicio = System.nanoTime();
+        for (int dia = 0; dia < dias; dia++) {
+            reloj.fijar(PRIMER_DIA.plusDays(dia).atTime(APERTURA).toInstant(ZoneOffset.UTC));
+            for (int n = 0; n < operacionesPorDia; n++) {
+                int tipo = elegirOperacion(aleatorio.nextInt(100));
+                if (numActivos == 0 && (tipo == DEVOLUCION || tipo == EXTENSION)) {
+                    tipo = PRESTAMO;
+                }
+                boolean exito;
+                long antes = System.nanoTime();
+                if (tipo == PRESTAMO) {
+                    int libro = libros.siguiente(aleatorio);
+                    String idUsuario = "U" + usuarios.siguiente(aleatorio);
+                    int turno = AsignadorEmpleados.turnoEn(LocalTime.now(reloj));
+                    Empleado empleado = biblioteca.prestarLibro(isbn(libro), idUsuario, turno);
+                    exito = empleado != null;
+                    if (exito) {
+                        if (numActivos == activos.length) {
+                            activos = Arrays.copyOf(activos, 2 * numActivos);
+                        }
+                        activos[numActivos++] = (long) libro << 32 | Integer.parseInt(empleado.getId().substring(1));
+                    }
+                } else if (tipo == DEVOLUCION) {
+                    int i = aleatorio.nextInt(numActivos);
+                    long activo = activos[i];
+                    exito = biblioteca.devolverLibro(isbn((int) (activo >>> 32)), "E" + (int) activo);
+                    activos[i] = activos[--numActivos];
+                } else if (tipo == BUSQUEDA) {
+                    exito = !biblioteca.buscarLibros(titulos[libros.siguiente(aleatorio)], 10).isEmpty();
+                } else {
+                    long activo = activos[aleatorio.nextInt(numActivos)];
+                    exito = biblioteca.extenderPrestamo(isbn((int) (activo >>> 32)), "E" + (int) activo, 7);
+                }
+                latencias[tipo].registrar(System.nanoTime() - antes);
+                if (exito) {
+                    exitos[tipo]++;
+                }
+                huella = huella * 31 + (tipo * 2 + (exito ? 1 : 0));
+                reloj.avanzar(paso);
+            }
+        }
+        long nsSimulacion = System.nanoTime() - inicio;
+        long heapFinal = memoriaUsada() - heapBase;
+        return new Informe(this, nsCarga, nsSimulacion, latencias, exitos, numActivos,
+                           heapInicial, heapFinal, huella, biblioteca);
+    }
+
+    /**
+     * Agrega los empleados, los usuarios y los libros.
+     *
+     * @return Título de cada libro, por número de libro
+     */
+    private String[] poblar(Biblioteca biblioteca, Random aleatorio) {
+        for (int i = 0; i < numEmpleados; i++) {
+            Empleado empleado = new Empleado("Empleado " + i, "E" + i, 10000, "Bibliotecario");
+            empleado.setTurno(i % 3);
+            biblioteca.agregarEmpleado(empleado);
+        }
+        for (int i = 0; i < numUsuarios; i++) {
+            biblioteca.agregarUsuario(new Usuario("Usuario " + i, "U" + i));
+        }
+        int vocabulario = Math.max(100, numLibros / 10);
+        DistribucionZipf palabras = new DistribucionZipf(vocabulario, EXPONENTE);
+        String[] titulos = new String[numLibros];
+        for (int i = 0; i < numLibros; i++) {
+            titulos[i] = palabra(palabras.siguiente(aleatorio)) + " " + palabra(palabras.siguiente(aleatorio))
+                         + " " + palabra(palabras.siguiente(aleatorio));
+            biblioteca.agregarLibro(new Libro(titulos[i], "Autor " + (i % 1000), isbn(i), 100 + i % 400));
+        }
+        return titulos;
+    }
+
+    /**
+     * Elige una operación según MEZCLA.
+     */
+    private static int elegirOperacion(int sorteo) {
+        int tipo = 0;
+        while (sorteo >= MEZCLA[tipo]) {
+            tipo++;
+        }
+        return tipo;
+    }
+
+    /**
+     * Forma la palabra de un número, con una sílaba por cada dígito en base 16.
+     */
+    private static String palabra(int numero) {
+        StringBuilder palabra = new StringBuilder();
+        do {
+            palabra.append(SILABAS[numero & 15]);
+            numero >>>= 4;
+        } while (numero != 0);
+        return palabra.toString();
+    }
+
+    /**
+     * ISBN de trece dígitos de un número de libro.
+     */
+    private static String isbn(int libro) {
+        String digitos = Integer.toString(libro);
+        return "0000000000000".substring(digitos.length()) + digitos;
+    }
+
+    /**
+     * Memoria del heap en uso después de recolectar la basura.
+     */
+    private static long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Ejecuta la simulación e imprime el informe.
+     * @param args usuarios, libros, empleados, días, operaciones por día y semilla
+     */
+    public static void main(String[] args) {
+        int usuarios = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int libros = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        int empleados = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int dias = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+        int operaciones = args.length > 4 ? Integer.parseInt(args[4]) : 20000;
+        long semilla = args.length > 5 ? Long.parseLong(args[5]) : 1;
+        System.out.println(new SimuladorCarga(usuarios, libros, empleados, dias, operaciones, semilla).ejecutar());
+    }
+
+    /**
+     * Reloj que sólo avanza cuando se le indica.
+     */
+    public static final class RelojSimulado extends Clock {
+        private volatile Instant ahora;
+        private final ZoneId zona;
+
+        /**
+         * Crea un reloj detenido en un instante.
+         * @param ahora Instante inicial
+         * @param zona Zona horaria
+         */
+        public RelojSimulado(Instant ahora, ZoneId zona) {
+            this.ahora = ahora;
+            this.zona = zona;
+        }
+
+        /**
+         * Avanza el reloj.
+         * @param duracion Tiempo que avanza
+         */
+        public void avanzar(Duration duracion) {
+            ahora = ahora.plus(duracion);
+        }
+
+        /**
+         * Lleva el reloj a un instante.
+         * @param instante El nuevo instante
+         */
+        public void fijar(Instant instante) {
+            ahora = instante;
+        }
+
+        @Override
+        public Instant instant() {
+            return ahora;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zona;
+        }
+
+        @Override
+        public Clock withZone(ZoneId otra) {
+            return new RelojSimulado(ahora, otra);
+        }
+    }
+
+    /**
+     * Distribución de Zipf sobre los rangos 0..n-1: el rango k se elige con
+     * probabilidad proporcional a 1/(k+1)^s. Guarda la distribución acumulada
+     * y cada muestra es una búsqueda binaria.
+     */
+    public static final class DistribucionZipf {
+        private final double[] acumulada;
+
+        /**
+         * Crea la distribución.
+         * @param n Número de rangos
+         * @param exponente Exponente s; 0 es uniforme
+         */
+        public DistribucionZipf(int n, double exponente) {
+            acumulada = new double[n];
+            double suma = 0;
+            for (int k = 0; k < n; k++) {
+                suma += 1 / Math.pow(k + 1, exponente);
+                acumulada[k] = suma;
+            }
+            for (int k = 0; k < n; k++) {
+                acumulada[k] /= suma;
+            }
+        }
+
+        /**
+         * Obtiene el siguiente rango.
+         * @param aleatorio Generador del que se toma la muestra
+         * @return Rango entre 0 y n-1; los menores son los más frecuentes
+         */
+        public int siguiente(Random aleatorio) {
+            int indice = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+            return Math.min(indice >= 0 ? indice : -indice - 1, acumulada.length - 1);
+        }
+    }
+
+    /**
+     * Histograma de latencias en nanosegundos con cubetas logarítmicas: 16
+     * cubetas por cada potencia de dos, con un error relativo menor al 6.25%.
+     * Ocupa lo mismo registre diez o mil millones de valores.
+     */
+    public static final class HistogramaLatencias {
+        /** Bits de subcubeta dentro de cada potencia de dos */
+        private static final int BITS = 4;
+        /** Valores menores a este se cuentan exactos */
+        private static final int LINEAL = 2 << BITS;
+
+        private final long[] cuentas = new long[LINEAL + (64 - BITS - 1) * (1 << BITS)];
+        private long total;
+        private long maximo;
+
+        /**
+         * Registra una latencia.
+         * @param nanos Latencia en nanosegundos
+         */
+        public void registrar(long nanos) {
+            long valor = Math.max(0, nanos);
+            cuentas[cubeta(valor)]++;
+            total++;
+            maximo = Math.max(maximo, valor);
+        }
+
+        /**
+         * Obtiene el número de latencias registradas.
+         * @return Total de registros
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Obtiene la mayor latencia registrada.
+         * @return Máximo en nanosegundos
+         */
+        public long getMaximo() {
+            return maximo;
+        }
+
+        /**
+         * Obtiene un percentil.
+         * @param p Fracción entre 0 y 1
+         * @return Cota superior de la cubeta del percentil, en nanosegundos, o 0 si no hay registros
+         */
+        public long percentil(double p) {
+            long objetivo = (long) Math.ceil(p * total);
+            long acumulado = 0;
+            for (int i = 0; i < cuentas.length; i++) {
+                acumulado += cuentas[i];
+                if (acumulado >= Math.max(1, objetivo)) {
+                    return Math.min(maximo, limite(i));
+                }
+            }
+            return maximo;
+        }
+
+        private static int cubeta(long valor) {
+            if (valor < LINEAL) {
+                return (int) valor;
+            }
+            int exponente = 63 - Long.numberOfLeadingZeros(valor);
+            int sub = (int) (valor >>> (exponente - BITS)) & ((1 << BITS) - 1);
+            return LINEAL + (exponente - BITS - 1) * (1 << BITS) + sub;
+        }
+
+        private static long limite(int cubeta) {
+            if (cubeta < LINEAL) {
+                return cubeta;
+            }
+            int exponente = (cubeta - LINEAL) / (1 << BITS) + BITS + 1;
+            int sub = (cubeta - LINEAL) % (1 << BITS);
+            return ((long) ((1 << BITS) + sub + 1) << (exponente - BITS)) - 1;
+        }
+    }
+
+    /**
+     * Resultados de una simulación.
+     */
+    public static final class Informe {
+        private final SimuladorCarga simulador;
+        private final long nsCarga;
+        private final long nsSimulacion;
+        private final HistogramaLatencias[] latencias;
+        private final long[] exitos;
+        private final int prestamosActivos;
+        private final long heapInicial;
+        private final long heapFinal;
+        private final long huella;
+        private final Biblioteca biblioteca;
+
+        Informe(SimuladorCarga simulador, long nsCarga, long nsSimulacion, HistogramaLatencias[] latencias,
+                long[] exitos, int prestamosActivos, long heapInicial, long heapFinal, long huella,
+                Biblioteca biblioteca) {
+            this.simulador = simulador;
+            this.nsCarga = nsCarga;
+            this.nsSimulacion = nsSimulacion;
+            this.latencias = latencias;
+            this.exitos = exitos;
+            this.prestamosActivos = prestamosActivos;
+            this.heapInicial = heapInicial;
+            this.heapFinal = heapFinal;
+            this.huella = huella;
+            this.biblioteca = biblioteca;
+        }
+
+        /**
+         * Obtiene la biblioteca simulada, en su estado final.
+         * @return La biblioteca
+         */
+        public Biblioteca getBiblioteca() {
+            return biblioteca;
+        }
+
+        /**
+         * Obtiene el número de operaciones de un tipo.
+         * @param tipo PRESTAMO, DEVOLUCION, BUSQUEDA o EXTENSION
+         * @return Operaciones realizadas
+         */
+        public long getOperaciones(int tipo) {
+            return latencias[tipo].getTotal();
+        }
+
+        /**
+         * Obtiene el número de operaciones exitosas de un tipo.
+         * @param tipo PRESTAMO, DEVOLUCION, BUSQUEDA o EXTENSION
+         * @return Operaciones exitosas
+         */
+        public long getExitos(int tipo) {
+            return exitos[tipo];
+        }
+
+        /**
+         * Obtiene las latencias de un tipo de operación.
+         * @param tipo PRESTAMO, DEVOLUCION, BUSQUEDA o EXTENSION
+         * @return Histograma de latencias
+         */
+        public HistogramaLatencias getLatencias(int tipo) {
+            return latencias[tipo];
+        }
+
+        /**
+         * Obtiene el número de préstamos que quedaron en curso.
+         * @return Préstamos activos al terminar
+         */
+        public int getPrestamosActivos() {
+            return prestamosActivos;
+        }
+
+        /**
+         * Obtiene el rendimiento de la simulación, sin contar la carga inicial.
+         * @return Operaciones por segundo
+         */
+        public double getOperacionesPorSegundo() {
+            long total = 0;
+            for (HistogramaLatencias histograma : latencias) {
+                total += histograma.getTotal();
+            }
+            return total * 1e9 / Math.max(1, nsSimulacion);
+        }
+
+        /**
+         * Obtiene la memoria del heap ocupada por el sistema tras la carga inicial.
+         * @return Bytes en uso después de recolectar la basura
+         */
+        public long getHeapInicial() {
+            return heapInicial;
+        }
+
+        /**
+         * Obtiene la memoria del heap ocupada por el sistema al terminar.
+         * @return Bytes en uso después de recolectar la basura
+         */
+        public long getHeapFinal() {
+            return heapFinal;
+        }
+
+        /**
+         * Obtiene una huella de la secuencia de operaciones y sus resultados;
+         * coincide entre ejecuciones con la misma semilla y configuración.
+         * @return Huella de la simulación
+         */
+        public long getHuella() {
+            return huella;
+        }
+
+        /**
+         * Retorna el informe en texto.
+         * @return String con la configuración, el rendimiento, las latencias y la memoria
+         */
+        public String toString() {
+            StringBuilder texto = new StringBuilder();
+            texto.append(String.format("Usuarios: %d, libros: %d, empleados: %d, días: %d, operaciones por día: %d, semilla: %d%n",
+                                       simulador.numUsuarios, simulador.numLibros, simulador.numEmpleados,
+                                       simulador.dias, simulador.operacionesPorDia, simulador.semilla));
+            texto.append(String.format("Carga inicial: %.1f s; simulación: %.1f s, %.0f operaciones/s%n",
+                                       nsCarga / 1e9, nsSimulacion / 1e9, getOperacionesPorSegundo()));
+            texto.append(String.format("%-11s %10s %10s %10s %10s %10s %10s%n",
+                                       "operación", "total", "exitosas", "p50 µs", "p99 µs", "p99.9 µs", "máx µs"));
+            for (int tipo = 0; tipo < NOMBRES.length; tipo++) {
+                HistogramaLatencias histograma = latencias[tipo];
+                texto.append(String.format("%-11s %10d %10d %10.1f %10.1f %10.1f %10.1f%n", NOMBRES[tipo],
+                                           histograma.getTotal(), exitos[tipo], histograma.percentil(0.50) / 1e3,
+                                           histograma.percentil(0.99) / 1e3, histograma.percentil(0.999) / 1e3,
+                                           histograma.getMaximo() / 1e3));
+            }
+            texto.append(String.format("Préstamos en curso al terminar: %d%n", prestamosActivos));
+            texto.append(String.format("Heap tras la carga: %.1f MB (%.0f bytes por libro); al terminar: %.1f MB%n",
+                                       heapInicial / 1048576.0, (double) heapInicial / simulador.numLibros,
+                                       heapFinal / 1048576.0));
+            texto.append(String.format("Huella: %016x", huella));
+            return texto.toString();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Clase de pruebas unitarias para la clase SimuladorCarga.
+ * Verifica que la simulación sea reproducible con la misma semilla, la
+ * distribución de Zipf y los percentiles del histograma de latencias.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class SimuladorCargaTest
+{
+    /** Generador con semilla fija */
+    private Random aleatorio;
+
+    /**
+     * Inicializa el generador aleatorio.
+     */
+    @BeforeEach
+    public void setUp() {
+        aleatorio = new Random(11);
+    }
+
+    /**
+     * Prueba que dos simulaciones con la misma semilla den los mismos
+     * resultados y que una semilla distinta cambie la huella.
+     */
+    @Test
+    public void testReproducible() {
+        SimuladorCarga.Informe primero = new SimuladorCarga(300, 1000, 4, 3, 1500, 7).ejecutar();
+        SimuladorCarga.Informe segundo = new SimuladorCarga(300, 1000, 4, 3, 1500, 7).ejecutar();
+        SimuladorCarga.Informe otro = new SimuladorCarga(300, 1000, 4, 3, 1500, 8).ejecutar();
+
+        assertEquals(primero.getHuella(), segundo.getHuella());
+        long total = 0;
+        for (int tipo = SimuladorCarga.PRESTAMO; tipo <= SimuladorCarga.EXTENSION; tipo++) {
+            assertEquals(primero.getOperaciones(tipo), segundo.getOperaciones(tipo));
+            assertEquals(primero.getExitos(tipo), segundo.getExitos(tipo));
+            assertTrue(primero.getOperaciones(tipo) > 0);
+            total += primero.getOperaciones(tipo);
+        }
+        assertEquals(3 * 1500, total);
+        assertEquals(primero.getPrestamosActivos(), primero.getBiblioteca().getLibrosPrestados().size());
+        assertNotEquals(primero.getHuella(), otro.getHuella());
+
+        // Los préstamos de la simulación tienen fechas simuladas y los demás no
+        Prestamo simulado = primero.getBiblioteca().obtenerEmpleado("E0").getHistorialPrestamos().get(0);
+        assertEquals(2024, simulado.getFechaPrestamo().getYear());
+        assertEquals(LocalDate.now(), new Prestamo("P0001", new Usuario("Ana", "U1"),
+                     new Libro("Ficciones", "Borges", "9788499089515", 224)).getFechaPrestamo());
+    }
+
+    /**
+     * Prueba que la distribución de Zipf favorezca los primeros rangos en la
+     * proporción esperada.
+     */
+    @Test
+    public void testDistribucionZipf() {
+        SimuladorCarga.DistribucionZipf zipf = new SimuladorCarga.DistribucionZipf(1000, 1.0);
+        int[] cuentas = new int[1000];
+        int muestras = 200000;
+        for (int i = 0; i < muestras; i++) {
+            cuentas[zipf.siguiente(aleatorio)]++;
+        }
+        double armonico = 0;
+        for (int k = 1; k <= 1000; k++) {
+            armonico += 1.0 / k;
+        }
+        assertEquals(muestras / armonico, cuentas[0], muestras / armonico * 0.05);
+        assertEquals(2.0, (double) cuentas[0] / cuentas[1], 0.15);
+        assertTrue(cuentas[0] > 50 * cuentas[999]);
+    }
+
+    /**
+     * Prueba los percentiles del histograma contra latencias ordenadas.
+     */
+    @Test
+    public void testHistogramaLatencias() {
+        SimuladorCarga.HistogramaLatencias histograma = new SimuladorCarga.HistogramaLatencias();
+        assertEquals(0, histograma.percentil(0.99));
+        long[] valores = new long[100000];
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = (long) Math.exp(aleatorio.nextDouble() * 20);
+            histograma.registrar(valores[i]);
+        }
+        Arrays.sort(valores);
+        assertEquals(valores.length, histograma.getTotal());
+        assertEquals(valores[valores.length - 1], histograma.getMaximo());
+        for (double p : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long exacto = valores[(int) Math.ceil(p * valores.length) - 1];
+            long aproximado = histograma.percentil(p);
+            assertTrue(aproximado >= exacto && aproximado <= exacto * 1.0625 + 1, p + ": " + exacto + " " + aproximado);
+        }
+    }
+
+    /**
+     * Limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        aleatorio = null;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Representa una solicitud de préstamo o de devolución dentro de un lote.
+ * Se usa con Biblioteca.prestarLibros y Biblioteca.devolverLibros para procesar
+ * muchas operaciones con una sola adquisición del cerrojo de la biblioteca.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class SolicitudPrestamo {
+    /** ISBN del libro solicitado */
+    private final String isbn;
+    /** ID del usuario que solicita el préstamo (null en devoluciones) */
+    private final String idUsuario;
+    /** ID del empleado que procesa la operación */
+    private final String idEmpleado;
+
+    /**
+     * Crea una solicitud de préstamo.
+     *
+     * @param isbn El ISBN del libro a prestar
+     * @param idUsuario El ID del usuario que solicita el préstamo
+     * @param idEmpleado El ID del empleado que procesa el préstamo
+     */
+    public SolicitudPrestamo(String isbn, String idUsuario, String idEmpleado) {
+        this.isbn = isbn;
+        this.idUsuario = idUsuario;
+        this.idEmpleado = idEmpleado;
+    }
+
+    /**
+     * Crea una solicitud de devolución.
+     *
+     * @param isbn El ISBN del libro a devolver
+     * @param idEmpleado El ID del empleado que procesa la devolución
+     */
+    public SolicitudPrestamo(String isbn, String idEmpleado) {
+        this(isbn, null, idEmpleado);
+    }
+
+    /**
+     * Obtiene el ISBN del libro solicitado.
+     * @return ISBN del libro
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * Obtiene el ID del usuario solicitante.
+     * @return ID del usuario o null si es una devolución
+     */
+    public String getIdUsuario() {
+        return idUsuario;
+    }
+
+    /**
+     * Obtiene el ID del empleado que procesa la solicitud.
+     * @return ID del empleado
+     */
+    public String getIdEmpleado() {
+        return idEmpleado;
+    }
+
+    /**
+     * Devuelve una representación en cadena de la solicitud.
+     * @return String con los datos de la solicitud
+     */
+    public String toString() {
+        return "Solicitud [isbn=" + isbn + ", usuario=" + idUsuario + ", empleado=" + idEmpleado + "]";
+    }
+}
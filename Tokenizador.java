@@ -0,0 +1,62 @@
+/**
+ * Utilidades para normalizar y dividir en palabras los textos del catálogo.
+ * El plegado convierte a minúsculas y elimina las marcas diacríticas, de modo
+ * que "Canción", "CANCION" y "cancion" se comparan como iguales; la ñ se
+ * pliega a n, igual que en la mayoría de los catálogos en español.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.text.Normalizer;
+import java.util.*;
+
+public final class Tokenizador {
+
+    /**
+     * Constructor privado: la clase sólo ofrece métodos estáticos.
+     */
+    private Tokenizador() {
+    }
+
+    /**
+     * Pliega un texto para compararlo: minúsculas y sin marcas diacríticas.
+     * @param texto Texto a plegar
+     * @return Texto plegado
+     */
+    public static String plegar(String texto) {
+        String descompuesto = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder plegado = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                plegado.append(c);
+            }
+        }
+        return plegado.toString();
+    }
+
+    /**
+     * Divide un texto en palabras plegadas. Cualquier carácter que no sea letra
+     * ni dígito actúa como separador.
+     * @param texto Texto a dividir
+     * @return Lista de palabras plegadas, en orden de aparición
+     */
+    public static List<String> tokenizar(String texto) {
+        List<String> palabras = new ArrayList<>();
+        if (texto == null) {
+            return palabras;
+        }
+        String plegado = plegar(texto);
+        int inicio = -1;
+        for (int i = 0; i <= plegado.length(); i++) {
+            boolean parte = i < plegado.length() && Character.isLetterOrDigit(plegado.charAt(i));
+            if (parte && inicio < 0) {
+                inicio = i;
+            } else if (!parte && inicio >= 0) {
+                palabras.add(plegado.substring(inicio, i));
+                inicio = -1;
+            }
+        }
+        return palabras;
+    }
+}
@@ -0,0 +1,276 @@
+/**
+ * Trabajador que atiende los préstamos y devoluciones de un empleado en su
+ * propio hilo, al estilo de un actor.
+ *
+ * Las peticiones llegan a un buzón acotado (ArrayBlockingQueue) desde cualquier
+ * número de hilos y sólo las consume el hilo del trabajador, de modo que el
+ * estado del empleado se modifica desde un solo hilo. El trabajador toma las
+ * peticiones en lotes y aplica cada tramo de préstamos o devoluciones
+ * consecutivos con Biblioteca.prestarLibros o Biblioteca.devolverLibros, que
+ * adquieren el cerrojo de la biblioteca una sola vez por tramo.
+ *
+ * Cuando el buzón está lleno, quien envía espera (contrapresión) o, con las
+ * variantes con tiempo límite, recibe null y puede reintentar o rechazar la
+ * operación. Cada petición devuelve un CompletableFuture con su resultado.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TrabajadorEmpleado {
+    /** Capacidad por defecto del buzón */
+    public static final int CAPACIDAD_POR_DEFECTO = 256;
+    /** Número máximo de peticiones que se toman del buzón de una vez */
+    public static final int MAXIMO_LOTE = 64;
+
+    /** Biblioteca sobre la que se aplican las peticiones */
+    private final Biblioteca biblioteca;
+    /** Empleado que procesa las peticiones */
+    private final Empleado empleado;
+    /** Buzón de peticiones pendientes */
+    private final BlockingQueue<Peticion> buzon;
+    /** Hilo del trabajador, o null si no se ha iniciado */
+    private Thread hilo;
+    /** Indica si el trabajador acepta peticiones */
+    private volatile boolean activo;
+    /** Peticiones procesadas */
+    private final LongAdder procesadas;
+    /** Lotes tomados del buzón */
+    private final LongAdder lotes;
+    /** Peticiones rechazadas porque el buzón siguió lleno */
+    private final LongAdder rechazadas;
+
+    /**
+     * Crea un trabajador sin iniciarlo.
+     *
+     * @param biblioteca Biblioteca sobre la que se aplican las peticiones
+     * @param empleado Empleado que procesa las peticiones
+     * @param capacidad Número máximo de peticiones en espera
+     */
+    public TrabajadorEmpleado(Biblioteca biblioteca, Empleado empleado, int capacidad) {
+        this.biblioteca = biblioteca;
+        this.empleado = empleado;
+        this.buzon = new ArrayBlockingQueue<>(capacidad);
+        this.procesadas = new LongAdder();
+        this.lotes = new LongAdder();
+        this.rechazadas = new LongAdder();
+    }
+
+    /**
+     * Inicia el hilo del trabajador (virtual si la plataforma lo permite).
+     */
+    public synchronized void iniciar() {
+        if (hilo == null) {
+            activo = true;
+            hilo = Hilos.iniciar("empleado-" + empleado.getId(), this::ejecutar);
+        }
+    }
+
+    /**
+     * Deja de aceptar peticiones. Las que ya estaban en el buzón se procesan
+     * antes de que el hilo termine.
+     */
+    public synchronized void detener() {
+        activo = false;
+        if (hilo != null) {
+            hilo.interrupt();
+        }
+    }
+
+    /**
+     * Obtiene el empleado del trabajador.
+     * @return El empleado
+     */
+    public Empleado getEmpleado() {
+        return empleado;
+    }
+
+    /**
+     * Solicita un préstamo. Si el buzón está lleno, espera a que haya espacio.
+     *
+     * @param isbn El ISBN del libro a prestar
+     * @param idUsuario El ID del usuario que solicita el préstamo
+     * @return Resultado del préstamo
+     * @throws InterruptedException si se interrumpe la espera
+     * @throws IllegalStateException si el trabajador no está activo
+     */
+    public CompletableFuture<Boolean> prestarLibro(String isbn, String idUsuario) throws InterruptedException {
+        return enviar(new SolicitudPrestamo(isbn, idUsuario, empleado.getId()), -1);
+    }
+
+    /**
+     * Solicita un préstamo esperando como mucho el tiempo indicado a que haya
+     * espacio en el buzón.
+     *
+     * @param isbn El ISBN del libro a prestar
+     * @param idUsuario El ID del usuario que solicita el préstamo
+     * @param espera Tiempo máximo de espera
+     * @return Resultado del préstamo, o null si el buzón siguió lleno
+     * @throws InterruptedException si se interrumpe la espera
+     * @throws IllegalStateException si el trabajador no está activo
+     */
+    public CompletableFuture<Boolean> prestarLibro(String isbn, String idUsuario, Duration espera)
+            throws InterruptedException {
+        return enviar(new SolicitudPrestamo(isbn, idUsuario, empleado.getId()), espera.toNanos());
+    }
+
+    /**
+     * Solicita una devolución. Si el buzón está lleno, espera a que haya espacio.
+     *
+     * @param isbn El ISBN del libro a devolver
+     * @return Resultado de la devolución
+     * @throws InterruptedException si se interrumpe la espera
+     * @throws IllegalStateException si el trabajador no está activo
+     */
+    public CompletableFuture<Boolean> devolverLibro(String isbn) throws InterruptedException {
+        return enviar(new SolicitudPrestamo(isbn, empleado.getId()), -1);
+    }
+
+    /**
+     * Solicita una devolución esperando como mucho el tiempo indicado a que
+     * haya espacio en el buzón.
+     *
+     * @param isbn El ISBN del libro a devolver
+     * @param espera Tiempo máximo de espera
+     * @return Resultado de la devolución, o null si el buzón siguió lleno
+     * @throws InterruptedException si se interrumpe la espera
+     * @throws IllegalStateException si el trabajador no está activo
+     */
+    public CompletableFuture<Boolean> devolverLibro(String isbn, Duration espera) throws InterruptedException {
+        return enviar(new SolicitudPrestamo(isbn, empleado.getId()), espera.toNanos());
+    }
+
+    /**
+     * Obtiene el número de peticiones en el buzón.
+     * @return Peticiones pendientes
+     */
+    public int getPendientes() {
+        return buzon.size();
+    }
+
+    /**
+     * Obtiene el número de peticiones procesadas.
+     * @return Peticiones procesadas
+     */
+    public long getProcesadas() {
+        return procesadas.sum();
+    }
+
+    /**
+     * Obtiene el número de lotes tomados del buzón.
+     * @return Lotes procesados
+     */
+    public long getLotes() {
+        return lotes.sum();
+    }
+
+    /**
+     * Obtiene el número de peticiones rechazadas por tener el buzón lleno.
+     * @return Peticiones rechazadas
+     */
+    public long getRechazadas() {
+        return rechazadas.sum();
+    }
+
+    /**
+     * Deja una petición en el buzón.
+     *
+     * @param espera Nanosegundos de espera máxima, o -1 para esperar sin límite
+     */
+    private CompletableFuture<Boolean> enviar(SolicitudPrestamo solicitud, long espera) throws InterruptedException {
+        if (!activo) {
+            throw new IllegalStateException("El trabajador de " + empleado.getId() + " no está activo");
+        }
+        Peticion peticion = new Peticion(solicitud);
+        if (espera < 0) {
+            buzon.put(peticion);
+        } else if (!buzon.offer(peticion, espera, TimeUnit.NANOSECONDS)) {
+            rechazadas.increment();
+            return null;
+        }
+        // Si el trabajador se detuvo mientras se encolaba, puede que ya no la tome
+        if (!activo && buzon.remove(peticion)) {
+            throw new IllegalStateException("El trabajador de " + empleado.getId() + " no está activo");
+        }
+        return peticion.resultado;
+    }
+
+    /**
+     * Bucle del hilo del trabajador.
+     */
+    private void ejecutar() {
+        List<Peticion> lote = new ArrayList<>(MAXIMO_LOTE);
+        while (activo || !buzon.isEmpty()) {
+            try {
+                Peticion primera = buzon.poll(100, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+            } catch (InterruptedException e) {
+                // detener(): se vacía el buzón antes de terminar
+            }
+            buzon.drainTo(lote, MAXIMO_LOTE - lote.size());
+            if (!lote.isEmpty()) {
+                procesar(lote);
+                lote.clear();
+            }
+        }
+    }
+
+    /**
+     * Aplica un lote en orden, agrupando los préstamos y devoluciones consecutivos.
+     */
+    private void procesar(List<Peticion> lote) {
+        lotes.increment();
+        int inicio = 0;
+        while (inicio < lote.size()) {
+            boolean devolucion = lote.get(inicio).esDevolucion();
+            int fin = inicio + 1;
+            while (fin < lote.size() && lote.get(fin).esDevolucion() == devolucion) {
+                fin++;
+            }
+            List<SolicitudPrestamo> solicitudes = new ArrayList<>(fin - inicio);
+            for (int i = inicio; i < fin; i++) {
+                solicitudes.add(lote.get(i).solicitud);
+            }
+            procesadas.add(fin - inicio);
+            try {
+                List<Boolean> resultados = devolucion ? biblioteca.devolverLibros(solicitudes)
+                                                      : biblioteca.prestarLibros(solicitudes);
+                for (int i = inicio; i < fin; i++) {
+                    lote.get(i).resultado.complete(resultados.get(i - inicio));
+                }
+            } catch (RuntimeException e) {
+                for (int i = inicio; i < fin; i++) {
+                    lote.get(i).resultado.completeExceptionally(e);
+                }
+            }
+            inicio = fin;
+        }
+    }
+
+    /**
+     * Petición en el buzón con el futuro de su resultado.
+     */
+    private static class Peticion {
+        final SolicitudPrestamo solicitud;
+        final CompletableFuture<Boolean> resultado;
+
+        Peticion(SolicitudPrestamo solicitud) {
+            this.solicitud = solicitud;
+            this.resultado = new CompletableFuture<>();
+        }
+
+        boolean esDevolucion() {
+            return solicitud.getIdUsuario() == null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase de pruebas unitarias para la clase TrabajadorEmpleado.
+ * Verifica el procesamiento en lotes y la contrapresión del buzón.
+ *
+ * @author Roberto Salazar Márquez
+ * @version 1.0
+ */
+public class TrabajadorEmpleadoTest
+{
+    /** Biblioteca para las pruebas */
+    private Biblioteca biblioteca;
+    /** Trabajador de prueba, con un buzón de dos peticiones */
+    private TrabajadorEmpleado trabajador;
+
+    /**
+     * Configura una biblioteca con un empleado, dos usuarios y dos libros.
+     */
+    @BeforeEach
+    public void setUp() {
+        biblioteca = new Biblioteca("Biblioteca Central", "Av. Universidad 3000");
+        Empleado empleado = new Empleado("Juan Pérez", "E001", 16000.00, "Bibliotecario");
+        biblioteca.agregarEmpleado(empleado);
+        biblioteca.agregarUsuario(new Usuario("Ana López", "U001"));
+        biblioteca.agregarUsuario(new Usuario("Carlos Ruiz", "U002"));
+        biblioteca.agregarLibro(new Libro("Don Quijote de la Mancha", "Miguel de Cervantes", "9788424922498", 863));
+        biblioteca.agregarLibro(new Libro("Cien años de soledad", "Gabriel García Márquez", "9780307474728", 417));
+        trabajador = new TrabajadorEmpleado(biblioteca, empleado, 2);
+        trabajador.iniciar();
+    }
+
+    /**
+     * Prueba que préstamos y devoluciones se apliquen en el orden de llegada.
+     */
+    @Test
+    public void testPeticionesEnOrden() throws Exception {
+        CompletableFuture<Boolean> p1 = trabajador.prestarLibro("9788424922498", "U001");
+        CompletableFuture<Boolean> p2 = trabajador.prestarLibro("9788424922498", "U002");
+        CompletableFuture<Boolean> d1 = trabajador.devolverLibro("9788424922498");
+        CompletableFuture<Boolean> p3 = trabajador.prestarLibro("9788424922498", "U002");
+        CompletableFuture<Boolean> p4 = trabajador.prestarLibro("9780307474728", "U999");
+
+        assertTrue(p1.get(5, TimeUnit.SECONDS));
+        assertFalse(p2.get(5, TimeUnit.SECONDS));
+        assertTrue(d1.get(5, TimeUnit.SECONDS));
+        assertTrue(p3.get(5, TimeUnit.SECONDS));
+        assertFalse(p4.get(5, TimeUnit.SECONDS));
+        assertEquals(5, trabajador.getProcesadas());
+        assertEquals(1, biblioteca.getLibrosPrestados().size());
+    }
+
+    /**
+     * Prueba que con el buzón lleno el envío con tiempo límite se rechace.
+     */
+    @Test
+    public void testContrapresion() throws Exception {
+        CompletableFuture<Boolean> primera;
+        CompletableFuture<Boolean> segunda;
+        synchronized (biblioteca) {
+            // El trabajador toma la primera petición y queda bloqueado en la biblioteca
+            primera = trabajador.prestarLibro("9788424922498", "U001");
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (trabajador.getPendientes() > 0 && System.nanoTime() < limite) {
+                Thread.sleep(1);
+            }
+            segunda = trabajador.prestarLibro("9780307474728", "U002", Duration.ofMillis(10));
+            assertNotNull(trabajador.devolverLibro("9788424922498", Duration.ofMillis(10)));
+            assertNull(trabajador.prestarLibro("9780307474728", "U001", Duration.ofMillis(10)));
+            assertEquals(1, trabajador.getRechazadas());
+        }
+        assertTrue(primera.get(5, TimeUnit.SECONDS));
+        assertTrue(segunda.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Prueba que un trabajador detenido no acepte peticiones y que la
+     * biblioteca cree un trabajador por empleado.
+     */
+    @Test
+    public void testDetener() {
+        trabajador.detener();
+        assertThrows(IllegalStateException.class, () -> trabajador.prestarLibro("9788424922498", "U001"));
+        assertSame(biblioteca.getTrabajador("E001"), biblioteca.getTrabajador("E001"));
+        assertNull(biblioteca.getTrabajador("E999"));
+        biblioteca.eliminarEmpleado("E001");
+    }
+
+    /**
+     * Detiene el trabajador y limpia las referencias después de cada prueba.
+     */
+    @AfterEach
+    public void tearDown() {
+        trabajador.detener();
+        trabajador = null;
+        biblioteca = null;
+    }
+}
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.util.*;
 
 /**
  * Clase de prueba para la clase Usuario.
@@ -89,4 +90,20 @@ public class UsuarioTest
     public void testToString() {
         assertEquals("ID: U001, Nombre: Juan Pérez. No tiene en préstamo un libro.", usuario.toString());
     }
+
+    /**
+     * Prueba la igualdad por ID.
+     * Verifica que una copia sea igual al original y que la clase cuente.
+     */
+    @Test
+    public void testIgualdadPorId() {
+        Usuario copia = new Usuario(usuario);
+        assertEquals(usuario, copia);
+        assertEquals(usuario.hashCode(), copia.hashCode());
+        assertNotEquals(usuario, new Usuario("Juan Pérez", "U002"));
+        assertNotEquals(usuario, new Empleado("Juan Pérez", "U001", 10000, "Asistente"));
+        Set<Usuario> conjunto = new HashSet<>(Arrays.asList(usuario, copia));
+        assertEquals(1, conjunto.size());
+        assertTrue(conjunto.contains(new Usuario("Otro nombre", "U001")));
+    }
 }